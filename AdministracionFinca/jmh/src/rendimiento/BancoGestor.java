@@ -0,0 +1,127 @@
+package rendimiento;
+
+import modelo.Factura;
+import modelo.FichaVisita;
+import modelo.Vecino;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import servicio.Agregados;
+import servicio.GestorComunidad;
+import servicio.IndiceTexto;
+import servicio.Informe;
+import servicio.MotorInformes;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Las operaciones más usadas de {@link GestorComunidad}, sobre {@link DatosSinteticos} de varios tamaños
+ * (número de visitas; hay una décima parte de vecinos).
+ *
+ * - facturar: alta de una visita y su factura (crearFichaVisita + crearFactura), sobre un gestor propio.
+ * - pendientes: getVisitasPendientes de un vecino cualquiera.
+ * - agregados: los totales del panel de control; informe: el de {@link MotorInformes}, sin caché.
+ * - refrescarListas: lo que hace la ventana al recargar: instantáneas de las listas y las filas visibles.
+ * - buscar: búsqueda de texto sobre las visitas con {@link IndiceTexto}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class BancoGestor {
+
+    static final long SEMILLA = 20240101L;
+    private static final int FILAS_VISIBLES = 40;
+    private static final String[] CONSULTAS = {"caldera", "jard", "revision asc", "lucia", "fuga garaje"};
+
+    @Param({"10000", "100000", "1000000"})
+    public int numVisitas;
+
+    private GestorComunidad gestor; // lo modifica facturar
+    private List<Vecino> vecinos;
+    private GestorComunidad consulta; // solo se consulta
+    private List<Vecino> deConsulta;
+    private IndiceTexto indice;
+    private SplittableRandom azar;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        gestor = nuevoGestor(numVisitas);
+        vecinos = gestor.getVecinos();
+        consulta = nuevoGestor(numVisitas);
+        deConsulta = consulta.getVecinos();
+        indice = IndiceTexto.construir(consulta);
+        azar = new SplittableRandom(SEMILLA);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        indice.cerrar();
+    }
+
+    static GestorComunidad nuevoGestor(int numVisitas) {
+        return new GestorComunidad(DatosSinteticos.generar(Math.max(100, numVisitas / 10), numVisitas, SEMILLA));
+    }
+
+    @Benchmark
+    public Factura facturar() {
+        Vecino v = vecinos.get(azar.nextInt(vecinos.size()));
+        gestor.crearFichaVisita(v, DatosSinteticos.HOY, "Revisión", 25.5, "Admin");
+        return gestor.crearFactura(v, DatosSinteticos.HOY);
+    }
+
+    @Benchmark
+    public List<FichaVisita> pendientes() {
+        return consulta.getVisitasPendientes(deConsulta.get(azar.nextInt(deConsulta.size())));
+    }
+
+    @Benchmark
+    public Agregados agregados() {
+        return consulta.getAgregados();
+    }
+
+    @Benchmark
+    public Informe informe() {
+        return new MotorInformes(consulta).informe(DatosSinteticos.HOY);
+    }
+
+    /** Como App.refreshAll: instantáneas de todas las listas, totales y las filas que se ven de cada tabla. */
+    @Benchmark
+    public long refrescarListas() {
+        long suma = consulta.getAgregados().getTotalFacturadoCentimos();
+        suma += filasVisibles(consulta.getVecinos());
+        suma += filasVisibles(consulta.getVisitas());
+        suma += filasVisibles(consulta.getFacturas());
+        suma += consulta.getProfesores().size() + consulta.getAuditores().size() + consulta.getCursos().size()
+                + consulta.getAuditorias().size() + consulta.getRepositorioMateriales().size();
+        return suma;
+    }
+
+    @Benchmark
+    public int buscar() {
+        return indice.buscarVisitas(CONSULTAS[azar.nextInt(CONSULTAS.length)], null).getTotal();
+    }
+
+    private static long filasVisibles(List<?> lista) {
+        long suma = lista.size();
+        for (int i = 0; i < Math.min(FILAS_VISIBLES, lista.size()); i++) {
+            Object fila = lista.get(i);
+            suma += fila instanceof FichaVisita ? ((FichaVisita) fila).getImporteCentimos() : fila.hashCode();
+        }
+        return suma;
+    }
+}
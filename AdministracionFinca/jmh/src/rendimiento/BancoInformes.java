@@ -0,0 +1,105 @@
+package rendimiento;
+
+import modelo.EstadoPago;
+import modelo.FichaVisita;
+import modelo.Vecino;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import servicio.GestorComunidad;
+import servicio.Informe;
+import servicio.MotorInformes;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+/**
+ * {@link MotorInformes} frente a lo que se escribiría sin él: un stream por informe sobre
+ * {@link GestorComunidad#getVisitas()}, creando las fichas.
+ *
+ * - motor: una pasada con un motor nuevo (sin caché); conCache: la consulta repetida.
+ * - streams: los cuatro informes por separado. Que dan lo mismo lo comprueba MotorInformesTest.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class BancoInformes {
+
+    @Param({"10000", "100000", "1000000"})
+    public int numVisitas;
+
+    private GestorComunidad gestor;
+    private MotorInformes conCache;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        gestor = BancoGestor.nuevoGestor(numVisitas);
+        conCache = new MotorInformes(gestor);
+        conCache.informe(DatosSinteticos.HOY);
+    }
+
+    @Benchmark
+    public Informe motor() {
+        return new MotorInformes(gestor).informe(DatosSinteticos.HOY);
+    }
+
+    @Benchmark
+    public Informe conCache() {
+        return conCache.informe(DatosSinteticos.HOY);
+    }
+
+    @Benchmark
+    public Object[] streams() {
+        List<FichaVisita> visitas = gestor.getVisitas();
+        Map<Vecino, long[]> porVecino = agrupar(visitas, FichaVisita::getVecino);
+        Map<String, long[]> porAdministrador = agrupar(visitas, FichaVisita::getNombreAdministrador);
+        Map<YearMonth, long[]> porMes = agrupar(visitas, v -> YearMonth.from(v.getFecha()));
+        long hoy = DatosSinteticos.HOY.toEpochDay();
+        Map<Integer, long[]> antiguedad = visitas.stream().filter(v -> v.getEstado() != EstadoPago.PAGADA)
+                .collect(Collectors.groupingBy(v -> tramo(hoy - v.getFecha().toEpochDay()), totales()));
+        return new Object[] {porVecino, porAdministrador, porMes, antiguedad};
+    }
+
+    private static <K> Map<K, long[]> agrupar(List<FichaVisita> visitas, Function<FichaVisita, K> clave) {
+        return visitas.stream().collect(Collectors.groupingBy(clave, totales()));
+    }
+
+    /** Visitas, importe, pendientes e importe pendiente, como {@link Informe.Totales}. */
+    private static Collector<FichaVisita, long[], long[]> totales() {
+        return Collector.of(() -> new long[4], (t, v) -> {
+            boolean pendiente = v.getEstado() != EstadoPago.PAGADA;
+            t[0]++;
+            t[1] += v.getImporteCentimos();
+            if (pendiente) {
+                t[2]++;
+                t[3] += v.getImporteCentimos();
+            }
+        }, (a, b) -> {
+            for (int i = 0; i < a.length; i++) a[i] += b[i];
+            return a;
+        });
+    }
+
+    private static int tramo(long dias) {
+        int k = 0;
+        while (k < Informe.TRAMOS_ANTIGUEDAD.length && dias > Informe.TRAMOS_ANTIGUEDAD[k]) k++;
+        return k;
+    }
+}
@@ -0,0 +1,76 @@
+package rendimiento;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import persistencia.GestorPersistencia;
+import servicio.GestorComunidad;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ida y vuelta del formato binario de {@link GestorPersistencia}, en memoria (serializar / deserializar) y en
+ * disco (guardar / cargar), con los mismos datos que {@link BancoGestor}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class BancoPersistencia {
+
+    @Param({"10000", "100000", "1000000"})
+    public int numVisitas;
+
+    private GestorComunidad.Datos datos;
+    private byte[] contenido;
+    private File fichero;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        datos = BancoGestor.nuevoGestor(numVisitas).getDatos();
+        contenido = GestorPersistencia.serializar(datos);
+        fichero = File.createTempFile("banco", ".dat");
+        GestorPersistencia.guardar(fichero, datos);
+    }
+
+    @TearDown(Level.Trial)
+    public void borrar() throws IOException {
+        Files.deleteIfExists(fichero.toPath());
+    }
+
+    @Benchmark
+    public byte[] serializar() throws IOException {
+        return GestorPersistencia.serializar(datos);
+    }
+
+    @Benchmark
+    public GestorComunidad.Datos deserializar() throws IOException {
+        return GestorPersistencia.deserializar(contenido);
+    }
+
+    @Benchmark
+    public long guardar() throws IOException {
+        GestorPersistencia.guardar(fichero, datos);
+        return fichero.length();
+    }
+
+    @Benchmark
+    public GestorComunidad.Datos cargar() throws IOException, ClassNotFoundException {
+        return GestorPersistencia.cargar(fichero);
+    }
+}
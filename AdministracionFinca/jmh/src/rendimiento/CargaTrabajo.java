@@ -0,0 +1,200 @@
+package rendimiento;
+
+import modelo.Auditoria;
+import modelo.Curso;
+import modelo.FichaVisita;
+import modelo.Vecino;
+import persistencia.GestorPersistencia;
+import servicio.GestorComunidad;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Prueba de carga: genera una comunidad con {@link GeneradorComunidad} y reproduce sobre ella, desde varios
+ * hilos, guiones de operaciones mezcladas (alta de visita, factura, inscripción, asignación a auditoría).
+ * Informa del rendimiento total y, por tipo de operación, de los percentiles de latencia.
+ *
+ * - Los guiones se generan antes de empezar, con la semilla: la misma semilla da los mismos guiones
+ *   (el entrelazado entre hilos sí varía de una ejecución a otra).
+ * - Las operaciones que el gestor rechaza por el estado (vecino sin pendientes, curso lleno, auditoría
+ *   cerrada) cuentan como rechazadas, pero su latencia también se mide.
+ * - Si se indica un fichero, guarda ahí la comunidad generada (antes de la carga), como un sigco.dat
+ *   con el que probar el arranque.
+ *
+ * Uso: java -cp jmh/target/benchmarks.jar rendimiento.CargaTrabajo [vecinos] [visitas] [operacionesPorHilo] [hilos] [semilla] [sigco.dat]
+ */
+public final class CargaTrabajo {
+
+    /** Operaciones del guion, con su peso en la mezcla (sobre 100). */
+    enum Tipo {
+        ALTA_VISITA(50), FACTURA(20), INSCRIPCION(10), ASIGNACION_AUDITORIA(20);
+
+        final int peso;
+
+        Tipo(int peso) { this.peso = peso; }
+    }
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private CargaTrabajo() {}
+
+    public static void main(String[] args) throws Exception {
+        int numVecinos = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int numVisitas = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        int operaciones = args.length > 2 ? Integer.parseInt(args[2]) : 50_000;
+        int hilos = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        long semilla = args.length > 4 ? Long.parseLong(args[4]) : 1L;
+        File fichero = args.length > 5 ? new File(args[5]) : null;
+
+        long inicio = System.nanoTime();
+        GestorComunidad gestor = new GestorComunidad(new GestorComunidad.Datos());
+        GeneradorComunidad generador = new GeneradorComunidad(semilla);
+        generador.generar(gestor, numVecinos, numVisitas, 24);
+        System.out.printf("Comunidad generada en %d ms: %s, %d facturas, %d cursos, %d auditorías%n",
+                (System.nanoTime() - inicio) / 1_000_000, gestor.getAgregados(), gestor.getFacturas().size(),
+                gestor.getCursos().size(), gestor.getAuditorias().size());
+        if (fichero != null) {
+            gestor.enExclusiva(() -> {
+                GestorPersistencia.guardar(fichero, gestor.getDatos());
+                return null;
+            });
+            System.out.printf("Guardada en %s (%d bytes)%n", fichero.getAbsolutePath(), fichero.length());
+        }
+        if (operaciones > 0) new CargaTrabajo().ejecutar(gestor, generador, hilos, operaciones, semilla);
+    }
+
+    /** Tipos y argumentos (un número al azar cada uno) de las operaciones de un hilo. */
+    private static final class Guion {
+        final Tipo[] tipos;
+        final long[] argumentos;
+
+        Guion(int operaciones, SplittableRandom r) {
+            tipos = new Tipo[operaciones];
+            argumentos = new long[operaciones];
+            for (int i = 0; i < operaciones; i++) {
+                int p = r.nextInt(100);
+                Tipo elegido = null;
+                for (Tipo t : Tipo.values()) {
+                    if (p < t.peso) { elegido = t; break; }
+                    p -= t.peso;
+                }
+                tipos[i] = elegido;
+                argumentos[i] = r.nextLong();
+            }
+        }
+    }
+
+    /** Latencias (ns) de un tipo de operación en un hilo. */
+    private static final class Muestras {
+        long[] nanos = new long[1024];
+        int n;
+        int rechazadas;
+
+        void anadir(long x) {
+            if (n == nanos.length) nanos = Arrays.copyOf(nanos, n * 2);
+            nanos[n++] = x;
+        }
+
+        void sumar(Muestras o) {
+            for (int i = 0; i < o.n; i++) anadir(o.nanos[i]);
+            rechazadas += o.rechazadas;
+        }
+    }
+
+    private void ejecutar(GestorComunidad gestor, GeneradorComunidad generador, int hilos, int operaciones, long semilla) throws Exception {
+        List<Vecino> vecinos = gestor.getVecinos();
+        List<Curso> cursos = gestor.getCursos();
+        List<Auditoria> auditorias = gestor.getAuditorias();
+        SplittableRandom raiz = new SplittableRandom(semilla ^ 0x5DEECE66DL);
+        List<Guion> guiones = new ArrayList<>();
+        for (int h = 0; h < hilos; h++) guiones.add(new Guion(operaciones, raiz.split()));
+
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<Muestras[]>> tareas = new ArrayList<>();
+        for (Guion g : guiones) {
+            tareas.add(ejecutor.submit(() -> {
+                salida.await();
+                return reproducir(gestor, generador, g, vecinos, cursos, auditorias);
+            }));
+        }
+        long inicio = System.nanoTime();
+        salida.countDown();
+        Muestras[] total = new Muestras[Tipo.values().length];
+        for (int t = 0; t < total.length; t++) total[t] = new Muestras();
+        for (Future<Muestras[]> f : tareas) {
+            Muestras[] m = f.get();
+            for (int t = 0; t < total.length; t++) total[t].sumar(m[t]);
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        ejecutor.shutdown();
+
+        long hechas = (long) hilos * operaciones;
+        System.out.printf(Locale.ROOT, "%d hilos x %d operaciones en %.2f s: %.0f operaciones/s%n", hilos, operaciones, segundos, hechas / segundos);
+        StringBuilder cabecera = new StringBuilder(String.format("%-22s %9s %9s", "operación", "total", "rechaz."));
+        for (double p : PERCENTILES) cabecera.append(String.format(Locale.ROOT, " %9s", "p" + (p == Math.rint(p) ? String.valueOf((int) p) : String.valueOf(p))));
+        System.out.println(cabecera.append(String.format(" %9s   (us)", "máx")));
+        for (Tipo t : Tipo.values()) {
+            Muestras m = total[t.ordinal()];
+            long[] ordenadas = Arrays.copyOf(m.nanos, m.n);
+            Arrays.sort(ordenadas);
+            StringBuilder fila = new StringBuilder(String.format("%-22s %9d %9d", t, m.n, m.rechazadas));
+            for (double p : PERCENTILES) fila.append(String.format(Locale.ROOT, " %9.1f", percentil(ordenadas, p) / 1e3));
+            fila.append(String.format(Locale.ROOT, " %9.1f", m.n == 0 ? 0 : ordenadas[m.n - 1] / 1e3));
+            System.out.println(fila);
+        }
+        System.out.println("Al terminar: " + gestor.getAgregados());
+        System.out.print(gestor.getMetricas().resumen()); // las del propio gestor, generación incluida
+    }
+
+    private static Muestras[] reproducir(GestorComunidad gestor, GeneradorComunidad generador, Guion g,
+                                         List<Vecino> vecinos, List<Curso> cursos, List<Auditoria> auditorias) {
+        Muestras[] muestras = new Muestras[Tipo.values().length];
+        for (int t = 0; t < muestras.length; t++) muestras[t] = new Muestras();
+        for (int i = 0; i < g.tipos.length; i++) {
+            SplittableRandom r = new SplittableRandom(g.argumentos[i]);
+            Muestras m = muestras[g.tipos[i].ordinal()];
+            long inicio = System.nanoTime();
+            try {
+                switch (g.tipos[i]) {
+                    case ALTA_VISITA:
+                        gestor.crearFichaVisita(vecinos.get(generador.vecinoAlAzar(r)), GeneradorComunidad.HOY,
+                                DatosSinteticos.DESCRIPCIONES[r.nextInt(DatosSinteticos.DESCRIPCIONES.length)],
+                                GeneradorComunidad.importeAlAzar(r), DatosSinteticos.ADMINISTRADORES[r.nextInt(DatosSinteticos.ADMINISTRADORES.length)]);
+                        break;
+                    case FACTURA:
+                        gestor.crearFactura(vecinos.get(generador.vecinoAlAzar(r)), GeneradorComunidad.HOY);
+                        break;
+                    case INSCRIPCION:
+                        gestor.inscribirVecinoEnCurso(vecinos.get(r.nextInt(vecinos.size())), cursos.get(r.nextInt(cursos.size())));
+                        break;
+                    case ASIGNACION_AUDITORIA:
+                        List<FichaVisita> visitas = gestor.getVisitas();
+                        gestor.asignarVisitasAAuditoria(auditorias.get(r.nextInt(auditorias.size())),
+                                List.of(visitas.get(r.nextInt(visitas.size()))));
+                        break;
+                }
+            } catch (IllegalStateException rechazada) {
+                m.rechazadas++;
+            }
+            m.anadir(System.nanoTime() - inicio);
+        }
+        return muestras;
+    }
+
+    /** Percentil por el método del rango más cercano. */
+    private static long percentil(long[] ordenadas, double p) {
+        if (ordenadas.length == 0) return 0;
+        int rango = (int) Math.ceil(p / 100 * ordenadas.length);
+        return ordenadas[Math.max(0, rango - 1)];
+    }
+}
@@ -0,0 +1,83 @@
+package rendimiento;
+
+import modelo.Factura;
+import modelo.FichaVisita;
+import modelo.HistoricoVisitas;
+import modelo.Vecino;
+import servicio.GestorComunidad;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Datos de prueba para el banco de rendimiento, construidos directamente sobre {@link GestorComunidad.Datos}
+ * (sin pasar por el gestor ni por el diario), para tener en segundos un histórico de millones de visitas.
+ *
+ * - Las visitas cubren cinco años hasta {@link #HOY}, en orden de fecha, repartidas al azar entre los vecinos.
+ * - Las de los primeros cuatro años están facturadas: una factura por vecino y año. El último año está pendiente.
+ * - Con la misma semilla salen los mismos datos.
+ */
+public final class DatosSinteticos {
+
+    public static final LocalDate HOY = LocalDate.of(2024, 1, 1);
+    private static final int ANOS = 5;
+
+    static final String[] ADMINISTRADORES = {"Admin", "Lucía Gil", "Marcos Ruiz", "Pilar Sanz", "Jorge Vidal", "Elena Mora"};
+    static final String[] DESCRIPCIONES = {"Revisión de caldera", "Poda del jardín", "Reparación de tejado",
+            "Limpieza de canalones", "Revisión de ascensor", "Pintura de fachada", "Cambio de cerradura", "Fuga en el garaje"};
+
+    private DatosSinteticos() {}
+
+    /** DNI válido (8 dígitos y letra) del vecino i. */
+    static String dni(int i) {
+        return String.format("%08d%c", i, "TRWAGMYFPDXBNJZSQVHLCKE".charAt(i % 23));
+    }
+
+    public static GestorComunidad.Datos generar(int numVecinos, int numVisitas, long semilla) {
+        if (numVecinos < 1 || numVisitas < 0) throw new IllegalArgumentException("Tamaños no válidos.");
+        SplittableRandom r = new SplittableRandom(semilla);
+        GestorComunidad.Datos datos = new GestorComunidad.Datos();
+        Vecino[] vecinos = new Vecino[numVecinos];
+        for (int i = 0; i < numVecinos; i++) {
+            vecinos[i] = new Vecino(dni(i), "Vecino " + i, "Calle " + (i % 500) + ", " + (1 + i % 90), "28001", "Madrid",
+                    String.format("6%08d", i));
+            datos.vecinosPorDni.put(vecinos[i].getDni(), vecinos[i]);
+        }
+
+        HistoricoVisitas visitas = (HistoricoVisitas) datos.visitas;
+        LocalDate inicio = HOY.minusYears(ANOS);
+        long dias = HOY.toEpochDay() - inicio.toEpochDay();
+        int[] vecinoDe = new int[numVisitas];
+        for (int i = 0; i < numVisitas; i++) {
+            vecinoDe[i] = r.nextInt(numVecinos);
+            visitas.anadir(i + 1, vecinos[vecinoDe[i]], inicio.plusDays(i * dias / Math.max(1, numVisitas)),
+                    DESCRIPCIONES[r.nextInt(DESCRIPCIONES.length)], r.nextInt(1, 50_000) / 100.0,
+                    ADMINISTRADORES[r.nextInt(ADMINISTRADORES.length)]);
+        }
+        datos.nextVisitaId = numVisitas + 1;
+
+        // Facturas: por cada año cerrado, las visitas de cada vecino en ese año.
+        int desde = 0;
+        for (int ano = 1; ano < ANOS; ano++) {
+            LocalDate finAno = inicio.plusYears(ano);
+            int hasta = desde;
+            while (hasta < numVisitas && visitas.fechaEn(hasta).isBefore(finAno)) hasta++;
+            List<List<FichaVisita>> porVecino = new ArrayList<>(numVecinos);
+            for (int v = 0; v < numVecinos; v++) porVecino.add(null);
+            for (int i = desde; i < hasta; i++) {
+                List<FichaVisita> l = porVecino.get(vecinoDe[i]);
+                if (l == null) porVecino.set(vecinoDe[i], l = new ArrayList<>(4));
+                FichaVisita f = visitas.get(i);
+                f.marcarPagada();
+                l.add(f);
+            }
+            for (int v = 0; v < numVecinos; v++) {
+                if (porVecino.get(v) != null) datos.facturas.add(new Factura(datos.nextFacturaId++, finAno, vecinos[v], porVecino.get(v)));
+            }
+            desde = hasta;
+        }
+        return datos;
+    }
+}
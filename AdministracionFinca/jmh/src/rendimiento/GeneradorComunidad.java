@@ -0,0 +1,161 @@
+package rendimiento;
+
+import modelo.Auditor;
+import modelo.Auditoria;
+import modelo.Curso;
+import modelo.FichaVisita;
+import modelo.Material;
+import modelo.Profesor;
+import modelo.Vecino;
+import servicio.GestorComunidad;
+import servicio.LoteVecinos;
+import servicio.LoteVisitas;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Llena un {@link GestorComunidad} con una comunidad grande y verosímil, solo con su API pública (así pasa
+ * por las mismas validaciones, índices y diario que los datos reales). Con la misma semilla, la misma comunidad.
+ *
+ * - Visitas por vecino de cola larga: cada vecino tiene un peso de Pareto (α = 1,5), así que unos pocos
+ *   acumulan muchas visitas y la mayoría, pocas o ninguna. Importes log-normales (mediana de 60 €).
+ * - Las visitas cubren los meses hasta {@link #HOY}; al final de cada mes se factura todo lo pendiente,
+ *   salvo en los dos últimos, que quedan por facturar.
+ * - Cursos casi llenos (del 85 al 100 % de su cupo) y auditorías con visitas y materiales; unas tres
+ *   de cada cuatro, cerradas.
+ */
+public final class GeneradorComunidad {
+
+    public static final LocalDate HOY = DatosSinteticos.HOY;
+    private static final double ALFA = 1.5;
+    private static final int TAMANO_LOTE = 10_000;
+    private static final String[] MATERIALES = {"Casco", "Arnés", "Guantes", "Escalera", "Medidor láser", "Cámara térmica"};
+
+    private final SplittableRandom azar;
+    private double[] pesoAcumulado; // por vecino, para elegir con bisección
+
+    public GeneradorComunidad(long semilla) {
+        this.azar = new SplittableRandom(semilla);
+    }
+
+    /** Da de alta los vecinos y las visitas (a lo largo de meses meses), los cursos y las auditorías. */
+    public void generar(GestorComunidad gestor, int numVecinos, int numVisitas, int meses) {
+        if (numVecinos < 1 || numVisitas < 0 || meses < 1) throw new IllegalArgumentException("Tamaños no válidos.");
+        registrarVecinos(gestor, numVecinos);
+        crearVisitas(gestor, numVisitas, meses);
+        crearCursos(gestor, Math.max(1, numVecinos / 200));
+        crearAuditorias(gestor, Math.max(1, numVisitas / 2_000));
+    }
+
+    /** Posición (en {@link GestorComunidad#getVecinos()}) de un vecino al azar, con la misma cola larga que las visitas; después de {@link #generar}. */
+    public int vecinoAlAzar(SplittableRandom r) {
+        int i = Arrays.binarySearch(pesoAcumulado, r.nextDouble() * pesoAcumulado[pesoAcumulado.length - 1]);
+        return Math.min(i < 0 ? -i - 1 : i, pesoAcumulado.length - 1);
+    }
+
+    /** Importe log-normal, en euros con dos decimales. */
+    public static double importeAlAzar(SplittableRandom r) {
+        double gauss = Math.sqrt(-2 * Math.log(1 - r.nextDouble())) * Math.cos(2 * Math.PI * r.nextDouble());
+        return Math.min(5_000, Math.max(1, Math.round(Math.exp(Math.log(60) + 0.8 * gauss) * 100) / 100.0));
+    }
+
+    private void registrarVecinos(GestorComunidad gestor, int numVecinos) {
+        LoteVecinos lote = new LoteVecinos();
+        for (int i = 0; i < numVecinos; i++) {
+            lote.anadir(DatosSinteticos.dni(i), "Vecino " + i, "Calle " + (i % 500) + ", " + (1 + i % 90),
+                    String.format("28%03d", i % 1000), "Madrid", azar.nextInt(4) == 0 ? null : String.format("6%08d", i));
+            if (lote.size() == TAMANO_LOTE || i == numVecinos - 1) {
+                rechazos(gestor.registrarVecinos(lote), "vecinos");
+                lote.vaciar();
+            }
+        }
+        pesoAcumulado = new double[numVecinos];
+        double suma = 0;
+        for (int i = 0; i < numVecinos; i++) {
+            suma += Math.pow(1 - azar.nextDouble(), -1 / ALFA); // Pareto con mínimo 1
+            pesoAcumulado[i] = suma;
+        }
+    }
+
+    private void crearVisitas(GestorComunidad gestor, int numVisitas, int meses) {
+        YearMonth primero = YearMonth.from(HOY).minusMonths(meses);
+        LoteVisitas lote = new LoteVisitas();
+        int creadas = 0;
+        for (int m = 0; m < meses; m++) {
+            YearMonth mes = primero.plusMonths(m);
+            int enElMes = (int) ((long) numVisitas * (m + 1) / meses) - creadas;
+            int[] dias = new int[enElMes];
+            for (int k = 0; k < enElMes; k++) dias[k] = 1 + azar.nextInt(mes.lengthOfMonth());
+            Arrays.sort(dias); // en orden de fecha, como se registran
+            for (int k = 0; k < enElMes; k++) {
+                int v = vecinoAlAzar(azar);
+                lote.anadir(DatosSinteticos.dni(v), mes.atDay(dias[k]),
+                        DatosSinteticos.DESCRIPCIONES[azar.nextInt(DatosSinteticos.DESCRIPCIONES.length)], importeAlAzar(azar),
+                        DatosSinteticos.ADMINISTRADORES[Math.min(azar.nextInt(DatosSinteticos.ADMINISTRADORES.length),
+                                azar.nextInt(DatosSinteticos.ADMINISTRADORES.length))]); // los primeros, más ocupados
+                if (lote.size() == TAMANO_LOTE) {
+                    rechazos(gestor.crearFichasVisita(lote), "visitas");
+                    lote.vaciar();
+                }
+            }
+            rechazos(gestor.crearFichasVisita(lote), "visitas");
+            lote.vaciar();
+            creadas += enElMes;
+            if (m < meses - 2) gestor.facturarTodos(mes.atEndOfMonth());
+        }
+    }
+
+    private void crearCursos(GestorComunidad gestor, int numCursos) {
+        List<Profesor> profesores = new ArrayList<>();
+        for (int p = 0; p < Math.max(1, numCursos / 4); p++) {
+            profesores.add(gestor.registrarProfesor("Profesor" + p, "Apellido" + p, "Calle Escuela " + p, null, 1_200 + azar.nextInt(800)));
+        }
+        List<Vecino> vecinos = gestor.getVecinos();
+        for (int c = 0; c < numCursos; c++) {
+            LocalDate inicio = HOY.minusMonths(azar.nextInt(12));
+            int cupo = 20 + azar.nextInt(21);
+            Curso curso = gestor.crearCurso("Curso " + c, 30 + azar.nextInt(120), cupo, inicio, inicio.plusMonths(3));
+            int numMaterias = 1 + azar.nextInt(4);
+            for (int m = 0; m < numMaterias; m++) {
+                gestor.addMateriaACurso(curso, "Materia " + m, 5 + azar.nextInt(30), profesores.get(azar.nextInt(profesores.size())));
+            }
+            int inscritos = Math.min(vecinos.size(), cupo * (85 + azar.nextInt(16)) / 100), desde = azar.nextInt(vecinos.size());
+            for (int k = 0; k < inscritos; k++) gestor.inscribirVecinoEnCurso(vecinos.get((desde + k) % vecinos.size()), curso);
+        }
+    }
+
+    private void crearAuditorias(GestorComunidad gestor, int numAuditorias) {
+        List<Auditor> auditores = new ArrayList<>();
+        for (int a = 0; a < Math.max(1, numAuditorias / 10); a++) {
+            auditores.add(gestor.registrarAuditor("Auditor" + a, "Apellido" + a, String.format("B%08d", a),
+                    "Auditora " + a, "Calle Empresa " + a, null));
+        }
+        for (String nombre : MATERIALES) gestor.registrarMaterial(nombre, 5 + azar.nextInt(200));
+        List<FichaVisita> visitas = gestor.getVisitas();
+        List<Material> materiales = gestor.getRepositorioMateriales();
+        for (int a = 0; a < numAuditorias && !visitas.isEmpty(); a++) {
+            LocalDate creada = HOY.minusDays(azar.nextInt(365));
+            Auditoria auditoria = gestor.crearAuditoria(auditores.get(azar.nextInt(auditores.size())), creada);
+            List<FichaVisita> asignadas = new ArrayList<>();
+            int numAsignadas = 5 + azar.nextInt(46);
+            for (int k = 0; k < numAsignadas; k++) asignadas.add(visitas.get(azar.nextInt(visitas.size())));
+            gestor.asignarVisitasAAuditoria(auditoria, asignadas);
+            int numMateriales = azar.nextInt(4);
+            for (int k = 0; k < numMateriales; k++) {
+                gestor.asignarMaterialAAuditoria(auditoria, materiales.get(azar.nextInt(materiales.size())));
+            }
+            if (azar.nextInt(4) != 0) gestor.finalizarAuditoria(auditoria, creada.plusDays(1 + azar.nextInt(60)));
+        }
+    }
+
+    private static void rechazos(String[] motivos, String que) {
+        for (String m : motivos) {
+            if (m != null) throw new IllegalStateException("El generador ha creado " + que + " no válidos: " + m);
+        }
+    }
+}
@@ -1,6 +1,18 @@
+import export.ExportadorCsv;
+import importacion.ImportadorCsv;
+import importacion.ResumenImportacion;
 import modelo.*;
+import persistencia.Autoguardado;
+import persistencia.Diario;
 import persistencia.GestorPersistencia;
+import persistencia.Progreso;
+import red.GestorRemoto;
+import servicio.Agregados;
+import servicio.EventoCambio;
 import servicio.GestorComunidad;
+import servicio.IndiceTexto;
+import servicio.Metricas;
+import servicio.ResumenFacturacion;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
@@ -8,45 +20,90 @@ import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.AbstractTableModel;
 import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableModel;
 import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
 
 /**
  * SIGCO - Versión Profesional con Iconos Vectoriales
  */
 public class App extends JFrame {
 
-    private final File ficheroDatos;
-    private final GestorComunidad gestor;
-
-    // Caches
-    private List<Profesor> listaProfesores = new ArrayList<>();
-    private List<Auditor> listaAuditoresGestion = new ArrayList<>();
-    private List<Material> listaMaterialesGestion = new ArrayList<>();
-
-    // Modelos
-    private final DefaultTableModel vecinosModel = new NonEditableModel(new Object[]{"DNI", "Nombre", "Dirección", "CP", "Ciudad", "Teléfono"}, 0);
-    private final DefaultTableModel profesoresModel = new NonEditableModel(new Object[]{"Nombre", "Apellidos", "Dirección", "Teléfono", "Sueldo"}, 0);
-    private final DefaultTableModel auditoresGestionModel = new NonEditableModel(new Object[]{"Nombre", "Apellidos", "CIF", "Empresa", "Dirección", "Teléfono"}, 0);
-    private final DefaultTableModel materialesModel = new NonEditableModel(new Object[]{"Nombre", "Precio"}, 0);
-    private final DefaultTableModel visitasModel = new NonEditableModel(new Object[]{"ID", "Fecha", "Vecino", "Descripción", "Importe", "Admin", "Estado"}, 0);
-    private final DefaultTableModel facturasModel = new NonEditableModel(new Object[]{"ID", "Fecha", "Vecino", "Total", "#Visitas"}, 0);
-    private final DefaultTableModel cursosModel = new NonEditableModel(new Object[]{"Curso", "Duración", "Precio", "Inscritos"}, 0);
+    /** A partir de este tamaño, sigco.dat se proyecta en memoria en vez de cargarse entero. */
+    private static final long UMBRAL_PROYECCION = 32L * 1024 * 1024;
+    /** Cada cuánto se guarda en segundo plano si hay cambios (-Dsigco.autoguardado=segundos). */
+    private static final long PERIODO_AUTOGUARDADO_S = Long.getLong("sigco.autoguardado", 300);
+    /** Cada cuánto se vuelcan las métricas a la salida de errores (-Dsigco.metricas=segundos); 0 => nunca. */
+    private static final long PERIODO_METRICAS_S = Long.getLong("sigco.metricas", 0);
+
+    private final File ficheroDatos = new File("sigco.dat");
+    /** "host[:puerto]" de un servidor SIGCO (-Dsigco.servidor); null => datos locales en sigco.dat. */
+    private final String servidor = System.getProperty("sigco.servidor");
+    // Vacío mientras se carga en segundo plano; se sustituye en instalarGestor.
+    private GestorComunidad gestor = new GestorComunidad(new GestorComunidad.Datos());
+    private Diario diario; // null => sin diario: solo el autoguardado y el guardado al cerrar
+    private final CompletableFuture<IndiceTexto> indice = new CompletableFuture<>(); // del gestor cargado
+    private Autoguardado autoguardado; // null con servidor (guarda él) o si la carga falló
+    private boolean soloLectura; // la carga falló: no se escribe nada en ficheroDatos ni en su diario
+    private Metricas.Volcado volcadoMetricas; // null => sin volcado periódico
+    private boolean ocupado; // cargando o guardando: la ventana no admite cambios ni cierre
+    private final AtomicBoolean avisandoFallo = new AtomicBoolean(); // hay un aviso de fallo en segundo plano en pantalla
+
+    private Curso cursoMostrado;          // el de las tablas de materias e inscritos
+    private Auditoria auditoriaMostrada;  // la de las tablas de detalle
+
+    // Cambios del gestor aún no aplicados en el hilo de eventos (se aplican en bloque).
+    private final List<EventoCambio> cambiosPendientes = new ArrayList<>();
+
+    // Modelos: los de las listas del gestor leen cada celda de la entidad, sin copiar filas
+    private final ModeloVista<Vecino> vecinosModel = new ModeloVista<Vecino>()
+            .columna("DNI", Vecino::getDni).columna("Nombre", Vecino::getNombreApellidos).columna("Dirección", Vecino::getDireccion)
+            .columna("CP", Vecino::getCodigoPostal).columna("Ciudad", Vecino::getCiudad).columna("Teléfono", Vecino::getTelefono);
+    private final ModeloVista<Profesor> profesoresModel = new ModeloVista<Profesor>()
+            .columna("Nombre", Profesor::getNombre).columna("Apellidos", Profesor::getApellidos).columna("Dirección", Profesor::getDireccion)
+            .columna("Teléfono", Profesor::getTelefono).columna("Sueldo", Profesor::getSueldo);
+    private final ModeloVista<Auditor> auditoresGestionModel = new ModeloVista<Auditor>()
+            .columna("Nombre", Auditor::getNombre).columna("Apellidos", Auditor::getApellidos).columna("CIF", Auditor::getCifEmpresa)
+            .columna("Empresa", Auditor::getNombreEmpresa).columna("Dirección", Auditor::getDireccionEmpresa).columna("Teléfono", Auditor::getTelefono);
+    private final ModeloVista<Material> materialesModel = new ModeloVista<Material>()
+            .columna("Nombre", Material::getNombre).columna("Precio", Material::getPrecio);
+    private final ModeloVista<FichaVisita> visitasModel = new ModeloVista<FichaVisita>()
+            .columna("ID", FichaVisita::getId).columna("Fecha", FichaVisita::getFecha).columna("Vecino", FichaVisita::getVecino)
+            .columna("Descripción", FichaVisita::getDescripcion).columna("Importe", FichaVisita::getImporte)
+            .columna("Admin", FichaVisita::getNombreAdministrador).columna("Estado", FichaVisita::getEstado);
+    private final ModeloVista<Factura> facturasModel = new ModeloVista<Factura>()
+            .columna("ID", Factura::getId).columna("Fecha", Factura::getFechaCreacion).columna("Vecino", Factura::getVecino)
+            .columna("Total", Factura::getTotal).columna("#Visitas", Factura::getNumVisitas);
+    private final ModeloVista<Curso> cursosModel = new ModeloVista<Curso>()
+            .columna("Curso", Curso::getNombre).columna("Duración", c -> c.getDuracionTotalHoras() + "h").columna("Precio", Curso::getPrecio)
+            .columna("Inscritos", c -> c.getInscritos().size() + "/" + c.getMaxVecinos());
     private final DefaultTableModel materiasModel = new NonEditableModel(new Object[]{"Materia", "Horas", "Profesor"}, 0);
     private final DefaultTableModel inscritosModel = new NonEditableModel(new Object[]{"DNI", "Vecino"}, 0);
-    private final DefaultTableModel auditoriasModel = new NonEditableModel(new Object[]{"ID", "Auditor", "Creación", "Fin", "Sueldo", "#Visitas", "#Materiales"}, 0);
+    private final ModeloVista<Auditoria> auditoriasModel = new ModeloVista<Auditoria>()
+            .columna("ID", Auditoria::getId).columna("Auditor", Auditoria::getAuditor).columna("Creación", Auditoria::getFechaCreacion)
+            .columna("Fin", Auditoria::getFechaFin).columna("Sueldo", Auditoria::getSueldoAuditor)
+            .columna("#Visitas", Auditoria::getNumVisitas).columna("#Materiales", Auditoria::getNumMateriales);
     private final DefaultTableModel auditoriaVisitasModel = new NonEditableModel(new Object[]{"ID", "Vecino", "Fecha", "Importe", "Estado"}, 0);
     private final DefaultTableModel auditoriaMaterialesModel = new NonEditableModel(new Object[]{"Material", "Precio"}, 0);
 
@@ -83,21 +140,6 @@ public class App extends JFrame {
         setLocationRelativeTo(null);
         UIManager.put("Table.alternateRowColor", new Color(240, 248, 255));
 
-        // Carga
-        this.ficheroDatos = new File("sigco.dat");
-        GestorComunidad.Datos datos;
-        if (ficheroDatos.exists()) {
-            try {
-                datos = GestorPersistencia.cargar(ficheroDatos);
-            } catch (Exception ex) {
-                datos = new GestorComunidad.Datos();
-                JOptionPane.showMessageDialog(this, "Error cargando datos: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-            }
-        } else {
-            datos = new GestorComunidad.Datos();
-        }
-        this.gestor = new GestorComunidad(datos);
-
         addWindowListener(new WindowAdapter() {
             @Override public void windowClosing(WindowEvent e) { guardarDatosYSalir(); }
         });
@@ -123,7 +165,160 @@ public class App extends JFrame {
 
         setContentPane(tabs);
         tablaVisitas.setDefaultRenderer(Object.class, new EstadoPagoRenderer());
+        refreshAll(); // tablas vacías hasta que termine cargarEnSegundoPlano
+    }
+
+    /**
+     * Carga sigco.dat y reproduce el diario en un SwingWorker, con una ventana de progreso
+     * (bytes leídos). Mientras tanto la ventana principal está visible pero deshabilitada.
+     * Si la carga falla, la sesión es de solo lectura: ni diario ni autoguardado, y al salir no se guarda,
+     * para no sustituir el fichero (y dejar huérfano su diario) con unos datos casi vacíos.
+     */
+    private void cargarEnSegundoPlano() {
+        if (servidor != null) {
+            conectarEnSegundoPlano();
+            return;
+        }
+        VentanaProgreso ventana = new VentanaProgreso(this, "Cargando " + ficheroDatos.getName() + "...");
+        ocupado = true;
+        setEnabled(false);
+        new SwingWorker<GestorComunidad, Void>() {
+            private String errorCarga;
+            private String errorDiario;
+            private Diario diarioAbierto;
+
+            @Override
+            protected GestorComunidad doInBackground() {
+                GestorComunidad.Datos datos;
+                try {
+                    if (!ficheroDatos.exists()) datos = new GestorComunidad.Datos();
+                    else if (Boolean.getBoolean("sigco.proyectar") || ficheroDatos.length() >= UMBRAL_PROYECCION)
+                        datos = GestorPersistencia.cargarProyectado(ficheroDatos, ventana);
+                    else datos = GestorPersistencia.cargar(ficheroDatos, ventana);
+                } catch (Exception ex) {
+                    datos = new GestorComunidad.Datos();
+                    errorCarga = ex.getMessage();
+                }
+                GestorComunidad cargado = new GestorComunidad(datos);
+                if (errorCarga != null) return cargado;
+                try {
+                    diarioAbierto = Diario.abrir(ficheroDatos, cargado, e -> avisarFallo("Compactación del diario fallida: "
+                            + e.getMessage() + "\nLos cambios siguen anotados en el diario; se reintentará."));
+                } catch (Exception ex) {
+                    errorDiario = ex.getMessage();
+                }
+                return cargado;
+            }
+
+            @Override
+            protected void done() {
+                ventana.cerrar();
+                ocupado = false;
+                setEnabled(true);
+                soloLectura = errorCarga != null;
+                try {
+                    instalarGestor(get(), diarioAbierto);
+                } catch (Exception ex) { // no debería ocurrir: doInBackground recoge sus errores
+                    showError("Error cargando datos: " + ex.getMessage());
+                    return;
+                }
+                if (soloLectura) {
+                    setTitle(getTitle() + " - solo lectura");
+                    showError("Error cargando datos: " + errorCarga + "\nNo se guardará nada en " + ficheroDatos.getName()
+                            + ": los cambios de esta sesión se perderán al salir (se pueden exportar a CSV).");
+                }
+                if (errorDiario != null) showError("Error abriendo el diario: " + errorDiario + "\nLos cambios se guardarán solo al cerrar.");
+                if (diarioAbierto != null && diarioAbierto.agregadosCorregidos()) {
+                    JOptionPane.showMessageDialog(App.this, "Los totales del diario no cuadraban con un recálculo completo; se han corregido.",
+                            "Diario", JOptionPane.WARNING_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Como {@link #cargarEnSegundoPlano()}, pero descargando los datos de un servidor compartido.
+     * Sin conexión no se puede trabajar: se avisa y se sale (no hay datos locales que usar en su lugar).
+     */
+    private void conectarEnSegundoPlano() {
+        VentanaProgreso ventana = new VentanaProgreso(this, "Conectando con " + servidor + "...");
+        ocupado = true;
+        setEnabled(false);
+        new SwingWorker<GestorRemoto, Void>() {
+            @Override
+            protected GestorRemoto doInBackground() throws Exception {
+                return GestorRemoto.conectar(servidor, ventana);
+            }
+
+            @Override
+            protected void done() {
+                ventana.cerrar();
+                ocupado = false;
+                setEnabled(true);
+                try {
+                    instalarGestor(get(), null);
+                    setTitle(getTitle() + " - " + servidor);
+                } catch (Exception ex) {
+                    Throwable causa = ex instanceof ExecutionException && ex.getCause() != null ? ex.getCause() : ex;
+                    showError("No se pudo conectar con el servidor " + servidor + ": " + causa.getMessage());
+                    dispose();
+                    System.exit(1);
+                }
+            }
+        }.execute();
+    }
+
+    /** Sustituye el gestor provisional por el cargado y enlaza con él tablas, combos y eventos. */
+    private void instalarGestor(GestorComunidad nuevo, Diario nuevoDiario) {
+        synchronized (cambiosPendientes) {
+            cambiosPendientes.clear(); // del gestor anterior
+        }
+        gestor = nuevo;
+        diario = nuevoDiario;
+        if (!(gestor instanceof GestorRemoto) && !soloLectura) {
+            autoguardado = Autoguardado.iniciar(ficheroDatos, gestor, diario, PERIODO_AUTOGUARDADO_S,
+                    e -> avisarFallo("Autoguardado fallido: " + e.getMessage() + "\nSe reintentará; los cambios se guardarán también al cerrar."));
+        }
         refreshAll();
+        gestor.addOyente(this::encolarCambio); // después de la carga y del diario: ya están en las tablas
+        publicarMetricas();
+        indexarEnSegundoPlano();
+    }
+
+    /** Las del gestor instalado (sustituyen a las del anterior) y las de la persistencia: por JMX y, si se pide, volcadas. */
+    private void publicarMetricas() {
+        try {
+            gestor.getMetricas().registrarJmx();
+            GestorPersistencia.getMetricas().registrarJmx();
+        } catch (IllegalStateException ex) { // sin JMX se sigue midiendo; solo no se puede consultar desde fuera
+            System.err.println(ex.getMessage());
+        }
+        if (volcadoMetricas != null) volcadoMetricas.close();
+        if (PERIODO_METRICAS_S > 0) {
+            volcadoMetricas = Metricas.volcarCada(Duration.ofSeconds(PERIODO_METRICAS_S), System.err::print,
+                    gestor.getMetricas(), GestorPersistencia.getMetricas());
+        }
+    }
+
+    /** Las búsquedas de vecinos y visitas esperan a que el índice esté listo. */
+    private void indexarEnSegundoPlano() {
+        GestorComunidad indexado = gestor;
+        new SwingWorker<IndiceTexto, Void>() {
+            @Override
+            protected IndiceTexto doInBackground() {
+                return IndiceTexto.construir(indexado);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    indice.complete(get());
+                } catch (Exception ex) { // el buscador recorrerá las celdas
+                    indice.completeExceptionally(ex);
+                    showError("No se pudo indexar la búsqueda: " + ex.getMessage());
+                }
+            }
+        }.execute();
     }
 
     private void setupLookAndFeel() {
@@ -137,17 +332,62 @@ public class App extends JFrame {
         } catch (Exception ignored) {}
     }
 
+    /**
+     * Guarda lo que quede sin guardar en segundo plano (bytes escritos en la ventana de progreso) y sale.
+     * El guardado es atómico: si falla, el fichero anterior, el diario y los datos en memoria
+     * siguen intactos y se puede seguir trabajando o volver a intentarlo.
+     */
     private void guardarDatosYSalir() {
-        try {
-            GestorPersistencia.guardar(ficheroDatos, gestor.getDatos());
-            dispose();
-            System.exit(0);
-        } catch (Exception ex) {
-            if (JOptionPane.showConfirmDialog(this, "Error al guardar. ¿Salir sin guardar?", "Error CRÍTICO", JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION) {
+        if (ocupado) return;
+        if (soloLectura) {
+            if (!gestor.hayCambiosSinGuardar() || JOptionPane.showConfirmDialog(this,
+                    "No se pudo cargar " + ficheroDatos.getName() + ", así que no se guarda nada en él.\n"
+                            + "Los cambios de esta sesión se perderán. ¿Salir?",
+                    "Solo lectura", JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION) {
                 dispose();
                 System.exit(0);
             }
+            return;
         }
+        VentanaProgreso ventana = new VentanaProgreso(this, servidor != null ? "Desconectando..." : "Guardando " + ficheroDatos.getName() + "...");
+        ocupado = true;
+        setEnabled(false);
+        GestorComunidad gestorActual = gestor;
+        Diario diarioAGuardar = diario;
+        Autoguardado autoguardadoActual = autoguardado;
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                if (gestorActual instanceof GestorRemoto) { // los datos ya están en el servidor
+                    ((GestorRemoto) gestorActual).close();
+                    return null;
+                }
+                // Tras el autoguardado suele quedar poco o nada: solo se escribe si hay cambios.
+                if (diarioAGuardar != null) diarioAGuardar.cerrar(ventana);
+                else autoguardadoActual.guardarSiHayCambios(ventana);
+                autoguardadoActual.close();
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                ventana.cerrar();
+                ocupado = false;
+                setEnabled(true);
+                try {
+                    get();
+                } catch (Exception ex) {
+                    Throwable causa = ex instanceof ExecutionException && ex.getCause() != null ? ex.getCause() : ex;
+                    if (JOptionPane.showConfirmDialog(App.this, "Error al guardar: " + causa.getMessage()
+                            + "\nLos datos siguen en memoria" + (diarioAGuardar != null ? " y en el diario" : "") + ". ¿Salir sin guardar?",
+                            "Error CRÍTICO", JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) {
+                        return;
+                    }
+                }
+                dispose();
+                System.exit(0);
+            }
+        }.execute();
     }
 
     // --- DASHBOARD ---
@@ -162,7 +402,7 @@ public class App extends JFrame {
         
         JPanel infoPanel = new JPanel(new BorderLayout());
         infoPanel.setBorder(BorderFactory.createTitledBorder("Información"));
-        JTextArea info = new JTextArea("Sistema de Gestión de Comunidades.\nVersión 2.0\n\n- Use el buscador para filtrar tablas.\n- Exporte datos a CSV con un clic.\n- Guardado automático al cerrar.");
+        JTextArea info = new JTextArea("Sistema de Gestión de Comunidades.\nVersión 2.0\n\n- Use el buscador para filtrar tablas.\n- Exporte datos a CSV con un clic.\n- Cada cambio se anota al instante en el diario.\n- Los datos se guardan solos cada pocos minutos.");
         info.setEditable(false);
         info.setFont(new Font("Segoe UI", Font.PLAIN, 14));
         info.setMargin(new Insets(15,15,15,15));
@@ -191,7 +431,7 @@ public class App extends JFrame {
     }
 
     // --- HELPER TABLAS & BUSCADOR MEJORADO ---
-    private JTable createStyledTable(DefaultTableModel model) {
+    private JTable createStyledTable(TableModel model) {
         JTable table = new JTable(model);
         table.setRowHeight(28);
         table.getTableHeader().setFont(new Font("Segoe UI", Font.BOLD, 13));
@@ -201,6 +441,10 @@ public class App extends JFrame {
     }
 
     private JPanel createStandardPanel(JTable table, JPanel formPanel) {
+        return createStandardPanel(table, formPanel, App::filtroTexto);
+    }
+
+    private JPanel createStandardPanel(JTable table, JPanel formPanel, Buscador buscador) {
         JPanel root = new JPanel(new BorderLayout(10, 10));
         root.setBorder(new EmptyBorder(10, 10, 10, 10));
 
@@ -232,25 +476,12 @@ public class App extends JFrame {
 
         // --- LÓGICA DE BÚSQUEDA ---
         @SuppressWarnings("unchecked")
-        TableRowSorter<DefaultTableModel> sorter = (TableRowSorter<DefaultTableModel>) table.getRowSorter();
-        
+        TableRowSorter<TableModel> sorter = (TableRowSorter<TableModel>) table.getRowSorter();
+        FiltradoDiferido filtrado = new FiltradoDiferido(sorter, buscador);
+
         DocumentListener dl = new DocumentListener() {
             private void filter() {
-                String text = searchField.getText();
-                int colIndex = colCombo.getSelectedIndex() - 1; // -1 porque 0 es "Todas"
-
-                if (text == null || text.trim().isEmpty()) {
-                    sorter.setRowFilter(null);
-                } else {
-                    try {
-                        String regex = "(?i)" + Pattern.quote(text);
-                        if (colIndex < 0) {
-                            sorter.setRowFilter(RowFilter.regexFilter(regex)); // Busca en todas
-                        } else {
-                            sorter.setRowFilter(RowFilter.regexFilter(regex, colIndex)); // Busca en columna específica
-                        }
-                    } catch (Exception ignored) {}
-                }
+                filtrado.programar(searchField.getText(), colCombo.getSelectedIndex() - 1); // -1 porque 0 es "Todas"
             }
             @Override public void insertUpdate(DocumentEvent e) { filter(); }
             @Override public void removeUpdate(DocumentEvent e) { filter(); }
@@ -266,33 +497,228 @@ public class App extends JFrame {
         return root;
     }
 
+    /**
+     * Filtro de una tabla para el texto del buscador, en una columna o en todas (-1).
+     * Se calcula fuera del EDT: lo costoso (consultar el índice) se hace aquí, no en include.
+     */
+    @FunctionalInterface
+    private interface Buscador {
+        RowFilter<TableModel, Integer> filtro(String texto, int columna) throws InterruptedException;
+    }
+
+    /**
+     * Aplica el buscador cuando el usuario deja de escribir: cada pulsación solo reinicia la espera,
+     * el filtro se calcula en segundo plano y, si entretanto cambia el texto, el cálculo anterior se
+     * cancela y su resultado se descarta. Al sorter solo llega el último.
+     */
+    private static class FiltradoDiferido {
+        private static final int ESPERA_MS = 150;
+
+        private final TableRowSorter<TableModel> sorter;
+        private final Buscador buscador;
+        private final javax.swing.Timer espera;
+        private String texto;
+        private int columna;
+        private SwingWorker<RowFilter<TableModel, Integer>, Void> enCurso;
+
+        FiltradoDiferido(TableRowSorter<TableModel> sorter, Buscador buscador) {
+            this.sorter = sorter;
+            this.buscador = buscador;
+            this.espera = new javax.swing.Timer(ESPERA_MS, e -> calcular());
+            espera.setRepeats(false);
+        }
+
+        void programar(String texto, int columna) {
+            this.texto = texto;
+            this.columna = columna;
+            if (enCurso != null) {
+                enCurso.cancel(true);
+                enCurso = null;
+            }
+            if (texto == null || texto.trim().isEmpty()) { // quitar el filtro no cuesta nada
+                espera.stop();
+                sorter.setRowFilter(null);
+                return;
+            }
+            espera.restart();
+        }
+
+        private void calcular() {
+            String t = texto;
+            int c = columna;
+            enCurso = new SwingWorker<RowFilter<TableModel, Integer>, Void>() {
+                @Override
+                protected RowFilter<TableModel, Integer> doInBackground() throws InterruptedException {
+                    return buscador.filtro(t, c);
+                }
+
+                @Override
+                protected void done() {
+                    if (enCurso != this || isCancelled()) return; // superado por otra búsqueda
+                    enCurso = null;
+                    try {
+                        sorter.setRowFilter(get());
+                    } catch (InterruptedException | ExecutionException ex) {
+                        sorter.setRowFilter(filtroTexto(t, c));
+                    }
+                }
+            };
+            enCurso.execute();
+        }
+    }
+
+    /** Recorre las celdas: para las tablas pequeñas. Sin distinguir tildes ni mayúsculas, como el índice. */
+    private static RowFilter<TableModel, Integer> filtroTexto(String texto, int columna) {
+        String buscado = IndiceTexto.normalizar(texto.trim());
+        return new RowFilter<TableModel, Integer>() {
+            @Override
+            public boolean include(Entry<? extends TableModel, ? extends Integer> fila) {
+                int desde = columna < 0 ? 0 : columna;
+                int hasta = columna < 0 ? fila.getValueCount() : columna + 1;
+                for (int i = desde; i < hasta; i++) {
+                    if (IndiceTexto.normalizar(fila.getStringValue(i)).contains(buscado)) return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /** Las filas de vecinos y visitas están en el orden del gestor: la fila del modelo es la posición del índice. */
+    private static RowFilter<TableModel, Integer> filtroPorPosicion(IndiceTexto.Resultado resultado) {
+        return new RowFilter<TableModel, Integer>() {
+            @Override
+            public boolean include(Entry<? extends TableModel, ? extends Integer> fila) {
+                return resultado.contiene(fila.getIdentifier());
+            }
+        };
+    }
+
+    private RowFilter<TableModel, Integer> buscarVisitas(String texto, int columna) throws InterruptedException {
+        IndiceTexto listo = indiceListo();
+        if (listo == null) return filtroTexto(texto, columna);
+        return filtroPorPosicion(listo.buscarVisitas(texto, columna < 0 ? null : IndiceTexto.CampoVisita.values()[columna]));
+    }
+
+    private RowFilter<TableModel, Integer> buscarVecinos(String texto, int columna) throws InterruptedException {
+        IndiceTexto listo = indiceListo();
+        if (listo == null) return filtroTexto(texto, columna);
+        return filtroPorPosicion(listo.buscarVecinos(texto, columna < 0 ? null : IndiceTexto.CampoVecino.values()[columna]));
+    }
+
+    /** Espera a que termine la indexación (se busca fuera del EDT); null si falló. */
+    private IndiceTexto indiceListo() throws InterruptedException {
+        try {
+            return indice.get();
+        } catch (ExecutionException ex) {
+            return null;
+        }
+    }
+
     // --- LÓGICA EXPORTACIÓN CSV ---
     private void exportarCSV(JTable table) {
+        exportarCSV(table, (ModeloVista<?>) table.getModel());
+    }
+
+    /**
+     * Exporta desde la instantánea del gestor en segundo plano, con las columnas de la tabla y solo las filas
+     * que deja ver el buscador. Con un histórico grande conviene comprimir o repartir en varios ficheros.
+     */
+    private <T> void exportarCSV(JTable table, ModeloVista<T> modelo) {
         JFileChooser fc = new JFileChooser();
         fc.setDialogTitle("Guardar como CSV");
         fc.setSelectedFile(new File("exportacion.csv"));
-        
-        if (fc.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
-            try (BufferedWriter bw = new BufferedWriter(new FileWriter(fc.getSelectedFile()))) {
-                // Cabeceras
-                for (int i = 0; i < table.getColumnCount(); i++) {
-                    bw.write(table.getColumnName(i) + (i == table.getColumnCount()-1 ? "" : ","));
+        JCheckBox gzip = new JCheckBox("Comprimir (gzip)");
+        JSpinner filasPorFichero = new JSpinner(new SpinnerNumberModel(0, 0, Integer.MAX_VALUE, 100_000));
+        JPanel opciones = new JPanel(new GridLayout(0, 1, 5, 5));
+        opciones.setBorder(new EmptyBorder(0, 10, 0, 0));
+        opciones.add(gzip);
+        opciones.add(new JLabel("Filas por fichero (0 = uno solo):"));
+        opciones.add(filasPorFichero);
+        fc.setAccessory(opciones);
+        if (fc.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+
+        File destino = fc.getSelectedFile();
+        ExportadorCsv<T> exportador = modelo.exportador()
+                .comprimido(gzip.isSelected())
+                .porPartes((Integer) filasPorFichero.getValue());
+        List<T> filas = modelo.getFilas();
+        BitSet visibles = null; // null => sin filtro: todas
+        if (table.getRowSorter() instanceof DefaultRowSorter && ((DefaultRowSorter<?, ?>) table.getRowSorter()).getRowFilter() != null) {
+            visibles = new BitSet(filas.size());
+            for (int i = 0; i < table.getRowCount(); i++) visibles.set(table.convertRowIndexToModel(i));
+        }
+        IntPredicate incluir = visibles == null ? null : visibles::get;
+
+        VentanaProgreso ventana = new VentanaProgreso(this, "Exportando " + destino.getName() + "...", true);
+        ocupado = true;
+        setEnabled(false);
+        new SwingWorker<List<File>, Void>() {
+            @Override
+            protected List<File> doInBackground() throws Exception {
+                return exportador.exportar(filas, incluir, destino, ventana);
+            }
+
+            @Override
+            protected void done() {
+                ventana.cerrar();
+                ocupado = false;
+                setEnabled(true);
+                try {
+                    List<File> creados = get();
+                    String donde = creados.size() == 1 ? creados.get(0).getName() : creados.size() + " ficheros";
+                    JOptionPane.showMessageDialog(App.this, "Datos exportados correctamente en " + donde + ".", "Éxito", JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception ex) {
+                    Throwable causa = ex instanceof ExecutionException && ex.getCause() != null ? ex.getCause() : ex;
+                    JOptionPane.showMessageDialog(App.this, "Error al exportar: " + causa.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
                 }
-                bw.newLine();
-                // Datos
-                for (int i = 0; i < table.getRowCount(); i++) {
-                    for (int j = 0; j < table.getColumnCount(); j++) {
-                        Object val = table.getValueAt(i, j);
-                        String str = (val == null) ? "" : val.toString().replace(",", " "); // Evitar romper CSV
-                        bw.write(str + (j == table.getColumnCount()-1 ? "" : ","));
+            }
+        }.execute();
+    }
+
+    // --- IMPORTACIÓN CSV ---
+    private interface Importacion {
+        ResumenImportacion importar(GestorComunidad gestor, File csv, Progreso progreso) throws IOException;
+    }
+
+    /**
+     * Importa un CSV en segundo plano, por lotes; las filas aparecen en la tabla según se confirman.
+     * Las rechazadas no detienen la importación: se resumen al final y se detallan en el informe de errores.
+     */
+    private void importarCSV(String que, Importacion importacion) {
+        JFileChooser fc = new JFileChooser();
+        fc.setDialogTitle("Importar " + que + " desde CSV");
+        fc.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("CSV (.csv, .csv.gz)", "csv", "gz"));
+        if (fc.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+
+        File origen = fc.getSelectedFile();
+        GestorComunidad destino = gestor;
+        VentanaProgreso ventana = new VentanaProgreso(this, "Importando " + origen.getName() + "...");
+        ocupado = true;
+        setEnabled(false);
+        new SwingWorker<ResumenImportacion, Void>() {
+            @Override
+            protected ResumenImportacion doInBackground() throws Exception {
+                return importacion.importar(destino, origen, ventana);
+            }
+
+            @Override
+            protected void done() {
+                ventana.cerrar();
+                ocupado = false;
+                setEnabled(true);
+                try {
+                    ResumenImportacion r = get();
+                    String mensaje = String.format("%,d %s importados en %.1f s.", r.getAceptadas(), que, r.getDuracion().toMillis() / 1000.0);
+                    if (r.getRechazadas() > 0) {
+                        mensaje += String.format("%n%,d filas rechazadas; el detalle está en:%n%s", r.getRechazadas(), r.getErrores().getPath());
                     }
-                    bw.newLine();
+                    JOptionPane.showMessageDialog(App.this, mensaje, "Importación", r.getRechazadas() > 0 ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception ex) {
+                    Throwable causa = ex instanceof ExecutionException && ex.getCause() != null ? ex.getCause() : ex;
+                    JOptionPane.showMessageDialog(App.this, "Error al importar: " + causa.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
                 }
-                JOptionPane.showMessageDialog(this, "Datos exportados correctamente.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
-            } catch (Exception ex) {
-                JOptionPane.showMessageDialog(this, "Error al exportar: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             }
-        }
+        }.execute();
     }
 
     // --- DATE SPINNER ---
@@ -334,17 +760,20 @@ public class App extends JFrame {
             try {
                 gestor.registrarVecino(dni.getText(), nombre.getText(), direccion.getText(), cp.getText(), ciudad.getText(), telefono.getText());
                 clearFields(dni, nombre, direccion, cp, ciudad, telefono);
-                refreshAll();
             } catch (Exception ex) { showError(ex.getMessage()); }
         });
 
+        JButton importar = new JButton("📥 Importar CSV");
+        importar.addActionListener(e -> importarCSV("vecinos", ImportadorCsv::importarVecinos));
+
         JPanel south = new JPanel(new BorderLayout(10, 10));
         south.add(form, BorderLayout.CENTER);
         JPanel btnPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        btnPanel.add(importar);
         btnPanel.add(add);
         south.add(btnPanel, BorderLayout.SOUTH);
 
-        return createStandardPanel(tablaVecinos, south);
+        return createStandardPanel(tablaVecinos, south, this::buscarVecinos);
     }
 
     // --- PROFESORES ---
@@ -375,8 +804,8 @@ public class App extends JFrame {
             int row = tablaProfesores.getSelectedRow();
             if (row >= 0) {
                 int modelRow = tablaProfesores.convertRowIndexToModel(row);
-                if (modelRow < listaProfesores.size()) {
-                    Profesor p = listaProfesores.get(modelRow);
+                Profesor p = profesoresModel.getFila(modelRow);
+                if (p != null) {
                     nombre.setText(p.getNombre());
                     apellidos.setText(p.getApellidos());
                     direccion.setText(p.getDireccion());
@@ -389,7 +818,6 @@ public class App extends JFrame {
         add.addActionListener(e -> {
             try {
                 gestor.registrarProfesor(nombre.getText(), apellidos.getText(), direccion.getText(), telefono.getText(), Double.parseDouble(sueldo.getText().trim()));
-                refreshAll();
                 clearFields(nombre, apellidos, direccion, telefono, sueldo);
             } catch (Exception ex) { showError(ex.getMessage()); }
         });
@@ -398,13 +826,8 @@ public class App extends JFrame {
             int row = tablaProfesores.getSelectedRow();
             if (row < 0) return;
             try {
-                Profesor p = listaProfesores.get(tablaProfesores.convertRowIndexToModel(row));
-                p.setNombre(nombre.getText());
-                p.setApellidos(apellidos.getText());
-                p.setDireccion(direccion.getText());
-                p.setTelefono(telefono.getText());
-                p.setSueldo(Double.parseDouble(sueldo.getText().trim()));
-                refreshAll();
+                Profesor p = profesoresModel.getFila(tablaProfesores.convertRowIndexToModel(row));
+                gestor.modificarProfesor(p, nombre.getText(), apellidos.getText(), direccion.getText(), telefono.getText(), Double.parseDouble(sueldo.getText().trim()));
             } catch (Exception ex) { showError(ex.getMessage()); }
         });
 
@@ -412,8 +835,7 @@ public class App extends JFrame {
             int row = tablaProfesores.getSelectedRow();
             if (row < 0) return;
             if (confirm("¿Eliminar profesor?")) {
-                gestor.eliminarProfesor(listaProfesores.get(tablaProfesores.convertRowIndexToModel(row)));
-                refreshAll();
+                gestor.eliminarProfesor(profesoresModel.getFila(tablaProfesores.convertRowIndexToModel(row)));
                 clearFields(nombre, apellidos, direccion, telefono, sueldo);
             }
         });
@@ -453,7 +875,7 @@ public class App extends JFrame {
             if (e.getValueIsAdjusting()) return;
             int row = tablaAuditoresGestion.getSelectedRow();
             if (row >= 0) {
-                Auditor a = listaAuditoresGestion.get(tablaAuditoresGestion.convertRowIndexToModel(row));
+                Auditor a = auditoresGestionModel.getFila(tablaAuditoresGestion.convertRowIndexToModel(row));
                 nombre.setText(a.getNombre());
                 apellidos.setText(a.getApellidos());
                 cif.setText(a.getCifEmpresa());
@@ -466,7 +888,6 @@ public class App extends JFrame {
         add.addActionListener(e -> {
             try {
                 gestor.registrarAuditor(nombre.getText(), apellidos.getText(), cif.getText(), empresa.getText(), direccion.getText(), telefono.getText());
-                refreshAll();
                 clearFields(nombre, apellidos, cif, empresa, direccion, telefono);
             } catch (Exception ex) { showError(ex.getMessage()); }
         });
@@ -475,14 +896,8 @@ public class App extends JFrame {
             int row = tablaAuditoresGestion.getSelectedRow();
             if (row < 0) return;
             try {
-                Auditor a = listaAuditoresGestion.get(tablaAuditoresGestion.convertRowIndexToModel(row));
-                a.setNombre(nombre.getText());
-                a.setApellidos(apellidos.getText());
-                a.setCifEmpresa(cif.getText());
-                a.setNombreEmpresa(empresa.getText());
-                a.setDireccionEmpresa(direccion.getText());
-                a.setTelefono(telefono.getText());
-                refreshAll();
+                Auditor a = auditoresGestionModel.getFila(tablaAuditoresGestion.convertRowIndexToModel(row));
+                gestor.modificarAuditor(a, nombre.getText(), apellidos.getText(), cif.getText(), empresa.getText(), direccion.getText(), telefono.getText());
             } catch (Exception ex) { showError(ex.getMessage()); }
         });
 
@@ -490,8 +905,7 @@ public class App extends JFrame {
             int row = tablaAuditoresGestion.getSelectedRow();
             if (row < 0) return;
             if (confirm("¿Eliminar auditor?")) {
-                gestor.eliminarAuditor(listaAuditoresGestion.get(tablaAuditoresGestion.convertRowIndexToModel(row)));
-                refreshAll();
+                gestor.eliminarAuditor(auditoresGestionModel.getFila(tablaAuditoresGestion.convertRowIndexToModel(row)));
                 clearFields(nombre, apellidos, cif, empresa, direccion, telefono);
             }
         });
@@ -523,7 +937,7 @@ public class App extends JFrame {
             if (e.getValueIsAdjusting()) return;
             int row = tablaMateriales.getSelectedRow();
             if (row >= 0) {
-                Material m = listaMaterialesGestion.get(tablaMateriales.convertRowIndexToModel(row));
+                Material m = materialesModel.getFila(tablaMateriales.convertRowIndexToModel(row));
                 nombre.setText(m.getNombre());
                 precio.setText(String.valueOf(m.getPrecio()));
             }
@@ -532,7 +946,6 @@ public class App extends JFrame {
         add.addActionListener(e -> {
             try {
                 gestor.registrarMaterial(nombre.getText(), Double.parseDouble(precio.getText().trim()));
-                refreshAll();
                 clearFields(nombre, precio);
             } catch (Exception ex) { showError(ex.getMessage()); }
         });
@@ -541,10 +954,8 @@ public class App extends JFrame {
             int row = tablaMateriales.getSelectedRow();
             if (row < 0) return;
             try {
-                Material m = listaMaterialesGestion.get(tablaMateriales.convertRowIndexToModel(row));
-                m.setNombre(nombre.getText());
-                m.setPrecio(Double.parseDouble(precio.getText().trim()));
-                refreshAll();
+                Material m = materialesModel.getFila(tablaMateriales.convertRowIndexToModel(row));
+                gestor.modificarMaterial(m, nombre.getText(), Double.parseDouble(precio.getText().trim()));
             } catch (Exception ex) { showError(ex.getMessage()); }
         });
 
@@ -552,8 +963,7 @@ public class App extends JFrame {
             int row = tablaMateriales.getSelectedRow();
             if (row < 0) return;
             if (confirm("¿Eliminar material?")) {
-                gestor.eliminarMaterial(listaMaterialesGestion.get(tablaMateriales.convertRowIndexToModel(row)));
-                refreshAll();
+                gestor.eliminarMaterial(materialesModel.getFila(tablaMateriales.convertRowIndexToModel(row)));
                 clearFields(nombre, precio);
             }
         });
@@ -588,17 +998,20 @@ public class App extends JFrame {
                 double imp = Double.parseDouble(importe.getText().trim());
                 gestor.crearFichaVisita(v, f, descripcion.getText(), imp, admin.getText());
                 clearFields(descripcion, importe, admin);
-                refreshAll();
             } catch (Exception ex) { showError(ex.getMessage()); }
         });
 
         JPanel south = new JPanel(new BorderLayout(10,10));
         south.add(form, BorderLayout.CENTER);
+        JButton importar = new JButton("📥 Importar CSV");
+        importar.addActionListener(e -> importarCSV("visitas", ImportadorCsv::importarVisitas));
+
         JPanel btnP = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        btnP.add(importar);
         btnP.add(add);
         south.add(btnP, BorderLayout.SOUTH);
         
-        return createStandardPanel(tablaVisitas, south);
+        return createStandardPanel(tablaVisitas, south, this::buscarVisitas);
     }
 
     // --- FACTURACIÓN ---
@@ -617,14 +1030,24 @@ public class App extends JFrame {
         
         JButton facturar = new JButton("Facturar Pendientes");
         top.add(facturar);
+        JButton facturarTodos = new JButton("Facturar a Todos");
+        top.add(facturarTodos);
 
         facturar.addActionListener(e -> {
             try {
                 Vecino v = (Vecino) comboVecinosFactura.getSelectedItem();
                 LocalDate fecha = getDateFromSpinner(fechaFactura);
                 Factura f = gestor.crearFactura(v, fecha);
-                refreshAll();
-                JOptionPane.showMessageDialog(this, "Factura creada con éxito\nID: " + f.getId() + "\nTotal: " + f.getTotal() + "€", "OK", JOptionPane.INFORMATION_MESSAGE);
+                JOptionPane.showMessageDialog(this, "Factura creada con éxito\nID: " + f.getId() + "\nTotal: " + Dinero.formatear(f.getTotalCentimos()), "OK", JOptionPane.INFORMATION_MESSAGE);
+            } catch (Exception ex) { showError(ex.getMessage()); }
+        });
+
+        facturarTodos.addActionListener(e -> {
+            LocalDate fecha = getDateFromSpinner(fechaFactura);
+            if (!confirm("¿Facturar las visitas pendientes de todos los vecinos con fecha " + fecha + "?")) return;
+            try {
+                ResumenFacturacion r = gestor.facturarTodos(fecha);
+                JOptionPane.showMessageDialog(this, "Facturación completada:\n" + r, "OK", JOptionPane.INFORMATION_MESSAGE);
             } catch (Exception ex) { showError(ex.getMessage()); }
         });
 
@@ -650,7 +1073,7 @@ public class App extends JFrame {
             if (e.getValueIsAdjusting()) return;
             int row = tablaCursos.getSelectedRow();
             if (row < 0) return;
-            Curso c = (Curso) comboCursosInscripcion.getItemAt(tablaCursos.convertRowIndexToModel(row));
+            Curso c = cursosModel.getFila(tablaCursos.convertRowIndexToModel(row));
             refreshMateriasEInscritos(c);
         });
 
@@ -690,7 +1113,6 @@ public class App extends JFrame {
                 gestor.crearCurso(nombre.getText(), Double.parseDouble(precio.getText()), Integer.parseInt(max.getText()), 
                         getDateFromSpinner(inicio), getDateFromSpinner(fin));
                 clearFields(nombre, precio);
-                refreshAll();
             } catch (Exception ex) { showError(ex.getMessage()); }
         });
         return p;
@@ -710,7 +1132,7 @@ public class App extends JFrame {
         add.addActionListener(e -> {
             try {
                 gestor.addMateriaACurso((Curso)comboCursoMateria.getSelectedItem(), nombre.getText(), Integer.parseInt(horas.getText()), (Profesor)comboProfesorMateria.getSelectedItem());
-                clearFields(nombre, horas); refreshAll();
+                clearFields(nombre, horas);
             } catch (Exception ex) { showError(ex.getMessage()); }
         });
         return p;
@@ -724,12 +1146,13 @@ public class App extends JFrame {
         p.add(new JLabel("Curso:")); p.add(comboCursosInscripcion);
         p.add(new JLabel("")); p.add(inscribir);
         inscribir.addActionListener(e -> {
-            try { gestor.inscribirVecinoEnCurso((Vecino)comboVecinosInscripcion.getSelectedItem(), (Curso)comboCursosInscripcion.getSelectedItem()); refreshAll(); } catch (Exception ex) { showError(ex.getMessage()); }
+            try { gestor.inscribirVecinoEnCurso((Vecino)comboVecinosInscripcion.getSelectedItem(), (Curso)comboCursosInscripcion.getSelectedItem()); } catch (Exception ex) { showError(ex.getMessage()); }
         });
         return p;
     }
 
     private void refreshMateriasEInscritos(Curso c) {
+        cursoMostrado = c;
         materiasModel.setRowCount(0);
         inscritosModel.setRowCount(0);
         if (c == null) return;
@@ -743,7 +1166,7 @@ public class App extends JFrame {
             if (e.getValueIsAdjusting()) return;
             int row = tablaAuditorias.getSelectedRow();
             if (row < 0) return;
-            Auditoria a = (Auditoria) comboAuditorias.getItemAt(tablaAuditorias.convertRowIndexToModel(row));
+            Auditoria a = auditoriasModel.getFila(tablaAuditorias.convertRowIndexToModel(row));
             refreshDetalleAuditoria(a);
         });
 
@@ -766,7 +1189,7 @@ public class App extends JFrame {
         JSpinner fechaC = createDateSpinner(); JButton bCrear = new JButton("Crear");
         p1.add(new JLabel("Auditor:")); p1.add(comboAuditores); p1.add(new JLabel("Fecha:")); p1.add(fechaC); p1.add(new JLabel("")); p1.add(bCrear);
         bCrear.addActionListener(ev -> {
-            try { gestor.crearAuditoria((Auditor)comboAuditores.getSelectedItem(), getDateFromSpinner(fechaC)); refreshAll(); } catch(Exception ex){showError(ex.getMessage());}
+            try { gestor.crearAuditoria((Auditor)comboAuditores.getSelectedItem(), getDateFromSpinner(fechaC)); } catch(Exception ex){showError(ex.getMessage());}
         });
 
         // Asignar Visita
@@ -774,7 +1197,7 @@ public class App extends JFrame {
         JButton bAsig = new JButton("Asignar");
         p2.add(new JLabel("Auditoría:")); p2.add(comboAuditorias); p2.add(new JLabel("Visita:")); p2.add(comboVisitasParaAuditoria); p2.add(new JLabel("")); p2.add(bAsig);
         bAsig.addActionListener(ev -> {
-            try { gestor.asignarVisitasAAuditoria((Auditoria)comboAuditorias.getSelectedItem(), List.of((FichaVisita)comboVisitasParaAuditoria.getSelectedItem())); refreshAll(); } catch(Exception ex){showError(ex.getMessage());}
+            try { gestor.asignarVisitasAAuditoria((Auditoria)comboAuditorias.getSelectedItem(), List.of((FichaVisita)comboVisitasParaAuditoria.getSelectedItem())); } catch(Exception ex){showError(ex.getMessage());}
         });
 
         // Cerrar / Material
@@ -783,8 +1206,8 @@ public class App extends JFrame {
         p3.add(new JLabel("Fecha Fin:")); p3.add(fechaF); p3.add(bCerrar); p3.add(new JLabel(""));
         p3.add(new JLabel("Mat:")); p3.add(comboMaterialesParaAuditoria); p3.add(bMat);
         
-        bCerrar.addActionListener(ev -> { try { gestor.finalizarAuditoria((Auditoria)comboAuditorias.getSelectedItem(), getDateFromSpinner(fechaF)); refreshAll(); } catch(Exception ex){showError(ex.getMessage());}});
-        bMat.addActionListener(ev -> { try { gestor.asignarMaterialAAuditoria((Auditoria)comboAuditorias.getSelectedItem(), (Material)comboMaterialesParaAuditoria.getSelectedItem()); refreshAll(); } catch(Exception ex){showError(ex.getMessage());}});
+        bCerrar.addActionListener(ev -> { try { gestor.finalizarAuditoria((Auditoria)comboAuditorias.getSelectedItem(), getDateFromSpinner(fechaF)); } catch(Exception ex){showError(ex.getMessage());}});
+        bMat.addActionListener(ev -> { try { gestor.asignarMaterialAAuditoria((Auditoria)comboAuditorias.getSelectedItem(), (Material)comboMaterialesParaAuditoria.getSelectedItem()); } catch(Exception ex){showError(ex.getMessage());}});
         
         actions.add(p1); actions.add(p2); actions.add(p3);
 
@@ -796,6 +1219,7 @@ public class App extends JFrame {
     }
 
     private void refreshDetalleAuditoria(Auditoria a) {
+        auditoriaMostrada = a;
         auditoriaVisitasModel.setRowCount(0);
         auditoriaMaterialesModel.setRowCount(0);
         if (a == null) return;
@@ -809,84 +1233,385 @@ public class App extends JFrame {
     private void showError(String msg) { JOptionPane.showMessageDialog(this, msg, "Error", JOptionPane.ERROR_MESSAGE); }
     private boolean confirm(String msg) { return JOptionPane.showConfirmDialog(this, msg, "Confirmar", JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION; }
 
+    /** Fallo de un guardado en segundo plano, desde cualquier hilo; mientras se muestra uno, los siguientes no se apilan. */
+    private void avisarFallo(String msg) {
+        if (!avisandoFallo.compareAndSet(false, true)) return;
+        SwingUtilities.invokeLater(() -> {
+            try {
+                showError(msg);
+            } finally {
+                avisandoFallo.set(false);
+            }
+        });
+    }
+
     // --- REFRESH ---
     private void refreshAll() {
-        refreshVecinos();
-        refreshProfesores(); 
-        refreshAuditoresGestion();
-        refreshMateriales();
-        refreshVisitas();
-        refreshFacturas();
-        refreshCursos();
-        refreshAuditorias();
-        refreshCombos();
+        refreshListas();
         updateDashboard();
     }
 
     private void updateDashboard() {
-        lblTotalVecinos.setText(String.valueOf(gestor.getVecinos().size()));
-        long pendientes = gestor.getVisitas().stream().filter(v -> v.getEstado() == EstadoPago.IMPAGADA).count();
-        lblVisitasPendientes.setText(String.valueOf(pendientes));
-        double total = gestor.getFacturas().stream().mapToDouble(f -> f.getTotal()).sum();
-        lblTotalRecaudado.setText(String.format("%.2f €", total));
-    }
-
-    private void refreshVecinos() {
-        vecinosModel.setRowCount(0);
-        for (Vecino v : gestor.getVecinos()) vecinosModel.addRow(new Object[]{v.getDni(), v.getNombreApellidos(), v.getDireccion(), v.getCodigoPostal(), v.getCiudad(), v.getTelefono()});
-    }
-    private void refreshProfesores() {
-        profesoresModel.setRowCount(0);
-        listaProfesores = gestor.getProfesores();
-        for (Profesor p : listaProfesores) profesoresModel.addRow(new Object[]{p.getNombre(), p.getApellidos(), p.getDireccion(), p.getTelefono(), p.getSueldo()});
-    }
-    private void refreshAuditoresGestion() {
-        auditoresGestionModel.setRowCount(0);
-        listaAuditoresGestion = gestor.getAuditores();
-        for (Auditor a : listaAuditoresGestion) auditoresGestionModel.addRow(new Object[]{a.getNombre(), a.getApellidos(), a.getCifEmpresa(), a.getNombreEmpresa(), a.getDireccionEmpresa(), a.getTelefono()});
-    }
-    private void refreshMateriales() {
-        materialesModel.setRowCount(0);
-        listaMaterialesGestion = gestor.getRepositorioMateriales();
-        for (Material m : listaMaterialesGestion) materialesModel.addRow(new Object[]{m.getNombre(), m.getPrecio()});
-    }
-    private void refreshVisitas() {
-        visitasModel.setRowCount(0);
-        for (FichaVisita v : gestor.getVisitas()) visitasModel.addRow(new Object[]{v.getId(), v.getFecha(), v.getVecino(), v.getDescripcion(), v.getImporte(), v.getNombreAdministrador(), v.getEstado()});
-    }
-    private void refreshFacturas() {
-        facturasModel.setRowCount(0);
-        for (Factura f : gestor.getFacturas()) facturasModel.addRow(new Object[]{f.getId(), f.getFechaCreacion(), f.getVecino(), f.getTotal(), f.getVisitas().size()});
-    }
-    private void refreshCursos() {
-        cursosModel.setRowCount(0);
-        for (Curso c : gestor.getCursos()) cursosModel.addRow(new Object[]{c.getNombre(), c.getDuracionTotalHoras() + "h", c.getPrecio(), c.getInscritos().size() + "/" + c.getMaxVecinos()});
-        Curso selected = (Curso) comboCursosInscripcion.getSelectedItem();
-        refreshMateriasEInscritos(selected);
-    }
-    private void refreshAuditorias() {
-        auditoriasModel.setRowCount(0);
-        for (Auditoria a : gestor.getAuditorias()) auditoriasModel.addRow(new Object[]{a.getId(), a.getAuditor(), a.getFechaCreacion(), a.getFechaFin(), a.getSueldoAuditor(), a.getVisitas().size(), a.getMateriales().size()});
-        Auditoria selected = (Auditoria) comboAuditorias.getSelectedItem();
-        refreshDetalleAuditoria(selected);
-    }
-    private void refreshCombos() {
-        refillCombo(comboVecinosVisita, gestor.getVecinos());
-        refillCombo(comboVecinosFactura, gestor.getVecinos());
-        refillCombo(comboVecinosInscripcion, gestor.getVecinos());
-        refillCombo(comboProfesorMateria, gestor.getProfesores());
-        refillCombo(comboCursosInscripcion, gestor.getCursos());
-        refillCombo(comboCursoMateria, gestor.getCursos());
-        refillCombo(comboAuditores, gestor.getAuditores());
-        refillCombo(comboAuditorias, gestor.getAuditorias());
-        refillCombo(comboVisitasParaAuditoria, gestor.getVisitas());
-        refillCombo(comboMaterialesParaAuditoria, gestor.getRepositorioMateriales());
-    }
-    private static <T> void refillCombo(JComboBox<T> combo, List<T> items) {
-        Object sel = combo.getSelectedItem();
-        combo.removeAllItems();
-        for (T it : items) combo.addItem(it);
-        if (sel != null && items.contains(sel)) combo.setSelectedItem(sel);
+        Agregados a = gestor.getAgregados();
+        lblTotalVecinos.setText(String.valueOf(a.getNumVecinos()));
+        lblVisitasPendientes.setText(String.valueOf(a.getVisitasPendientes()));
+        lblTotalRecaudado.setText(Dinero.formatear(a.getTotalFacturadoCentimos()));
+    }
+
+    /** Enlaza tablas y combos con las listas (vistas) del gestor; no copia ninguna entidad. */
+    private void refreshListas() {
+        vecinosModel.setFilas(gestor.getVecinos());
+        profesoresModel.setFilas(gestor.getProfesores());
+        auditoresGestionModel.setFilas(gestor.getAuditores());
+        materialesModel.setFilas(gestor.getRepositorioMateriales());
+        visitasModel.setFilas(gestor.getVisitas());
+        facturasModel.setFilas(gestor.getFacturas());
+        cursosModel.setFilas(gestor.getCursos());
+        auditoriasModel.setFilas(gestor.getAuditorias());
+
+        comboVecinosVisita.setModel(new ModeloCombo<>(gestor.getVecinos()));
+        comboVecinosFactura.setModel(new ModeloCombo<>(gestor.getVecinos()));
+        comboVecinosInscripcion.setModel(new ModeloCombo<>(gestor.getVecinos()));
+        comboProfesorMateria.setModel(new ModeloCombo<>(gestor.getProfesores()));
+        comboCursosInscripcion.setModel(new ModeloCombo<>(gestor.getCursos()));
+        comboCursoMateria.setModel(new ModeloCombo<>(gestor.getCursos()));
+        comboAuditores.setModel(new ModeloCombo<>(gestor.getAuditores()));
+        comboAuditorias.setModel(new ModeloCombo<>(gestor.getAuditorias()));
+        comboVisitasParaAuditoria.setModel(new ModeloCombo<>(gestor.getVisitas()));
+        comboMaterialesParaAuditoria.setModel(new ModeloCombo<>(gestor.getRepositorioMateriales()));
+
+        refreshMateriasEInscritos((Curso) comboCursosInscripcion.getSelectedItem());
+        refreshDetalleAuditoria((Auditoria) comboAuditorias.getSelectedItem());
+    }
+
+    // --- CAMBIOS INCREMENTALES ---
+    /** Oyente del gestor: puede llegar desde cualquier hilo; se aplica en el hilo de eventos. */
+    private void encolarCambio(EventoCambio e) {
+        boolean programar;
+        synchronized (cambiosPendientes) {
+            programar = cambiosPendientes.isEmpty();
+            cambiosPendientes.add(e);
+        }
+        if (programar) SwingUtilities.invokeLater(this::aplicarCambios);
+    }
+
+    /**
+     * Avisa solo a las tablas y combos afectados; las filas se leen de las entidades.
+     * Los cambios de estado de visitas (facturación) se notifican con un único
+     * fireTableRowsUpdated para todo el tramo.
+     */
+    private void aplicarCambios() {
+        List<EventoCambio> lote;
+        Set<Class<?>> clases = new HashSet<>();
+        synchronized (cambiosPendientes) {
+            lote = new ArrayList<>(cambiosPendientes);
+            cambiosPendientes.clear();
+        }
+        // Instantáneas tomadas después de vaciar la cola: contienen, al menos, lo que anuncia el lote.
+        for (EventoCambio e : lote) clases.add(e.getEntidad().getClass());
+        actualizarInstantaneas(clases);
+        int primeraPagada = Integer.MAX_VALUE, ultimaPagada = -1;
+        for (int k = 0; k < lote.size(); k++) {
+            EventoCambio e = lote.get(k);
+            if (e.es(FichaVisita.class) && e.getTipo() == EventoCambio.Tipo.MODIFICACION) {
+                primeraPagada = Math.min(primeraPagada, e.getIndice());
+                ultimaPagada = Math.max(ultimaPagada, e.getIndice());
+            } else if (e.getTipo() == EventoCambio.Tipo.ALTA && (e.es(Vecino.class) || e.es(FichaVisita.class))) {
+                int fin = k; // altas seguidas (importación): un solo aviso para todo el tramo
+                while (fin + 1 < lote.size() && lote.get(fin + 1).getTipo() == EventoCambio.Tipo.ALTA
+                        && lote.get(fin + 1).getEntidad().getClass() == e.getEntidad().getClass()
+                        && lote.get(fin + 1).getIndice() == lote.get(fin).getIndice() + 1) fin++;
+                aplicarAltas(e, lote.get(fin).getIndice());
+                k = fin;
+            } else {
+                aplicarCambio(e);
+            }
+        }
+        if (ultimaPagada >= 0) {
+            visitasModel.fireTableRowsUpdated(primeraPagada, ultimaPagada);
+            comboVisitasParaAuditoria.repaint();
+            if (auditoriaMostrada != null) refreshDetalleAuditoria(auditoriaMostrada);
+        }
+        updateDashboard();
+    }
+
+    private void aplicarCambio(EventoCambio e) {
+        Object x = e.getEntidad();
+        if (x instanceof Vecino) {
+            vecinosModel.aplicar(e);
+            aplicarEnCombo(comboVecinosVisita, e);
+            aplicarEnCombo(comboVecinosFactura, e);
+            aplicarEnCombo(comboVecinosInscripcion, e);
+        } else if (x instanceof FichaVisita) {
+            visitasModel.aplicar(e);
+            aplicarEnCombo(comboVisitasParaAuditoria, e);
+        } else if (x instanceof Factura) {
+            facturasModel.aplicar(e);
+        } else if (x instanceof Profesor) {
+            profesoresModel.aplicar(e);
+            aplicarEnCombo(comboProfesorMateria, e);
+            if (cursoMostrado != null) refreshMateriasEInscritos(cursoMostrado); // nombre del profesor
+        } else if (x instanceof Auditor) {
+            auditoresGestionModel.aplicar(e);
+            aplicarEnCombo(comboAuditores, e);
+            tablaAuditorias.repaint();
+            comboAuditorias.repaint();
+        } else if (x instanceof Material) {
+            materialesModel.aplicar(e);
+            aplicarEnCombo(comboMaterialesParaAuditoria, e);
+            if (auditoriaMostrada != null) refreshDetalleAuditoria(auditoriaMostrada);
+        } else if (x instanceof Curso) {
+            cursosModel.aplicar(e);
+            aplicarEnCombo(comboCursosInscripcion, e);
+            aplicarEnCombo(comboCursoMateria, e);
+            if (x == cursoMostrado) refreshMateriasEInscritos(cursoMostrado);
+        } else if (x instanceof Auditoria) {
+            auditoriasModel.aplicar(e);
+            aplicarEnCombo(comboAuditorias, e);
+            if (x == auditoriaMostrada) refreshDetalleAuditoria(auditoriaMostrada);
+        }
+    }
+
+    /** Altas de vecinos o visitas en las posiciones de {@code primera} a {@code hasta}. */
+    private void aplicarAltas(EventoCambio primera, int hasta) {
+        int desde = primera.getIndice();
+        Object x = primera.getEntidad();
+        if (x instanceof Vecino) {
+            vecinosModel.aplicarAltas(desde, hasta);
+            for (JComboBox<?> combo : List.of(comboVecinosVisita, comboVecinosFactura, comboVecinosInscripcion)) {
+                ((ModeloCombo<?>) combo.getModel()).aplicarAltas(desde, hasta, x);
+            }
+        } else {
+            visitasModel.aplicarAltas(desde, hasta);
+            ((ModeloCombo<?>) comboVisitasParaAuditoria.getModel()).aplicarAltas(desde, hasta, x);
+        }
+    }
+
+    private static void aplicarEnCombo(JComboBox<?> combo, EventoCambio e) {
+        ((ModeloCombo<?>) combo.getModel()).aplicar(e);
+    }
+
+    /** Cambia en silencio la lista de los modelos de esas entidades; lo visible cambia con cada evento. */
+    private void actualizarInstantaneas(Set<Class<?>> clases) {
+        if (clases.contains(Vecino.class)) {
+            List<Vecino> vecinos = gestor.getVecinos();
+            vecinosModel.actualizar(vecinos);
+            actualizarCombo(comboVecinosVisita, vecinos);
+            actualizarCombo(comboVecinosFactura, vecinos);
+            actualizarCombo(comboVecinosInscripcion, vecinos);
+        }
+        if (clases.contains(FichaVisita.class)) {
+            List<FichaVisita> visitas = gestor.getVisitas();
+            visitasModel.actualizar(visitas);
+            actualizarCombo(comboVisitasParaAuditoria, visitas);
+        }
+        if (clases.contains(Factura.class)) facturasModel.actualizar(gestor.getFacturas());
+        if (clases.contains(Profesor.class)) {
+            List<Profesor> profesores = gestor.getProfesores();
+            profesoresModel.actualizar(profesores);
+            actualizarCombo(comboProfesorMateria, profesores);
+        }
+        if (clases.contains(Auditor.class)) {
+            List<Auditor> auditores = gestor.getAuditores();
+            auditoresGestionModel.actualizar(auditores);
+            actualizarCombo(comboAuditores, auditores);
+        }
+        if (clases.contains(Material.class)) {
+            List<Material> materiales = gestor.getRepositorioMateriales();
+            materialesModel.actualizar(materiales);
+            actualizarCombo(comboMaterialesParaAuditoria, materiales);
+        }
+        if (clases.contains(Curso.class)) {
+            List<Curso> cursos = gestor.getCursos();
+            cursosModel.actualizar(cursos);
+            actualizarCombo(comboCursosInscripcion, cursos);
+            actualizarCombo(comboCursoMateria, cursos);
+        }
+        if (clases.contains(Auditoria.class)) {
+            List<Auditoria> auditorias = gestor.getAuditorias();
+            auditoriasModel.actualizar(auditorias);
+            actualizarCombo(comboAuditorias, auditorias);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void actualizarCombo(JComboBox<T> combo, List<T> elementos) {
+        ((ModeloCombo<T>) combo.getModel()).actualizar(elementos);
+    }
+
+    /**
+     * Tabla sobre una instantánea del gestor: cada celda se obtiene de la entidad con su accesor
+     * al pintarse, así que no se duplica ninguna fila. El número de filas sigue a los eventos ya
+     * aplicados, no a la lista: otros hilos pueden ir por delante de la cola de eventos.
+     */
+    private static class ModeloVista<T> extends AbstractTableModel {
+        private static final long serialVersionUID = 1L;
+        private final List<String> nombres = new ArrayList<>();
+        private final List<Function<? super T, ?>> accesores = new ArrayList<>();
+        private List<T> filas = List.of();
+        private int numFilas;
+
+        ModeloVista<T> columna(String nombre, Function<? super T, ?> accesor) {
+            nombres.add(nombre);
+            accesores.add(accesor);
+            return this;
+        }
+
+        void setFilas(List<T> filas) {
+            this.filas = filas;
+            this.numFilas = filas.size();
+            fireTableDataChanged();
+        }
+
+        /** Sustituye la instantánea sin avisar; las filas visibles solo cambian con {@link #aplicar}. */
+        void actualizar(List<T> filas) { this.filas = filas; }
+
+        /** La instantánea actual, que se puede leer desde otro hilo. */
+        List<T> getFilas() { return filas; }
+
+        /** Exportador con las mismas columnas que la tabla. */
+        ExportadorCsv<T> exportador() {
+            ExportadorCsv<T> e = new ExportadorCsv<>();
+            for (int i = 0; i < nombres.size(); i++) e.columna(nombres.get(i), accesores.get(i));
+            return e;
+        }
+
+        /** null si la fila ya no está en la instantánea (una baja aún por aplicar). */
+        T getFila(int fila) { return fila < filas.size() ? filas.get(fila) : null; }
+
+        /** Notifica un alta, modificación o baja en la posición del evento. */
+        void aplicar(EventoCambio e) {
+            int i = e.getIndice();
+            switch (e.getTipo()) {
+                case ALTA: numFilas++; fireTableRowsInserted(i, i); break;
+                case MODIFICACION: fireTableRowsUpdated(i, i); break;
+                case BAJA: numFilas--; fireTableRowsDeleted(i, i); break;
+            }
+        }
+
+        void aplicarAltas(int desde, int hasta) {
+            numFilas += hasta - desde + 1;
+            fireTableRowsInserted(desde, hasta);
+        }
+
+        @Override public int getRowCount() { return numFilas; }
+        @Override public int getColumnCount() { return nombres.size(); }
+        @Override public String getColumnName(int columna) { return nombres.get(columna); }
+
+        @Override
+        public Object getValueAt(int fila, int columna) {
+            T t = getFila(fila);
+            return t == null ? null : accesores.get(columna).apply(t);
+        }
+    }
+
+    /**
+     * Combo sobre una instantánea del gestor, con el tamaño llevado por eventos como {@link ModeloVista};
+     * como DefaultComboBoxModel, selecciona el primero al llenarse.
+     */
+    private static class ModeloCombo<T> extends AbstractListModel<T> implements ComboBoxModel<T> {
+        private static final long serialVersionUID = 1L;
+        private List<T> elementos;
+        private int numElementos;
+        private Object seleccionado;
+
+        ModeloCombo(List<T> elementos) {
+            this.elementos = elementos;
+            this.numElementos = elementos.size();
+            this.seleccionado = elementos.isEmpty() ? null : elementos.get(0);
+        }
+
+        void actualizar(List<T> elementos) { this.elementos = elementos; }
+
+        void aplicar(EventoCambio e) {
+            int i = e.getIndice();
+            switch (e.getTipo()) {
+                case ALTA:
+                    numElementos++;
+                    fireIntervalAdded(this, i, i);
+                    if (seleccionado == null) setSelectedItem(e.getEntidad());
+                    break;
+                case MODIFICACION:
+                    fireContentsChanged(this, i, i);
+                    break;
+                case BAJA:
+                    numElementos--;
+                    fireIntervalRemoved(this, i, i);
+                    if (seleccionado == e.getEntidad()) setSelectedItem(numElementos == 0 ? null : getElementAt(Math.min(i, numElementos - 1)));
+                    break;
+            }
+        }
+
+        void aplicarAltas(int desde, int hasta, Object primera) {
+            numElementos += hasta - desde + 1;
+            fireIntervalAdded(this, desde, hasta);
+            if (seleccionado == null) setSelectedItem(primera);
+        }
+
+        @Override public int getSize() { return numElementos; }
+        @Override public T getElementAt(int i) { return i < elementos.size() ? elementos.get(i) : null; }
+        @Override public Object getSelectedItem() { return seleccionado; }
+
+        @Override
+        public void setSelectedItem(Object item) {
+            if (Objects.equals(seleccionado, item)) return;
+            seleccionado = item;
+            fireContentsChanged(this, -1, -1);
+        }
+    }
+
+    /**
+     * Ventana de progreso de cargas y guardados. Recibe el avance desde el hilo de trabajo
+     * y lo pinta con un temporizador, sin inundar la cola de eventos.
+     */
+    private static class VentanaProgreso extends JWindow implements Progreso {
+        private static final long serialVersionUID = 1L;
+        private final JProgressBar barra = new JProgressBar(0, 1000);
+        private final JLabel detalle = new JLabel(" ");
+        private final javax.swing.Timer refresco = new javax.swing.Timer(100, e -> pintarAvance());
+        private final boolean enFilas; // si no, en bytes
+        private volatile long hecho, total;
+
+        VentanaProgreso(Window owner, String titulo) {
+            this(owner, titulo, false);
+        }
+
+        VentanaProgreso(Window owner, String titulo, boolean enFilas) {
+            super(owner);
+            this.enFilas = enFilas;
+            JPanel panel = new JPanel(new BorderLayout(10, 10));
+            panel.setBorder(BorderFactory.createCompoundBorder(BorderFactory.createLineBorder(Color.GRAY), new EmptyBorder(20, 20, 20, 20)));
+            JLabel lblTitulo = new JLabel(titulo);
+            lblTitulo.setFont(new Font("Segoe UI", Font.BOLD, 16));
+            barra.setIndeterminate(true);
+            panel.add(lblTitulo, BorderLayout.NORTH);
+            panel.add(barra, BorderLayout.CENTER);
+            panel.add(detalle, BorderLayout.SOUTH);
+            setContentPane(panel);
+            setSize(420, 130);
+            setLocationRelativeTo(owner);
+            refresco.start();
+            setVisible(true);
+        }
+
+        @Override
+        public void avance(long hecho, long total) {
+            this.total = total;
+            this.hecho = hecho;
+        }
+
+        private void pintarAvance() {
+            long t = total, h = Math.min(hecho, t);
+            if (t <= 0) return;
+            barra.setIndeterminate(false);
+            barra.setValue((int) (h * 1000 / t));
+            detalle.setText(enFilas ? String.format("%,d de %,d filas", h, t) : String.format("%.1f de %.1f MB", h / 1e6, t / 1e6));
+        }
+
+        void cerrar() {
+            refresco.stop();
+            dispose();
+        }
     }
 
     private static class NonEditableModel extends DefaultTableModel {
@@ -938,6 +1663,10 @@ public class App extends JFrame {
     }
 
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(() -> new App().setVisible(true));
+        SwingUtilities.invokeLater(() -> {
+            App app = new App();
+            app.setVisible(true);
+            app.cargarEnSegundoPlano();
+        });
     }
 }
\ No newline at end of file
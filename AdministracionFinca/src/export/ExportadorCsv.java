@@ -0,0 +1,167 @@
+package export;
+
+import persistencia.Progreso;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exporta una lista de entidades a CSV (RFC 4180) fila a fila, sin pasar por ninguna tabla.
+ *
+ * - Los campos con comas, comillas o saltos de línea van entre comillas, con las comillas dobladas;
+ *   las filas terminan en CRLF y el texto va en UTF-8.
+ * - Opcionalmente se comprime con gzip y se reparte en varios ficheros de un máximo de filas,
+ *   cada uno con su cabecera: visitas-1.csv, visitas-2.csv...
+ * - El progreso se informa en filas. Si algo falla, se borran los ficheros ya escritos.
+ *
+ * La lista se recorre por posición, así que debe admitir lecturas desde otro hilo
+ * (las instantáneas de {@link servicio.GestorComunidad} lo hacen).
+ */
+public final class ExportadorCsv<T> {
+
+    private static final int BUFFER = 64 * 1024;
+    private static final int AVISO_CADA = 4096; // filas entre avisos de progreso
+
+    private final List<String> cabeceras = new ArrayList<>();
+    private final List<Function<? super T, ?>> valores = new ArrayList<>();
+    private boolean gzip;
+    private long filasPorFichero;
+
+    public ExportadorCsv<T> columna(String cabecera, Function<? super T, ?> valor) {
+        cabeceras.add(Objects.requireNonNull(cabecera, "cabecera"));
+        valores.add(Objects.requireNonNull(valor, "valor"));
+        return this;
+    }
+
+    /** Comprime cada fichero con gzip (se añade .gz al nombre si no lo tiene). */
+    public ExportadorCsv<T> comprimido(boolean gzip) {
+        this.gzip = gzip;
+        return this;
+    }
+
+    /** Reparte las filas en ficheros de como mucho ese número; 0, todo en uno. */
+    public ExportadorCsv<T> porPartes(long filasPorFichero) {
+        if (filasPorFichero < 0) throw new IllegalArgumentException("El número de filas por fichero no puede ser negativo.");
+        this.filasPorFichero = filasPorFichero;
+        return this;
+    }
+
+    /**
+     * Escribe las filas de la lista cuya posición acepta {@code incluir} (null: todas) y devuelve
+     * los ficheros creados. Sin filas se crea igualmente uno, solo con la cabecera.
+     */
+    public List<File> exportar(List<? extends T> filas, IntPredicate incluir, File destino, Progreso progreso) throws IOException {
+        List<File> creados = new ArrayList<>();
+        Writer out = null;
+        boolean completo = false;
+        try {
+            int total = filas.size();
+            long enFichero = 0;
+            for (int i = 0; i < total; i++) {
+                if (incluir != null && !incluir.test(i)) continue;
+                if (out == null || (filasPorFichero > 0 && enFichero == filasPorFichero)) {
+                    if (out != null) out.close();
+                    out = abrir(destino, creados);
+                    enFichero = 0;
+                }
+                escribirFila(out, filas.get(i));
+                enFichero++;
+                if (i % AVISO_CADA == 0) progreso.avance(i, total);
+            }
+            if (out == null) out = abrir(destino, creados);
+            out.close();
+            progreso.avance(total, total);
+            completo = true;
+            return creados;
+        } finally {
+            if (!completo) {
+                if (out != null) cerrarSinErrores(out);
+                for (File f : creados) f.delete();
+            }
+        }
+    }
+
+    private Writer abrir(File destino, List<File> creados) throws IOException {
+        File f = nombreParte(destino, creados.size() + 1);
+        OutputStream os = new FileOutputStream(f);
+        creados.add(f);
+        try {
+            if (gzip) os = new GZIPOutputStream(os, BUFFER);
+        } catch (IOException e) {
+            os.close();
+            throw e;
+        }
+        Writer out = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), BUFFER);
+        for (int j = 0; j < cabeceras.size(); j++) {
+            if (j > 0) out.write(',');
+            escribirCampo(out, cabeceras.get(j));
+        }
+        out.write("\r\n");
+        return out;
+    }
+
+    /** destino tal cual si no hay partes; si no, con el número de parte antes de la extensión. */
+    private File nombreParte(File destino, int parte) {
+        String nombre = destino.getName();
+        if (gzip && !nombre.endsWith(".gz")) nombre += ".gz";
+        if (filasPorFichero > 0) {
+            String extension = nombre.endsWith(".csv.gz") ? ".csv.gz" : nombre.endsWith(".csv") ? ".csv" : "";
+            nombre = nombre.substring(0, nombre.length() - extension.length()) + "-" + parte + extension;
+        }
+        return new File(destino.getAbsoluteFile().getParentFile(), nombre);
+    }
+
+    private void escribirFila(Writer out, T fila) throws IOException {
+        for (int j = 0; j < valores.size(); j++) {
+            if (j > 0) out.write(',');
+            Object valor = valores.get(j).apply(fila);
+            if (valor != null) escribirCampo(out, valor.toString());
+        }
+        out.write("\r\n");
+    }
+
+    /** Escribe un campo, entre comillas solo si hace falta. */
+    public static void escribirCampo(Writer out, String campo) throws IOException {
+        if (!necesitaComillas(campo)) {
+            out.write(campo);
+            return;
+        }
+        out.write('"');
+        int desde = 0;
+        for (int i = campo.indexOf('"'); i >= 0; i = campo.indexOf('"', i + 1)) {
+            out.write(campo, desde, i + 1 - desde);
+            out.write('"');
+            desde = i + 1;
+        }
+        out.write(campo, desde, campo.length() - desde);
+        out.write('"');
+    }
+
+    private static boolean necesitaComillas(String campo) {
+        for (int i = 0; i < campo.length(); i++) {
+            char c = campo.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') return true;
+        }
+        return false;
+    }
+
+    private static void cerrarSinErrores(Writer out) {
+        try {
+            out.close();
+        } catch (IOException ignorada) {
+            // el fichero se borra a continuación
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package importacion;
+
+import export.ExportadorCsv;
+import persistencia.EntradaConProgreso;
+import persistencia.Progreso;
+import servicio.GestorComunidad;
+import servicio.IndiceTexto;
+import servicio.LoteVecinos;
+import servicio.LoteVisitas;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Importación masiva de vecinos y visitas desde CSV (UTF-8; .csv.gz se descomprime).
+ *
+ * - La primera fila es la cabecera; las columnas se reconocen por nombre, sin tildes ni mayúsculas,
+ *   así que un fichero exportado desde la tabla se puede volver a importar.
+ * - Las filas se leen con {@link LectorCsv} y se confirman por lotes ({@link GestorComunidad#registrarVecinos},
+ *   {@link GestorComunidad#crearFichasVisita}), que validan en paralelo y actualizan los agregados una vez por lote.
+ * - Las filas rechazadas no detienen la importación: se anotan, con su línea y el motivo, en un informe
+ *   junto al fichero (nombre.errores.csv), que solo se crea si hay alguna.
+ */
+public final class ImportadorCsv {
+
+    static final int LOTE = 4096;
+
+    private ImportadorCsv() {}
+
+    /** Columnas: DNI y Nombre; opcionales Dirección, CP, Ciudad y Teléfono. */
+    public static ResumenImportacion importarVecinos(GestorComunidad gestor, File csv, Progreso progreso) throws IOException {
+        return importar(csv, progreso, cabecera -> new DestinoVecinos(gestor, cabecera));
+    }
+
+    /**
+     * Columnas: DNI (o Vecino, como "Nombre (DNI)"), Fecha (aaaa-mm-dd o dd/mm/aaaa), Descripción, Importe
+     * y Admin. Las demás (ID, Estado) se ignoran: cada visita importada es nueva y queda pendiente de facturar.
+     */
+    public static ResumenImportacion importarVisitas(GestorComunidad gestor, File csv, Progreso progreso) throws IOException {
+        return importar(csv, progreso, cabecera -> new DestinoVisitas(gestor, cabecera));
+    }
+
+    private static ResumenImportacion importar(File csv, Progreso progreso, Function<Cabecera, Destino> crear) throws IOException {
+        long inicio = System.nanoTime();
+        long aceptadas = 0;
+        InformeErrores errores = new InformeErrores(ficheroErrores(csv));
+        try (LectorCsv lector = new LectorCsv(abrir(csv, progreso)); errores) {
+            if (!lector.siguiente()) throw new IllegalArgumentException("El fichero está vacío.");
+            Destino destino = crear.apply(new Cabecera(lector));
+            long[] lineas = new long[LOTE];
+            List<Rechazo> rechazos = new ArrayList<>();
+            boolean hay;
+            do {
+                hay = lector.siguiente();
+                if (hay && !lector.vacio()) {
+                    String motivo = destino.anadir(lector);
+                    if (motivo != null) rechazos.add(new Rechazo(lector.getLinea(), motivo));
+                    else lineas[destino.size() - 1] = lector.getLinea();
+                }
+                if (destino.size() == LOTE || (!hay && (destino.size() > 0 || !rechazos.isEmpty()))) {
+                    String[] motivos = destino.size() == 0 ? new String[0] : destino.confirmar();
+                    for (int i = 0; i < motivos.length; i++) {
+                        if (motivos[i] == null) aceptadas++;
+                        else rechazos.add(new Rechazo(lineas[i], motivos[i]));
+                    }
+                    destino.vaciar();
+                    errores.anotar(rechazos);
+                    rechazos.clear();
+                }
+            } while (hay);
+        }
+        return new ResumenImportacion(aceptadas, errores.total, errores.total > 0 ? errores.fichero : null,
+                Duration.ofNanos(System.nanoTime() - inicio));
+    }
+
+    private static Reader abrir(File csv, Progreso progreso) throws IOException {
+        InputStream in = new EntradaConProgreso(new FileInputStream(csv), csv.length(), progreso);
+        try {
+            if (csv.getName().endsWith(".gz")) in = new GZIPInputStream(in, 64 * 1024);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return new InputStreamReader(in, StandardCharsets.UTF_8);
+    }
+
+    private static File ficheroErrores(File csv) {
+        String nombre = csv.getName().replaceFirst("(\\.csv)?(\\.gz)?$", "");
+        return new File(csv.getAbsoluteFile().getParentFile(), nombre + ".errores.csv");
+    }
+
+    // --- Columnas ---
+
+    /** Posición de cada columna de la cabecera, por su nombre normalizado. */
+    private static final class Cabecera {
+        private final Map<String, Integer> posiciones = new HashMap<>();
+
+        Cabecera(LectorCsv lector) {
+            for (int i = 0; i < lector.getNumCampos(); i++) {
+                posiciones.putIfAbsent(IndiceTexto.normalizar(lector.campo(i).trim()), i);
+            }
+        }
+
+        /** Primera columna que se llame como alguno de los nombres (normalizados); -1 si no hay. */
+        int opcional(String... nombres) {
+            for (String n : nombres) {
+                Integer i = posiciones.get(n);
+                if (i != null) return i;
+            }
+            return -1;
+        }
+
+        int obligatoria(String... nombres) {
+            int i = opcional(nombres);
+            if (i < 0) throw new IllegalArgumentException("Falta la columna \"" + nombres[0] + "\" en la cabecera.");
+            return i;
+        }
+    }
+
+    private static String campo(LectorCsv lector, int columna) {
+        return columna < 0 ? "" : lector.campo(columna);
+    }
+
+    /** Dónde van las filas leídas: un lote del gestor que se confirma entero. */
+    private interface Destino {
+        /** Añade la fila al lote; si no se puede leer, devuelve el motivo y no la añade. */
+        String anadir(LectorCsv lector);
+
+        int size();
+
+        /** Da de alta el lote; motivo de rechazo por posición, o null. */
+        String[] confirmar();
+
+        void vaciar();
+    }
+
+    private static final class DestinoVecinos implements Destino {
+        private final GestorComunidad gestor;
+        private final LoteVecinos lote = new LoteVecinos();
+        private final int dni, nombre, direccion, codigoPostal, ciudad, telefono;
+
+        DestinoVecinos(GestorComunidad gestor, Cabecera c) {
+            this.gestor = gestor;
+            this.dni = c.obligatoria("dni");
+            this.nombre = c.obligatoria("nombre", "nombre y apellidos");
+            this.direccion = c.opcional("direccion");
+            this.codigoPostal = c.opcional("cp", "codigo postal");
+            this.ciudad = c.opcional("ciudad");
+            this.telefono = c.opcional("telefono");
+        }
+
+        @Override
+        public String anadir(LectorCsv l) {
+            lote.anadir(l.campo(dni), l.campo(nombre), campo(l, direccion), campo(l, codigoPostal), campo(l, ciudad), campo(l, telefono));
+            return null;
+        }
+
+        @Override public int size() { return lote.size(); }
+        @Override public String[] confirmar() { return gestor.registrarVecinos(lote); }
+        @Override public void vaciar() { lote.vaciar(); }
+    }
+
+    private static final class DestinoVisitas implements Destino {
+        private final GestorComunidad gestor;
+        private final LoteVisitas lote = new LoteVisitas();
+        private final int dni, vecino, fecha, descripcion, importe, administrador;
+
+        DestinoVisitas(GestorComunidad gestor, Cabecera c) {
+            this.gestor = gestor;
+            this.dni = c.opcional("dni");
+            this.vecino = dni >= 0 ? -1 : c.obligatoria("vecino", "dni");
+            this.fecha = c.obligatoria("fecha");
+            this.descripcion = c.obligatoria("descripcion");
+            this.importe = c.obligatoria("importe");
+            this.administrador = c.obligatoria("admin", "administrador");
+        }
+
+        @Override
+        public String anadir(LectorCsv l) {
+            String d = dni >= 0 ? l.campo(dni) : dniDeVecino(l.campo(vecino));
+            LocalDate f = fecha(l.campo(fecha));
+            if (f == null) return "Fecha no válida: " + l.campo(fecha);
+            double i;
+            try {
+                i = importe(l.campo(importe));
+            } catch (NumberFormatException e) {
+                return "Importe no válido: " + l.campo(importe);
+            }
+            lote.anadir(d, f, l.campo(descripcion), i, l.campo(administrador));
+            return null;
+        }
+
+        @Override public int size() { return lote.size(); }
+        @Override public String[] confirmar() { return gestor.crearFichasVisita(lote); }
+        @Override public void vaciar() { lote.vaciar(); }
+    }
+
+    /** "Nombre Apellidos (12345678A)", como lo muestra la tabla de visitas, o el DNI solo. */
+    static String dniDeVecino(String vecino) {
+        int cierre = vecino.lastIndexOf(')');
+        int apertura = cierre < 0 ? -1 : vecino.lastIndexOf('(', cierre);
+        return apertura < 0 ? vecino.trim() : vecino.substring(apertura + 1, cierre).trim();
+    }
+
+    /** aaaa-mm-dd o dd/mm/aaaa, sin pasar por DateTimeFormatter (es lo más lento de cada fila); null si no vale. */
+    static LocalDate fecha(String texto) {
+        String s = texto.trim();
+        try {
+            if (s.length() == 10 && s.charAt(4) == '-' && s.charAt(7) == '-') {
+                return LocalDate.of(numero(s, 0, 4), numero(s, 5, 7), numero(s, 8, 10));
+            }
+            if (s.length() == 10 && s.charAt(2) == '/' && s.charAt(5) == '/') {
+                return LocalDate.of(numero(s, 6, 10), numero(s, 3, 5), numero(s, 0, 2));
+            }
+        } catch (DateTimeException e) {
+            // día o mes fuera de rango, o no son dígitos
+        }
+        return null;
+    }
+
+    /** Cifras de s entre desde y hasta; -1 (fecha inválida) si hay otra cosa. */
+    private static int numero(String s, int desde, int hasta) {
+        int n = 0;
+        for (int i = desde; i < hasta; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            n = n * 10 + (c - '0');
+        }
+        return n;
+    }
+
+    /** Admite coma decimal si no hay punto ("12,50"). */
+    static double importe(String texto) {
+        String s = texto.trim();
+        if (s.indexOf('.') < 0) s = s.replace(',', '.');
+        double d = Double.parseDouble(s);
+        if (Double.isNaN(d) || Double.isInfinite(d)) throw new NumberFormatException(texto);
+        return d;
+    }
+
+    // --- Informe de errores ---
+
+    private static final class Rechazo {
+        final long linea;
+        final String motivo;
+
+        Rechazo(long linea, String motivo) {
+            this.linea = linea;
+            this.motivo = motivo;
+        }
+    }
+
+    /** CSV con la línea y el motivo de cada fila rechazada; el fichero se crea con el primer error. */
+    private static final class InformeErrores implements Closeable {
+        final File fichero;
+        long total;
+        private Writer out;
+
+        InformeErrores(File fichero) {
+            this.fichero = fichero;
+        }
+
+        /** Los rechazos de un lote, en orden de línea. */
+        void anotar(List<Rechazo> rechazos) throws IOException {
+            if (rechazos.isEmpty()) return;
+            if (out == null) {
+                out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fichero), StandardCharsets.UTF_8));
+                out.write("Línea,Motivo\r\n");
+            }
+            Rechazo[] orden = rechazos.toArray(new Rechazo[0]);
+            Arrays.sort(orden, Comparator.comparingLong(r -> r.linea));
+            for (Rechazo r : orden) {
+                out.write(Long.toString(r.linea));
+                out.write(',');
+                ExportadorCsv.escribirCampo(out, r.motivo);
+                out.write("\r\n");
+            }
+            total += orden.length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (out != null) out.close();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package importacion;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Lector de CSV (RFC 4180) registro a registro, para ficheros de cualquier tamaño.
+ *
+ * - Campos entre comillas con comas, comillas dobladas y saltos de línea; filas terminadas en CRLF o LF.
+ * - Se ignora la marca de orden de bytes al principio.
+ * - Los búferes (de lectura, del campo y de la fila) se reutilizan: por campo solo se crea su String.
+ * - Es tolerante: el texto tras unas comillas de cierre se añade al campo en lugar de dar error.
+ */
+public final class LectorCsv implements Closeable {
+
+    private final Reader in;
+    private final char[] buffer = new char[64 * 1024];
+    private int pos, lim;
+    private boolean inicio = true;
+
+    private char[] campo = new char[256];
+    private int largo;
+    private String[] campos = new String[16];
+    private int numCampos;
+
+    private long linea;          // línea en la que empieza el registro actual
+    private long lineaSiguiente = 1;
+
+    public LectorCsv(Reader in) {
+        this.in = in;
+    }
+
+    /** Lee el registro siguiente; false al final del fichero. */
+    public boolean siguiente() throws IOException {
+        numCampos = 0;
+        linea = lineaSiguiente;
+        if (inicio) {
+            inicio = false;
+            if (mirar() == '\uFEFF') pos++;
+        }
+        if (mirar() < 0) return false;
+        while (true) {
+            largo = 0;
+            int c = leer();
+            if (c == '"') {
+                while (true) {
+                    c = leer();
+                    if (c < 0) throw new IOException("Comillas sin cerrar en el registro de la línea " + linea);
+                    if (c == '"') {
+                        if (mirar() != '"') break;
+                        pos++;
+                    } else if (c == '\n') {
+                        lineaSiguiente++;
+                    }
+                    anadir((char) c);
+                }
+                c = leer();
+            }
+            while (c >= 0 && c != ',' && c != '\n' && c != '\r') {
+                anadir((char) c);
+                c = leer();
+            }
+            terminarCampo();
+            if (c == ',') continue;
+            if (c == '\r' && mirar() == '\n') pos++;
+            if (c >= 0) lineaSiguiente++;
+            return true;
+        }
+    }
+
+    public int getNumCampos() { return numCampos; }
+
+    /** Campo i del registro actual; "" si el registro tiene menos. */
+    public String campo(int i) {
+        return i < numCampos ? campos[i] : "";
+    }
+
+    /** Línea del fichero en la que empieza el registro actual (la primera es la 1). */
+    public long getLinea() { return linea; }
+
+    /** ¿Es una línea en blanco? */
+    public boolean vacio() {
+        return numCampos == 1 && campos[0].isEmpty();
+    }
+
+    private int leer() throws IOException {
+        if (pos == lim && !rellenar()) return -1;
+        return buffer[pos++];
+    }
+
+    private int mirar() throws IOException {
+        if (pos == lim && !rellenar()) return -1;
+        return buffer[pos];
+    }
+
+    private boolean rellenar() throws IOException {
+        int n = in.read(buffer);
+        if (n <= 0) return false;
+        pos = 0;
+        lim = n;
+        return true;
+    }
+
+    private void anadir(char c) {
+        if (largo == campo.length) campo = Arrays.copyOf(campo, largo * 2);
+        campo[largo++] = c;
+    }
+
+    private void terminarCampo() {
+        if (numCampos == campos.length) campos = Arrays.copyOf(campos, numCampos * 2);
+        campos[numCampos++] = largo == 0 ? "" : new String(campo, 0, largo);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
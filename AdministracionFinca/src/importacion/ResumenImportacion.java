@@ -0,0 +1,36 @@
+package importacion;
+
+import java.io.File;
+import java.time.Duration;
+
+/** Resultado de una importación ({@link ImportadorCsv}). */
+public final class ResumenImportacion {
+    private final long aceptadas;
+    private final long rechazadas;
+    private final File errores;
+    private final Duration duracion;
+
+    ResumenImportacion(long aceptadas, long rechazadas, File errores, Duration duracion) {
+        this.aceptadas = aceptadas;
+        this.rechazadas = rechazadas;
+        this.errores = errores;
+        this.duracion = duracion;
+    }
+
+    public long getAceptadas() { return aceptadas; }
+    public long getRechazadas() { return rechazadas; }
+    /** Informe de las filas rechazadas (CSV con línea, motivo y campos); null si no hubo ninguna. */
+    public File getErrores() { return errores; }
+    public Duration getDuracion() { return duracion; }
+
+    public double getFilasPorSegundo() {
+        long nanos = Math.max(1, duracion.toNanos());
+        return (aceptadas + rechazadas) * 1e9 / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return aceptadas + " filas importadas, " + rechazadas + " rechazadas, en " + duracion.toMillis() + " ms"
+                + String.format(" (%.0f filas/s)", getFilasPorSegundo());
+    }
+}
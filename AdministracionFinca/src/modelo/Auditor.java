@@ -3,6 +3,10 @@ package modelo;
 import java.util.Objects;
 
 public class Auditor implements java.io.Serializable {
+    // Los sigco.dat antiguos (serialización Java) guardan los auditores con esta versión, sin id.
+    private static final long serialVersionUID = -8300090756717433325L;
+
+    private final int id; // sustituto, asignado por el gestor (0 si viene de un fichero antiguo)
     private String nombre;
     private String apellidos;
     private String cifEmpresa;
@@ -10,8 +14,9 @@ public class Auditor implements java.io.Serializable {
     private String direccionEmpresa;
     private String telefono;
 
-    public Auditor(String nombre, String apellidos, String cifEmpresa, String nombreEmpresa,
+    public Auditor(int id, String nombre, String apellidos, String cifEmpresa, String nombreEmpresa,
                    String direccionEmpresa, String telefono) {
+        this.id = id;
         this.nombre = Objects.requireNonNull(nombre, "nombre").trim();
         this.apellidos = Objects.requireNonNull(apellidos, "apellidos").trim();
         this.cifEmpresa = safe(cifEmpresa);
@@ -23,6 +28,8 @@ public class Auditor implements java.io.Serializable {
     private static String safe(String s) { return s == null ? "" : s.trim(); }
 
     // Getters y Setters
+    public int getId() { return id; }
+
     public String getNombre() { return nombre; }
     public void setNombre(String nombre) { this.nombre = Objects.requireNonNull(nombre).trim(); }
 
@@ -1,5 +1,9 @@
 package modelo;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -9,19 +13,36 @@ import java.util.Objects;
 /**
  * Proceso de verificación realizado por un agente externo sobre un conjunto de visitas.
  * - Sueldo auditor es derivado: 20% de los importes de las visitas asociadas.
- * - Mientras la auditoría esté abierta, el sueldo se recalcula dinámicamente.
+ * - Mientras la auditoría esté abierta, el sueldo sigue a la suma de importes, que se mantiene al asignar
+ *   cada visita (consultarlo no recorre las visitas).
  * - Al cerrarse, el sueldo queda fijo.
+ * Los importes van en céntimos y el 20% se redondea al céntimo.
  */
 public class Auditoria implements java.io.Serializable {
-    private final int id;
-    private final LocalDate fechaCreacion;
-    private LocalDate fechaFin; // null => abierta
-    private final Auditor auditor;
+    // Los sigco.dat antiguos (serialización Java) guardan el sueldo fijado en euros, como Double.
+    private static final long serialVersionUID = -5207200617103391733L;
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("id", int.class),
+            new ObjectStreamField("fechaCreacion", LocalDate.class),
+            new ObjectStreamField("fechaFin", LocalDate.class),
+            new ObjectStreamField("auditor", Auditor.class),
+            new ObjectStreamField("visitas", List.class),
+            new ObjectStreamField("materiales", List.class),
+            new ObjectStreamField("sueldoFijado", Double.class),
+    };
+    private static final int PORCENTAJE_SUELDO = 20;
 
-    private final List<FichaVisita> visitas = new ArrayList<>();
-    private final List<Material> materiales = new ArrayList<>();
+    // No son final solo para poder deserializar (readObject).
+    private transient int id;
+    private transient LocalDate fechaCreacion;
+    private transient volatile LocalDate fechaFin; // null => abierta; se escribe después del sueldo fijado
+    private transient Auditor auditor;
 
-    private Double sueldoFijado; // null mientras abierta
+    private transient List<FichaVisita> visitas = new ArrayList<>();
+    private transient List<Material> materiales = new ArrayList<>();
+
+    private transient volatile long totalVisitas; // céntimos
+    private transient long sueldoFijado; // céntimos; solo vale si está cerrada
 
     public Auditoria(int id, Auditor auditor, LocalDate fechaCreacion) {
         this.id = id;
@@ -38,17 +59,26 @@ public class Auditoria implements java.io.Serializable {
 
     public List<FichaVisita> getVisitas() { return Collections.unmodifiableList(visitas); }
     public List<Material> getMateriales() { return Collections.unmodifiableList(materiales); }
+    public int getNumVisitas() { return visitas.size(); }
+    public int getNumMateriales() { return materiales.size(); }
 
     /**
      * Asignar una visita a una auditoría activa.
      * Restricción: si está cerrada, no se pueden asignar más visitas.
      */
     public void asignarVisita(FichaVisita visita) {
-        Objects.requireNonNull(visita, "visita");
+        asignarVisitas(List.of(Objects.requireNonNull(visita, "visita")));
+    }
+
+    /** Como {@link #asignarVisita}, con todas las visitas o con ninguna. */
+    public void asignarVisitas(List<FichaVisita> nuevas) {
         if (estaCerrada()) {
             throw new IllegalStateException("La auditoría está cerrada; no se pueden asignar más visitas.");
         }
-        visitas.add(visita);
+        long total = totalVisitas;
+        for (FichaVisita v : nuevas) total = Dinero.sumar(total, Objects.requireNonNull(v, "visita").getImporteCentimos());
+        visitas.addAll(nuevas);
+        totalVisitas = total;
     }
 
     public void asignarMaterial(Material material) {
@@ -60,14 +90,20 @@ public class Auditoria implements java.io.Serializable {
     }
 
     /** Sueldo derivado (20%). Fijo tras cerrar. */
-    public double getSueldoAuditor() {
-        if (sueldoFijado != null) return sueldoFijado;
-        return calcularSueldo();
+    public double getSueldoAuditor() { return Dinero.euros(getSueldoAuditorCentimos()); }
+
+    public long getSueldoAuditorCentimos() {
+        return estaCerrada() ? sueldoFijado : calcularSueldo();
     }
 
-    private double calcularSueldo() {
-        double totalVisitas = visitas.stream().mapToDouble(FichaVisita::getImporte).sum();
-        return totalVisitas * 0.20;
+    private long calcularSueldo() {
+        return Dinero.porcentaje(totalVisitas, PORCENTAJE_SUELDO);
+    }
+
+    private static long sumarImportes(List<FichaVisita> visitas) {
+        long total = 0;
+        for (int i = 0; i < visitas.size(); i++) total = Dinero.sumar(total, visitas.get(i).getImporteCentimos());
+        return total;
     }
 
     /**
@@ -80,13 +116,41 @@ public class Auditoria implements java.io.Serializable {
             throw new IllegalArgumentException("La fecha de fin debe ser posterior a la fecha de creación.");
         }
         if (estaCerrada()) return; // idempotente
-        this.fechaFin = fechaFin;
         this.sueldoFijado = calcularSueldo();
+        this.fechaFin = fechaFin;
     }
 
     @Override
     public String toString() {
         String estado = estaCerrada() ? ("Cerrada " + fechaFin) : "Abierta";
-        return "Auditoría #" + id + " | " + auditor + " | " + estado + " | Sueldo: " + getSueldoAuditor() + "€";
+        return "Auditoría #" + id + " | " + auditor + " | " + estado + " | Sueldo: " + Dinero.formatear(getSueldoAuditorCentimos());
+    }
+
+    // --- Serialización Java (solo formato antiguo): los mismos campos que antes de pasar a céntimos ---
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField campos = out.putFields();
+        campos.put("id", id);
+        campos.put("fechaCreacion", fechaCreacion);
+        campos.put("fechaFin", fechaFin);
+        campos.put("auditor", auditor);
+        campos.put("visitas", visitas);
+        campos.put("materiales", materiales);
+        campos.put("sueldoFijado", estaCerrada() ? Double.valueOf(Dinero.euros(sueldoFijado)) : null);
+        out.writeFields();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField campos = in.readFields();
+        id = campos.get("id", 0);
+        fechaCreacion = (LocalDate) campos.get("fechaCreacion", null);
+        fechaFin = (LocalDate) campos.get("fechaFin", null);
+        auditor = (Auditor) campos.get("auditor", null);
+        visitas = new ArrayList<>((List<FichaVisita>) campos.get("visitas", null));
+        materiales = new ArrayList<>((List<Material>) campos.get("materiales", null));
+        totalVisitas = sumarImportes(visitas);
+        Double sueldo = (Double) campos.get("sueldoFijado", null);
+        if (estaCerrada()) sueldoFijado = sueldo != null ? Dinero.centimos(sueldo) : calcularSueldo();
     }
 }
@@ -0,0 +1,187 @@
+package modelo;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Textos repetidos guardados una sola vez, en UTF-8, y referidos por código (0, 1, 2...).
+ *
+ * - Los bytes forman un montón continuo: primero el de un fichero cargado (solo lectura, puede estar
+ *   proyectado en memoria) y detrás los textos añadidos después. Cada código es un tramo del montón.
+ * - Los String se crean al consultarlos; no se conserva ninguno.
+ * - La tabla para buscar por contenido se construye con la primera búsqueda: cargar no la necesita.
+ *
+ * Se añade desde un solo hilo a la vez; las lecturas de códigos ya publicados no necesitan cerrojo.
+ */
+final class DiccionarioTexto {
+
+    private static final int TEXTO_INICIAL = 1024;
+
+    private final ByteBuffer base; // montón del fichero; capacidad 0 si no hay
+    private final int longitudBase;
+    private volatile byte[] extra = new byte[TEXTO_INICIAL];
+    private int longitudExtra;
+
+    // Tramo de cada código, en posiciones del montón completo (base + extra).
+    private volatile int[] inicios = new int[64];
+    private volatile int[] longitudes = new int[64];
+    private int numCodigos;
+    private boolean ordenado = true; // inicios crecientes: se puede buscar un tramo por bisección
+
+    private int[] tabla; // direccionamiento abierto: código + 1, 0 = libre; null hasta la primera búsqueda
+
+    DiccionarioTexto() {
+        this(ByteBuffer.allocate(0));
+    }
+
+    DiccionarioTexto(ByteBuffer base) {
+        this.base = base;
+        this.longitudBase = base.capacity();
+    }
+
+    int size() {
+        return numCodigos;
+    }
+
+    // --- Consulta ---
+
+    String texto(int codigo) {
+        int inicio = inicios[codigo], longitud = longitudes[codigo];
+        if (inicio >= longitudBase) return new String(extra, inicio - longitudBase, longitud, StandardCharsets.UTF_8);
+        if (base.hasArray()) return new String(base.array(), base.arrayOffset() + inicio, longitud, StandardCharsets.UTF_8);
+        byte[] bytes = new byte[longitud];
+        base.get(inicio, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    int inicio(int codigo) { return inicios[codigo]; }
+
+    int longitud(int codigo) { return longitudes[codigo]; }
+
+    /** Bytes del montón completo, el del fichero incluido aunque algún tramo ya no se use. */
+    int longitudTotal() {
+        return longitudBase + longitudExtra;
+    }
+
+    void escribir(DataOutput out) throws IOException {
+        byte[] bloque = new byte[Math.min(longitudBase, 64 * 1024)];
+        for (int hecho = 0; hecho < longitudBase; ) {
+            int n = Math.min(bloque.length, longitudBase - hecho);
+            base.get(hecho, bloque, 0, n);
+            out.write(bloque, 0, n);
+            hecho += n;
+        }
+        out.write(extra, 0, longitudExtra);
+    }
+
+    // --- Alta ---
+
+    /** Código del texto; si no estaba, se añade al final del montón. */
+    int codigo(String texto) {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(bytes, 0, bytes.length);
+        if (tabla == null) construirTabla();
+        int mascara = tabla.length - 1;
+        int i = hash & mascara;
+        for (int c; (c = tabla[i]) != 0; i = (i + 1) & mascara) {
+            if (iguales(c - 1, bytes)) return c - 1;
+        }
+        if (longitudExtra + bytes.length > extra.length) {
+            extra = Arrays.copyOf(extra, Math.max(extra.length * 2, longitudExtra + bytes.length));
+        }
+        System.arraycopy(bytes, 0, extra, longitudExtra, bytes.length);
+        int codigo = nuevoCodigo(longitudBase + longitudExtra, bytes.length);
+        longitudExtra += bytes.length;
+        tabla[i] = codigo + 1;
+        if (numCodigos * 2 > tabla.length) construirTabla();
+        return codigo;
+    }
+
+    /**
+     * Código del tramo [inicio, inicio + longitud) del montón del fichero, al cargarlo. Un tramo ya visto
+     * (los ficheros guardan una vez cada texto repetido) devuelve el mismo código.
+     */
+    int codigoDeTramo(int inicio, int longitud) {
+        if (inicio < 0 || longitud < 0 || inicio + longitud > longitudBase) {
+            throw new IllegalArgumentException("Texto fuera del montón: " + inicio + "+" + longitud);
+        }
+        if (numCodigos > 0 && ordenado && inicio < inicios[numCodigos - 1] + longitudes[numCodigos - 1]) {
+            int c = Arrays.binarySearch(inicios, 0, numCodigos, inicio);
+            if (c >= 0 && longitudes[c] == longitud) return c;
+        }
+        return nuevoCodigo(inicio, longitud);
+    }
+
+    private int nuevoCodigo(int inicio, int longitud) {
+        if (numCodigos == inicios.length) {
+            int[] i = Arrays.copyOf(inicios, numCodigos * 2), l = Arrays.copyOf(longitudes, numCodigos * 2);
+            inicios = i;
+            longitudes = l;
+        }
+        if (numCodigos > 0 && inicio < inicios[numCodigos - 1]) ordenado = false;
+        inicios[numCodigos] = inicio;
+        longitudes[numCodigos] = longitud;
+        return numCodigos++;
+    }
+
+    private void construirTabla() {
+        int capacidad = Integer.highestOneBit(Math.max(16, numCodigos * 4 - 1)) << 1;
+        int[] nueva = new int[capacidad];
+        int mascara = capacidad - 1;
+        for (int c = 0; c < numCodigos; c++) {
+            int i = hashDe(c) & mascara;
+            boolean repetido = false;
+            for (int o; (o = nueva[i]) != 0; i = (i + 1) & mascara) {
+                if (igualesCodigos(o - 1, c)) {
+                    repetido = true; // ficheros antiguos: mismo texto en varios tramos; vale el primero
+                    break;
+                }
+            }
+            if (!repetido) nueva[i] = c + 1;
+        }
+        tabla = nueva;
+    }
+
+    private int hashDe(int codigo) {
+        int inicio = inicios[codigo], longitud = longitudes[codigo];
+        if (inicio >= longitudBase) return hash(extra, inicio - longitudBase, longitud);
+        int h = 1;
+        for (int i = 0; i < longitud; i++) h = 31 * h + base.get(inicio + i);
+        return mezclar(h);
+    }
+
+    private static int hash(byte[] bytes, int desde, int longitud) {
+        int h = 1;
+        for (int i = 0; i < longitud; i++) h = 31 * h + bytes[desde + i];
+        return mezclar(h);
+    }
+
+    private static int mezclar(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private byte byteEn(int posicion) {
+        return posicion >= longitudBase ? extra[posicion - longitudBase] : base.get(posicion);
+    }
+
+    private boolean iguales(int codigo, byte[] bytes) {
+        if (longitudes[codigo] != bytes.length) return false;
+        int inicio = inicios[codigo];
+        for (int i = 0; i < bytes.length; i++) {
+            if (byteEn(inicio + i) != bytes[i]) return false;
+        }
+        return true;
+    }
+
+    private boolean igualesCodigos(int a, int b) {
+        if (longitudes[a] != longitudes[b]) return false;
+        int ia = inicios[a], ib = inicios[b];
+        for (int i = 0; i < longitudes[a]; i++) {
+            if (byteEn(ia + i) != byteEn(ib + i)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,70 @@
+package modelo;
+
+import java.text.DecimalFormatSymbols;
+
+/**
+ * Importes en céntimos de euro, como {@code long}: las sumas son exactas y no crean objetos.
+ * - Desde euros (double) se redondea al céntimo más cercano; es lo que se hace con lo que teclea el usuario,
+ *   con los precios de los materiales (los ficheros y el diario los guardan en euros) y con los importes de los
+ *   sigco.dat antiguos. Los de las visitas ya se guardan en céntimos.
+ * - Las operaciones fallan con ArithmeticException si se desbordan, en lugar de dar la vuelta.
+ */
+public final class Dinero {
+
+    /** Mayor importe en euros que un double representa al céntimo exacto (2^53 céntimos). */
+    private static final double MAXIMO_EUROS = (1L << 53) / 100.0;
+
+    /** Separador decimal de la configuración regional al arrancar (como %.2f; sin separador de miles). */
+    private static final char SEPARADOR_DECIMAL = DecimalFormatSymbols.getInstance().getDecimalSeparator();
+
+    private Dinero() {}
+
+    /** Si el importe se puede pasar a céntimos: finito y sin perder el céntimo. */
+    public static boolean esValido(double euros) {
+        return Math.abs(euros) <= MAXIMO_EUROS;
+    }
+
+    public static long centimos(double euros) {
+        if (!esValido(euros)) {
+            throw new IllegalArgumentException("Importe no válido: " + euros);
+        }
+        return Math.round(euros * 100);
+    }
+
+    public static double euros(long centimos) {
+        return centimos / 100.0;
+    }
+
+    public static long sumar(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long restar(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    /** Tanto por ciento del importe, redondeado al céntimo (las mitades, hacia fuera del cero). */
+    public static long porcentaje(long centimos, int porCiento) {
+        return proporcion(centimos, porCiento, 100);
+    }
+
+    /** centimos × numerador / denominador, redondeado al céntimo (las mitades, hacia fuera del cero). */
+    public static long proporcion(long centimos, long numerador, long denominador) {
+        if (denominador <= 0) throw new IllegalArgumentException("El denominador debe ser positivo.");
+        long producto = Math.multiplyExact(centimos, numerador);
+        long cociente = producto / denominador, resto = producto % denominador;
+        if (Math.abs(resto) >= denominador - Math.abs(resto)) cociente += Long.signum(producto);
+        return cociente;
+    }
+
+    /** Como {@code String.format("%.2f €", euros)}, pero sin pasar por double. */
+    public static String formatear(long centimos) {
+        StringBuilder sb = new StringBuilder(24);
+        if (centimos < 0) sb.append('-');
+        long absoluto = Math.abs(centimos); // Long.MIN_VALUE no es un importe: no sale de centimos()
+        long resto = absoluto % 100;
+        sb.append(absoluto / 100).append(SEPARADOR_DECIMAL);
+        if (resto < 10) sb.append('0');
+        return sb.append(resto).append(" €").toString();
+    }
+}
@@ -1,5 +1,7 @@
 package modelo;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -8,19 +10,25 @@ import java.util.Objects;
 
 /**
  * Documento contable que consolida la deuda de un vecino.
- * Total a pagar es un atributo derivado: suma de los importes de las visitas.
+ * Total a pagar es un atributo derivado: suma de los importes de las visitas. Como las visitas de una
+ * factura no cambian, se suma una vez, en céntimos, al crearla.
  */
 public class Factura implements java.io.Serializable {
+    // Los sigco.dat antiguos (serialización Java) guardan las facturas con esta versión.
+    private static final long serialVersionUID = -8338331388116828784L;
+
     private final int id;
     private final LocalDate fechaCreacion;
     private final Vecino vecino;
     private final List<FichaVisita> visitas;
+    private transient long totalCentimos; // no es final solo para poder deserializar (readObject)
 
     public Factura(int id, LocalDate fechaCreacion, Vecino vecino, List<FichaVisita> visitas) {
         this.id = id;
         this.fechaCreacion = Objects.requireNonNull(fechaCreacion, "fechaCreacion");
         this.vecino = Objects.requireNonNull(vecino, "vecino");
         this.visitas = new ArrayList<>(Objects.requireNonNull(visitas, "visitas"));
+        this.totalCentimos = sumarImportes();
     }
 
     public int getId() { return id; }
@@ -31,13 +39,25 @@ public class Factura implements java.io.Serializable {
         return Collections.unmodifiableList(visitas);
     }
 
+    public int getNumVisitas() { return visitas.size(); }
+
     /** Total derivado: suma de importes de las visitas. */
-    public double getTotal() {
-        return visitas.stream().mapToDouble(FichaVisita::getImporte).sum();
+    public double getTotal() { return Dinero.euros(totalCentimos); }
+    public long getTotalCentimos() { return totalCentimos; }
+
+    private long sumarImportes() {
+        long total = 0;
+        for (int i = 0; i < visitas.size(); i++) total = Dinero.sumar(total, visitas.get(i).getImporteCentimos());
+        return total;
     }
 
     @Override
     public String toString() {
-        return "Factura #" + id + " | " + vecino + " | " + getTotal() + "€";
+        return "Factura #" + id + " | " + vecino + " | " + Dinero.formatear(totalCentimos);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        totalCentimos = sumarImportes();
     }
 }
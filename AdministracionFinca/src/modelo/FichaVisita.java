@@ -1,49 +1,104 @@
 package modelo;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.time.LocalDate;
-import java.util.Objects;
 
 /**
  * Documento que registra la intervención de un administrador en el hogar de un vecino.
  * Nace impagada.
+ *
+ * Es una vista sobre una posición de un {@link HistoricoVisitas}, que es quien guarda los datos:
+ * se puede crear y descartar libremente, y dos fichas de la misma visita son iguales.
  */
 public class FichaVisita implements java.io.Serializable {
-    private final int id;                      // identificador interno
-    private final Vecino vecino;
-    private final LocalDate fecha;             // constante
-    private final String descripcion;          // constante
-    private final double importe;              // constante
-    private final String nombreAdministrador;  // constante
+    // Los sigco.dat antiguos (serialización Java) guardan las visitas con estos campos.
+    private static final long serialVersionUID = 4218819022087763879L;
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("id", int.class),
+            new ObjectStreamField("vecino", Vecino.class),
+            new ObjectStreamField("fecha", LocalDate.class),
+            new ObjectStreamField("descripcion", String.class),
+            new ObjectStreamField("importe", double.class),
+            new ObjectStreamField("nombreAdministrador", String.class),
+            new ObjectStreamField("estado", EstadoPago.class),
+    };
 
-    private EstadoPago estado;                 // variable controlada
+    // No son final solo para poder deserializar (readObject).
+    private transient HistoricoVisitas historico;
+    private transient int posicion;
 
+    /** Ficha suelta, con su propio histórico de una visita. */
     public FichaVisita(int id,
                        Vecino vecino,
                        LocalDate fecha,
                        String descripcion,
                        double importe,
                        String nombreAdministrador) {
-        this.id = id;
-        this.vecino = Objects.requireNonNull(vecino, "vecino");
-        this.fecha = Objects.requireNonNull(fecha, "fecha");
-        this.descripcion = Objects.requireNonNull(descripcion, "descripcion").trim();
-        this.importe = importe;
-        this.nombreAdministrador = Objects.requireNonNull(nombreAdministrador, "nombreAdministrador").trim();
-        this.estado = EstadoPago.IMPAGADA;
+        this.historico = HistoricoVisitas.suelta();
+        this.historico.anadir(id, vecino, fecha, descripcion, importe, nombreAdministrador);
     }
 
-    public int getId() { return id; }
-    public Vecino getVecino() { return vecino; }
-    public LocalDate getFecha() { return fecha; }
-    public String getDescripcion() { return descripcion; }
-    public double getImporte() { return importe; }
-    public String getNombreAdministrador() { return nombreAdministrador; }
+    FichaVisita(HistoricoVisitas historico, int posicion) {
+        this.historico = historico;
+        this.posicion = posicion;
+    }
+
+    public int getId() { return historico.idEn(posicion); }
+    public Vecino getVecino() { return historico.vecinoEn(posicion); }
+    public LocalDate getFecha() { return historico.fechaEn(posicion); }
+    public String getDescripcion() { return historico.descripcionEn(posicion); }
+    public double getImporte() { return historico.importeEn(posicion); }
+    public long getImporteCentimos() { return historico.centimosEn(posicion); }
+    public String getNombreAdministrador() { return historico.administradorEn(posicion); }
+
+    public EstadoPago getEstado() { return historico.estadoEn(posicion); }
+    public void marcarPagada() { historico.marcarPagada(posicion); }
+
+    /** Posición en su histórico. */
+    public int getPosicion() { return posicion; }
 
-    public EstadoPago getEstado() { return estado; }
-    public void marcarPagada() { this.estado = EstadoPago.PAGADA; }
+    boolean esDe(HistoricoVisitas h) { return historico == h; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FichaVisita)) return false;
+        FichaVisita otra = (FichaVisita) o;
+        return historico == otra.historico && posicion == otra.posicion;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * System.identityHashCode(historico) + posicion;
+    }
 
     @Override
     public String toString() {
-        return "Visita #" + id + " | " + vecino + " | " + importe + "€ | " + estado;
+        return "Visita #" + getId() + " | " + getVecino() + " | " + Dinero.formatear(getImporteCentimos()) + " | " + getEstado();
+    }
+
+    // --- Serialización Java (solo formato antiguo): los mismos campos que cuando la ficha los guardaba ---
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField campos = out.putFields();
+        campos.put("id", getId());
+        campos.put("vecino", getVecino());
+        campos.put("fecha", getFecha());
+        campos.put("descripcion", getDescripcion());
+        campos.put("importe", getImporte());
+        campos.put("nombreAdministrador", getNombreAdministrador());
+        campos.put("estado", getEstado());
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField campos = in.readFields();
+        historico = HistoricoVisitas.suelta();
+        historico.anadir(campos.get("id", 0), (Vecino) campos.get("vecino", null), (LocalDate) campos.get("fecha", null),
+                (String) campos.get("descripcion", null), campos.get("importe", 0.0), (String) campos.get("nombreAdministrador", null));
+        if (campos.get("estado", null) == EstadoPago.PAGADA) historico.marcarPagada(0);
     }
 }
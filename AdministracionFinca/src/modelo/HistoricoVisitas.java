@@ -0,0 +1,352 @@
+package modelo;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Todas las visitas, guardadas por columnas de tipos primitivos; cada {@link FichaVisita} es solo una vista
+ * (histórico + posición) que se crea al consultarla.
+ *
+ * - Por visita: id, vecino (código), día (desde la época), importe en céntimos, estado (bits),
+ *   administrador (código) y descripción (código). Unos 29 bytes, más los textos distintos.
+ * - Vecinos y administradores van a diccionarios pequeños; las descripciones, a un {@link DiccionarioTexto}
+ *   que puede seguir apuntando al fichero proyectado del que se cargaron.
+ * - Las columnas se reparten en bloques que nunca se copian al crecer: cambiar el estado de una visita
+ *   mientras otra se añade no pierde el cambio.
+ *
+ * Solo crece por el final. Las altas deben hacerse desde un solo hilo a la vez (el gestor lo hace con su
+ * cerrojo de orden); las lecturas de posiciones ya publicadas y {@link #marcarPagada} no necesitan cerrojo.
+ */
+public final class HistoricoVisitas extends AbstractList<FichaVisita> implements RandomAccess {
+
+    private static final int BITS_BLOQUE = 12; // 4096 visitas por bloque
+    private static final byte PAGADA = 1;      // bit de la columna de estado
+
+    private final int bitsBloque;
+    private final int mascara;
+
+    // Bloques de cada columna; el directorio se sustituye entero al crecer.
+    private volatile int[][] ids = new int[0][];
+    private volatile int[][] vecinos = new int[0][];
+    private volatile int[][] dias = new int[0][];
+    private volatile long[][] centimos = new long[0][];
+    private volatile byte[][] estados = new byte[0][];
+    private volatile int[][] administradores = new int[0][];
+    private volatile int[][] descripciones = new int[0][];
+    private volatile int tamano;
+
+    private volatile Vecino[] vecinoPorCodigo;
+    private int numVecinos;
+    private final Map<Vecino, Integer> codigoVecino = new IdentityHashMap<>();
+    private volatile String[] administradorPorCodigo;
+    private int numAdministradores;
+    private final Map<String, Integer> codigoAdministrador = new HashMap<>();
+    private final DiccionarioTexto textos;
+    // null mientras los ids crezcan en orden de alta (se busca por bisección); con la primera alta fuera de
+    // orden (datos antiguos o importados) pasa a un mapa id -> posición, protegido por sí mismo.
+    private volatile MapaEnteros posicionPorId;
+
+    public HistoricoVisitas() {
+        this(BITS_BLOQUE, new Vecino[0], new String[0], new DiccionarioTexto());
+    }
+
+    /**
+     * Histórico con los diccionarios de un fichero: vecinos y administradores por ordinal y el montón
+     * de descripciones (UTF-8), que se usa tal cual, sin copiarlo ni decodificarlo.
+     */
+    public HistoricoVisitas(Vecino[] vecinos, String[] administradores, ByteBuffer descripciones) {
+        this(BITS_BLOQUE, vecinos, administradores, new DiccionarioTexto(descripciones));
+    }
+
+    private HistoricoVisitas(int bitsBloque, Vecino[] vecinos, String[] administradores, DiccionarioTexto textos) {
+        this.bitsBloque = bitsBloque;
+        this.mascara = (1 << bitsBloque) - 1;
+        this.vecinoPorCodigo = Arrays.copyOf(vecinos, Math.max(16, vecinos.length));
+        for (Vecino v : vecinos) codigoVecino.putIfAbsent(v, numVecinos++);
+        this.administradorPorCodigo = Arrays.copyOf(administradores, Math.max(4, administradores.length));
+        this.numAdministradores = administradores.length;
+        for (int i = 0; i < administradores.length; i++) codigoAdministrador.putIfAbsent(administradores[i], i);
+        this.textos = textos;
+    }
+
+    /** Una sola visita, fuera de cualquier histórico (ver el constructor público de {@link FichaVisita}). */
+    static HistoricoVisitas suelta() {
+        return new HistoricoVisitas(0, new Vecino[0], new String[0], new DiccionarioTexto());
+    }
+
+    // --- Altas ---
+
+    /** Añade una visita impagada al final y devuelve su ficha. El importe se redondea al céntimo. */
+    public FichaVisita anadir(int id, Vecino vecino, LocalDate fecha, String descripcion, double importe, String administrador) {
+        Objects.requireNonNull(vecino, "vecino");
+        Objects.requireNonNull(fecha, "fecha");
+        String d = Objects.requireNonNull(descripcion, "descripcion").trim();
+        String a = Objects.requireNonNull(administrador, "nombreAdministrador").trim();
+        int i = reservar();
+        ids[i >>> bitsBloque][i & mascara] = id;
+        vecinos[i >>> bitsBloque][i & mascara] = codigoVecino(vecino);
+        dias[i >>> bitsBloque][i & mascara] = (int) fecha.toEpochDay();
+        centimos[i >>> bitsBloque][i & mascara] = Dinero.centimos(importe);
+        administradores[i >>> bitsBloque][i & mascara] = codigoAdministrador(a);
+        descripciones[i >>> bitsBloque][i & mascara] = textos.codigo(d);
+        indexarId(id, i);
+        tamano = i + 1;
+        modCount++;
+        return new FichaVisita(this, i);
+    }
+
+    /**
+     * Alta desde un fichero cargado con {@link #HistoricoVisitas(Vecino[], String[], ByteBuffer)}: vecino y
+     * administrador por ordinal en sus diccionarios y la descripción por su tramo en el montón.
+     */
+    public void anadirRegistro(int id, int vecino, int dia, long importeCentimos, boolean pagada,
+                               int administrador, int inicioDescripcion, int longitudDescripcion) {
+        Objects.checkIndex(vecino, numVecinos);
+        Objects.checkIndex(administrador, numAdministradores);
+        int i = reservar();
+        ids[i >>> bitsBloque][i & mascara] = id;
+        vecinos[i >>> bitsBloque][i & mascara] = vecino;
+        dias[i >>> bitsBloque][i & mascara] = dia;
+        centimos[i >>> bitsBloque][i & mascara] = importeCentimos;
+        estados[i >>> bitsBloque][i & mascara] = pagada ? PAGADA : 0;
+        administradores[i >>> bitsBloque][i & mascara] = administrador;
+        descripciones[i >>> bitsBloque][i & mascara] = textos.codigoDeTramo(inicioDescripcion, longitudDescripcion);
+        indexarId(id, i);
+        tamano = i + 1;
+        modCount++;
+    }
+
+    /** Copia los datos de la ficha (de otro histórico) al final; la devuelta es la nueva. */
+    @Override
+    public boolean add(FichaVisita v) {
+        FichaVisita copia = anadir(v.getId(), v.getVecino(), v.getFecha(), v.getDescripcion(), v.getImporte(), v.getNombreAdministrador());
+        if (v.getEstado() == EstadoPago.PAGADA) copia.marcarPagada();
+        return true;
+    }
+
+    /** Antes de publicar la posición i: si su id no sigue el orden, se pasa (o se añade) al mapa. */
+    private void indexarId(int id, int i) {
+        MapaEnteros mapa = posicionPorId;
+        if (mapa == null) {
+            if (i == 0 || id > idEn(i - 1)) return;
+            mapa = new MapaEnteros(i + 1);
+            for (int k = 0; k < i; k++) {
+                if (mapa.get(idEn(k)) == MapaEnteros.NINGUNO) mapa.poner(idEn(k), k);
+            }
+            posicionPorId = mapa;
+        }
+        synchronized (mapa) {
+            if (mapa.get(id) == MapaEnteros.NINGUNO) mapa.poner(id, i); // con ids repetidos vale el primero
+        }
+    }
+
+    /** Posición libre al final, con su bloque ya creado (aún no cuenta en {@link #size()}). */
+    private int reservar() {
+        int i = tamano;
+        int bloque = i >>> bitsBloque;
+        if (bloque == ids.length) {
+            // Solo se copia el directorio: los bloques se comparten, así que un marcarPagada
+            // concurrente escribe en el mismo array que se sigue usando.
+            int n = Math.max(1, bloque * 2);
+            ids = Arrays.copyOf(ids, n);
+            vecinos = Arrays.copyOf(vecinos, n);
+            dias = Arrays.copyOf(dias, n);
+            centimos = Arrays.copyOf(centimos, n);
+            estados = Arrays.copyOf(estados, n);
+            administradores = Arrays.copyOf(administradores, n);
+            descripciones = Arrays.copyOf(descripciones, n);
+        }
+        if (ids[bloque] == null) {
+            int filas = 1 << bitsBloque;
+            ids[bloque] = new int[filas];
+            vecinos[bloque] = new int[filas];
+            dias[bloque] = new int[filas];
+            centimos[bloque] = new long[filas];
+            estados[bloque] = new byte[filas];
+            administradores[bloque] = new int[filas];
+            descripciones[bloque] = new int[filas];
+        }
+        return i;
+    }
+
+    private int codigoVecino(Vecino v) {
+        Integer c = codigoVecino.get(v);
+        if (c != null) return c;
+        if (numVecinos == vecinoPorCodigo.length) vecinoPorCodigo = Arrays.copyOf(vecinoPorCodigo, numVecinos * 2);
+        vecinoPorCodigo[numVecinos] = v;
+        codigoVecino.put(v, numVecinos);
+        return numVecinos++;
+    }
+
+    private int codigoAdministrador(String a) {
+        Integer c = codigoAdministrador.get(a);
+        if (c != null) return c;
+        if (numAdministradores == administradorPorCodigo.length) {
+            administradorPorCodigo = Arrays.copyOf(administradorPorCodigo, numAdministradores * 2);
+        }
+        administradorPorCodigo[numAdministradores] = a;
+        codigoAdministrador.put(a, numAdministradores);
+        return numAdministradores++;
+    }
+
+    // --- Lista ---
+
+    @Override
+    public FichaVisita get(int i) {
+        Objects.checkIndex(i, tamano);
+        return new FichaVisita(this, i);
+    }
+
+    @Override
+    public int size() {
+        return tamano;
+    }
+
+    // --- Columnas ---
+
+    public int idEn(int i) { return ids[i >>> bitsBloque][i & mascara]; }
+
+    public Vecino vecinoEn(int i) { return vecinoPorCodigo[vecinos[i >>> bitsBloque][i & mascara]]; }
+
+    /** Días desde la época (ver {@link LocalDate#toEpochDay()}). */
+    public int diaEn(int i) { return dias[i >>> bitsBloque][i & mascara]; }
+
+    public LocalDate fechaEn(int i) { return LocalDate.ofEpochDay(diaEn(i)); }
+
+    public long centimosEn(int i) { return centimos[i >>> bitsBloque][i & mascara]; }
+
+    public double importeEn(int i) { return Dinero.euros(centimosEn(i)); }
+
+    public boolean pagadaEn(int i) { return (estados[i >>> bitsBloque][i & mascara] & PAGADA) != 0; }
+
+    public EstadoPago estadoEn(int i) { return pagadaEn(i) ? EstadoPago.PAGADA : EstadoPago.IMPAGADA; }
+
+    public String administradorEn(int i) { return administradorPorCodigo[administradores[i >>> bitsBloque][i & mascara]]; }
+
+    /** Se decodifica en cada llamada. */
+    public String descripcionEn(int i) { return textos.texto(descripciones[i >>> bitsBloque][i & mascara]); }
+
+    public void marcarPagada(int i) {
+        Objects.checkIndex(i, tamano);
+        estados[i >>> bitsBloque][i & mascara] |= PAGADA;
+    }
+
+    // --- Búsquedas y totales (bucles sobre las columnas) ---
+
+    /** Si la ficha es de este histórico (no una suelta ni de otro). */
+    public boolean contiene(FichaVisita v) {
+        return v.esDe(this);
+    }
+
+    /** Posición de la visita con ese id, o -1. Bisección, porque los ids crecen en orden de alta (o el mapa, si no). */
+    public int posicionDe(int id) {
+        int n = tamano; // antes que el mapa: si la alta fuera de orden ya cuenta, el mapa ya está
+        MapaEnteros mapa = posicionPorId;
+        if (mapa != null) {
+            synchronized (mapa) {
+                return mapa.get(id);
+            }
+        }
+        int lo = 0, hi = n - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int actual = idEn(mid);
+            if (actual < id) lo = mid + 1;
+            else if (actual > id) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    /** Posición de la ficha: la suya si es de este histórico; si no, la de su id (o -1). */
+    public int posicionDe(FichaVisita v) {
+        return v.esDe(this) ? v.getPosicion() : posicionDe(v.getId());
+    }
+
+    /** Ficha de la visita con ese id, o null. */
+    public FichaVisita porId(int id) {
+        int i = posicionDe(id);
+        return i < 0 ? null : new FichaVisita(this, i);
+    }
+
+    /** Visitas pagadas o pendientes. */
+    public int contar(boolean pagadas) {
+        int n = tamano, total = 0;
+        byte[][] e = estados;
+        for (int b = 0, desde = 0; desde < n; b++, desde += 1 << bitsBloque) {
+            byte[] bloque = e[b];
+            int hasta = Math.min(n - desde, bloque.length);
+            for (int j = 0; j < hasta; j++) {
+                if (((bloque[j] & PAGADA) != 0) == pagadas) total++;
+            }
+        }
+        return total;
+    }
+
+    /** Suma de los importes, en céntimos, de las visitas pagadas o pendientes. */
+    public long sumarCentimos(boolean pagadas) {
+        int n = tamano;
+        long total = 0;
+        byte[][] e = estados;
+        long[][] c = centimos;
+        for (int b = 0, desde = 0; desde < n; b++, desde += 1 << bitsBloque) {
+            byte[] estado = e[b];
+            long[] importe = c[b];
+            int hasta = Math.min(n - desde, estado.length);
+            for (int j = 0; j < hasta; j++) {
+                if (((estado[j] & PAGADA) != 0) == pagadas) total += importe[j];
+            }
+        }
+        return total;
+    }
+
+    /** Suma de los importes, en céntimos, de las visitas pendientes entre las n primeras posiciones dadas. */
+    public long sumarCentimosPendientes(int[] posiciones, int n) {
+        long total = 0;
+        for (int k = 0; k < n; k++) {
+            int i = posiciones[k];
+            if ((estados[i >>> bitsBloque][i & mascara] & PAGADA) == 0) total += centimos[i >>> bitsBloque][i & mascara];
+        }
+        return total;
+    }
+
+    // --- Apoyo a la persistencia ---
+
+    /** Diccionario de vecinos: el código de cada visita es la posición en esta lista. */
+    public List<Vecino> getVecinos() {
+        return List.of(Arrays.copyOf(vecinoPorCodigo, numVecinos));
+    }
+
+    public int codigoVecinoEn(int i) { return vecinos[i >>> bitsBloque][i & mascara]; }
+
+    /** Diccionario de administradores: el código de cada visita es la posición en esta lista. */
+    public List<String> getAdministradores() {
+        return List.of(Arrays.copyOf(administradorPorCodigo, numAdministradores));
+    }
+
+    public int codigoAdministradorEn(int i) { return administradores[i >>> bitsBloque][i & mascara]; }
+
+    /** Tramo de la descripción de la visita i en el montón de {@link #escribirDescripciones}. */
+    public int inicioDescripcionEn(int i) { return textos.inicio(descripciones[i >>> bitsBloque][i & mascara]); }
+
+    public int longitudDescripcionEn(int i) { return textos.longitud(descripciones[i >>> bitsBloque][i & mascara]); }
+
+    /** Bytes del montón de descripciones; cada texto distinto está una sola vez. */
+    public int getLongitudDescripciones() {
+        return textos.longitudTotal();
+    }
+
+    public void escribirDescripciones(DataOutput out) throws IOException {
+        textos.escribir(out);
+    }
+}
@@ -0,0 +1,109 @@
+package modelo;
+
+import java.util.Arrays;
+
+/**
+ * Mapa de int a int no negativo (p. ej. id -> posición en una lista), sin objetos por entrada.
+ * - Direccionamiento abierto con sondeo lineal; al quitar, las entradas siguientes del grupo se desplazan
+ *   hacia atrás, así que no quedan marcas de borrado que alarguen las búsquedas.
+ * - No es seguro entre hilos: lo protege el cerrojo de la lista a la que indexa.
+ */
+public final class MapaEnteros {
+
+    public static final int NINGUNO = -1;
+
+    private int[] claves;
+    private int[] valores; // NINGUNO = hueco libre
+    private int tamano;
+
+    public MapaEnteros() {
+        this(16);
+    }
+
+    public MapaEnteros(int esperados) {
+        reservar(Math.max(16, Integer.highestOneBit(Math.max(1, esperados) * 2 - 1) << 1));
+    }
+
+    public int size() {
+        return tamano;
+    }
+
+    /** Valor de la clave, o {@link #NINGUNO}. */
+    public int get(int clave) {
+        int mascara = claves.length - 1;
+        for (int i = hueco(clave, mascara); valores[i] != NINGUNO; i = (i + 1) & mascara) {
+            if (claves[i] == clave) return valores[i];
+        }
+        return NINGUNO;
+    }
+
+    /** Asocia la clave al valor (que no puede ser negativo) y devuelve el anterior, o {@link #NINGUNO}. */
+    public int poner(int clave, int valor) {
+        if (valor < 0) throw new IllegalArgumentException("Valor negativo: " + valor);
+        int mascara = claves.length - 1;
+        int i = hueco(clave, mascara);
+        for (; valores[i] != NINGUNO; i = (i + 1) & mascara) {
+            if (claves[i] == clave) {
+                int anterior = valores[i];
+                valores[i] = valor;
+                return anterior;
+            }
+        }
+        claves[i] = clave;
+        valores[i] = valor;
+        if (++tamano * 2 > claves.length) crecer();
+        return NINGUNO;
+    }
+
+    /** Quita la clave y devuelve su valor, o {@link #NINGUNO} si no estaba. */
+    public int quitar(int clave) {
+        int mascara = claves.length - 1;
+        int i = hueco(clave, mascara);
+        for (; claves[i] != clave || valores[i] == NINGUNO; i = (i + 1) & mascara) {
+            if (valores[i] == NINGUNO) return NINGUNO;
+        }
+        int valor = valores[i];
+        // Desplazamiento hacia atrás: cada entrada siguiente del grupo ocupa el hueco si su sitio ideal
+        // no queda entre el hueco y ella.
+        for (int j = (i + 1) & mascara; valores[j] != NINGUNO; j = (j + 1) & mascara) {
+            int ideal = hueco(claves[j], mascara);
+            if (((j - ideal) & mascara) >= ((j - i) & mascara)) {
+                claves[i] = claves[j];
+                valores[i] = valores[j];
+                i = j;
+            }
+        }
+        valores[i] = NINGUNO;
+        tamano--;
+        return valor;
+    }
+
+    public void vaciar() {
+        Arrays.fill(valores, NINGUNO);
+        tamano = 0;
+    }
+
+    private void crecer() {
+        int[] c = claves, v = valores;
+        reservar(c.length * 2);
+        int mascara = claves.length - 1;
+        for (int k = 0; k < c.length; k++) {
+            if (v[k] == NINGUNO) continue;
+            int i = hueco(c[k], mascara);
+            while (valores[i] != NINGUNO) i = (i + 1) & mascara;
+            claves[i] = c[k];
+            valores[i] = v[k];
+        }
+    }
+
+    private void reservar(int capacidad) {
+        claves = new int[capacidad];
+        valores = new int[capacidad];
+        Arrays.fill(valores, NINGUNO);
+    }
+
+    static int hueco(int clave, int mascara) {
+        int h = clave * 0x9E3779B9; // ids consecutivos, repartidos por toda la tabla
+        return (h ^ (h >>> 16)) & mascara;
+    }
+}
@@ -1,28 +1,57 @@
 package modelo;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.util.Objects;
 
 public class Material implements java.io.Serializable {
+    // Los sigco.dat antiguos (serialización Java) guardan el precio en euros, como double, y no tienen id.
+    private static final long serialVersionUID = 4074788410430162485L;
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("nombre", String.class),
+            new ObjectStreamField("precio", double.class),
+    };
+
+    private final int id; // sustituto, asignado por el gestor (0 si viene de un fichero antiguo)
     private String nombre; // Ya no es final
-    private double precio;
+    private long precio; // céntimos
 
-    public Material(String nombre, double precio) {
+    public Material(int id, String nombre, double precio) {
+        this.id = id;
         this.nombre = Objects.requireNonNull(nombre, "nombre").trim();
-        this.precio = precio;
+        this.precio = Dinero.centimos(precio);
     }
 
+    public int getId() { return id; }
+
     public String getNombre() { return nombre; }
-    
+
     // Setter añadido para modificación
-    public void setNombre(String nombre) { 
-        this.nombre = Objects.requireNonNull(nombre, "nombre").trim(); 
+    public void setNombre(String nombre) {
+        this.nombre = Objects.requireNonNull(nombre, "nombre").trim();
     }
 
-    public double getPrecio() { return precio; }
-    public void setPrecio(double precio) { this.precio = precio; }
+    public double getPrecio() { return Dinero.euros(precio); }
+    public long getPrecioCentimos() { return precio; }
+    public void setPrecio(double precio) { this.precio = Dinero.centimos(precio); }
 
     @Override
     public String toString() {
-        return nombre + " (" + precio + "€)";
+        return nombre + " (" + Dinero.formatear(precio) + ")";
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField campos = out.putFields();
+        campos.put("nombre", nombre);
+        campos.put("precio", getPrecio());
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField campos = in.readFields();
+        nombre = (String) campos.get("nombre", null);
+        precio = Dinero.centimos(campos.get("precio", 0.0));
     }
-}
\ No newline at end of file
+}
@@ -3,13 +3,18 @@ package modelo;
 import java.util.Objects;
 
 public class Profesor implements java.io.Serializable {
+    // Los sigco.dat antiguos (serialización Java) guardan los profesores con esta versión, sin id.
+    private static final long serialVersionUID = -368194199732619627L;
+
+    private final int id; // sustituto, asignado por el gestor (0 si viene de un fichero antiguo)
     private String nombre;
     private String apellidos;
     private String direccion;
     private String telefono;
     private double sueldo;
 
-    public Profesor(String nombre, String apellidos, String direccion, String telefono, double sueldo) {
+    public Profesor(int id, String nombre, String apellidos, String direccion, String telefono, double sueldo) {
+        this.id = id;
         this.nombre = Objects.requireNonNull(nombre, "nombre").trim();
         this.apellidos = Objects.requireNonNull(apellidos, "apellidos").trim();
         this.direccion = safe(direccion);
@@ -19,6 +24,8 @@ public class Profesor implements java.io.Serializable {
 
     private static String safe(String s) { return s == null ? "" : s.trim(); }
 
+    public int getId() { return id; }
+
     public String getNombre() { return nombre; }
     public void setNombre(String nombre) { this.nombre = Objects.requireNonNull(nombre).trim(); }
 
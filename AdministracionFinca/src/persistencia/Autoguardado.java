@@ -0,0 +1,89 @@
+package persistencia;
+
+import servicio.GestorComunidad;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Guardado periódico en segundo plano, solo cuando el gestor tiene cambios sin guardar.
+ *
+ * - Con diario, guardar es compactarlo ({@link Diario#compactar}): instantánea nueva y diario vacío.
+ * - Sin diario, se serializa con el gestor en exclusiva y se escribe fuera de ella.
+ * - En ambos casos el fichero se sustituye de forma atómica y se rotan las copias anteriores
+ *   (ver {@link GestorPersistencia#escribirAtomico}).
+ * - Así, al salir normalmente ya no queda nada (o muy poco) por guardar.
+ * - Un guardado fallido se avisa a quien lo inició y se reintenta en el siguiente periodo.
+ */
+public final class Autoguardado implements Closeable {
+
+    private final File fichero;
+    private final GestorComunidad gestor;
+    private final Diario diario; // null => sin diario
+    private final Consumer<? super Exception> alFallar;
+    private final ScheduledExecutorService planificador;
+
+    private Autoguardado(File fichero, GestorComunidad gestor, Diario diario, Consumer<? super Exception> alFallar) {
+        this.fichero = fichero;
+        this.gestor = gestor;
+        this.diario = diario;
+        this.alFallar = alFallar;
+        this.planificador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "autoguardado-" + fichero.getName());
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+    }
+
+    /** {@code alFallar} recibe, desde el hilo del autoguardado, el error de cada guardado periódico fallido. */
+    public static Autoguardado iniciar(File fichero, GestorComunidad gestor, Diario diario, long periodoSegundos,
+                                       Consumer<? super Exception> alFallar) {
+        if (periodoSegundos <= 0) throw new IllegalArgumentException("El periodo de autoguardado debe ser > 0.");
+        Autoguardado a = new Autoguardado(fichero, gestor, diario, Objects.requireNonNull(alFallar, "alFallar"));
+        a.planificador.scheduleWithFixedDelay(a::guardarPeriodico, periodoSegundos, periodoSegundos, TimeUnit.SECONDS);
+        return a;
+    }
+
+    private void guardarPeriodico() {
+        try {
+            guardarSiHayCambios(Progreso.NINGUNO);
+        } catch (IOException | RuntimeException e) {
+            alFallar.accept(e);
+        }
+    }
+
+    /** Guarda ahora si hay cambios sin guardar; devuelve true si ha escrito. */
+    public synchronized boolean guardarSiHayCambios(Progreso progreso) throws IOException {
+        if (!gestor.hayCambiosSinGuardar()) return false;
+        if (diario != null) {
+            diario.compactar(progreso);
+            return true;
+        }
+        long[] version = new long[1];
+        byte[] contenido = gestor.enExclusiva(() -> {
+            version[0] = gestor.getVersion();
+            return GestorPersistencia.serializar(gestor.getDatos());
+        });
+        GestorPersistencia.escribirAtomico(fichero, contenido, progreso);
+        gestor.marcarGuardado(version[0]);
+        return true;
+    }
+
+    /** Detiene los guardados periódicos (sin interrumpir uno en curso). No guarda. */
+    @Override
+    public void close() {
+        planificador.shutdown();
+        try {
+            planificador.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,428 @@
+package persistencia;
+
+import modelo.*;
+import servicio.GestorComunidad;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Formato binario propio y versionado para {@link GestorComunidad.Datos}.
+ *
+ * Las entidades se escriben como tablas y se referencian por posición (ordinal) en su tabla:
+ * - Vecinos, profesores, auditores, materiales y cursos: registros de longitud variable.
+ * - Visitas y facturas: registros de longitud fija ({@value #REGISTRO_VISITA} y
+ *   {@value #REGISTRO_FACTURA} bytes), para poder recorrerlas sin decodificar el resto.
+ * - Las descripciones de las visitas van a un montón de texto al final del fichero, cada texto
+ *   distinto una sola vez (varios registros pueden apuntar al mismo tramo); los administradores,
+ *   a un diccionario.
+ * - Las fechas son días desde la época (int); {@value #SIN_FECHA} significa null.
+ *
+ * Los ficheros pueden leerse enteros o proyectados en memoria (ver {@link #leer}); en ese caso,
+ * al reescribirlos se copian tal cual los registros de facturas ya existentes.
+ *
+ * Profesores, auditores y materiales eliminados que siguen referenciados (por materias o
+ * auditorías) se escriben detrás de los registrados; cada tabla indica cuántos están en la lista.
+ * Llevan su id sustituto, y la cabecera los contadores.
+ */
+final class CodecBinario {
+
+    static final int MAGIA = 0x53494743; // "SIGC"
+    static final short VERSION = 1;
+
+    static final int REGISTRO_VISITA = 33;
+    static final int REGISTRO_FACTURA = 20;
+    static final int SIN_FECHA = Integer.MIN_VALUE;
+
+    private CodecBinario() {}
+
+    /** ¿Empiezan los bytes por la cabecera de este formato? */
+    static boolean reconoce(ByteBuffer contenido) {
+        return contenido.limit() >= 4 && contenido.getInt(0) == MAGIA;
+    }
+
+    // --- Escritura ---
+
+    static void escribir(DataOutput out, GestorComunidad.Datos datos) throws IOException {
+        out.writeInt(MAGIA);
+        out.writeShort(VERSION);
+        out.writeInt(datos.nextVisitaId);
+        out.writeInt(datos.nextFacturaId);
+        out.writeInt(datos.nextAuditoriaId);
+        out.writeInt(datos.nextProfesorId);
+        out.writeInt(datos.nextAuditorId);
+        out.writeInt(datos.nextMaterialId);
+        out.writeLong(datos.secuenciaDiario);
+
+        // Vecinos
+        Map<Vecino, Integer> ordVecino = new HashMap<>();
+        out.writeInt(datos.vecinosPorDni.size());
+        for (Vecino v : datos.vecinosPorDni.values()) {
+            ordVecino.put(v, ordVecino.size());
+            escribirTexto(out, v.getDni());
+            escribirTexto(out, v.getNombreApellidos());
+            escribirTexto(out, v.getDireccion());
+            escribirTexto(out, v.getCodigoPostal());
+            escribirTexto(out, v.getCiudad());
+            escribirTexto(out, v.getTelefono());
+        }
+
+        // Profesores (registrados + referenciados por materias)
+        List<Profesor> profesores = new ArrayList<>(datos.profesores);
+        for (Curso c : datos.cursos) {
+            for (Materia m : c.getMaterias()) profesores.add(m.getProfesor());
+        }
+        Map<Profesor, Integer> ordProfesor = ordinales(profesores);
+        escribirCabeceraTabla(out, ordProfesor.size(), datos.profesores.size());
+        for (Profesor p : ordProfesor.keySet()) {
+            out.writeInt(p.getId());
+            escribirTexto(out, p.getNombre());
+            escribirTexto(out, p.getApellidos());
+            escribirTexto(out, p.getDireccion());
+            escribirTexto(out, p.getTelefono());
+            out.writeDouble(p.getSueldo());
+        }
+
+        // Auditores (registrados + referenciados por auditorías)
+        List<Auditor> auditores = new ArrayList<>(datos.auditores);
+        for (Auditoria a : datos.auditorias) auditores.add(a.getAuditor());
+        Map<Auditor, Integer> ordAuditor = ordinales(auditores);
+        escribirCabeceraTabla(out, ordAuditor.size(), datos.auditores.size());
+        for (Auditor a : ordAuditor.keySet()) {
+            out.writeInt(a.getId());
+            escribirTexto(out, a.getNombre());
+            escribirTexto(out, a.getApellidos());
+            escribirTexto(out, a.getCifEmpresa());
+            escribirTexto(out, a.getNombreEmpresa());
+            escribirTexto(out, a.getDireccionEmpresa());
+            escribirTexto(out, a.getTelefono());
+        }
+
+        // Materiales (repositorio + referenciados por auditorías)
+        List<Material> materiales = new ArrayList<>(datos.repositorioMateriales);
+        for (Auditoria a : datos.auditorias) materiales.addAll(a.getMateriales());
+        Map<Material, Integer> ordMaterial = ordinales(materiales);
+        escribirCabeceraTabla(out, ordMaterial.size(), datos.repositorioMateriales.size());
+        for (Material m : ordMaterial.keySet()) {
+            out.writeInt(m.getId());
+            escribirTexto(out, m.getNombre());
+            out.writeDouble(m.getPrecio());
+        }
+
+        // Cursos
+        out.writeInt(datos.cursos.size());
+        for (Curso c : datos.cursos) {
+            escribirTexto(out, c.getNombre());
+            out.writeDouble(c.getPrecio());
+            out.writeInt(c.getMaxVecinos());
+            out.writeInt(dia(c.getFechaInicio()));
+            out.writeInt(dia(c.getFechaFin()));
+            out.writeInt(c.getMaterias().size());
+            for (Materia m : c.getMaterias()) {
+                escribirTexto(out, m.getNombre());
+                out.writeInt(m.getHoras());
+                out.writeInt(ordProfesor.get(m.getProfesor()));
+            }
+            out.writeInt(c.getInscritos().size());
+            for (Vecino v : c.getInscritos()) out.writeInt(ordVecino.get(v));
+        }
+
+        // Diccionario de administradores (el del histórico: los códigos de cada visita valen tal cual)
+        HistoricoVisitas visitas = historico(datos.visitas);
+        List<String> admins = visitas.getAdministradores();
+        out.writeInt(admins.size());
+        for (String admin : admins) escribirTexto(out, admin);
+
+        // Visitas (longitud fija; la descripción apunta al montón de texto, una vez por texto distinto)
+        List<Vecino> vecinosVisitas = visitas.getVecinos();
+        int[] ordPorCodigo = new int[vecinosVisitas.size()];
+        for (int c = 0; c < ordPorCodigo.length; c++) {
+            Integer ord = ordVecino.get(vecinosVisitas.get(c));
+            ordPorCodigo[c] = ord == null ? -1 : ord;
+        }
+        out.writeInt(visitas.size());
+        for (int i = 0; i < visitas.size(); i++) {
+            int ord = ordPorCodigo[visitas.codigoVecinoEn(i)];
+            if (ord < 0) throw new IllegalStateException("Visita #" + visitas.idEn(i) + " de un vecino no registrado: " + visitas.vecinoEn(i));
+            out.writeInt(visitas.idEn(i));
+            out.writeInt(ord);
+            out.writeInt(visitas.diaEn(i));
+            out.writeLong(visitas.centimosEn(i));
+            out.writeByte(visitas.estadoEn(i).ordinal());
+            out.writeInt(visitas.codigoAdministradorEn(i));
+            out.writeInt(visitas.inicioDescripcionEn(i));
+            out.writeInt(visitas.longitudDescripcionEn(i));
+        }
+
+        // Facturas (longitud fija; las visitas van a una tabla de ids aparte)
+        FacturasMapeadas facturasBase = datos.facturas instanceof FacturasMapeadas ? (FacturasMapeadas) datos.facturas : null;
+        List<Factura> facturasNuevas = facturasBase != null ? facturasBase.getNuevas() : datos.facturas;
+        out.writeInt(datos.facturas.size());
+        int inicioIds = 0;
+        if (facturasBase != null) {
+            facturasBase.copiarRegistros(out);
+            inicioIds = facturasBase.getNumIds();
+        }
+        for (Factura f : facturasNuevas) {
+            out.writeInt(f.getId());
+            out.writeInt(dia(f.getFechaCreacion()));
+            out.writeInt(ordVecino.get(f.getVecino()));
+            out.writeInt(inicioIds);
+            out.writeInt(f.getVisitas().size());
+            inicioIds += f.getVisitas().size();
+        }
+        out.writeInt(inicioIds);
+        if (facturasBase != null) facturasBase.copiarIds(out);
+        for (Factura f : facturasNuevas) {
+            for (FichaVisita v : f.getVisitas()) out.writeInt(v.getId());
+        }
+
+        // Auditorías
+        out.writeInt(datos.auditorias.size());
+        for (Auditoria a : datos.auditorias) {
+            out.writeInt(a.getId());
+            out.writeInt(ordAuditor.get(a.getAuditor()));
+            out.writeInt(dia(a.getFechaCreacion()));
+            out.writeInt(dia(a.getFechaFin()));
+            out.writeInt(a.getVisitas().size());
+            for (FichaVisita v : a.getVisitas()) out.writeInt(v.getId());
+            out.writeInt(a.getMateriales().size());
+            for (Material m : a.getMateriales()) out.writeInt(ordMaterial.get(m));
+        }
+
+        // Montón de texto de las descripciones
+        out.writeInt(visitas.getLongitudDescripciones());
+        visitas.escribirDescripciones(out);
+    }
+
+    /** Las visitas tal cual o, si vienen de un fichero antiguo (serialización Java), copiadas a un histórico. */
+    private static HistoricoVisitas historico(List<FichaVisita> visitas) {
+        if (visitas instanceof HistoricoVisitas) return (HistoricoVisitas) visitas;
+        HistoricoVisitas copia = new HistoricoVisitas();
+        copia.addAll(visitas);
+        return copia;
+    }
+
+    /** Ordinales por identidad, sin repetir, en orden de aparición. */
+    private static <T> Map<T, Integer> ordinales(List<T> elementos) {
+        Map<T, Integer> ord = new LinkedHashMap<>();
+        Set<T> vistos = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (T e : elementos) {
+            if (vistos.add(e)) ord.put(e, ord.size());
+        }
+        return ord;
+    }
+
+    private static void escribirCabeceraTabla(DataOutput out, int total, int registrados) throws IOException {
+        out.writeInt(total);
+        out.writeInt(registrados);
+    }
+
+    private static void escribirTexto(DataOutput out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static int longitudUtf8(String s) {
+        int n = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) n += 1;
+            else if (c < 0x800) n += 2;
+            else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                n += 4;
+                i++;
+            } else n += 3;
+        }
+        return n;
+    }
+
+    static int dia(LocalDate fecha) {
+        return fecha == null ? SIN_FECHA : (int) fecha.toEpochDay();
+    }
+
+    static LocalDate fecha(int dia) {
+        return dia == SIN_FECHA ? null : LocalDate.ofEpochDay(dia);
+    }
+
+    // --- Lectura ---
+
+    /**
+     * Decodifica un fichero completo. Las visitas siempre pasan a un {@link HistoricoVisitas}; con
+     * {@code perezoso} sus descripciones se siguen leyendo del buffer y las facturas quedan como vista
+     * sobre él ({@link FacturasMapeadas}), construidas al consultarlas: el buffer no debe modificarse
+     * mientras se usen.
+     */
+    static GestorComunidad.Datos leer(ByteBuffer in, boolean perezoso) throws IOException {
+        if (in.getInt() != MAGIA) throw new IOException("El fichero no tiene formato SIGCO binario.");
+        short version = in.getShort();
+        if (version != VERSION) throw new IOException("Versión de formato no soportada: " + version);
+
+        GestorComunidad.Datos datos = new GestorComunidad.Datos();
+        datos.nextVisitaId = in.getInt();
+        datos.nextFacturaId = in.getInt();
+        datos.nextAuditoriaId = in.getInt();
+        // Contadores de ids sustitutos (0 en los datos que vienen de la serialización antigua).
+        int[] siguiente = {1, 1, 1};
+        for (int k = 0; k < siguiente.length; k++) siguiente[k] = Math.max(1, in.getInt());
+        datos.secuenciaDiario = in.getLong();
+
+        Vecino[] vecinos = new Vecino[in.getInt()];
+        for (int i = 0; i < vecinos.length; i++) {
+            vecinos[i] = new Vecino(leerTexto(in), leerTexto(in), leerTexto(in), leerTexto(in), leerTexto(in), leerTexto(in));
+            datos.vecinosPorDni.put(vecinos[i].getDni(), vecinos[i]);
+        }
+
+        Profesor[] profesores = new Profesor[in.getInt()];
+        int profesoresRegistrados = in.getInt();
+        for (int i = 0; i < profesores.length; i++) {
+            profesores[i] = new Profesor(leerId(in, siguiente, 0), leerTexto(in), leerTexto(in), leerTexto(in), leerTexto(in), in.getDouble());
+            if (i < profesoresRegistrados) datos.profesores.add(profesores[i]);
+        }
+
+        Auditor[] auditores = new Auditor[in.getInt()];
+        int auditoresRegistrados = in.getInt();
+        for (int i = 0; i < auditores.length; i++) {
+            auditores[i] = new Auditor(leerId(in, siguiente, 1), leerTexto(in), leerTexto(in), leerTexto(in), leerTexto(in), leerTexto(in), leerTexto(in));
+            if (i < auditoresRegistrados) datos.auditores.add(auditores[i]);
+        }
+
+        Material[] materiales = new Material[in.getInt()];
+        int materialesRegistrados = in.getInt();
+        for (int i = 0; i < materiales.length; i++) {
+            materiales[i] = new Material(leerId(in, siguiente, 2), leerTexto(in), in.getDouble());
+            if (i < materialesRegistrados) datos.repositorioMateriales.add(materiales[i]);
+        }
+        datos.nextProfesorId = siguiente[0];
+        datos.nextAuditorId = siguiente[1];
+        datos.nextMaterialId = siguiente[2];
+
+        int nCursos = in.getInt();
+        for (int i = 0; i < nCursos; i++) {
+            Curso c = new Curso(leerTexto(in), in.getDouble(), in.getInt(), fecha(in.getInt()), fecha(in.getInt()));
+            int nMaterias = in.getInt();
+            for (int j = 0; j < nMaterias; j++) {
+                c.addMateria(new Materia(leerTexto(in), in.getInt(), profesores[in.getInt()]));
+            }
+            // El cupo pudo reducirse después de inscribir: se restaura tras cargar los inscritos.
+            int maxVecinos = c.getMaxVecinos();
+            c.setMaxVecinos(Integer.MAX_VALUE);
+            int nInscritos = in.getInt();
+            for (int j = 0; j < nInscritos; j++) c.inscribir(vecinos[in.getInt()]);
+            c.setMaxVecinos(maxVecinos);
+            datos.cursos.add(c);
+        }
+
+        String[] admins = new String[in.getInt()];
+        for (int i = 0; i < admins.length; i++) admins[i] = leerTexto(in);
+
+        // Las descripciones están al final: se localizan saltando las tablas de longitud fija.
+        int nVisitas = in.getInt();
+        int inicioVisitas = in.position();
+        in.position(inicioVisitas + nVisitas * REGISTRO_VISITA); // se leen al final
+        int nFacturas = in.getInt();
+        int inicioFacturas = in.position();
+        in.position(inicioFacturas + nFacturas * REGISTRO_FACTURA);
+        int nIdsFactura = in.getInt();
+        int inicioIdsFactura = in.position();
+        in.position(inicioIdsFactura + nIdsFactura * 4);
+        int inicioAuditorias = in.position();
+        int nAuditorias = in.getInt();
+        for (int i = 0; i < nAuditorias; i++) {
+            in.position(in.position() + 16);
+            int nAsignadas = in.getInt();
+            in.position(in.position() + nAsignadas * 4);
+            int nMateriales = in.getInt();
+            in.position(in.position() + nMateriales * 4);
+        }
+        int longitudTexto = in.getInt();
+        int inicioTexto = in.position();
+        if (inicioTexto + longitudTexto != in.limit()) throw new IOException("Fichero SIGCO binario truncado.");
+
+        // Las visitas se pasan a columnas (un recorrido de la tabla, sin crear objetos); el montón de
+        // descripciones se queda en el buffer si es perezoso, o se copia para no retener el fichero entero.
+        ByteBuffer textos;
+        if (perezoso) {
+            textos = in.duplicate().position(inicioTexto).slice();
+        } else {
+            byte[] copia = new byte[longitudTexto];
+            in.get(inicioTexto, copia);
+            textos = ByteBuffer.wrap(copia);
+        }
+        HistoricoVisitas visitas = new HistoricoVisitas(vecinos, admins, textos);
+        for (int i = 0; i < nVisitas; i++) {
+            int p = inicioVisitas + i * REGISTRO_VISITA;
+            visitas.anadirRegistro(in.getInt(p), in.getInt(p + 4), in.getInt(p + 8), in.getLong(p + 12),
+                    in.get(p + 20) == EstadoPago.PAGADA.ordinal(), in.getInt(p + 21), in.getInt(p + 25), in.getInt(p + 29));
+        }
+        datos.visitas = visitas;
+        FacturasMapeadas facturas = new FacturasMapeadas(in, inicioFacturas, nFacturas, inicioIdsFactura, nIdsFactura, vecinos, visitas);
+        if (perezoso) {
+            datos.facturas = facturas;
+        } else {
+            datos.facturas.addAll(facturas);
+        }
+
+        in.position(inicioAuditorias + 4);
+        for (int i = 0; i < nAuditorias; i++) {
+            Auditoria a = new Auditoria(in.getInt(), auditores[in.getInt()], fecha(in.getInt()));
+            LocalDate fin = fecha(in.getInt());
+            int nAsignadas = in.getInt();
+            for (int j = 0; j < nAsignadas; j++) a.asignarVisita(visitas.porId(in.getInt()));
+            int nMateriales = in.getInt();
+            for (int j = 0; j < nMateriales; j++) a.asignarMaterial(materiales[in.getInt()]);
+            if (fin != null) a.cerrar(fin);
+            datos.auditorias.add(a);
+        }
+        return datos;
+    }
+
+    /**
+     * Id sustituto del registro: el guardado o, si es 0 (entidades de la serialización antigua, que no lo tenían;
+     * ver {@code GestorPersistencia.desdeSerializado}), el siguiente del contador. El contador queda siempre
+     * por encima de todos los ids leídos.
+     */
+    private static int leerId(ByteBuffer in, int[] siguiente, int tabla) {
+        int id = in.getInt();
+        if (id <= 0) return siguiente[tabla]++;
+        siguiente[tabla] = Math.max(siguiente[tabla], id + 1);
+        return id;
+    }
+
+    private static String leerTexto(ByteBuffer in) {
+        int longitud = in.getInt();
+        if (longitud < 0) return null;
+        String s = texto(in, in.position(), longitud);
+        in.position(in.position() + longitud);
+        return s;
+    }
+
+    static String texto(ByteBuffer in, int posicion, int longitud) {
+        if (in.hasArray()) {
+            return new String(in.array(), in.arrayOffset() + posicion, longitud, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[longitud];
+        in.get(posicion, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Copia un tramo del buffer a la salida por bloques, sin mover su posición. */
+    static void copiar(ByteBuffer in, int posicion, int longitud, DataOutput out) throws IOException {
+        byte[] bloque = new byte[Math.min(longitud, 64 * 1024)];
+        for (int hecho = 0; hecho < longitud; ) {
+            int n = Math.min(bloque.length, longitud - hecho);
+            in.get(posicion + hecho, bloque, 0, n);
+            out.write(bloque, 0, n);
+            hecho += n;
+        }
+    }
+}
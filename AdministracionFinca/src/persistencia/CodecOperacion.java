@@ -0,0 +1,90 @@
+package persistencia;
+
+import servicio.Operacion;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Codificación binaria de una {@link Operacion}: la del cuerpo de los registros del {@link Diario},
+ * que también usa el protocolo de red.
+ *
+ * Secuencia (long), tipo (byte), nº argumentos (byte) y cada argumento con su etiqueta.
+ * Los textos van como longitud (int) y bytes UTF-8, hasta {@value #MAX_CUERPO} bytes: writeUTF no pasa de 64 KB
+ * y una descripción larga averiaría el diario.
+ */
+public final class CodecOperacion {
+
+    private static final byte ARG_NULO = 0;
+    private static final byte ARG_TEXTO = 1;
+    private static final byte ARG_ENTERO = 2;
+    private static final byte ARG_DECIMAL = 3;
+    private static final byte ARG_FECHA = 4;
+
+    /** Tamaño máximo de una operación codificada (y de cada uno de sus textos). */
+    static final int MAX_CUERPO = 1024 * 1024;
+
+    private CodecOperacion() {}
+
+    public static void escribir(DataOutput out, Operacion op) throws IOException {
+        out.writeLong(op.getSecuencia());
+        out.writeByte(op.getTipo().getCodigo());
+        out.writeByte(op.getNumArgumentos());
+        for (int i = 0; i < op.getNumArgumentos(); i++) {
+            Object a = op.getArgumento(i);
+            if (a == null) {
+                out.writeByte(ARG_NULO);
+            } else if (a instanceof String) {
+                out.writeByte(ARG_TEXTO);
+                escribirTexto(out, (String) a);
+            } else if (a instanceof Integer) {
+                out.writeByte(ARG_ENTERO);
+                out.writeInt((Integer) a);
+            } else if (a instanceof Double) {
+                out.writeByte(ARG_DECIMAL);
+                out.writeDouble((Double) a);
+            } else {
+                out.writeByte(ARG_FECHA);
+                out.writeInt((int) ((LocalDate) a).toEpochDay());
+            }
+        }
+    }
+
+    public static Operacion leer(DataInput in) throws IOException {
+        long secuencia = in.readLong();
+        Operacion.Tipo tipo = Operacion.Tipo.deCodigo(in.readUnsignedByte());
+        Object[] args = new Object[in.readUnsignedByte()];
+        for (int i = 0; i < args.length; i++) {
+            byte etiqueta = in.readByte();
+            switch (etiqueta) {
+                case ARG_NULO: args[i] = null; break;
+                case ARG_TEXTO: args[i] = leerTexto(in); break;
+                case ARG_ENTERO: args[i] = in.readInt(); break;
+                case ARG_DECIMAL: args[i] = in.readDouble(); break;
+                case ARG_FECHA: args[i] = LocalDate.ofEpochDay(in.readInt()); break;
+                default: throw new IOException("Argumento de operación desconocido: " + etiqueta);
+            }
+        }
+        return new Operacion(secuencia, tipo, args);
+    }
+
+    private static void escribirTexto(DataOutput out, String texto) throws IOException {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_CUERPO) {
+            throw new IOException("Texto demasiado largo para el diario: " + bytes.length + " bytes.");
+        }
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String leerTexto(DataInput in) throws IOException {
+        int longitud = in.readInt();
+        if (longitud < 0 || longitud > MAX_CUERPO) throw new IOException("Longitud de texto no válida: " + longitud);
+        byte[] bytes = new byte[longitud];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
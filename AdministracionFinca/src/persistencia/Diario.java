@@ -0,0 +1,331 @@
+package persistencia;
+
+import servicio.GestorComunidad;
+import servicio.Operacion;
+import servicio.RegistroOperaciones;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Diario de operaciones (write-ahead log) asociado a un fichero de datos.
+ *
+ * - Cada operación del gestor se añade al final de "fichero.diario" como un registro compacto.
+ * - Los registros se sincronizan con disco en grupos (cada {@value #LOTE_SINCRONIZACION}
+ *   registros o cada {@value #PERIODO_SINCRONIZACION_MS} ms), desde el hilo del diario: quien anota
+ *   (dentro de la sección que ordena los cambios del gestor) nunca espera al disco.
+ * - Si falla una escritura o una sincronización, el diario deja de anotar y rechaza las operaciones
+ *   siguientes ({@link #comprobar}) hasta que una instantánea recoja todo lo que hay en memoria.
+ * - Al abrir se reproducen las operaciones posteriores a la última instantánea.
+ * - Periódicamente se compacta: se vuelca una instantánea nueva y se descarta el diario. Si falla, se avisa
+ *   a quien lo abrió y se reintenta en la siguiente; mientras, el diario sigue creciendo.
+ *
+ * Formato de registro: longitud (int), cuerpo, CRC32 del cuerpo (int).
+ * Cuerpo: la operación codificada con {@link CodecOperacion}.
+ */
+public final class Diario implements RegistroOperaciones, Closeable {
+
+    static final int LOTE_SINCRONIZACION = 64;
+    static final long PERIODO_SINCRONIZACION_MS = 200;
+    static final long PERIODO_COMPACTACION_S = 60;
+    static final long UMBRAL_COMPACTACION_BYTES = 8L * 1024 * 1024;
+
+    private final File instantanea;
+    private final File fichero;
+    private final File anterior;
+    private final GestorComunidad gestor;
+    private final ScheduledExecutorService planificador;
+    private final Consumer<? super IOException> alFallar; // compactaciones periódicas fallidas
+    private final Object compactando = new Object(); // una compactación cada vez (se toma antes que el gestor)
+    private final Object forzando = new Object(); // force del canal y su cierre al rotar (después de this)
+
+    private FileChannel canal;
+    private DataOutputStream salida;
+    private final ByteArrayOutputStream cuerpo = new ByteArrayOutputStream(256);
+    private final DataOutputStream escritorCuerpo = new DataOutputStream(cuerpo);
+    private final CRC32 crc = new CRC32();
+    private int pendientes;
+    private boolean sincronizacionPedida;
+    private long bytesDiario;
+    // Primer error de escritura o sincronización; mientras no se vuelque una instantánea, no se anota nada más.
+    private IOException averia;
+    private boolean agregadosCorregidos;
+
+    private Diario(File instantanea, GestorComunidad gestor, Consumer<? super IOException> alFallar) {
+        this.instantanea = instantanea;
+        this.fichero = new File(instantanea.getPath() + ".diario");
+        this.anterior = new File(instantanea.getPath() + ".diario.anterior");
+        this.gestor = gestor;
+        this.alFallar = alFallar;
+        this.planificador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "diario-" + instantanea.getName());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Como {@link #abrir(File, GestorComunidad, Consumer)}, sin aviso de las compactaciones periódicas fallidas. */
+    public static Diario abrir(File instantanea, GestorComunidad gestor) throws IOException {
+        return abrir(instantanea, gestor, e -> {});
+    }
+
+    /**
+     * Reproduce sobre el gestor las operaciones pendientes del diario y lo deja enganchado
+     * para anotar las siguientes. El gestor debe haberse creado con la última instantánea.
+     * {@code alFallar} recibe, desde el hilo del diario, el error de cada compactación periódica fallida.
+     */
+    public static Diario abrir(File instantanea, GestorComunidad gestor, Consumer<? super IOException> alFallar) throws IOException {
+        Diario d = new Diario(instantanea, gestor, Objects.requireNonNull(alFallar, "alFallar"));
+        gestor.enExclusiva(() -> {
+            if (d.anterior.exists()) d.reproducir(d.anterior);
+            long valido = d.fichero.exists() ? d.reproducir(d.fichero) : 0;
+            d.agregadosCorregidos = !gestor.verificarAgregados();
+            d.abrirCanal(valido);
+            gestor.setRegistro(d);
+            return null;
+        });
+        d.planificador.scheduleWithFixedDelay(d::sincronizarSilencioso,
+                PERIODO_SINCRONIZACION_MS, PERIODO_SINCRONIZACION_MS, TimeUnit.MILLISECONDS);
+        d.planificador.scheduleWithFixedDelay(d::compactarSiProcede,
+                PERIODO_COMPACTACION_S, PERIODO_COMPACTACION_S, TimeUnit.SECONDS);
+        return d;
+    }
+
+    /** ¿Los totales tras reproducir el diario no cuadraban con un recálculo completo? Ya están corregidos. */
+    public boolean agregadosCorregidos() {
+        return agregadosCorregidos;
+    }
+
+    private void abrirCanal(long longitudValida) throws IOException {
+        canal = FileChannel.open(fichero.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        canal.truncate(longitudValida); // descarta una cola a medio escribir
+        canal.position(longitudValida);
+        salida = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(canal), 16 * 1024));
+        bytesDiario = longitudValida;
+        pendientes = 0;
+    }
+
+    // --- Escritura ---
+
+    /** Lo llama el gestor antes de modificar nada: con el diario averiado, la operación no se aplica. */
+    @Override
+    public synchronized void comprobar() {
+        if (averia != null) {
+            throw new UncheckedIOException("El diario no puede anotar cambios hasta que se guarde una instantánea: "
+                    + averia.getMessage(), averia);
+        }
+    }
+
+    /**
+     * Añade el registro al buffer. No lanza: la operación ya está aplicada en memoria, así que un error deja el
+     * diario averiado (ver {@link #comprobar}) y la operación queda para la próxima instantánea. Tampoco se
+     * anota nada después de una avería, para que el diario no tenga huecos.
+     */
+    @Override
+    public synchronized void registrar(Operacion op) {
+        if (averia != null) return;
+        try {
+            cuerpo.reset();
+            CodecOperacion.escribir(escritorCuerpo, op);
+            if (cuerpo.size() > CodecOperacion.MAX_CUERPO) { // al reproducir se tomaría por el final del diario
+                throw new IOException("Operación demasiado grande para el diario: " + cuerpo.size() + " bytes.");
+            }
+            crc.reset();
+            crc.update(cuerpo.toByteArray(), 0, cuerpo.size());
+            salida.writeInt(cuerpo.size());
+            cuerpo.writeTo(salida);
+            salida.writeInt((int) crc.getValue());
+            bytesDiario += 8 + cuerpo.size();
+        } catch (IOException e) {
+            averia = e;
+            return;
+        }
+        if (++pendientes >= LOTE_SINCRONIZACION && !sincronizacionPedida) {
+            sincronizacionPedida = true;
+            try {
+                planificador.execute(this::sincronizarSilencioso);
+            } catch (RejectedExecutionException cerrando) {
+                // al cerrar se vuelca todo igualmente
+            }
+        }
+    }
+
+    /**
+     * Vuelca el buffer y fuerza a disco los registros pendientes. Solo el volcado excluye a quien anota;
+     * el force, que es lo que espera al disco, no.
+     */
+    public void sincronizar() throws IOException {
+        FileChannel forzar;
+        synchronized (this) {
+            sincronizacionPedida = false;
+            if (pendientes == 0) return;
+            salida.flush();
+            pendientes = 0;
+            forzar = canal;
+        }
+        synchronized (forzando) {
+            if (forzar.isOpen()) forzar.force(false); // cerrado: lo rotó una compactación, que ya lo forzó
+        }
+    }
+
+    private void sincronizarSilencioso() {
+        try {
+            sincronizar();
+        } catch (IOException e) {
+            synchronized (this) {
+                if (averia == null) averia = e; // se notificará en la próxima operación
+            }
+        }
+    }
+
+    // --- Lectura ---
+
+    /** Reproduce un fichero de diario y devuelve la longitud de su parte íntegra. */
+    private long reproducir(File f) throws IOException {
+        long valido = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f), 64 * 1024))) {
+            while (true) {
+                int longitud;
+                try {
+                    longitud = in.readInt();
+                } catch (EOFException fin) {
+                    break;
+                }
+                if (longitud <= 0 || longitud > CodecOperacion.MAX_CUERPO) break;
+                byte[] bytes = new byte[longitud];
+                int crcLeido;
+                try {
+                    in.readFully(bytes);
+                    crcLeido = in.readInt();
+                } catch (EOFException cortado) {
+                    break; // registro a medio escribir: se descarta
+                }
+                crc.reset();
+                crc.update(bytes, 0, bytes.length);
+                if ((int) crc.getValue() != crcLeido) break;
+
+                Operacion op = CodecOperacion.leer(new DataInputStream(new ByteArrayInputStream(bytes)));
+                try {
+                    gestor.aplicar(op);
+                } catch (RuntimeException e) {
+                    throw new IOException("El diario no se puede reproducir en la operación " + op + ": " + e.getMessage(), e);
+                }
+                valido += 8 + longitud;
+            }
+        }
+        return valido;
+    }
+
+    // --- Compactación ---
+
+    private void compactarSiProcede() {
+        boolean procede;
+        synchronized (this) {
+            procede = bytesDiario >= UMBRAL_COMPACTACION_BYTES || averia != null;
+        }
+        if (!procede) return;
+        try {
+            compactar();
+        } catch (IOException e) {
+            alFallar.accept(e);
+        }
+    }
+
+    /**
+     * Vuelca una instantánea con todos los datos y descarta el diario que cubre.
+     * Las modificaciones solo esperan mientras se rota el diario y se serializan los datos en memoria.
+     * Si no hay nada nuevo desde la última instantánea, no escribe nada. Si el diario estaba averiado,
+     * la instantánea recoge lo que no se pudo anotar y vuelve a admitir operaciones.
+     */
+    public void compactar() throws IOException {
+        compactar(Progreso.NINGUNO);
+    }
+
+    /** Como {@link #compactar()}, informando de los bytes escritos de la instantánea. */
+    public void compactar(Progreso progreso) throws IOException {
+        synchronized (compactando) {
+            long[] version = new long[1];
+            IOException[] averiaPrevia = new IOException[1];
+            byte[] contenido = gestor.enExclusiva(() -> {
+                boolean cambios = gestor.hayCambiosSinGuardar();
+                synchronized (this) {
+                    // Nada nuevo desde la última instantánea y nada que descartar.
+                    if (!cambios && bytesDiario == 0 && !anterior.exists() && averia == null) return null;
+                    rotar();
+                    averiaPrevia[0] = averia; // también la de rotar: la instantánea se toma después
+                }
+                version[0] = gestor.getVersion();
+                return GestorPersistencia.serializar(gestor.getDatos());
+            });
+            if (contenido == null) return;
+            GestorPersistencia.escribirAtomico(instantanea, contenido, progreso);
+            gestor.marcarGuardado(version[0]);
+            Files.deleteIfExists(anterior.toPath());
+            synchronized (this) {
+                // Desde la avería no se ha aplicado nada (comprobar lo rechaza), y lo anterior está en la instantánea.
+                if (averiaPrevia[0] != null && averia == averiaPrevia[0]) averia = null;
+            }
+        }
+    }
+
+    /** Cierra el diario actual, lo aparta como "anterior" y empieza uno vacío. */
+    private void rotar() throws IOException {
+        synchronized (forzando) {
+            try {
+                salida.flush();
+                canal.force(false);
+            } catch (IOException e) {
+                if (averia == null) averia = e; // el diario anterior queda incompleto: la instantánea lo cubrirá
+            }
+            canal.close();
+        }
+        if (anterior.exists()) {
+            // Quedó de una compactación interrumpida: se concatena para no perder registros.
+            Files.write(anterior.toPath(), Files.readAllBytes(fichero.toPath()), StandardOpenOption.APPEND);
+            Files.delete(fichero.toPath());
+        } else {
+            Files.move(fichero.toPath(), anterior.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        }
+        abrirCanal(0);
+    }
+
+    /** Compacta, desengancha el diario del gestor y libera el fichero. */
+    @Override
+    public void close() throws IOException {
+        cerrar(Progreso.NINGUNO);
+    }
+
+    /**
+     * Como {@link #close()}, informando del volcado de la instantánea. Si este falla, el diario
+     * sigue enganchado y con todos los cambios: se puede seguir trabajando o volver a cerrar.
+     */
+    public void cerrar(Progreso progreso) throws IOException {
+        compactar(progreso); // antes de parar el planificador: si falla, sigue sincronizando
+        planificador.shutdown(); // sin interrumpir: cerraría el canal a mitad de escritura
+        try {
+            planificador.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        gestor.enExclusiva(() -> {
+            gestor.setRegistro(null);
+            synchronized (this) {
+                synchronized (forzando) {
+                    salida.close();
+                }
+            }
+            return null;
+        });
+    }
+}
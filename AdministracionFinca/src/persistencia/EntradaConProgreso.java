@@ -0,0 +1,45 @@
+package persistencia;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/** Flujo que informa de los bytes consumidos (para cargas que no leen el fichero de una vez). */
+public final class EntradaConProgreso extends FilterInputStream {
+
+    private final long total;
+    private final Progreso progreso;
+    private long leidos;
+
+    public EntradaConProgreso(InputStream in, long total, Progreso progreso) {
+        super(in);
+        this.total = total;
+        this.progreso = progreso;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) avanzar(1);
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) avanzar(n);
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long saltados = super.skip(n);
+        avanzar(saltados);
+        return saltados;
+    }
+
+    private void avanzar(long n) {
+        leidos += n;
+        progreso.avance(leidos, total);
+    }
+}
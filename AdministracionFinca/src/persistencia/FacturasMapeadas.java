@@ -0,0 +1,108 @@
+package persistencia;
+
+import modelo.Factura;
+import modelo.FichaVisita;
+import modelo.HistoricoVisitas;
+import modelo.Vecino;
+import servicio.DiasPorPosicion;
+import servicio.IdsPorPosicion;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Lista de facturas respaldada por la tabla de longitud fija de un fichero SIGCO proyectado en memoria.
+ * Cada factura se construye la primera vez que se consulta y se conserva; sus visitas son fichas
+ * del {@link HistoricoVisitas} cargado del mismo fichero.
+ */
+final class FacturasMapeadas extends AbstractList<Factura> implements RandomAccess, IdsPorPosicion, DiasPorPosicion {
+
+    private final ByteBuffer buffer;
+    private final int inicio;
+    private final int mapeadas;
+    private final int inicioIds;
+    private final int numIds;
+    private final Vecino[] vecinos;
+    private final HistoricoVisitas visitas;
+
+    private final Factura[] cache;
+    private final List<Factura> nuevas = new ArrayList<>();
+
+    FacturasMapeadas(ByteBuffer buffer, int inicio, int mapeadas, int inicioIds, int numIds,
+                     Vecino[] vecinos, HistoricoVisitas visitas) {
+        this.buffer = buffer;
+        this.inicio = inicio;
+        this.mapeadas = mapeadas;
+        this.inicioIds = inicioIds;
+        this.numIds = numIds;
+        this.vecinos = vecinos;
+        this.visitas = visitas;
+        this.cache = new Factura[mapeadas];
+    }
+
+    @Override
+    public Factura get(int i) {
+        if (i >= mapeadas) return nuevas.get(i - mapeadas);
+        Factura f = cache[i];
+        if (f == null) f = cache[i] = materializar(i);
+        return f;
+    }
+
+    /** Id de la factura, leído del registro sin construirla. */
+    @Override
+    public int idEn(int i) {
+        if (i >= mapeadas) return nuevas.get(i - mapeadas).getId();
+        Factura f = cache[i];
+        return f != null ? f.getId() : buffer.getInt(inicio + i * CodecBinario.REGISTRO_FACTURA);
+    }
+
+    /** Día de la factura, leído del registro sin construirla. */
+    @Override
+    public int diaEn(int i) {
+        if (i >= mapeadas) return CodecBinario.dia(nuevas.get(i - mapeadas).getFechaCreacion());
+        Factura f = cache[i];
+        return f != null ? CodecBinario.dia(f.getFechaCreacion()) : buffer.getInt(inicio + i * CodecBinario.REGISTRO_FACTURA + 4);
+    }
+
+    private Factura materializar(int i) {
+        int p = inicio + i * CodecBinario.REGISTRO_FACTURA;
+        int primera = buffer.getInt(p + 12);
+        int n = buffer.getInt(p + 16);
+        List<FichaVisita> lista = new ArrayList<>(n);
+        for (int j = 0; j < n; j++) {
+            lista.add(visitas.porId(buffer.getInt(inicioIds + (primera + j) * 4)));
+        }
+        return new Factura(buffer.getInt(p), CodecBinario.fecha(buffer.getInt(p + 4)), vecinos[buffer.getInt(p + 8)], lista);
+    }
+
+    @Override
+    public int size() {
+        return mapeadas + nuevas.size();
+    }
+
+    @Override
+    public boolean add(Factura f) {
+        nuevas.add(f);
+        modCount++;
+        return true;
+    }
+
+    // --- Apoyo a CodecBinario: reescritura sin materializar (las facturas no cambian) ---
+
+    int getMapeadas() { return mapeadas; }
+    List<Factura> getNuevas() { return nuevas; }
+    int getNumIds() { return numIds; }
+
+    void copiarRegistros(DataOutput out) throws IOException {
+        CodecBinario.copiar(buffer, inicio, mapeadas * CodecBinario.REGISTRO_FACTURA, out);
+    }
+
+    void copiarIds(DataOutput out) throws IOException {
+        CodecBinario.copiar(buffer, inicioIds, numIds * 4, out);
+    }
+}
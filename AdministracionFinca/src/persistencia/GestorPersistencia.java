@@ -1,34 +1,257 @@
 package persistencia;
 
 import servicio.GestorComunidad;
+import servicio.Medidor;
+import servicio.Metricas;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Persistencia por serialización (Java estándar).
+ * Persistencia del contenedor {@link servicio.GestorComunidad.Datos}.
  *
- * Guarda y carga el contenedor {@link servicio.GestorComunidad.Datos}.
+ * - Se guarda siempre en el formato binario propio ({@link CodecBinario}).
+ * - Se cargan tanto ese formato como los ficheros antiguos de serialización Java estándar;
+ *   para convertir estos últimos de una vez, ver {@link MigradorSigco}.
+ * - El formato binario se puede cargar entero ({@link #cargar}) o proyectado ({@link #cargarProyectado}).
+ * - Cargas y guardados admiten un {@link Progreso} que recibe los bytes leídos o escritos.
+ * - Latencias de cargas, guardados y escrituras, y bytes leídos y escritos, en {@link #getMetricas()}.
  */
 public final class GestorPersistencia {
 
+    /** Tamaño de los trozos en que se leen y escriben los ficheros, para informar del avance. */
+    private static final int TROZO = 1024 * 1024;
+
+    /** Versiones anteriores que se conservan al sustituir un fichero: "fichero.1" (la última) a "fichero.N". */
+    static final int COPIAS = 3;
+
+    private static final Metricas METRICAS = new Metricas("persistencia");
+    private static final Medidor CARGAR = METRICAS.medidor("cargar");
+    private static final Medidor CARGAR_PROYECTADO = METRICAS.medidor("cargarProyectado");
+    private static final Medidor GUARDAR = METRICAS.medidor("guardar");
+    private static final Medidor SERIALIZAR = METRICAS.medidor("serializar");
+    private static final Medidor ESCRIBIR = METRICAS.medidor("escribirAtomico");
+    private static final LongAdder BYTES_LEIDOS = METRICAS.contador("bytesLeidos");
+    private static final LongAdder BYTES_ESCRITOS = METRICAS.contador("bytesEscritos");
+    private static final LongAdder VISITAS_CARGADAS = METRICAS.contador("visitasCargadas");
+    private static final LongAdder FACTURAS_CARGADAS = METRICAS.contador("facturasCargadas");
+
     private GestorPersistencia() {}
 
+    /** De todo el proceso (también del autoguardado y del diario, que escriben con {@link #escribirAtomico}). */
+    public static Metricas getMetricas() {
+        return METRICAS;
+    }
+
+    private static GestorComunidad.Datos cargados(GestorComunidad.Datos datos, long bytes) {
+        BYTES_LEIDOS.add(bytes);
+        VISITAS_CARGADAS.add(datos.visitas.size());
+        FACTURAS_CARGADAS.add(datos.facturas.size());
+        return datos;
+    }
+
     public static GestorComunidad.Datos cargar(File fichero) throws IOException, ClassNotFoundException {
-        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(fichero)))) {
+        return cargar(fichero, Progreso.NINGUNO);
+    }
+
+    /**
+     * Carga completa. El formato binario se lee entero y se decodifica en memoria;
+     * el antiguo se deserializa a medida que se lee, así que el avance refleja ambos casos.
+     */
+    public static GestorComunidad.Datos cargar(File fichero, Progreso progreso) throws IOException, ClassNotFoundException {
+        long t0 = System.nanoTime();
+        try {
+            if (!esBinario(fichero)) {
+                try (ObjectInputStream ois = new ObjectInputStream(new EntradaConProgreso(
+                        new BufferedInputStream(new FileInputStream(fichero), 64 * 1024), fichero.length(), progreso))) {
+                    return cargados(desdeSerializado((GestorComunidad.Datos) ois.readObject()), fichero.length());
+                }
+            }
+            byte[] contenido = leer(fichero, progreso);
+            return cargados(CodecBinario.leer(ByteBuffer.wrap(contenido), false), contenido.length);
+        } finally {
+            CARGAR.registrarDesde(t0);
+        }
+    }
+
+    private static boolean esBinario(File fichero) throws IOException {
+        ByteBuffer cabecera = ByteBuffer.allocate(4);
+        try (FileChannel canal = FileChannel.open(fichero.toPath(), StandardOpenOption.READ)) {
+            while (cabecera.hasRemaining() && canal.read(cabecera) >= 0) { /* hasta 4 bytes */ }
+        }
+        cabecera.flip();
+        return CodecBinario.reconoce(cabecera);
+    }
+
+    private static byte[] leer(File fichero, Progreso progreso) throws IOException {
+        try (FileChannel canal = FileChannel.open(fichero.toPath(), StandardOpenOption.READ)) {
+            long total = canal.size();
+            if (total > Integer.MAX_VALUE - 8) throw new IOException("Fichero demasiado grande para cargarlo entero: " + fichero);
+            byte[] contenido = new byte[(int) total];
+            ByteBuffer buffer = ByteBuffer.wrap(contenido);
+            while (buffer.position() < buffer.capacity()) {
+                buffer.limit(Math.min(buffer.capacity(), buffer.position() + TROZO));
+                if (canal.read(buffer) < 0) throw new EOFException("Fichero truncado mientras se leía: " + fichero);
+                progreso.avance(buffer.position(), total);
+            }
+            return contenido;
+        }
+    }
+
+    /**
+     * Carga proyectando el fichero en memoria: las facturas se construyen solo al consultarlas y las
+     * descripciones de las visitas se leen del fichero, así que el arranque apenas depende del histórico. Los ficheros antiguos se cargan enteros.
+     *
+     * La proyección mantiene abierto el fichero hasta que el recolector la libere; en Windows eso
+     * impide reemplazarlo, y las compactaciones fallarán (el diario sigue conservando los cambios).
+     */
+    public static GestorComunidad.Datos cargarProyectado(File fichero) throws IOException, ClassNotFoundException {
+        return cargarProyectado(fichero, Progreso.NINGUNO);
+    }
+
+    /** Como {@link #cargarProyectado(File)}; la proyección no lee el fichero, así que el avance salta al final. */
+    public static GestorComunidad.Datos cargarProyectado(File fichero, Progreso progreso) throws IOException, ClassNotFoundException {
+        long t0 = System.nanoTime();
+        MappedByteBuffer buffer;
+        try (FileChannel canal = FileChannel.open(fichero.toPath(), StandardOpenOption.READ)) {
+            if (canal.size() > Integer.MAX_VALUE) throw new IOException("Fichero demasiado grande para proyectarlo: " + fichero);
+            buffer = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+        }
+        if (!CodecBinario.reconoce(buffer)) return cargar(fichero, progreso); // se mide como carga completa
+        try {
+            GestorComunidad.Datos datos = CodecBinario.leer(buffer, true);
+            progreso.avance(buffer.capacity(), buffer.capacity());
+            return cargados(datos, buffer.capacity()); // proyectados: el sistema los leerá según se consulten
+        } finally {
+            CARGAR_PROYECTADO.registrarDesde(t0);
+        }
+    }
+
+    /** Lectura del formato antiguo (serialización Java). */
+    static GestorComunidad.Datos cargarSerializado(byte[] contenido) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(contenido))) {
             Object obj = ois.readObject();
-            return (GestorComunidad.Datos) obj;
+            return desdeSerializado((GestorComunidad.Datos) obj);
         }
     }
 
+    /**
+     * Los datos antiguos traen cada visita suelta y las facturas y auditorías apuntando a ellas; pasándolos
+     * por el formato binario, que las referencia por id, quedan todas en un solo {@link modelo.HistoricoVisitas}.
+     */
+    private static GestorComunidad.Datos desdeSerializado(GestorComunidad.Datos datos) throws IOException {
+        return deserializar(serializar(datos));
+    }
+
+    /** Inversa de {@link #serializar}. */
+    public static GestorComunidad.Datos deserializar(byte[] contenido) throws IOException {
+        return CodecBinario.leer(ByteBuffer.wrap(contenido), false);
+    }
+
     public static void guardar(File fichero, GestorComunidad.Datos datos) throws IOException {
+        guardar(fichero, datos, Progreso.NINGUNO);
+    }
+
+    /**
+     * Guarda de forma atómica (ver {@link #escribirAtomico}): si falla, el fichero anterior
+     * queda intacto y los datos en memoria no se tocan.
+     */
+    public static void guardar(File fichero, GestorComunidad.Datos datos, Progreso progreso) throws IOException {
+        long t0 = System.nanoTime();
+        try {
+            escribirAtomico(fichero, serializar(datos), progreso);
+        } finally {
+            GUARDAR.registrarDesde(t0);
+        }
+    }
+
+    /** Codifica los datos en memoria, para poder escribirlos (o enviarlos) después sin bloquear al gestor. */
+    public static byte[] serializar(GestorComunidad.Datos datos) throws IOException {
+        long t0 = System.nanoTime();
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                CodecBinario.escribir(out, datos);
+            }
+            return bytes.toByteArray();
+        } finally {
+            SERIALIZAR.registrarDesde(t0);
+        }
+    }
+
+    /**
+     * Sustituye el fichero de forma atómica: escribe en un temporal, lo sincroniza con disco
+     * y lo renombra sobre el destino. Si algo falla, el fichero anterior queda intacto.
+     * La versión sustituida pasa a ser la copia "fichero.1" (ver {@link #COPIAS}).
+     */
+    static void escribirAtomico(File fichero, byte[] contenido) throws IOException {
+        escribirAtomico(fichero, contenido, Progreso.NINGUNO);
+    }
+
+    static void escribirAtomico(File fichero, byte[] contenido, Progreso progreso) throws IOException {
+        long t0 = System.nanoTime();
+        try {
+            sustituir(fichero, contenido, progreso);
+            BYTES_ESCRITOS.add(contenido.length);
+        } finally {
+            ESCRIBIR.registrarDesde(t0);
+        }
+    }
+
+    private static void sustituir(File fichero, byte[] contenido, Progreso progreso) throws IOException {
+        crearDirectorioPadre(fichero);
+        Path destino = fichero.toPath();
+        Path temporal = destino.resolveSibling(fichero.getName() + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(contenido);
+            while (buffer.position() < buffer.capacity()) {
+                buffer.limit(Math.min(buffer.capacity(), buffer.position() + TROZO));
+                canal.write(buffer);
+                progreso.avance(buffer.position(), contenido.length);
+            }
+            canal.force(true);
+        }
+        rotarCopias(destino);
+        Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Desplaza fichero.1..N-1 una posición y deja en fichero.1 la versión actual.
+     * Se usa un enlace duro (el renombrado posterior crea un fichero nuevo, así que el enlace
+     * conserva el contenido anterior sin copiarlo); si el sistema no lo admite, se copia.
+     */
+    private static void rotarCopias(Path destino) throws IOException {
+        if (!Files.exists(destino)) return;
+        for (int i = COPIAS - 1; i >= 1; i--) {
+            Path copia = copia(destino, i);
+            if (Files.exists(copia)) Files.move(copia, copia(destino, i + 1), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Path ultima = copia(destino, 1);
+        Files.deleteIfExists(ultima);
+        try {
+            Files.createLink(ultima, destino);
+        } catch (UnsupportedOperationException | IOException e) {
+            Files.copy(destino, ultima, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static Path copia(Path destino, int n) {
+        return destino.resolveSibling(destino.getFileName() + "." + n);
+    }
+
+    private static void crearDirectorioPadre(File fichero) {
         File parent = fichero.getAbsoluteFile().getParentFile();
         if (parent != null && !parent.exists()) {
             //noinspection ResultOfMethodCallIgnored
             parent.mkdirs();
         }
-
-        try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(fichero)))) {
-            oos.writeObject(datos);
-        }
     }
 }
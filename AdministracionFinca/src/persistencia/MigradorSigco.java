@@ -0,0 +1,42 @@
+package persistencia;
+
+import servicio.GestorComunidad;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Conversión única de un sigco.dat en serialización Java al formato binario propio.
+ * El original se conserva como "fichero.serial".
+ *
+ * Uso: java persistencia.MigradorSigco [sigco.dat]
+ */
+public final class MigradorSigco {
+
+    private MigradorSigco() {}
+
+    /** Devuelve true si había algo que migrar. */
+    public static boolean migrar(File fichero) throws IOException, ClassNotFoundException {
+        byte[] contenido = Files.readAllBytes(fichero.toPath());
+        if (CodecBinario.reconoce(ByteBuffer.wrap(contenido))) return false;
+
+        GestorComunidad.Datos datos = GestorPersistencia.cargarSerializado(contenido);
+        File copia = new File(fichero.getPath() + ".serial");
+        Files.copy(fichero.toPath(), copia.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        GestorPersistencia.escribirAtomico(fichero, GestorPersistencia.serializar(datos));
+        return true;
+    }
+
+    public static void main(String[] args) throws Exception {
+        File fichero = new File(args.length > 0 ? args[0] : "sigco.dat");
+        long antes = fichero.length();
+        if (migrar(fichero)) {
+            System.out.println("Migrado " + fichero + ": " + antes + " -> " + fichero.length() + " bytes (original en " + fichero + ".serial)");
+        } else {
+            System.out.println(fichero + " ya está en formato binario.");
+        }
+    }
+}
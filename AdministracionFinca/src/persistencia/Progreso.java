@@ -0,0 +1,13 @@
+package persistencia;
+
+/**
+ * Avance de una carga o un guardado, en bytes leídos o escritos del fichero.
+ * Se invoca desde el hilo que hace la operación, con frecuencia: debe volver enseguida.
+ */
+@FunctionalInterface
+public interface Progreso {
+
+    Progreso NINGUNO = (hecho, total) -> {};
+
+    void avance(long hecho, long total);
+}
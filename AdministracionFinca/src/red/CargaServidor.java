@@ -0,0 +1,106 @@
+package red;
+
+import servicio.Operacion;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generador de carga para un {@link ServidorSigco}: varias conexiones alternan altas de visitas
+ * y consultas de importe pendiente durante un tiempo fijo, y se informa del rendimiento y la latencia.
+ *
+ * Uso: java red.CargaServidor [host] [puerto] [conexiones] [segundos] [vecinos]
+ */
+public final class CargaServidor {
+
+    private CargaServidor() {}
+
+    public static void main(String[] args) throws Exception {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int puerto = args.length > 1 ? Integer.parseInt(args[1]) : Protocolo.PUERTO_POR_DEFECTO;
+        int conexiones = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        int segundos = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        int numVecinos = args.length > 4 ? Integer.parseInt(args[4]) : 100;
+
+        // Vecinos de prueba con DNI 99xxxxxxL; si ya existen de una pasada anterior, se reutilizan.
+        String[] dnis = new String[numVecinos];
+        try (ClienteSigco c = ClienteSigco.conectar(host, puerto)) {
+            for (int i = 0; i < numVecinos; i++) {
+                dnis[i] = String.format("99%06dL", i);
+                try {
+                    c.ejecutar(new Operacion(0, Operacion.Tipo.REGISTRAR_VECINO, dnis[i], "Carga " + i, "Calle Prueba", "28000", "Madrid", null));
+                } catch (IllegalArgumentException yaExiste) {
+                    // registrado en una pasada anterior
+                }
+            }
+        }
+
+        long fin = System.nanoTime() + segundos * 1_000_000_000L;
+        ExecutorService hilos = Executors.newFixedThreadPool(conexiones);
+        List<Future<Medidas[]>> resultados = new ArrayList<>();
+        for (int i = 0; i < conexiones; i++) {
+            resultados.add(hilos.submit(() -> trabajar(host, puerto, dnis, fin)));
+        }
+        Medidas altas = new Medidas(), consultas = new Medidas();
+        for (Future<Medidas[]> f : resultados) {
+            Medidas[] m = f.get();
+            altas.sumar(m[0]);
+            consultas.sumar(m[1]);
+        }
+        hilos.shutdown();
+        System.out.println(conexiones + " conexiones, " + segundos + " s");
+        System.out.println("  altas de visita:     " + altas.informe(segundos));
+        System.out.println("  consultas pendiente: " + consultas.informe(segundos));
+    }
+
+    /** Devuelve las latencias de altas y de consultas de una conexión. */
+    private static Medidas[] trabajar(String host, int puerto, String[] dnis, long fin) throws Exception {
+        Medidas altas = new Medidas();
+        Medidas consultas = new Medidas();
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        try (ClienteSigco c = ClienteSigco.conectar(host, puerto)) {
+            while (System.nanoTime() < fin) {
+                String dni = dnis[r.nextInt(dnis.length)];
+                long t = System.nanoTime();
+                if (r.nextBoolean()) {
+                    c.ejecutar(new Operacion(0, Operacion.Tipo.CREAR_VISITA, dni, LocalDate.now(), "Visita de carga",
+                            r.nextInt(1, 10_000) / 100.0, "Carga"));
+                    altas.anotar(System.nanoTime() - t);
+                } else {
+                    c.importePendiente(dni);
+                    consultas.anotar(System.nanoTime() - t);
+                }
+            }
+        }
+        return new Medidas[]{altas, consultas};
+    }
+
+    /** Latencias (ns) de un tipo de petición. */
+    private static final class Medidas {
+        private long[] latencias = new long[1024];
+        private int n;
+
+        void anotar(long nanos) {
+            if (n == latencias.length) latencias = Arrays.copyOf(latencias, n * 2);
+            latencias[n++] = nanos;
+        }
+
+        void sumar(Medidas otra) {
+            for (int i = 0; i < otra.n; i++) anotar(otra.latencias[i]);
+        }
+
+        String informe(int segundos) {
+            if (n == 0) return "sin peticiones";
+            long[] orden = Arrays.copyOf(latencias, n);
+            Arrays.sort(orden);
+            return String.format("%d (%.0f/s), p50 %.2f ms, p99 %.2f ms, máx %.2f ms", n, n / (double) segundos,
+                    orden[n / 2] / 1e6, orden[(int) (n * 0.99)] / 1e6, orden[n - 1] / 1e6);
+        }
+    }
+}
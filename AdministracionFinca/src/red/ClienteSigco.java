@@ -0,0 +1,84 @@
+package red;
+
+import servicio.Operacion;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+
+/**
+ * Conexión de peticiones con un {@link ServidorSigco}: una petición cada vez, esperando su respuesta.
+ * Los errores de validación del servidor se relanzan con el mismo tipo que usaría el gestor local;
+ * los de red, como UncheckedIOException.
+ */
+public final class ClienteSigco implements Closeable {
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    private ClienteSigco(Socket socket) throws IOException {
+        this.socket = socket;
+        this.in = Protocolo.entrada(socket.getInputStream());
+        this.out = Protocolo.salida(socket.getOutputStream());
+    }
+
+    public static ClienteSigco conectar(String host, int puerto) throws IOException {
+        Socket socket = new Socket(host, puerto);
+        try {
+            socket.setTcpNoDelay(true);
+            ClienteSigco c = new ClienteSigco(socket);
+            c.out.writeByte(Protocolo.PETICIONES);
+            c.out.flush();
+            return c;
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Ejecuta la operación en el servidor (su secuencia se ignora) y devuelve la secuencia asignada,
+     * o 0 si no cambió nada.
+     */
+    public synchronized long ejecutar(Operacion op) {
+        try {
+            out.writeByte(Protocolo.OPERACION);
+            Protocolo.escribir(out, op);
+            out.flush();
+            comprobarRespuesta();
+            return in.readLong();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Sin conexión con el servidor", e);
+        }
+    }
+
+    /** Importe de las visitas del vecino pendientes de facturar. */
+    public synchronized double importePendiente(String dni) {
+        try {
+            out.writeByte(Protocolo.PENDIENTE);
+            out.writeUTF(dni);
+            out.flush();
+            comprobarRespuesta();
+            return in.readDouble();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Sin conexión con el servidor", e);
+        }
+    }
+
+    private void comprobarRespuesta() throws IOException {
+        byte respuesta = in.readByte();
+        if (respuesta == Protocolo.CORRECTO) return;
+        String mensaje = in.readUTF();
+        if (respuesta == Protocolo.ERROR_ARGUMENTO) throw new IllegalArgumentException(mensaje);
+        throw new IllegalStateException(mensaje);
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,418 @@
+package red;
+
+import modelo.*;
+import persistencia.GestorPersistencia;
+import persistencia.Progreso;
+import servicio.EventoCambio;
+import servicio.GestorComunidad;
+import servicio.LoteVecinos;
+import servicio.LoteVisitas;
+import servicio.Operacion;
+import servicio.ResumenFacturacion;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Puesto conectado a un {@link ServidorSigco}: una réplica local del gestor que se mantiene al día
+ * con las operaciones que difunde el servidor. Para la interfaz es un {@link GestorComunidad} más.
+ *
+ * - Las consultas se resuelven en la réplica, sin ir a la red.
+ * - Cada modificación se envía como {@link Operacion} y el método vuelve cuando la réplica ya la ha
+ *   aplicado, con la entidad de la réplica (la misma que verán tablas y eventos).
+ * - Las entidades se señalan como en el diario: por DNI o id (los cursos, que no se dan de baja, por posición).
+ */
+public final class GestorRemoto extends GestorComunidad implements Closeable {
+
+    private static final int TROZO = 1024 * 1024;
+
+    private final ClienteSigco cliente;
+    private final Socket suscripcion;
+    private final DataInputStream entrada;
+    private final Thread receptor;
+
+    private final Object aplicadas = new Object();
+    // Protegidos por aplicadas.
+    private long versionAplicada;
+    private boolean desconectado;
+    private boolean enVuelo; // hay una modificación propia esperando: se guardan las altas que llegan
+    private final Map<Long, List<Object>> altas = new HashMap<>();
+
+    private long enCurso; // secuencia que está aplicando el receptor (solo la usa ese hilo)
+
+    private GestorRemoto(Datos datos, ClienteSigco cliente, Socket suscripcion, DataInputStream entrada) {
+        super(datos);
+        this.cliente = cliente;
+        this.suscripcion = suscripcion;
+        this.entrada = entrada;
+        this.versionAplicada = datos.secuenciaDiario;
+        this.receptor = new Thread(this::recibir, "sigco-replica");
+        this.receptor.setDaemon(true);
+        addOyente(this::capturarAlta);
+    }
+
+    /** Dirección "host" o "host:puerto". */
+    public static GestorRemoto conectar(String direccion, Progreso progreso) throws IOException {
+        int dosPuntos = direccion.lastIndexOf(':');
+        if (dosPuntos < 0) return conectar(direccion, Protocolo.PUERTO_POR_DEFECTO, progreso);
+        return conectar(direccion.substring(0, dosPuntos), Integer.parseInt(direccion.substring(dosPuntos + 1)), progreso);
+    }
+
+    public static GestorRemoto conectar(String host, int puerto) throws IOException {
+        return conectar(host, puerto, Progreso.NINGUNO);
+    }
+
+    /** Descarga la instantánea (informando de los bytes recibidos) y empieza a seguir al servidor. */
+    public static GestorRemoto conectar(String host, int puerto, Progreso progreso) throws IOException {
+        Socket socket = new Socket(host, puerto);
+        try {
+            DataOutputStream out = Protocolo.salida(socket.getOutputStream());
+            out.writeByte(Protocolo.SUSCRIPCION);
+            out.flush();
+            DataInputStream in = Protocolo.entrada(socket.getInputStream());
+            long version = in.readLong();
+            byte[] instantanea = new byte[in.readInt()];
+            for (int leidos = 0; leidos < instantanea.length; ) {
+                int trozo = Math.min(TROZO, instantanea.length - leidos);
+                in.readFully(instantanea, leidos, trozo);
+                leidos += trozo;
+                progreso.avance(leidos, instantanea.length);
+            }
+            Datos datos = GestorPersistencia.deserializar(instantanea);
+            if (datos.secuenciaDiario != version) throw new IOException("Instantánea incoherente: versión " + version);
+            GestorRemoto g = new GestorRemoto(datos, ClienteSigco.conectar(host, puerto), socket, in);
+            g.receptor.start();
+            return g;
+        } catch (IOException | RuntimeException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    private void recibir() {
+        try {
+            while (true) {
+                Operacion op = Protocolo.leer(entrada);
+                enCurso = op.getSecuencia();
+                aplicar(op);
+                synchronized (aplicadas) {
+                    versionAplicada = op.getSecuencia();
+                    aplicadas.notifyAll();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            if (!(e instanceof EOFException) && !suscripcion.isClosed()) {
+                System.err.println("Réplica desconectada del servidor: " + e.getMessage());
+            }
+        } finally {
+            synchronized (aplicadas) {
+                desconectado = true;
+                aplicadas.notifyAll();
+            }
+        }
+    }
+
+    /** Oyente propio: se llama en el receptor, dentro de aplicar. */
+    private void capturarAlta(EventoCambio e) {
+        if (e.getTipo() != EventoCambio.Tipo.ALTA) return;
+        synchronized (aplicadas) {
+            if (enVuelo) altas.computeIfAbsent(enCurso, k -> new ArrayList<>()).add(e.getEntidad());
+        }
+    }
+
+    /** ¿Es el receptor aplicando una operación del servidor? Entonces se ejecuta en la réplica. */
+    private boolean replicando() {
+        return Thread.currentThread() == receptor;
+    }
+
+    /** Envía la operación y espera a que la réplica la aplique; devuelve las entidades que dio de alta. */
+    private synchronized List<Object> enviar(Operacion.Tipo tipo, Object... argumentos) {
+        synchronized (aplicadas) {
+            if (desconectado) throw new IllegalStateException("Se ha perdido la conexión con el servidor.");
+            enVuelo = true;
+        }
+        try {
+            long secuencia = cliente.ejecutar(new Operacion(0, tipo, argumentos));
+            if (secuencia == 0) return List.of();
+            synchronized (aplicadas) {
+                while (versionAplicada < secuencia) {
+                    if (desconectado) throw new IllegalStateException("Se ha perdido la conexión con el servidor.");
+                    aplicadas.wait();
+                }
+                return altas.getOrDefault(secuencia, List.of());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido esperando al servidor.", e);
+        } finally {
+            synchronized (aplicadas) {
+                enVuelo = false;
+                altas.clear();
+            }
+        }
+    }
+
+    private static <T> T alta(List<Object> altas, Class<T> clase) {
+        for (Object x : altas) {
+            if (clase.isInstance(x)) return clase.cast(x);
+        }
+        return null;
+    }
+
+    private static <T> int posicion(List<T> lista, T elemento, String mensaje) {
+        int i = lista.indexOf(Objects.requireNonNull(elemento));
+        if (i < 0) throw new IllegalArgumentException(mensaje);
+        return i;
+    }
+
+    /** Id de la entidad, si es la que tiene la réplica con ese id (otro objeto con el mismo id no cuenta). */
+    private static <T> int idDe(T elemento, ToIntFunction<T> id, IntFunction<Optional<T>> buscar, String mensaje) {
+        int i = id.applyAsInt(Objects.requireNonNull(elemento));
+        if (buscar.apply(i).orElse(null) != elemento) throw new IllegalArgumentException(mensaje);
+        return i;
+    }
+
+    // --- Vecinos y visitas ---
+
+    @Override
+    public Vecino registrarVecino(String dni, String nombreApellidos, String direccion, String codigoPostal, String ciudad, String telefono) {
+        if (replicando()) return super.registrarVecino(dni, nombreApellidos, direccion, codigoPostal, ciudad, telefono);
+        return alta(enviar(Operacion.Tipo.REGISTRAR_VECINO, dni, nombreApellidos, direccion, codigoPostal, ciudad, telefono), Vecino.class);
+    }
+
+    @Override
+    public FichaVisita crearFichaVisita(Vecino vecino, LocalDate fecha, String descripcion, double importe, String administrador) {
+        if (replicando()) return super.crearFichaVisita(vecino, fecha, descripcion, importe, administrador);
+        if (vecino == null) throw new IllegalArgumentException("Debe seleccionar un vecino.");
+        return alta(enviar(Operacion.Tipo.CREAR_VISITA, vecino.getDni(), fecha, descripcion, importe, administrador), FichaVisita.class);
+    }
+
+    /** Por la red no hay altas por lotes: cada fila es una operación, y su error, el motivo del rechazo. */
+    @Override
+    public String[] registrarVecinos(LoteVecinos lote) {
+        String[] motivos = new String[lote.size()];
+        for (int i = 0; i < lote.size(); i++) {
+            try {
+                enviar(Operacion.Tipo.REGISTRAR_VECINO, lote.dni(i), lote.nombre(i), lote.direccion(i),
+                        lote.codigoPostal(i), lote.ciudad(i), lote.telefono(i));
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                motivos[i] = e.getMessage();
+            }
+        }
+        return motivos;
+    }
+
+    @Override
+    public String[] crearFichasVisita(LoteVisitas lote) {
+        String[] motivos = new String[lote.size()];
+        for (int i = 0; i < lote.size(); i++) {
+            try {
+                enviar(Operacion.Tipo.CREAR_VISITA, lote.dni(i), lote.fecha(i), lote.descripcion(i),
+                        lote.importe(i), lote.administrador(i));
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                motivos[i] = e.getMessage();
+            }
+        }
+        return motivos;
+    }
+
+    @Override
+    public Factura crearFactura(Vecino vecino, LocalDate fechaFactura) {
+        if (replicando()) return super.crearFactura(vecino, fechaFactura);
+        Objects.requireNonNull(vecino, "vecino");
+        return alta(enviar(Operacion.Tipo.CREAR_FACTURA, vecino.getDni(), fechaFactura), Factura.class);
+    }
+
+    @Override
+    public ResumenFacturacion facturarTodos(LocalDate fechaFactura) {
+        if (replicando()) return super.facturarTodos(fechaFactura);
+        long inicio = System.nanoTime();
+        List<Factura> creadas = new ArrayList<>();
+        for (Object x : enviar(Operacion.Tipo.FACTURAR_TODOS, fechaFactura)) {
+            if (x instanceof Factura) creadas.add((Factura) x);
+        }
+        int numVisitas = 0;
+        long total = 0;
+        for (Factura f : creadas) {
+            numVisitas += f.getNumVisitas();
+            total = Dinero.sumar(total, f.getTotalCentimos());
+        }
+        return new ResumenFacturacion(creadas, numVisitas, total, Duration.ofNanos(System.nanoTime() - inicio));
+    }
+
+    // --- Profesores / Cursos ---
+
+    @Override
+    public Profesor registrarProfesor(String nombre, String apellidos, String direccion, String telefono, double sueldo) {
+        if (replicando()) return super.registrarProfesor(nombre, apellidos, direccion, telefono, sueldo);
+        return alta(enviar(Operacion.Tipo.REGISTRAR_PROFESOR, nombre, apellidos, direccion, telefono, sueldo), Profesor.class);
+    }
+
+    @Override
+    public void modificarProfesor(Profesor p, String nombre, String apellidos, String direccion, String telefono, double sueldo) {
+        if (replicando()) {
+            super.modificarProfesor(p, nombre, apellidos, direccion, telefono, sueldo);
+            return;
+        }
+        int id = idDe(p, Profesor::getId, this::buscarProfesorPorId, "El profesor no está registrado.");
+        enviar(Operacion.Tipo.MODIFICAR_PROFESOR, id, nombre, apellidos, direccion, telefono, sueldo);
+    }
+
+    @Override
+    public void eliminarProfesor(Profesor p) {
+        if (replicando()) {
+            super.eliminarProfesor(p);
+            return;
+        }
+        if (p != null && buscarProfesorPorId(p.getId()).orElse(null) == p) enviar(Operacion.Tipo.ELIMINAR_PROFESOR, p.getId());
+    }
+
+    @Override
+    public Curso crearCurso(String nombre, double precio, int maxVecinos, LocalDate inicio, LocalDate fin) {
+        if (replicando()) return super.crearCurso(nombre, precio, maxVecinos, inicio, fin);
+        return alta(enviar(Operacion.Tipo.CREAR_CURSO, nombre, precio, maxVecinos, inicio, fin), Curso.class);
+    }
+
+    @Override
+    public Materia addMateriaACurso(Curso curso, String nombreMateria, int horas, Profesor profesor) {
+        if (replicando()) return super.addMateriaACurso(curso, nombreMateria, horas, profesor);
+        int iCurso = posicion(getCursos(), Objects.requireNonNull(curso, "curso"), "El curso no está registrado.");
+        int idProfesor = idDe(Objects.requireNonNull(profesor, "profesor"), Profesor::getId, this::buscarProfesorPorId, "El profesor no está registrado.");
+        enviar(Operacion.Tipo.ADD_MATERIA, iCurso, nombreMateria, horas, idProfesor);
+        List<Materia> materias = curso.getMaterias();
+        return materias.get(materias.size() - 1);
+    }
+
+    @Override
+    public void inscribirVecinoEnCurso(Vecino vecino, Curso curso) {
+        if (replicando()) {
+            super.inscribirVecinoEnCurso(vecino, curso);
+            return;
+        }
+        Objects.requireNonNull(vecino, "vecino");
+        int iCurso = posicion(getCursos(), Objects.requireNonNull(curso, "curso"), "El curso no está registrado.");
+        enviar(Operacion.Tipo.INSCRIBIR_VECINO, vecino.getDni(), iCurso);
+    }
+
+    // --- Auditores / Auditorías / Materiales ---
+
+    @Override
+    public Auditor registrarAuditor(String nombre, String apellidos, String cif, String empresa, String direccionEmpresa, String telefono) {
+        if (replicando()) return super.registrarAuditor(nombre, apellidos, cif, empresa, direccionEmpresa, telefono);
+        return alta(enviar(Operacion.Tipo.REGISTRAR_AUDITOR, nombre, apellidos, cif, empresa, direccionEmpresa, telefono), Auditor.class);
+    }
+
+    @Override
+    public void modificarAuditor(Auditor a, String nombre, String apellidos, String cif, String empresa, String direccionEmpresa, String telefono) {
+        if (replicando()) {
+            super.modificarAuditor(a, nombre, apellidos, cif, empresa, direccionEmpresa, telefono);
+            return;
+        }
+        int id = idDe(a, Auditor::getId, this::buscarAuditorPorId, "El auditor no está registrado.");
+        enviar(Operacion.Tipo.MODIFICAR_AUDITOR, id, nombre, apellidos, cif, empresa, direccionEmpresa, telefono);
+    }
+
+    @Override
+    public void eliminarAuditor(Auditor a) {
+        if (replicando()) {
+            super.eliminarAuditor(a);
+            return;
+        }
+        if (a != null && buscarAuditorPorId(a.getId()).orElse(null) == a) enviar(Operacion.Tipo.ELIMINAR_AUDITOR, a.getId());
+    }
+
+    @Override
+    public Auditoria crearAuditoria(Auditor auditor, LocalDate fechaCreacion) {
+        if (replicando()) return super.crearAuditoria(auditor, fechaCreacion);
+        int idAuditor = idDe(Objects.requireNonNull(auditor, "auditor"), Auditor::getId, this::buscarAuditorPorId, "El auditor no está registrado.");
+        return alta(enviar(Operacion.Tipo.CREAR_AUDITORIA, idAuditor, fechaCreacion), Auditoria.class);
+    }
+
+    @Override
+    public void asignarVisitasAAuditoria(Auditoria auditoria, List<FichaVisita> visitasAAsignar) {
+        if (replicando()) {
+            super.asignarVisitasAAuditoria(auditoria, visitasAAsignar);
+            return;
+        }
+        // Se comprueba todo en la réplica antes de enviar nada, para no dejar el lote a medias por un argumento mal.
+        int idAuditoria = idDe(Objects.requireNonNull(auditoria, "auditoria"), Auditoria::getId, this::buscarAuditoriaPorId,
+                "La auditoría no está registrada.");
+        List<FichaVisita> lote = List.copyOf(visitasAAsignar);
+        for (FichaVisita v : lote) {
+            if (!buscarVisitaPorId(v.getId()).filter(v::equals).isPresent()) {
+                throw new IllegalArgumentException("La visita #" + v.getId() + " no está registrada.");
+            }
+        }
+        if (!lote.isEmpty() && auditoria.estaCerrada()) {
+            throw new IllegalStateException("La auditoría está cerrada; no se pueden asignar más visitas.");
+        }
+        for (FichaVisita v : lote) enviar(Operacion.Tipo.ASIGNAR_VISITA, idAuditoria, v.getId());
+    }
+
+    @Override
+    public void finalizarAuditoria(Auditoria auditoria, LocalDate fechaFin) {
+        if (replicando()) {
+            super.finalizarAuditoria(auditoria, fechaFin);
+            return;
+        }
+        Objects.requireNonNull(auditoria, "auditoria");
+        enviar(Operacion.Tipo.FINALIZAR_AUDITORIA, auditoria.getId(), fechaFin);
+    }
+
+    @Override
+    public Material registrarMaterial(String nombre, double precio) {
+        if (replicando()) return super.registrarMaterial(nombre, precio);
+        return alta(enviar(Operacion.Tipo.REGISTRAR_MATERIAL, nombre, precio), Material.class);
+    }
+
+    @Override
+    public void modificarMaterial(Material m, String nombre, double precio) {
+        if (replicando()) {
+            super.modificarMaterial(m, nombre, precio);
+            return;
+        }
+        int id = idDe(m, Material::getId, this::buscarMaterialPorId, "El material no está registrado.");
+        enviar(Operacion.Tipo.MODIFICAR_MATERIAL, id, nombre, precio);
+    }
+
+    @Override
+    public void eliminarMaterial(Material m) {
+        if (replicando()) {
+            super.eliminarMaterial(m);
+            return;
+        }
+        if (m != null && buscarMaterialPorId(m.getId()).orElse(null) == m) enviar(Operacion.Tipo.ELIMINAR_MATERIAL, m.getId());
+    }
+
+    @Override
+    public void asignarMaterialAAuditoria(Auditoria auditoria, Material material) {
+        if (replicando()) {
+            super.asignarMaterialAAuditoria(auditoria, material);
+            return;
+        }
+        Objects.requireNonNull(auditoria, "auditoria");
+        int idMaterial = idDe(Objects.requireNonNull(material, "material"), Material::getId, this::buscarMaterialPorId, "El material no está registrado.");
+        enviar(Operacion.Tipo.ASIGNAR_MATERIAL, auditoria.getId(), idMaterial);
+    }
+
+    /** Corta ambas conexiones; la réplica queda como estaba, sin recibir más cambios. */
+    @Override
+    public void close() throws IOException {
+        suscripcion.close();
+        cliente.close();
+    }
+}
@@ -0,0 +1,76 @@
+package red;
+
+import persistencia.CodecOperacion;
+import servicio.Operacion;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Protocolo binario entre {@link ServidorSigco} y sus clientes, sobre TCP.
+ *
+ * Cada conexión empieza con un byte de modo:
+ * - {@link #PETICIONES}: peticiones y respuestas alternas. Una petición es un byte de tipo y su cuerpo:
+ *   - {@link #OPERACION}: la operación ({@link CodecOperacion}).
+ *     Respuesta: {@link #CORRECTO} y la secuencia asignada (long; 0 si no cambió nada) o un error.
+ *   - {@link #PENDIENTE}: DNI (UTF). Respuesta: {@link #CORRECTO} y el importe pendiente de facturar (double).
+ *   Un error es {@link #ERROR_ARGUMENTO} o {@link #ERROR_ESTADO} y el mensaje (UTF); el cliente lo relanza
+ *   como IllegalArgumentException o IllegalStateException, igual que el gestor local.
+ * - {@link #SUSCRIPCION}: el servidor envía la versión (long), la longitud y los bytes de una instantánea
+ *   ({@link persistencia.GestorPersistencia#serializar}) y después cada operación anotada, en orden.
+ */
+final class Protocolo {
+
+    static final int PUERTO_POR_DEFECTO = 7070;
+
+    static final byte PETICIONES = 1;
+    static final byte SUSCRIPCION = 2;
+
+    static final byte OPERACION = 1;
+    static final byte PENDIENTE = 2;
+
+    static final byte CORRECTO = 0;
+    static final byte ERROR_ARGUMENTO = 1;
+    static final byte ERROR_ESTADO = 2;
+
+    private Protocolo() {}
+
+    static DataInputStream entrada(InputStream in) {
+        return new DataInputStream(new BufferedInputStream(in, 16 * 1024));
+    }
+
+    static DataOutputStream salida(OutputStream out) {
+        return new DataOutputStream(new BufferedOutputStream(out, 16 * 1024));
+    }
+
+    static void escribir(DataOutputStream out, Operacion op) throws IOException {
+        CodecOperacion.escribir(out, op);
+    }
+
+    static Operacion leer(DataInputStream in) throws IOException {
+        return CodecOperacion.leer(in);
+    }
+
+    /**
+     * Un hilo por conexión: virtuales si la JVM los tiene (Java 21), si no, de plataforma y reutilizables.
+     * Se busca por reflexión para poder compilar y ejecutar también con Java 17.
+     */
+    static ExecutorService hilosPorConexion(String nombre) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException sinHilosVirtuales) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, nombre);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package red;
+
+import modelo.Vecino;
+import persistencia.Autoguardado;
+import persistencia.Diario;
+import persistencia.GestorPersistencia;
+import servicio.GestorComunidad;
+import servicio.Metricas;
+import servicio.Operacion;
+import servicio.RegistroOperaciones;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Servidor sin interfaz: aloja un {@link GestorComunidad} y lo comparte con varios puestos
+ * ({@link GestorRemoto}) mediante el {@link Protocolo}.
+ *
+ * - Cada conexión se atiende en su propio hilo (virtual si la JVM lo permite).
+ * - Las modificaciones se ejecutan en el gestor, que ya admite varios hilos a la vez, y cada operación
+ *   anotada se reenvía al registro anterior (el diario) y a todas las suscripciones.
+ * - Un suscriptor que no lee a tiempo (cola llena) se desconecta; al volver a conectar recibe una
+ *   instantánea nueva.
+ *
+ * No hay autenticación: por defecto solo escucha en la interfaz local (ver {@code sigco.escucha} en {@link #main}).
+ */
+public final class ServidorSigco implements Closeable {
+
+    private static final int COLA_SUSCRIPTOR = 64 * 1024;
+
+    private final GestorComunidad gestor;
+    private final RegistroOperaciones siguiente;
+    private final ServerSocket socket;
+    private final ExecutorService conexiones;
+    private final Set<Socket> abiertas = ConcurrentHashMap.newKeySet();
+    private final List<Suscriptor> suscriptores = new CopyOnWriteArrayList<>();
+
+    private ServidorSigco(GestorComunidad gestor, RegistroOperaciones siguiente, ServerSocket socket) {
+        this.gestor = gestor;
+        this.siguiente = siguiente;
+        this.socket = socket;
+        this.conexiones = Protocolo.hilosPorConexion("sigco-conexion");
+    }
+
+    /**
+     * Empieza a aceptar conexiones. Las operaciones se siguen anotando en {@code siguiente}
+     * (normalmente el {@link Diario} del gestor; puede ser null).
+     */
+    public static ServidorSigco iniciar(GestorComunidad gestor, RegistroOperaciones siguiente,
+                                        InetAddress direccion, int puerto) throws IOException {
+        ServerSocket socket = new ServerSocket();
+        socket.bind(new InetSocketAddress(direccion, puerto));
+        ServidorSigco s = new ServidorSigco(gestor, siguiente, socket);
+        gestor.setRegistro(new RegistroOperaciones() {
+            @Override
+            public void comprobar() {
+                if (siguiente != null) siguiente.comprobar();
+            }
+
+            @Override
+            public void registrar(Operacion op) {
+                s.difundir(op);
+            }
+        });
+        Thread aceptador = new Thread(s::aceptar, "sigco-servidor");
+        aceptador.setDaemon(true);
+        aceptador.start();
+        return s;
+    }
+
+    public int getPuerto() {
+        return socket.getLocalPort();
+    }
+
+    /** Registro del gestor: se llama en orden de secuencia, dentro de la sección que ordena los cambios. */
+    private void difundir(Operacion op) {
+        if (siguiente != null) siguiente.registrar(op);
+        for (Suscriptor s : suscriptores) {
+            if (!s.cola.offer(op)) {
+                suscriptores.remove(s);
+                cerrar(s.socket); // el cliente verá la conexión cerrada
+            }
+        }
+    }
+
+    private void aceptar() {
+        while (!socket.isClosed()) {
+            Socket cliente;
+            try {
+                cliente = socket.accept();
+            } catch (IOException e) {
+                if (!socket.isClosed()) System.err.println("Error aceptando conexiones: " + e.getMessage());
+                continue;
+            }
+            abiertas.add(cliente);
+            conexiones.execute(() -> atender(cliente));
+        }
+    }
+
+    private void atender(Socket cliente) {
+        try {
+            cliente.setTcpNoDelay(true);
+            DataInputStream in = Protocolo.entrada(cliente.getInputStream());
+            DataOutputStream out = Protocolo.salida(cliente.getOutputStream());
+            byte modo = in.readByte();
+            if (modo == Protocolo.PETICIONES) atenderPeticiones(in, out);
+            else if (modo == Protocolo.SUSCRIPCION) atenderSuscripcion(cliente, out);
+        } catch (EOFException | SocketException fin) {
+            // el cliente cerró la conexión
+        } catch (IOException | InterruptedException e) {
+            if (!socket.isClosed()) System.err.println("Conexión con " + cliente.getRemoteSocketAddress() + " terminada: " + e.getMessage());
+        } finally {
+            abiertas.remove(cliente);
+            cerrar(cliente);
+        }
+    }
+
+    private void atenderPeticiones(DataInputStream in, DataOutputStream out) throws IOException {
+        while (true) {
+            int tipo = in.read();
+            if (tipo < 0) return;
+            try {
+                switch (tipo) {
+                    case Protocolo.OPERACION: {
+                        Operacion op = Protocolo.leer(in);
+                        long secuencia = gestor.ejecutar(op);
+                        out.writeByte(Protocolo.CORRECTO);
+                        out.writeLong(secuencia);
+                        break;
+                    }
+                    case Protocolo.PENDIENTE: {
+                        String dni = in.readUTF();
+                        Vecino v = gestor.buscarVecinoPorDni(dni)
+                                .orElseThrow(() -> new IllegalArgumentException("No existe un vecino con DNI " + dni));
+                        double importe = gestor.getImportePendiente(v);
+                        out.writeByte(Protocolo.CORRECTO);
+                        out.writeDouble(importe);
+                        break;
+                    }
+                    default:
+                        throw new IOException("Petición desconocida: " + tipo);
+                }
+            } catch (IllegalArgumentException | NullPointerException | ClassCastException
+                     | IndexOutOfBoundsException | DateTimeException e) {
+                error(out, Protocolo.ERROR_ARGUMENTO, e);
+            } catch (IllegalStateException | UncheckedIOException e) {
+                error(out, Protocolo.ERROR_ESTADO, e);
+            }
+            out.flush();
+        }
+    }
+
+    private static void error(DataOutputStream out, byte tipo, RuntimeException e) throws IOException {
+        out.writeByte(tipo);
+        out.writeUTF(e.getMessage() != null ? e.getMessage() : e.toString());
+    }
+
+    private void atenderSuscripcion(Socket cliente, DataOutputStream out) throws IOException, InterruptedException {
+        Suscriptor s = new Suscriptor(cliente);
+        long[] version = new long[1];
+        // En exclusiva: ninguna operación entre la instantánea y el alta en la lista.
+        byte[] instantanea = gestor.enExclusiva(() -> {
+            version[0] = gestor.getVersion();
+            suscriptores.add(s);
+            return GestorPersistencia.serializar(gestor.getDatos());
+        });
+        try {
+            out.writeLong(version[0]);
+            out.writeInt(instantanea.length);
+            out.write(instantanea);
+            out.flush();
+            while (true) {
+                Protocolo.escribir(out, s.cola.take());
+                if (s.cola.isEmpty()) out.flush();
+            }
+        } finally {
+            suscriptores.remove(s);
+        }
+    }
+
+    private static void cerrar(Socket s) {
+        try {
+            s.close();
+        } catch (IOException ignorada) {
+            // ya estaba cerrado
+        }
+    }
+
+    /** Deja de aceptar, corta las conexiones y devuelve al gestor el registro anterior. */
+    @Override
+    public void close() throws IOException {
+        socket.close();
+        gestor.setRegistro(siguiente);
+        for (Socket s : abiertas) cerrar(s);
+        conexiones.shutdownNow();
+    }
+
+    private static final class Suscriptor {
+        final Socket socket;
+        final BlockingQueue<Operacion> cola = new ArrayBlockingQueue<>(COLA_SUSCRIPTOR);
+
+        Suscriptor(Socket socket) {
+            this.socket = socket;
+        }
+    }
+
+    /**
+     * Sirve un fichero de datos con su diario y autoguardado, hasta que se detenga el proceso.
+     *
+     * Uso: java red.ServidorSigco [fichero] [puerto]
+     * Con -Dsigco.escucha=0.0.0.0 acepta conexiones de otros equipos (solo en una red de confianza).
+     * Las métricas se publican por JMX; con -Dsigco.metricas=segundos, además se vuelcan a la salida.
+     */
+    public static void main(String[] args) throws Exception {
+        File fichero = new File(args.length > 0 ? args[0] : "sigco.dat");
+        int puerto = args.length > 1 ? Integer.parseInt(args[1]) : Protocolo.PUERTO_POR_DEFECTO;
+        String escucha = System.getProperty("sigco.escucha");
+        InetAddress direccion = escucha != null ? InetAddress.getByName(escucha) : InetAddress.getLoopbackAddress();
+
+        GestorComunidad.Datos datos = fichero.exists() ? GestorPersistencia.cargarProyectado(fichero) : new GestorComunidad.Datos();
+        GestorComunidad gestor = new GestorComunidad(datos);
+        Diario diario = Diario.abrir(fichero, gestor, e -> System.err.println("Compactación del diario fallida: " + e.getMessage()));
+        if (diario.agregadosCorregidos()) {
+            System.err.println("Los totales del diario no cuadraban con un recálculo completo; se han corregido.");
+        }
+        Autoguardado autoguardado = Autoguardado.iniciar(fichero, gestor, diario, Long.getLong("sigco.autoguardado", 300),
+                e -> System.err.println("Autoguardado fallido (se reintentará): " + e.getMessage()));
+        ServidorSigco servidor = iniciar(gestor, diario, direccion, puerto);
+        gestor.getMetricas().registrarJmx();
+        GestorPersistencia.getMetricas().registrarJmx();
+        long periodoMetricas = Long.getLong("sigco.metricas", 0); // segundos; 0 => sin volcado periódico
+        if (periodoMetricas > 0) {
+            Metricas.volcarCada(Duration.ofSeconds(periodoMetricas), System.out::print, gestor.getMetricas(), GestorPersistencia.getMetricas());
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                servidor.close();
+                autoguardado.close();
+                diario.close();
+            } catch (IOException e) {
+                System.err.println("Error al cerrar (los cambios siguen en el diario): " + e.getMessage());
+            }
+        }));
+        System.out.println("Sirviendo " + fichero + " (" + gestor.getVersion() + ") en "
+                + direccion.getHostAddress() + ":" + servidor.getPuerto());
+        Thread.currentThread().join();
+    }
+}
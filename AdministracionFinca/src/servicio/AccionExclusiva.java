@@ -0,0 +1,7 @@
+package servicio;
+
+/** Trabajo que se ejecuta con el gestor en exclusiva (ver {@link GestorComunidad#enExclusiva}). */
+@FunctionalInterface
+public interface AccionExclusiva<T, E extends Exception> {
+    T ejecutar() throws E;
+}
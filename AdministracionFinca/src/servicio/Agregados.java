@@ -0,0 +1,84 @@
+package servicio;
+
+import modelo.Dinero;
+import modelo.HistoricoVisitas;
+
+/**
+ * Totales del panel de control, mantenidos por {@link GestorComunidad} en O(1) por operación.
+ * - Total facturado = suma de importes de las visitas pagadas (cada una está en una sola factura).
+ * - Los importes van en céntimos: las sumas son exactas, sea cual sea el orden.
+ * - {@link #calcular} los rehace desde cero para comprobar los valores incrementales.
+ */
+public final class Agregados {
+
+    private int numVecinos;
+    private int visitasPendientes;
+    private long importePendiente; // céntimos
+    private long totalFacturado; // céntimos
+
+    Agregados() {}
+
+    private Agregados(Agregados otro) {
+        this.numVecinos = otro.numVecinos;
+        this.visitasPendientes = otro.visitasPendientes;
+        this.importePendiente = otro.importePendiente;
+        this.totalFacturado = otro.totalFacturado;
+    }
+
+    public int getNumVecinos() { return numVecinos; }
+    public int getVisitasPendientes() { return visitasPendientes; }
+    public double getImportePendiente() { return Dinero.euros(importePendiente); }
+    public double getTotalFacturado() { return Dinero.euros(totalFacturado); }
+    public long getImportePendienteCentimos() { return importePendiente; }
+    public long getTotalFacturadoCentimos() { return totalFacturado; }
+
+    Agregados copia() { return new Agregados(this); }
+
+    // --- Actualización incremental ---
+
+    void vecinoRegistrado() { numVecinos++; }
+
+    void vecinosRegistrados(int n) { numVecinos += n; }
+
+    void visitaCreada(long centimos) {
+        visitasPendientes++;
+        importePendiente = Dinero.sumar(importePendiente, centimos);
+    }
+
+    void visitasCreadas(int n, long centimos) {
+        visitasPendientes += n;
+        importePendiente = Dinero.sumar(importePendiente, centimos);
+    }
+
+    void visitasFacturadas(int numVisitas, long centimos) {
+        visitasPendientes -= numVisitas;
+        importePendiente = Dinero.restar(importePendiente, centimos);
+        totalFacturado = Dinero.sumar(totalFacturado, centimos);
+    }
+
+    // --- Cálculo completo ---
+
+    /** Recorre las columnas de estado e importe del histórico, sin crear fichas. */
+    static Agregados calcular(GestorComunidad.Datos datos) {
+        Agregados a = new Agregados();
+        a.numVecinos = datos.vecinosPorDni.size();
+        HistoricoVisitas visitas = (HistoricoVisitas) datos.visitas;
+        a.visitasPendientes = visitas.contar(false);
+        a.importePendiente = visitas.sumarCentimos(false);
+        a.totalFacturado = visitas.sumarCentimos(true);
+        return a;
+    }
+
+    boolean coincideCon(Agregados otro) {
+        return numVecinos == otro.numVecinos
+                && visitasPendientes == otro.visitasPendientes
+                && importePendiente == otro.importePendiente
+                && totalFacturado == otro.totalFacturado;
+    }
+
+    @Override
+    public String toString() {
+        return numVecinos + " vecinos, " + visitasPendientes + " visitas pendientes ("
+                + Dinero.formatear(importePendiente) + "), facturado " + Dinero.formatear(totalFacturado);
+    }
+}
@@ -0,0 +1,9 @@
+package servicio;
+
+/**
+ * Lista de entidades con fecha que da el día (desde la época) de cada posición sin construir la entidad.
+ * Como {@link IdsPorPosicion}, para indexar listas cargadas de forma perezosa.
+ */
+public interface DiasPorPosicion {
+    int diaEn(int posicion);
+}
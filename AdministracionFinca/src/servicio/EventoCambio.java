@@ -0,0 +1,37 @@
+package servicio;
+
+import java.util.Objects;
+
+/**
+ * Cambio en una entidad de {@link GestorComunidad}, publicado a los {@link OyenteCambios}.
+ * - La entidad es el objeto del modelo afectado (Vecino, FichaVisita, Factura, Curso...).
+ * - El índice es su posición en la lista correspondiente del gestor; en una baja, la fila que desaparece.
+ *   Al quitar un profesor, auditor o material, el último de su lista pasa a la posición del quitado: llega
+ *   la modificación de esa posición y la baja de la última.
+ */
+public final class EventoCambio {
+
+    public enum Tipo { ALTA, MODIFICACION, BAJA }
+
+    private final Tipo tipo;
+    private final Object entidad;
+    private final int indice;
+
+    EventoCambio(Tipo tipo, Object entidad, int indice) {
+        this.tipo = Objects.requireNonNull(tipo, "tipo");
+        this.entidad = Objects.requireNonNull(entidad, "entidad");
+        this.indice = indice;
+    }
+
+    public Tipo getTipo() { return tipo; }
+    public Object getEntidad() { return entidad; }
+    public int getIndice() { return indice; }
+
+    /** ¿Afecta a una entidad de la clase indicada? */
+    public boolean es(Class<?> clase) { return clase.isInstance(entidad); }
+
+    @Override
+    public String toString() {
+        return tipo + " " + entidad.getClass().getSimpleName() + " [" + indice + "]";
+    }
+}
@@ -3,44 +3,400 @@ package servicio;
 import modelo.*;
 
 import java.io.Serializable;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+/**
+ * Fachada de operaciones sobre los datos de la comunidad. Se puede usar desde varios hilos a la vez.
+ *
+ * Todas las operaciones que modifican datos se anotan en el {@link RegistroOperaciones} (si hay uno),
+ * de forma que se puedan reproducir con {@link #aplicar}. Cada entidad creada, modificada o eliminada
+ * se notifica a los {@link OyenteCambios} registrados. Cada llamada a una operación pública se mide
+ * (ver {@link #getMetricas}).
+ *
+ * Bloqueos, siempre en este orden:
+ * 1. {@code exclusion}: las modificaciones toman la parte compartida; {@link #enExclusiva} (instantáneas
+ *    para guardar), {@link #aplicar}, {@link #facturarTodos} y las altas por lotes, la exclusiva.
+ * 2. Un dominio: la franja del DNI (vecinos, visitas, facturas), cursos (profesores, cursos) o
+ *    auditorías (auditores, auditorías, materiales). Operaciones de dominios distintos no se esperan.
+ * 3. {@code orden}: tramo corto y global en el que se asignan ids y secuencia del diario, se añade a las
+ *    listas compartidas y se publican los eventos. Así el diario sigue el orden real de los cambios y al
+ *    reproducirlo se obtienen los mismos ids.
+ */
 public class GestorComunidad {
 
     // Validaciones visibles
     private static final Pattern DNI_PATTERN = Pattern.compile("^[0-9]{8}[A-Za-z]$");
     private static final Pattern TELEFONO_PATTERN = Pattern.compile("^[0-9]{9}$");
 
+    private static final int NUM_FRANJAS = 64;
+
+    private static final AtomicIntegerFieldUpdater<Datos> ID_VISITA =
+            AtomicIntegerFieldUpdater.newUpdater(Datos.class, "nextVisitaId");
+    private static final AtomicIntegerFieldUpdater<Datos> ID_FACTURA =
+            AtomicIntegerFieldUpdater.newUpdater(Datos.class, "nextFacturaId");
+    private static final AtomicIntegerFieldUpdater<Datos> ID_AUDITORIA =
+            AtomicIntegerFieldUpdater.newUpdater(Datos.class, "nextAuditoriaId");
+    private static final AtomicIntegerFieldUpdater<Datos> ID_PROFESOR =
+            AtomicIntegerFieldUpdater.newUpdater(Datos.class, "nextProfesorId");
+    private static final AtomicIntegerFieldUpdater<Datos> ID_AUDITOR =
+            AtomicIntegerFieldUpdater.newUpdater(Datos.class, "nextAuditorId");
+    private static final AtomicIntegerFieldUpdater<Datos> ID_MATERIAL =
+            AtomicIntegerFieldUpdater.newUpdater(Datos.class, "nextMaterialId");
+
     private final Datos datos;
+    private final HistoricoVisitas visitas; // datos.visitas
+
+    private final ReentrantReadWriteLock exclusion = new ReentrantReadWriteLock();
+    private final ReentrantLock[] franjas = new ReentrantLock[NUM_FRANJAS];
+    private final ReentrantLock cerrojoCursos = new ReentrantLock();
+    private final ReentrantLock cerrojoAuditorias = new ReentrantLock();
+    private final Object orden = new Object();
+
+    // Protegidos por orden.
+    private RegistroOperaciones registro; // null => sin diario
+    // Vecinos en orden de alta, para acceder por posición (el mapa de Datos no lo permite).
+    private final List<Vecino> vecinosEnOrden;
+    private Agregados agregados;
+    private long versionGuardada; // versión (ver getVersion) que ya está en disco
+
+    // Índice secundario (no se persiste): DNI -> posiciones de las visitas IMPAGADAS del vecino, en orden
+    // de creación. Cada lista solo se toca con la franja de su DNI.
+    private final Map<String, Posiciones> pendientesPorDni = new ConcurrentHashMap<>();
+    // Índices id -> posición en la lista (no se persisten); las visitas los tienen en su histórico. Facturas y
+    // auditorías nunca se quitan; profesores, auditores y materiales se quitan pasando el último a su sitio.
+    private final MapaEnteros facturasPorId;     // con orden
+    private final MapaEnteros auditoriasPorId;   // con cerrojoAuditorias
+    private final MapaEnteros profesoresPorId;   // con cerrojoCursos
+    private final MapaEnteros auditoresPorId;    // con cerrojoAuditorias
+    private final MapaEnteros materialesPorId;   // con cerrojoAuditorias
+    // Índices por fecha (no se persisten): posiciones de visitas y facturas ordenadas por día. Con orden.
+    private final IndiceFechas visitasPorFecha;
+    private final IndiceFechas facturasPorFecha;
+    private final List<OyenteCambios> oyentes = new CopyOnWriteArrayList<>();
+    // Latencias por operación pública (ver getMetricas), por ordinal de OperacionGestor.
+    private final Metricas metricas = new Metricas("gestor");
+    private final Medidor[] medidores = new Medidor[OperacionGestor.values().length];
+    // Secuencia de la primera anotación de la llamada a ejecutar en curso en cada hilo.
+    private final ThreadLocal<long[]> ejecutada = new ThreadLocal<>();
 
     public static class Datos implements Serializable {
         private static final long serialVersionUID = 1L;
 
         public final Map<String, Vecino> vecinosPorDni = new LinkedHashMap<>();
-        public final List<FichaVisita> visitas = new ArrayList<>();
-        public final List<Factura> facturas = new ArrayList<>();
+        // No son final: la persistencia las sustituye por las cargadas (las visitas, por un HistoricoVisitas
+        // con sus diccionarios; las facturas, por una lista que se materializa al consultarla).
+        public List<FichaVisita> visitas = new HistoricoVisitas();
+        public List<Factura> facturas = new ArrayList<>();
         public final List<Curso> cursos = new ArrayList<>();
         public final List<Profesor> profesores = new ArrayList<>();
         public final List<Auditor> auditores = new ArrayList<>();
         public final List<Auditoria> auditorias = new ArrayList<>();
         public final List<Material> repositorioMateriales = new ArrayList<>();
 
-        public int nextVisitaId = 1;
-        public int nextFacturaId = 1;
-        public int nextAuditoriaId = 1;
+        // volatile: el gestor los incrementa de forma atómica (no cambia el formato serializado).
+        public volatile int nextVisitaId = 1;
+        public volatile int nextFacturaId = 1;
+        public volatile int nextAuditoriaId = 1;
+        // Ids sustitutos de profesores, auditores y materiales (0 en los sigco.dat antiguos: ver CodecBinario).
+        public volatile int nextProfesorId = 1;
+        public volatile int nextAuditorId = 1;
+        public volatile int nextMaterialId = 1;
+
+        /** Última operación del diario incluida en estos datos. */
+        public long secuenciaDiario = 0;
     }
 
     public GestorComunidad(Datos datos) {
         this.datos = Objects.requireNonNull(datos, "datos");
+        if (!(datos.visitas instanceof HistoricoVisitas)) {
+            throw new IllegalArgumentException("Las visitas deben estar en un HistoricoVisitas (ver GestorPersistencia).");
+        }
+        this.visitas = (HistoricoVisitas) datos.visitas;
+        for (int i = 0; i < franjas.length; i++) franjas[i] = new ReentrantLock();
+        this.vecinosEnOrden = new ArrayList<>(datos.vecinosPorDni.values());
+        this.facturasPorId = indexar(datos.facturas, Factura::getId, "factura");
+        this.auditoriasPorId = indexar(datos.auditorias, Auditoria::getId, "auditoría");
+        this.profesoresPorId = indexar(datos.profesores, Profesor::getId, "profesor");
+        this.auditoresPorId = indexar(datos.auditores, Auditor::getId, "auditor");
+        this.materialesPorId = indexar(datos.repositorioMateriales, Material::getId, "material");
+        this.visitasPorFecha = IndiceFechas.de(visitas.size(), visitas::diaEn);
+        this.facturasPorFecha = indexarPorFecha(datos.facturas);
+        reconstruirIndicePendientes();
+        this.agregados = Agregados.calcular(datos);
+        this.versionGuardada = datos.secuenciaDiario;
+        registrarMetricas();
+    }
+
+    private void registrarMetricas() {
+        for (OperacionGestor op : OperacionGestor.values()) medidores[op.ordinal()] = metricas.medidor(op.getNombre());
+        // Lecturas sin cerrojo: pueden ir un poco por detrás de una modificación en curso.
+        metricas.indicador("vecinos", vecinosEnOrden::size);
+        metricas.indicador("visitas", visitas::size);
+        metricas.indicador("facturas", () -> datos.facturas.size());
+        metricas.indicador("cursos", datos.cursos::size);
+        metricas.indicador("profesores", datos.profesores::size);
+        metricas.indicador("auditores", datos.auditores::size);
+        metricas.indicador("auditorias", datos.auditorias::size);
+        metricas.indicador("materiales", datos.repositorioMateriales::size);
+        metricas.indicador("version", () -> datos.secuenciaDiario);
+    }
+
+    /**
+     * Llamadas y latencias de cada operación pública (las consultas de estado, como {@link #getVersion}, no se
+     * miden) y el número de entidades. Medir cuesta unas decenas de nanosegundos y no toma cerrojos.
+     */
+    public Metricas getMetricas() {
+        return metricas;
+    }
+
+    /** Ejecuta el cuerpo de una operación pública anotando su duración en el medidor de la operación. */
+    private <T> T medido(OperacionGestor op, Supplier<T> cuerpo) {
+        long t0 = System.nanoTime();
+        try {
+            return cuerpo.get();
+        } finally {
+            medidores[op.ordinal()].registrarDesde(t0);
+        }
+    }
+
+    private void medido(OperacionGestor op, Runnable cuerpo) {
+        medido(op, () -> {
+            cuerpo.run();
+            return null;
+        });
+    }
+
+    /** Crece con cada operación (es la secuencia del diario): identifica el estado de los datos. */
+    public long getVersion() {
+        synchronized (orden) {
+            return datos.secuenciaDiario;
+        }
+    }
+
+    /** ¿Hay operaciones posteriores a la última versión guardada? */
+    public boolean hayCambiosSinGuardar() {
+        synchronized (orden) {
+            return datos.secuenciaDiario > versionGuardada;
+        }
     }
 
+    /** Lo llama la persistencia cuando una instantánea con esa versión ya está en disco. */
+    public void marcarGuardado(long version) {
+        synchronized (orden) {
+            versionGuardada = Math.max(versionGuardada, version);
+        }
+    }
+
+    /** Totales del panel de control (copia; coste constante). */
+    public Agregados getAgregados() {
+        return medido(OperacionGestor.GET_AGREGADOS, () -> {
+            synchronized (orden) {
+                return agregados.copia();
+            }
+        });
+    }
+
+    /**
+     * Compara los totales incrementales con un recálculo completo (p. ej. tras reproducir el diario).
+     * Si no coinciden, se quedan los recalculados y se devuelve false.
+     */
+    public boolean verificarAgregados() {
+        return medido(OperacionGestor.VERIFICAR_AGREGADOS, () -> enExclusiva(() -> {
+            synchronized (orden) {
+                Agregados completos = Agregados.calcular(datos);
+                if (completos.coincideCon(agregados)) return true;
+                agregados = completos;
+                return false;
+            }
+        }));
+    }
+
+    /**
+     * Ejecuta la acción sin ninguna modificación en curso: lo que vea de {@link #getDatos()} corresponde
+     * exactamente a {@link #getVersion()}. Las consultas siguen atendiéndose mientras tanto.
+     */
+    public <T, E extends Exception> T enExclusiva(AccionExclusiva<T, E> accion) throws E {
+        exclusion.writeLock().lock();
+        try {
+            return accion.ejecutar();
+        } finally {
+            exclusion.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Modificación dentro de un dominio: parte compartida de la exclusión y después el cerrojo del dominio.
+     * Antes de la acción comprueba que el registro podrá anotarla (ver {@link RegistroOperaciones#comprobar}).
+     */
+    private <T> T conBloqueo(Lock dominio, Supplier<T> accion) {
+        return enDominio(dominio, true, accion);
+    }
+
+    /** Consulta con los cerrojos de {@link #conBloqueo}; se atiende aunque el registro no pueda anotar. */
+    private <T> T consultaEn(Lock dominio, Supplier<T> accion) {
+        return enDominio(dominio, false, accion);
+    }
+
+    private <T> T enDominio(Lock dominio, boolean modifica, Supplier<T> accion) {
+        exclusion.readLock().lock();
+        try {
+            dominio.lock();
+            try {
+                if (modifica) comprobarRegistro();
+                return accion.get();
+            } finally {
+                dominio.unlock();
+            }
+        } finally {
+            exclusion.readLock().unlock();
+        }
+    }
+
+    private void conBloqueo(Lock dominio, Runnable accion) {
+        conBloqueo(dominio, () -> {
+            accion.run();
+            return null;
+        });
+    }
+
+    private Lock franja(String dni) {
+        return franjas[(dni.hashCode() & 0x7fffffff) % franjas.length];
+    }
+
+    /** Copia de una de las listas pequeñas tomada con el cerrojo de su dominio. */
+    private static <T> List<T> copia(Lock dominio, List<T> lista) {
+        dominio.lock();
+        try {
+            return List.copyOf(lista);
+        } finally {
+            dominio.unlock();
+        }
+    }
+
+    /** Índice id -> posición de una lista; si la lista lo permite ({@link IdsPorPosicion}), sin construir las entidades. */
+    private static <T> MapaEnteros indexar(List<T> lista, ToIntFunction<T> id, String entidad) {
+        MapaEnteros mapa = new MapaEnteros(lista.size());
+        IdsPorPosicion ids = lista instanceof IdsPorPosicion ? (IdsPorPosicion) lista : null;
+        for (int i = 0; i < lista.size(); i++) {
+            int clave = ids != null ? ids.idEn(i) : id.applyAsInt(lista.get(i));
+            if (mapa.poner(clave, i) != MapaEnteros.NINGUNO) {
+                throw new IllegalArgumentException("Id de " + entidad + " repetido: " + clave);
+            }
+        }
+        return mapa;
+    }
+
+    /** Índice por fecha de las facturas; si la lista lo permite ({@link DiasPorPosicion}), sin construirlas. */
+    private static IndiceFechas indexarPorFecha(List<Factura> facturas) {
+        if (facturas instanceof DiasPorPosicion) return IndiceFechas.de(facturas.size(), ((DiasPorPosicion) facturas)::diaEn);
+        return IndiceFechas.de(facturas.size(), i -> dia(facturas.get(i).getFechaCreacion()));
+    }
+
+    private static int dia(LocalDate fecha) {
+        // Como en HistoricoVisitas; las fechas de consulta fuera de rango (±5 millones de años) se acotan.
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, fecha.toEpochDay()));
+    }
+
+    /** Recorre las columnas de estado y vecino, sin crear ninguna ficha. */
+    private void reconstruirIndicePendientes() {
+        pendientesPorDni.clear();
+        for (int i = 0; i < visitas.size(); i++) {
+            if (!visitas.pagadaEn(i)) indexarPendiente(clave(visitas.vecinoEn(i)), i);
+        }
+    }
+
+    private void indexarPendiente(String clave, int posicion) {
+        pendientesPorDni.computeIfAbsent(clave, k -> new Posiciones()).anadir(posicion);
+    }
+
+    private static String clave(Vecino v) {
+        return v.getDni().toUpperCase();
+    }
+
+    /** Con orden tomado. Los vecinos no se dan de baja: si lo está ahora, lo sigue estando. */
+    private void comprobarRegistrado(Vecino vecino) {
+        if (datos.vecinosPorDni.get(clave(vecino)) != vecino) {
+            throw new IllegalArgumentException("El vecino no está registrado.");
+        }
+    }
+
+    /** Las visitas no se dan de baja: basta con que la ficha sea del histórico (y no una suelta o de otro gestor). */
+    private void comprobarRegistrada(FichaVisita visita) {
+        if (!visitas.contiene(Objects.requireNonNull(visita, "visita"))) {
+            throw new IllegalArgumentException("La visita #" + visita.getId() + " no está registrada.");
+        }
+    }
+
+    /** Acceso directo para la persistencia; fuera de {@link #enExclusiva} puede estar cambiando. */
     public Datos getDatos() {
         return datos;
     }
 
+    public void setRegistro(RegistroOperaciones registro) {
+        synchronized (orden) {
+            this.registro = registro;
+        }
+    }
+
+    public void addOyente(OyenteCambios oyente) {
+        oyentes.add(Objects.requireNonNull(oyente, "oyente"));
+    }
+
+    public void removeOyente(OyenteCambios oyente) {
+        oyentes.remove(oyente);
+    }
+
+    /** Antes de modificar nada: si el registro no podrá anotar la operación, se rechaza sin aplicarla. */
+    private void comprobarRegistro() {
+        RegistroOperaciones r;
+        synchronized (orden) {
+            r = registro;
+        }
+        if (r != null) r.comprobar();
+    }
+
+    // Con orden tomado (publicar, publicarPagadas, anotar, posicionVisita).
+
+    private void publicar(EventoCambio.Tipo tipo, Object entidad, int indice) {
+        if (oyentes.isEmpty()) return;
+        EventoCambio evento = new EventoCambio(tipo, entidad, indice);
+        for (OyenteCambios o : oyentes) o.cambio(evento);
+    }
+
+    /** Notifica el cambio de estado de las visitas recién facturadas. */
+    private void publicarPagadas(List<FichaVisita> pagadas) {
+        if (oyentes.isEmpty()) return;
+        for (FichaVisita v : pagadas) publicar(EventoCambio.Tipo.MODIFICACION, v, posicionVisita(v));
+    }
+
+    private void anotar(Operacion.Tipo tipo, Object... argumentos) {
+        datos.secuenciaDiario++;
+        long[] secuencia = ejecutada.get();
+        if (secuencia != null && secuencia[0] == 0) secuencia[0] = datos.secuenciaDiario;
+        if (registro != null) {
+            registro.registrar(new Operacion(datos.secuenciaDiario, tipo, argumentos));
+        }
+    }
+
+    private int posicionVisita(FichaVisita v) {
+        return visitas.posicionDe(v);
+    }
+
     // --- Utilidades ---
     public boolean validarDni(String dni) {
         return dni != null && DNI_PATTERN.matcher(dni.trim()).matches();
@@ -51,162 +407,852 @@ public class GestorComunidad {
         return TELEFONO_PATTERN.matcher(telefono.trim()).matches();
     }
 
+    /** Mensaje de error de un alta de vecino con esos datos, o null si son válidos. */
+    private String motivoRechazoVecino(String dni, String telefono) {
+        if (!validarDni(dni)) return "DNI inválido. Formato esperado: 12345678A";
+        if (!validarTelefono(telefono)) return "Teléfono inválido. Debe tener 9 dígitos.";
+        return null;
+    }
+
+    private static String motivoRechazoVisita(LocalDate fecha, String descripcion, double importe, String administrador) {
+        if (fecha == null) return "Debe indicar la fecha.";
+        if (descripcion == null || descripcion.trim().isEmpty()) return "Debe indicar una descripción.";
+        if (administrador == null || administrador.trim().isEmpty()) return "Debe indicar el nombre del administrador.";
+        if (importe < 0) return "El importe no puede ser negativo.";
+        if (!Dinero.esValido(importe)) return "Importe no válido: " + importe;
+        return null;
+    }
+
+    private static <T> int indiceDe(List<T> lista, T elemento, String mensaje) {
+        int i = lista.indexOf(Objects.requireNonNull(elemento));
+        if (i < 0) throw new IllegalArgumentException(mensaje);
+        return i;
+    }
+
+    private static <T> int indiceDe(List<T> lista, MapaEnteros porId, ToIntFunction<T> id, T elemento, String mensaje) {
+        int i = posicionDe(lista, porId, id, Objects.requireNonNull(elemento));
+        if (i < 0) throw new IllegalArgumentException(mensaje);
+        return i;
+    }
+
+    /** Posición de la entidad por su id, o -1 si no está en la lista (otro objeto con el mismo id no cuenta). */
+    private static <T> int posicionDe(List<T> lista, MapaEnteros porId, ToIntFunction<T> id, T elemento) {
+        if (elemento == null) return -1;
+        int i = porId.get(id.applyAsInt(elemento));
+        return i >= 0 && lista.get(i) == elemento ? i : -1;
+    }
+
+    private static <T> Optional<T> buscarPorId(List<T> lista, MapaEnteros porId, int id) {
+        int i = porId.get(id);
+        return i < 0 ? Optional.empty() : Optional.of(lista.get(i));
+    }
+
+    /**
+     * Quita de la lista la entidad de la posición i en O(1) y lo anota (con el id) y publica: el último pasa a su
+     * sitio, y se publica como modificación de esa posición y baja de la última.
+     */
+    private <T> void quitar(List<T> lista, MapaEnteros porId, ToIntFunction<T> id, int i, Operacion.Tipo eliminar) {
+        T entidad = lista.get(i);
+        int ultimo = lista.size() - 1;
+        porId.quitar(id.applyAsInt(entidad));
+        T movido = lista.remove(ultimo);
+        if (i != ultimo) {
+            lista.set(i, movido);
+            porId.poner(id.applyAsInt(movido), i);
+        }
+        synchronized (orden) {
+            anotar(eliminar, id.applyAsInt(entidad));
+            if (i != ultimo) publicar(EventoCambio.Tipo.MODIFICACION, lista.get(i), i);
+            publicar(EventoCambio.Tipo.BAJA, entidad, ultimo);
+        }
+    }
+
+    private Vecino vecinoPorDni(String dni) {
+        return buscarVecinoPorDni(dni).orElseThrow(() -> new IllegalArgumentException("No existe un vecino con DNI " + dni));
+    }
+
+    private FichaVisita visitaPorId(int id) {
+        return buscarVisitaPorId(id).orElseThrow(() -> new IllegalArgumentException("No existe la visita #" + id));
+    }
+
+    private Auditoria auditoriaPorId(int id) {
+        return buscarAuditoriaPorId(id).orElseThrow(() -> new IllegalArgumentException("No existe la auditoría #" + id));
+    }
+
+    private Profesor profesorPorId(int id) {
+        return buscarProfesorPorId(id).orElseThrow(() -> new IllegalArgumentException("No existe el profesor #" + id));
+    }
+
+    private Auditor auditorPorId(int id) {
+        return buscarAuditorPorId(id).orElseThrow(() -> new IllegalArgumentException("No existe el auditor #" + id));
+    }
+
+    private Material materialPorId(int id) {
+        return buscarMaterialPorId(id).orElseThrow(() -> new IllegalArgumentException("No existe el material #" + id));
+    }
+
+    /** Curso por su posición, leído con el cerrojo de su dominio (los cursos no se dan de baja). */
+    private <T> T enPosicion(Lock dominio, List<T> lista, int i) {
+        return consultaEn(dominio, () -> lista.get(i));
+    }
+
+    // --- Búsquedas por id (coste constante) ---
+
+    public Optional<FichaVisita> buscarVisitaPorId(int id) {
+        return medido(OperacionGestor.BUSCAR_VISITA_POR_ID, () -> {
+            synchronized (orden) {
+                return Optional.ofNullable(visitas.porId(id));
+            }
+        });
+    }
+
+    public Optional<Factura> buscarFacturaPorId(int id) {
+        return medido(OperacionGestor.BUSCAR_FACTURA_POR_ID, () -> {
+            synchronized (orden) {
+                return buscarPorId(datos.facturas, facturasPorId, id);
+            }
+        });
+    }
+
+    public Optional<Auditoria> buscarAuditoriaPorId(int id) {
+        return medido(OperacionGestor.BUSCAR_AUDITORIA_POR_ID, () -> consultaEn(cerrojoAuditorias, () -> buscarPorId(datos.auditorias, auditoriasPorId, id)));
+    }
+
+    public Optional<Profesor> buscarProfesorPorId(int id) {
+        return medido(OperacionGestor.BUSCAR_PROFESOR_POR_ID, () -> consultaEn(cerrojoCursos, () -> buscarPorId(datos.profesores, profesoresPorId, id)));
+    }
+
+    public Optional<Auditor> buscarAuditorPorId(int id) {
+        return medido(OperacionGestor.BUSCAR_AUDITOR_POR_ID, () -> consultaEn(cerrojoAuditorias, () -> buscarPorId(datos.auditores, auditoresPorId, id)));
+    }
+
+    public Optional<Material> buscarMaterialPorId(int id) {
+        return medido(OperacionGestor.BUSCAR_MATERIAL_POR_ID, () -> consultaEn(cerrojoAuditorias, () -> buscarPorId(datos.repositorioMateriales, materialesPorId, id)));
+    }
+
     // --- Vecinos ---
     public Vecino registrarVecino(String dni, String nombreApellidos,
                                   String direccion, String codigoPostal, String ciudad, String telefono) {
-        if (!validarDni(dni)) throw new IllegalArgumentException("DNI inválido. Formato esperado: 12345678A");
-        if (!validarTelefono(telefono)) throw new IllegalArgumentException("Teléfono inválido. Debe tener 9 dígitos.");
+        return medido(OperacionGestor.REGISTRAR_VECINO, () -> {
+            String motivo = motivoRechazoVecino(dni, telefono);
+            if (motivo != null) throw new IllegalArgumentException(motivo);
 
-        String key = dni.trim().toUpperCase();
-        if (datos.vecinosPorDni.containsKey(key)) {
-            throw new IllegalArgumentException("Ya existe un vecino con ese DNI.");
-        }
-        Vecino v = new Vecino(key, nombreApellidos, direccion, codigoPostal, ciudad, telefono);
-        datos.vecinosPorDni.put(key, v);
-        return v;
+            String key = dni.trim().toUpperCase();
+            return conBloqueo(franja(key), () -> {
+                synchronized (orden) {
+                    if (datos.vecinosPorDni.containsKey(key)) {
+                        throw new IllegalArgumentException("Ya existe un vecino con ese DNI.");
+                    }
+                    Vecino v = new Vecino(key, nombreApellidos, direccion, codigoPostal, ciudad, telefono);
+                    datos.vecinosPorDni.put(key, v);
+                    vecinosEnOrden.add(v);
+                    agregados.vecinoRegistrado();
+                    anotar(Operacion.Tipo.REGISTRAR_VECINO, key, nombreApellidos, direccion, codigoPostal, ciudad, telefono);
+                    publicar(EventoCambio.Tipo.ALTA, v, vecinosEnOrden.size() - 1);
+                    return v;
+                }
+            });
+        });
     }
 
+    /** Instantánea en orden de alta (el índice de los {@link EventoCambio}); coste constante. */
     public List<Vecino> getVecinos() {
-        return new ArrayList<>(datos.vecinosPorDni.values());
+        return medido(OperacionGestor.GET_VECINOS, () -> {
+            synchronized (orden) {
+                return new ListaInstantanea<>(vecinosEnOrden, orden);
+            }
+        });
     }
 
     public Optional<Vecino> buscarVecinoPorDni(String dni) {
-        if (dni == null) return Optional.empty();
-        return Optional.ofNullable(datos.vecinosPorDni.get(dni.trim().toUpperCase()));
+        return medido(OperacionGestor.BUSCAR_VECINO_POR_DNI, () -> {
+            if (dni == null) return Optional.empty();
+            synchronized (orden) {
+                return Optional.ofNullable(datos.vecinosPorDni.get(dni.trim().toUpperCase()));
+            }
+        });
     }
 
     // --- Visitas ---
     public FichaVisita crearFichaVisita(Vecino vecino, LocalDate fecha, String descripcion, double importe, String administrador) {
-        if (vecino == null) throw new IllegalArgumentException("Debe seleccionar un vecino.");
-        if (fecha == null) throw new IllegalArgumentException("Debe indicar la fecha.");
-        if (descripcion == null || descripcion.trim().isEmpty()) throw new IllegalArgumentException("Debe indicar una descripción.");
-        if (administrador == null || administrador.trim().isEmpty()) throw new IllegalArgumentException("Debe indicar el nombre del administrador.");
-        if (importe < 0) throw new IllegalArgumentException("El importe no puede ser negativo.");
+        return medido(OperacionGestor.CREAR_FICHA_VISITA, () -> {
+            if (vecino == null) throw new IllegalArgumentException("Debe seleccionar un vecino.");
+            String motivo = motivoRechazoVisita(fecha, descripcion, importe, administrador);
+            if (motivo != null) throw new IllegalArgumentException(motivo);
+
+            return conBloqueo(franja(clave(vecino)), () -> {
+                FichaVisita v;
+                synchronized (orden) {
+                    comprobarRegistrado(vecino);
+                    v = visitas.anadir(ID_VISITA.getAndIncrement(datos), vecino, fecha, descripcion, importe, administrador);
+                    visitasPorFecha.anadir(dia(fecha), v.getPosicion());
+                    agregados.visitaCreada(v.getImporteCentimos());
+                    anotar(Operacion.Tipo.CREAR_VISITA, vecino.getDni(), fecha, descripcion, importe, administrador);
+                    publicar(EventoCambio.Tipo.ALTA, v, v.getPosicion());
+                }
+                indexarPendiente(clave(vecino), v.getPosicion());
+                return v;
+            });
+        });
+    }
 
-        FichaVisita v = new FichaVisita(datos.nextVisitaId++, vecino, fecha, descripcion, importe, administrador);
-        datos.visitas.add(v);
-        return v;
+    /**
+     * Instantánea de coste constante: las visitas que había al llamar, cuyas fichas se crean a medida que
+     * se consultan. El estado de cada visita sí es el actual (una pendiente puede aparecer ya pagada).
+     */
+    public List<FichaVisita> getVisitas() {
+        return medido(OperacionGestor.GET_VISITAS, () -> {
+            synchronized (orden) {
+                return new ListaInstantanea<>(visitas, orden);
+            }
+        });
     }
 
-    public List<FichaVisita> getVisitas() { return new ArrayList<>(datos.visitas); }
+    /**
+     * Visitas con fecha entre desde y hasta (ambas incluidas), en orden de fecha. Busca en el índice por fechas:
+     * el coste es proporcional a las visitas del periodo, no al histórico. Es una instantánea, como
+     * {@link #getVisitas()}, cuyas fichas se crean al recorrerla.
+     */
+    public Periodo<FichaVisita> getVisitasEntre(LocalDate desde, LocalDate hasta) {
+        return medido(OperacionGestor.GET_VISITAS_ENTRE, () -> {
+            comprobarPeriodo(desde, hasta);
+            synchronized (orden) {
+                return new Periodo<>(visitasPorFecha.tramo(dia(desde), dia(hasta)), visitas::get);
+            }
+        });
+    }
+
+    public Periodo<FichaVisita> getVisitasDelMes(YearMonth mes) {
+        return getVisitasEntre(mes.atDay(1), mes.atEndOfMonth());
+    }
 
+    private static void comprobarPeriodo(LocalDate desde, LocalDate hasta) {
+        if (desde == null || hasta == null) throw new IllegalArgumentException("Debe indicar las fechas del periodo.");
+        if (hasta.isBefore(desde)) throw new IllegalArgumentException("La fecha final es anterior a la inicial.");
+    }
+
+    /** Coste proporcional a las visitas pendientes del vecino, no al histórico. */
     public List<FichaVisita> getVisitasPendientes(Vecino vecino) {
-        return datos.visitas.stream()
-                .filter(v -> v.getVecino().equals(vecino) && v.getEstado() == EstadoPago.IMPAGADA)
-                .collect(Collectors.toList());
+        return medido(OperacionGestor.GET_VISITAS_PENDIENTES, () -> {
+            if (vecino == null) return new ArrayList<>();
+            String key = clave(vecino);
+            return consultaEn(franja(key), () -> fichasPendientes(key));
+        });
+    }
+
+    /** Importe pendiente de facturar del vecino: suma directa sobre la columna de importes. */
+    public double getImportePendiente(Vecino vecino) {
+        return medido(OperacionGestor.GET_IMPORTE_PENDIENTE, () -> {
+            if (vecino == null) return 0.0;
+            String key = clave(vecino);
+            return consultaEn(franja(key), () -> {
+                Posiciones pendientes = pendientesPorDni.get(key);
+                return pendientes == null ? 0.0 : Dinero.euros(visitas.sumarCentimosPendientes(pendientes.valores(), pendientes.size()));
+            });
+        });
+    }
+
+    /** Las pendientes del DNI, sin las que se hayan marcado pagadas fuera de crearFactura; con su franja. */
+    private Posiciones pendientesAlDia(String key) {
+        Posiciones pendientes = pendientesPorDni.get(key);
+        if (pendientes != null) pendientes.retener(i -> !visitas.pagadaEn(i));
+        return pendientes;
+    }
+
+    /** Fichas de {@link #pendientesAlDia}; con la franja del DNI. */
+    private List<FichaVisita> fichasPendientes(String key) {
+        Posiciones pendientes = pendientesAlDia(key);
+        List<FichaVisita> lista = new ArrayList<>(pendientes == null ? 0 : pendientes.size());
+        for (int k = 0; pendientes != null && k < pendientes.size(); k++) lista.add(visitas.get(pendientes.get(k)));
+        return lista;
     }
 
     // --- Facturación (batch) ---
     public Factura crearFactura(Vecino vecino, LocalDate fechaFactura) {
-        Objects.requireNonNull(vecino, "vecino");
-        if (fechaFactura == null) throw new IllegalArgumentException("Debe indicar la fecha de la factura.");
-        List<FichaVisita> pendientes = getVisitasPendientes(vecino);
-        if (pendientes.isEmpty()) {
-            throw new IllegalStateException("El vecino no tiene visitas pendientes.");
+        return medido(OperacionGestor.CREAR_FACTURA, () -> {
+            Objects.requireNonNull(vecino, "vecino");
+            if (fechaFactura == null) throw new IllegalArgumentException("Debe indicar la fecha de la factura.");
+            String key = clave(vecino);
+            return conBloqueo(franja(key), () -> {
+                synchronized (orden) {
+                    comprobarRegistrado(vecino);
+                }
+                List<FichaVisita> pendientes = fichasPendientes(key);
+                if (pendientes.isEmpty()) {
+                    throw new IllegalStateException("El vecino no tiene visitas pendientes.");
+                }
+
+                for (FichaVisita v : pendientes) v.marcarPagada();
+                pendientesPorDni.remove(key);
+
+                synchronized (orden) {
+                    Factura f = new Factura(ID_FACTURA.getAndIncrement(datos), fechaFactura, vecino, pendientes);
+                    facturasPorId.poner(f.getId(), datos.facturas.size());
+                    facturasPorFecha.anadir(dia(fechaFactura), datos.facturas.size());
+                    datos.facturas.add(f);
+                    agregados.visitasFacturadas(pendientes.size(), f.getTotalCentimos());
+                    anotar(Operacion.Tipo.CREAR_FACTURA, vecino.getDni(), fechaFactura);
+                    publicarPagadas(pendientes);
+                    publicar(EventoCambio.Tipo.ALTA, f, datos.facturas.size() - 1);
+                    return f;
+                }
+            });
+        });
+    }
+
+    /**
+     * Factura de una vez las visitas pendientes de todos los vecinos.
+     * - Las pendientes de cada vecino se reúnen en paralelo (fork-join): son independientes.
+     * - Los ids de factura se asignan después, en orden de DNI, para que el resultado sea determinista.
+     * - Se aplica y se anota como una sola operación, en exclusiva: o se crean todas las facturas o ninguna.
+     */
+    public ResumenFacturacion facturarTodos(LocalDate fechaFactura) {
+        return medido(OperacionGestor.FACTURAR_TODOS, () -> {
+            if (fechaFactura == null) throw new IllegalArgumentException("Debe indicar la fecha de la factura.");
+            return enExclusiva(() -> {
+                comprobarRegistro();
+                long inicio = System.nanoTime();
+
+                String[] dnis = pendientesPorDni.keySet().toArray(new String[0]);
+                Arrays.sort(dnis);
+                List<List<FichaVisita>> pendientes = new ArrayList<>(Collections.nCopies(dnis.length, null));
+                ForkJoinPool.commonPool().invoke(new ReunirPendientes(dnis, pendientes, 0, dnis.length));
+
+                List<Factura> creadas = new ArrayList<>();
+                int numVisitas = 0;
+                long total = 0;
+                synchronized (orden) {
+                    for (int i = 0; i < dnis.length; i++) {
+                        List<FichaVisita> delVecino = pendientes.get(i);
+                        if (delVecino.isEmpty()) continue;
+                        Vecino vecino = delVecino.get(0).getVecino();
+                        for (FichaVisita v : delVecino) v.marcarPagada();
+                        Factura f = new Factura(ID_FACTURA.getAndIncrement(datos), fechaFactura, vecino, delVecino);
+                        facturasPorId.poner(f.getId(), datos.facturas.size());
+                        facturasPorFecha.anadir(dia(fechaFactura), datos.facturas.size());
+                        datos.facturas.add(f);
+                        creadas.add(f);
+                        numVisitas += delVecino.size();
+                        total = Dinero.sumar(total, f.getTotalCentimos());
+                    }
+                    agregados.visitasFacturadas(numVisitas, total);
+                    pendientesPorDni.clear();
+                    if (!creadas.isEmpty()) anotar(Operacion.Tipo.FACTURAR_TODOS, fechaFactura);
+                    int primera = datos.facturas.size() - creadas.size();
+                    for (int i = 0; i < creadas.size(); i++) {
+                        publicarPagadas(creadas.get(i).getVisitas());
+                        publicar(EventoCambio.Tipo.ALTA, creadas.get(i), primera + i);
+                    }
+                }
+                return new ResumenFacturacion(creadas, numVisitas, total, Duration.ofNanos(System.nanoTime() - inicio));
+            });
+        });
+    }
+
+    /** Reúne las visitas pendientes de un tramo de vecinos; cada hoja escribe solo sus posiciones. */
+    private final class ReunirPendientes extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int UMBRAL = 256;
+        private final String[] dnis;
+        private final List<List<FichaVisita>> pendientes; // de tamaño fijo: solo set, sin añadir
+        private final int desde, hasta;
+
+        ReunirPendientes(String[] dnis, List<List<FichaVisita>> pendientes, int desde, int hasta) {
+            this.dnis = dnis;
+            this.pendientes = pendientes;
+            this.desde = desde;
+            this.hasta = hasta;
         }
 
-        for (FichaVisita v : pendientes) {
-            v.marcarPagada();
+        @Override
+        protected void compute() {
+            if (hasta - desde <= UMBRAL) {
+                for (int i = desde; i < hasta; i++) {
+                    Posiciones posiciones = pendientesAlDia(dnis[i]);
+                    List<FichaVisita> lista = new ArrayList<>(posiciones.size());
+                    for (int k = 0; k < posiciones.size(); k++) lista.add(visitas.get(posiciones.get(k)));
+                    pendientes.set(i, lista);
+                }
+                return;
+            }
+            int medio = (desde + hasta) >>> 1;
+            invokeAll(new ReunirPendientes(dnis, pendientes, desde, medio),
+                      new ReunirPendientes(dnis, pendientes, medio, hasta));
         }
+    }
+
+    /** Instantánea de coste constante, como {@link #getVisitas()}. */
+    public List<Factura> getFacturas() {
+        return medido(OperacionGestor.GET_FACTURAS, () -> {
+            synchronized (orden) {
+                return new ListaInstantanea<>(datos.facturas, orden);
+            }
+        });
+    }
+
+    /** Facturas con fecha entre desde y hasta (ambas incluidas), como {@link #getVisitasEntre}. */
+    public Periodo<Factura> getFacturasEntre(LocalDate desde, LocalDate hasta) {
+        return medido(OperacionGestor.GET_FACTURAS_ENTRE, () -> {
+            comprobarPeriodo(desde, hasta);
+            synchronized (orden) {
+                return new Periodo<>(facturasPorFecha.tramo(dia(desde), dia(hasta)), this::facturaEn);
+            }
+        });
+    }
+
+    public Periodo<Factura> getFacturasDelMes(YearMonth mes) {
+        return getFacturasEntre(mes.atDay(1), mes.atEndOfMonth());
+    }
+
+    private Factura facturaEn(int i) {
+        synchronized (orden) {
+            return datos.facturas.get(i);
+        }
+    }
 
-        Factura f = new Factura(datos.nextFacturaId++, fechaFactura, vecino, pendientes);
-        datos.facturas.add(f);
-        return f;
+    // --- Importación por lotes ---
+
+    /**
+     * Registra un lote de vecinos (importaciones). DNI y teléfono se validan en paralelo, sin cerrojos;
+     * después, en exclusiva, se dan de alta los válidos con una sola actualización de los agregados.
+     * Cada alta se anota y se notifica como con {@link #registrarVecino}.
+     * Devuelve, por posición en el lote, el motivo del rechazo o null si se registró.
+     */
+    public String[] registrarVecinos(LoteVecinos lote) {
+        return medido(OperacionGestor.REGISTRAR_VECINOS, () -> {
+            int n = lote.size();
+            String[] motivos = new String[n];
+            IntStream.range(0, n).parallel().forEach(i -> motivos[i] = lote.nombre(i) == null
+                    ? "Debe indicar el nombre." : motivoRechazoVecino(lote.dni(i), lote.telefono(i)));
+            enExclusiva(() -> {
+                comprobarRegistro();
+                synchronized (orden) {
+                    int registrados = 0;
+                    for (int i = 0; i < n; i++) {
+                        if (motivos[i] != null) continue;
+                        String key = lote.dni(i).trim().toUpperCase();
+                        if (datos.vecinosPorDni.containsKey(key)) { // también si se repite en el lote
+                            motivos[i] = "Ya existe un vecino con ese DNI.";
+                            continue;
+                        }
+                        Vecino v = new Vecino(key, lote.nombre(i), lote.direccion(i), lote.codigoPostal(i), lote.ciudad(i), lote.telefono(i));
+                        datos.vecinosPorDni.put(key, v);
+                        vecinosEnOrden.add(v);
+                        anotar(Operacion.Tipo.REGISTRAR_VECINO, key, v.getNombreApellidos(), lote.direccion(i), lote.codigoPostal(i), lote.ciudad(i), lote.telefono(i));
+                        publicar(EventoCambio.Tipo.ALTA, v, vecinosEnOrden.size() - 1);
+                        registrados++;
+                    }
+                    agregados.vecinosRegistrados(registrados);
+                }
+                return null;
+            });
+            return motivos;
+        });
     }
 
-    public List<Factura> getFacturas() { return new ArrayList<>(datos.facturas); }
+    /**
+     * Crea un lote de visitas (importaciones), como {@link #registrarVecinos}: los campos se validan en paralelo
+     * y las válidas de vecinos existentes se dan de alta en exclusiva, con una sola actualización de los agregados.
+     * Devuelve, por posición en el lote, el motivo del rechazo o null si se creó.
+     */
+    public String[] crearFichasVisita(LoteVisitas lote) {
+        return medido(OperacionGestor.CREAR_FICHAS_VISITA, () -> {
+            int n = lote.size();
+            String[] motivos = new String[n];
+            IntStream.range(0, n).parallel().forEach(i ->
+                    motivos[i] = motivoRechazoVisita(lote.fecha(i), lote.descripcion(i), lote.importe(i), lote.administrador(i)));
+            enExclusiva(() -> {
+                comprobarRegistro();
+                synchronized (orden) {
+                    int creadas = 0;
+                    long total = 0;
+                    for (int i = 0; i < n; i++) {
+                        if (motivos[i] != null) continue;
+                        Vecino vecino = lote.dni(i) == null ? null : datos.vecinosPorDni.get(lote.dni(i).trim().toUpperCase());
+                        if (vecino == null) {
+                            motivos[i] = "No existe un vecino con DNI " + lote.dni(i);
+                            continue;
+                        }
+                        FichaVisita v = visitas.anadir(ID_VISITA.getAndIncrement(datos), vecino, lote.fecha(i),
+                                lote.descripcion(i), lote.importe(i), lote.administrador(i));
+                        visitasPorFecha.anadir(dia(lote.fecha(i)), v.getPosicion());
+                        anotar(Operacion.Tipo.CREAR_VISITA, vecino.getDni(), lote.fecha(i), lote.descripcion(i), lote.importe(i), lote.administrador(i));
+                        publicar(EventoCambio.Tipo.ALTA, v, v.getPosicion());
+                        indexarPendiente(clave(vecino), v.getPosicion());
+                        creadas++;
+                        total = Dinero.sumar(total, v.getImporteCentimos());
+                    }
+                    agregados.visitasCreadas(creadas, total);
+                }
+                return null;
+            });
+            return motivos;
+        });
+    }
 
     // --- Profesores / Cursos / Inscripciones ---
     public Profesor registrarProfesor(String nombre, String apellidos, String direccion, String telefono, double sueldo) {
-        Profesor p = new Profesor(nombre, apellidos, direccion, telefono, sueldo);
-        datos.profesores.add(p);
-        return p;
+        return medido(OperacionGestor.REGISTRAR_PROFESOR, () -> conBloqueo(cerrojoCursos, () -> {
+            Profesor p = new Profesor(ID_PROFESOR.getAndIncrement(datos), nombre, apellidos, direccion, telefono, sueldo);
+            profesoresPorId.poner(p.getId(), datos.profesores.size());
+            datos.profesores.add(p);
+            synchronized (orden) {
+                anotar(Operacion.Tipo.REGISTRAR_PROFESOR, nombre, apellidos, direccion, telefono, sueldo);
+                publicar(EventoCambio.Tipo.ALTA, p, datos.profesores.size() - 1);
+            }
+            return p;
+        }));
+    }
+
+    /** Copia de la lista actual (las listas pequeñas se copian enteras). */
+    public List<Profesor> getProfesores() {
+        return medido(OperacionGestor.GET_PROFESORES, () -> copia(cerrojoCursos, datos.profesores));
     }
 
-    public List<Profesor> getProfesores() { return new ArrayList<>(datos.profesores); }
+    public void modificarProfesor(Profesor p, String nombre, String apellidos, String direccion, String telefono, double sueldo) {
+        medido(OperacionGestor.MODIFICAR_PROFESOR, () -> conBloqueo(cerrojoCursos, () -> {
+            int i = indiceDe(datos.profesores, profesoresPorId, Profesor::getId, p, "El profesor no está registrado.");
+            p.setNombre(nombre);
+            p.setApellidos(apellidos);
+            p.setDireccion(direccion);
+            p.setTelefono(telefono);
+            p.setSueldo(sueldo);
+            synchronized (orden) {
+                anotar(Operacion.Tipo.MODIFICAR_PROFESOR, p.getId(), nombre, apellidos, direccion, telefono, sueldo);
+                publicar(EventoCambio.Tipo.MODIFICACION, p, i);
+            }
+        }));
+    }
 
+    /** Quita el profesor en O(1): el último de la lista pasa a su posición. */
     public void eliminarProfesor(Profesor p) {
-        datos.profesores.remove(p);
+        medido(OperacionGestor.ELIMINAR_PROFESOR, () -> conBloqueo(cerrojoCursos, () -> {
+            int i = posicionDe(datos.profesores, profesoresPorId, Profesor::getId, p);
+            if (i >= 0) quitar(datos.profesores, profesoresPorId, Profesor::getId, i, Operacion.Tipo.ELIMINAR_PROFESOR);
+        }));
     }
 
     public Curso crearCurso(String nombre, double precio, int maxVecinos, LocalDate inicio, LocalDate fin) {
-        if (nombre == null || nombre.trim().isEmpty()) throw new IllegalArgumentException("Nombre de curso obligatorio.");
-        if (maxVecinos <= 0) throw new IllegalArgumentException("El máximo de vecinos debe ser > 0.");
-        if (fin.isBefore(inicio)) throw new IllegalArgumentException("La fecha de fin no puede ser anterior a la de inicio.");
-        Curso c = new Curso(nombre.trim(), precio, maxVecinos, inicio, fin);
-        datos.cursos.add(c);
-        return c;
+        return medido(OperacionGestor.CREAR_CURSO, () -> {
+            if (nombre == null || nombre.trim().isEmpty()) throw new IllegalArgumentException("Nombre de curso obligatorio.");
+            if (maxVecinos <= 0) throw new IllegalArgumentException("El máximo de vecinos debe ser > 0.");
+            if (fin.isBefore(inicio)) throw new IllegalArgumentException("La fecha de fin no puede ser anterior a la de inicio.");
+            return conBloqueo(cerrojoCursos, () -> {
+                Curso c = new Curso(nombre.trim(), precio, maxVecinos, inicio, fin);
+                datos.cursos.add(c);
+                synchronized (orden) {
+                    anotar(Operacion.Tipo.CREAR_CURSO, nombre, precio, maxVecinos, inicio, fin);
+                    publicar(EventoCambio.Tipo.ALTA, c, datos.cursos.size() - 1);
+                }
+                return c;
+            });
+        });
     }
 
-    public List<Curso> getCursos() { return new ArrayList<>(datos.cursos); }
+    public List<Curso> getCursos() {
+        return medido(OperacionGestor.GET_CURSOS, () -> copia(cerrojoCursos, datos.cursos));
+    }
 
     public Materia addMateriaACurso(Curso curso, String nombreMateria, int horas, Profesor profesor) {
-        Objects.requireNonNull(curso, "curso");
-        if (nombreMateria == null || nombreMateria.trim().isEmpty()) throw new IllegalArgumentException("Nombre de materia obligatorio.");
-        if (horas <= 0) throw new IllegalArgumentException("Horas debe ser > 0.");
-        Materia m = new Materia(nombreMateria.trim(), horas, Objects.requireNonNull(profesor, "profesor"));
-        curso.addMateria(m);
-        return m;
+        return medido(OperacionGestor.ADD_MATERIA_A_CURSO, () -> {
+            Objects.requireNonNull(curso, "curso");
+            if (nombreMateria == null || nombreMateria.trim().isEmpty()) throw new IllegalArgumentException("Nombre de materia obligatorio.");
+            if (horas <= 0) throw new IllegalArgumentException("Horas debe ser > 0.");
+            return conBloqueo(cerrojoCursos, () -> {
+                int iCurso = indiceDe(datos.cursos, curso, "El curso no está registrado.");
+                indiceDe(datos.profesores, profesoresPorId, Profesor::getId,
+                        Objects.requireNonNull(profesor, "profesor"), "El profesor no está registrado.");
+                Materia m = new Materia(nombreMateria.trim(), horas, profesor);
+                curso.addMateria(m);
+                synchronized (orden) {
+                    anotar(Operacion.Tipo.ADD_MATERIA, iCurso, nombreMateria, horas, profesor.getId());
+                    publicar(EventoCambio.Tipo.MODIFICACION, curso, iCurso);
+                }
+                return m;
+            });
+        });
     }
 
     public void inscribirVecinoEnCurso(Vecino vecino, Curso curso) {
-        Objects.requireNonNull(vecino, "vecino");
-        Objects.requireNonNull(curso, "curso");
-        curso.inscribir(vecino);
+        medido(OperacionGestor.INSCRIBIR_VECINO_EN_CURSO, () -> {
+            Objects.requireNonNull(vecino, "vecino");
+            Objects.requireNonNull(curso, "curso");
+            conBloqueo(cerrojoCursos, () -> {
+                int iCurso = indiceDe(datos.cursos, curso, "El curso no está registrado.");
+                synchronized (orden) {
+                    comprobarRegistrado(vecino);
+                }
+                curso.inscribir(vecino);
+                synchronized (orden) {
+                    anotar(Operacion.Tipo.INSCRIBIR_VECINO, vecino.getDni(), iCurso);
+                    publicar(EventoCambio.Tipo.MODIFICACION, curso, iCurso);
+                }
+            });
+        });
     }
 
     // --- Auditores / Auditorías / Materiales ---
     public Auditor registrarAuditor(String nombre, String apellidos, String cif, String empresa, String direccionEmpresa, String telefono) {
-        Auditor a = new Auditor(nombre, apellidos, cif, empresa, direccionEmpresa, telefono);
-        datos.auditores.add(a);
-        return a;
+        return medido(OperacionGestor.REGISTRAR_AUDITOR, () -> conBloqueo(cerrojoAuditorias, () -> {
+            Auditor a = new Auditor(ID_AUDITOR.getAndIncrement(datos), nombre, apellidos, cif, empresa, direccionEmpresa, telefono);
+            auditoresPorId.poner(a.getId(), datos.auditores.size());
+            datos.auditores.add(a);
+            synchronized (orden) {
+                anotar(Operacion.Tipo.REGISTRAR_AUDITOR, nombre, apellidos, cif, empresa, direccionEmpresa, telefono);
+                publicar(EventoCambio.Tipo.ALTA, a, datos.auditores.size() - 1);
+            }
+            return a;
+        }));
     }
 
-    public List<Auditor> getAuditores() { return new ArrayList<>(datos.auditores); }
+    public List<Auditor> getAuditores() {
+        return medido(OperacionGestor.GET_AUDITORES, () -> copia(cerrojoAuditorias, datos.auditores));
+    }
+
+    public void modificarAuditor(Auditor a, String nombre, String apellidos, String cif, String empresa, String direccionEmpresa, String telefono) {
+        medido(OperacionGestor.MODIFICAR_AUDITOR, () -> conBloqueo(cerrojoAuditorias, () -> {
+            int i = indiceDe(datos.auditores, auditoresPorId, Auditor::getId, a, "El auditor no está registrado.");
+            a.setNombre(nombre);
+            a.setApellidos(apellidos);
+            a.setCifEmpresa(cif);
+            a.setNombreEmpresa(empresa);
+            a.setDireccionEmpresa(direccionEmpresa);
+            a.setTelefono(telefono);
+            synchronized (orden) {
+                anotar(Operacion.Tipo.MODIFICAR_AUDITOR, a.getId(), nombre, apellidos, cif, empresa, direccionEmpresa, telefono);
+                publicar(EventoCambio.Tipo.MODIFICACION, a, i);
+            }
+        }));
+    }
 
+    /** Quita el auditor en O(1): el último de la lista pasa a su posición. */
     public void eliminarAuditor(Auditor a) {
-        datos.auditores.remove(a);
+        medido(OperacionGestor.ELIMINAR_AUDITOR, () -> conBloqueo(cerrojoAuditorias, () -> {
+            int i = posicionDe(datos.auditores, auditoresPorId, Auditor::getId, a);
+            if (i >= 0) quitar(datos.auditores, auditoresPorId, Auditor::getId, i, Operacion.Tipo.ELIMINAR_AUDITOR);
+        }));
     }
 
     public Auditoria crearAuditoria(Auditor auditor, LocalDate fechaCreacion) {
-        Objects.requireNonNull(auditor, "auditor");
-        if (fechaCreacion == null) throw new IllegalArgumentException("Debe indicar la fecha de creación de la auditoría.");
-        Auditoria au = new Auditoria(datos.nextAuditoriaId++, auditor, fechaCreacion);
-        datos.auditorias.add(au);
-        return au;
+        return medido(OperacionGestor.CREAR_AUDITORIA, () -> {
+            Objects.requireNonNull(auditor, "auditor");
+            if (fechaCreacion == null) throw new IllegalArgumentException("Debe indicar la fecha de creación de la auditoría.");
+            return conBloqueo(cerrojoAuditorias, () -> {
+                indiceDe(datos.auditores, auditoresPorId, Auditor::getId, auditor, "El auditor no está registrado.");
+                synchronized (orden) {
+                    Auditoria au = new Auditoria(ID_AUDITORIA.getAndIncrement(datos), auditor, fechaCreacion);
+                    auditoriasPorId.poner(au.getId(), datos.auditorias.size());
+                    datos.auditorias.add(au);
+                    anotar(Operacion.Tipo.CREAR_AUDITORIA, auditor.getId(), fechaCreacion);
+                    publicar(EventoCambio.Tipo.ALTA, au, datos.auditorias.size() - 1);
+                    return au;
+                }
+            });
+        });
     }
 
-    public List<Auditoria> getAuditorias() { return new ArrayList<>(datos.auditorias); }
+    public List<Auditoria> getAuditorias() {
+        return medido(OperacionGestor.GET_AUDITORIAS, () -> copia(cerrojoAuditorias, datos.auditorias));
+    }
 
     public void asignarVisitasAAuditoria(Auditoria auditoria, List<FichaVisita> visitasAAsignar) {
-        Objects.requireNonNull(auditoria, "auditoria");
-        Objects.requireNonNull(visitasAAsignar, "visitasAAsignar");
-        for (FichaVisita v : visitasAAsignar) {
-            auditoria.asignarVisita(v);
-        }
+        medido(OperacionGestor.ASIGNAR_VISITAS_A_AUDITORIA, () -> {
+            Objects.requireNonNull(auditoria, "auditoria");
+            List<FichaVisita> lote = List.copyOf(visitasAAsignar);
+            conBloqueo(cerrojoAuditorias, () -> {
+                // Todo se comprueba antes de aplicar: el lote se asigna y se anota entero o no se toca.
+                int i = indiceDe(datos.auditorias, auditoriasPorId, Auditoria::getId, auditoria, "La auditoría no está registrada.");
+                for (FichaVisita v : lote) comprobarRegistrada(v);
+                if (lote.isEmpty()) return;
+                auditoria.asignarVisitas(lote);
+                synchronized (orden) {
+                    for (FichaVisita v : lote) anotar(Operacion.Tipo.ASIGNAR_VISITA, auditoria.getId(), v.getId());
+                    publicar(EventoCambio.Tipo.MODIFICACION, auditoria, i);
+                }
+            });
+        });
     }
 
     public void finalizarAuditoria(Auditoria auditoria, LocalDate fechaFin) {
-        Objects.requireNonNull(auditoria, "auditoria");
-        auditoria.cerrar(fechaFin);
+        medido(OperacionGestor.FINALIZAR_AUDITORIA, () -> {
+            Objects.requireNonNull(auditoria, "auditoria");
+            conBloqueo(cerrojoAuditorias, () -> {
+                int i = indiceDe(datos.auditorias, auditoriasPorId, Auditoria::getId, auditoria, "La auditoría no está registrada.");
+                boolean abierta = !auditoria.estaCerrada();
+                auditoria.cerrar(fechaFin);
+                if (!abierta) return; // cerrar es idempotente
+                synchronized (orden) {
+                    anotar(Operacion.Tipo.FINALIZAR_AUDITORIA, auditoria.getId(), fechaFin);
+                    publicar(EventoCambio.Tipo.MODIFICACION, auditoria, i);
+                }
+            });
+        });
     }
 
     public Material registrarMaterial(String nombre, double precio) {
-        Material m = new Material(nombre, precio);
-        datos.repositorioMateriales.add(m);
-        return m;
+        return medido(OperacionGestor.REGISTRAR_MATERIAL, () -> conBloqueo(cerrojoAuditorias, () -> {
+            Material m = new Material(ID_MATERIAL.getAndIncrement(datos), nombre, precio);
+            materialesPorId.poner(m.getId(), datos.repositorioMateriales.size());
+            datos.repositorioMateriales.add(m);
+            synchronized (orden) {
+                anotar(Operacion.Tipo.REGISTRAR_MATERIAL, nombre, precio);
+                publicar(EventoCambio.Tipo.ALTA, m, datos.repositorioMateriales.size() - 1);
+            }
+            return m;
+        }));
     }
 
-    public List<Material> getRepositorioMateriales() { return new ArrayList<>(datos.repositorioMateriales); }
-    
-    // NUEVO MÉTODO
+    public List<Material> getRepositorioMateriales() {
+        return medido(OperacionGestor.GET_REPOSITORIO_MATERIALES, () -> copia(cerrojoAuditorias, datos.repositorioMateriales));
+    }
+
+    public void modificarMaterial(Material m, String nombre, double precio) {
+        medido(OperacionGestor.MODIFICAR_MATERIAL, () -> conBloqueo(cerrojoAuditorias, () -> {
+            int i = indiceDe(datos.repositorioMateriales, materialesPorId, Material::getId, m, "El material no está registrado.");
+            m.setNombre(nombre);
+            m.setPrecio(precio);
+            synchronized (orden) {
+                anotar(Operacion.Tipo.MODIFICAR_MATERIAL, m.getId(), nombre, precio);
+                publicar(EventoCambio.Tipo.MODIFICACION, m, i);
+            }
+        }));
+    }
+
+    /** Quita el material del repositorio en O(1): el último pasa a su posición. */
     public void eliminarMaterial(Material m) {
-        datos.repositorioMateriales.remove(m);
+        medido(OperacionGestor.ELIMINAR_MATERIAL, () -> conBloqueo(cerrojoAuditorias, () -> {
+            int i = posicionDe(datos.repositorioMateriales, materialesPorId, Material::getId, m);
+            if (i >= 0) quitar(datos.repositorioMateriales, materialesPorId, Material::getId, i, Operacion.Tipo.ELIMINAR_MATERIAL);
+        }));
     }
 
     public void asignarMaterialAAuditoria(Auditoria auditoria, Material material) {
-        Objects.requireNonNull(auditoria, "auditoria");
-        Objects.requireNonNull(material, "material");
-        auditoria.asignarMaterial(material);
+        medido(OperacionGestor.ASIGNAR_MATERIAL_A_AUDITORIA, () -> {
+            Objects.requireNonNull(auditoria, "auditoria");
+            Objects.requireNonNull(material, "material");
+            conBloqueo(cerrojoAuditorias, () -> {
+                int i = indiceDe(datos.auditorias, auditoriasPorId, Auditoria::getId, auditoria, "La auditoría no está registrada.");
+                indiceDe(datos.repositorioMateriales, materialesPorId, Material::getId, material, "El material no está registrado.");
+                auditoria.asignarMaterial(material);
+                synchronized (orden) {
+                    anotar(Operacion.Tipo.ASIGNAR_MATERIAL, auditoria.getId(), material.getId());
+                    publicar(EventoCambio.Tipo.MODIFICACION, auditoria, i);
+                }
+            });
+        });
+    }
+
+    // --- Reproducción del diario ---
+
+    /**
+     * Reaplica una operación anotada previamente, en exclusiva. No se vuelve a anotar en el registro.
+     * Las operaciones ya incluidas en los datos (secuencia <= secuenciaDiario) se ignoran; si falta alguna
+     * entre los datos y esta, se lanza IllegalStateException sin aplicar nada.
+     */
+    public void aplicar(Operacion op) {
+        medido(OperacionGestor.APLICAR, () -> enExclusiva(() -> {
+            RegistroOperaciones actual;
+            synchronized (orden) {
+                if (op.getSecuencia() <= datos.secuenciaDiario) return null;
+                if (op.getSecuencia() != datos.secuenciaDiario + 1) {
+                    throw new IllegalStateException("Falta la operación #" + (datos.secuenciaDiario + 1)
+                            + " antes de la #" + op.getSecuencia() + ".");
+                }
+                actual = registro;
+                registro = null;
+            }
+            try {
+                reproducir(op);
+            } finally {
+                synchronized (orden) {
+                    datos.secuenciaDiario = op.getSecuencia();
+                    registro = actual;
+                }
+            }
+            return null;
+        }));
+    }
+
+    /**
+     * Ejecuta como nueva una operación llegada de fuera (p. ej. de otro puesto por la red): se valida,
+     * se anota y se notifica igual que si se hubiera llamado al método. Su secuencia se ignora.
+     * Devuelve la secuencia asignada, o 0 si no cambió nada.
+     */
+    public long ejecutar(Operacion op) {
+        return medido(OperacionGestor.EJECUTAR, () -> {
+            long[] secuencia = new long[1];
+            ejecutada.set(secuencia);
+            try {
+                reproducir(op);
+            } finally {
+                ejecutada.remove();
+            }
+            return secuencia[0];
+        });
+    }
+
+    private void reproducir(Operacion op) {
+        switch (op.getTipo()) {
+            case REGISTRAR_VECINO:
+                registrarVecino(op.texto(0), op.texto(1), op.texto(2), op.texto(3), op.texto(4), op.texto(5));
+                break;
+            case CREAR_VISITA:
+                crearFichaVisita(vecinoPorDni(op.texto(0)), op.fecha(1), op.texto(2), op.decimal(3), op.texto(4));
+                break;
+            case CREAR_FACTURA:
+                crearFactura(vecinoPorDni(op.texto(0)), op.fecha(1));
+                break;
+            case REGISTRAR_PROFESOR:
+                registrarProfesor(op.texto(0), op.texto(1), op.texto(2), op.texto(3), op.decimal(4));
+                break;
+            case MODIFICAR_PROFESOR:
+                modificarProfesor(profesorPorId(op.entero(0)), op.texto(1), op.texto(2), op.texto(3), op.texto(4), op.decimal(5));
+                break;
+            case ELIMINAR_PROFESOR:
+                eliminarProfesor(profesorPorId(op.entero(0)));
+                break;
+            case CREAR_CURSO:
+                crearCurso(op.texto(0), op.decimal(1), op.entero(2), op.fecha(3), op.fecha(4));
+                break;
+            case ADD_MATERIA:
+                addMateriaACurso(enPosicion(cerrojoCursos, datos.cursos, op.entero(0)), op.texto(1), op.entero(2), profesorPorId(op.entero(3)));
+                break;
+            case INSCRIBIR_VECINO:
+                inscribirVecinoEnCurso(vecinoPorDni(op.texto(0)), enPosicion(cerrojoCursos, datos.cursos, op.entero(1)));
+                break;
+            case REGISTRAR_AUDITOR:
+                registrarAuditor(op.texto(0), op.texto(1), op.texto(2), op.texto(3), op.texto(4), op.texto(5));
+                break;
+            case MODIFICAR_AUDITOR:
+                modificarAuditor(auditorPorId(op.entero(0)), op.texto(1), op.texto(2), op.texto(3), op.texto(4), op.texto(5), op.texto(6));
+                break;
+            case ELIMINAR_AUDITOR:
+                eliminarAuditor(auditorPorId(op.entero(0)));
+                break;
+            case CREAR_AUDITORIA:
+                crearAuditoria(auditorPorId(op.entero(0)), op.fecha(1));
+                break;
+            case ASIGNAR_VISITA:
+                asignarVisitasAAuditoria(auditoriaPorId(op.entero(0)), List.of(visitaPorId(op.entero(1))));
+                break;
+            case FINALIZAR_AUDITORIA:
+                finalizarAuditoria(auditoriaPorId(op.entero(0)), op.fecha(1));
+                break;
+            case REGISTRAR_MATERIAL:
+                registrarMaterial(op.texto(0), op.decimal(1));
+                break;
+            case MODIFICAR_MATERIAL:
+                modificarMaterial(materialPorId(op.entero(0)), op.texto(1), op.decimal(2));
+                break;
+            case ELIMINAR_MATERIAL:
+                eliminarMaterial(materialPorId(op.entero(0)));
+                break;
+            case FACTURAR_TODOS:
+                facturarTodos(op.fecha(0));
+                break;
+            case ASIGNAR_MATERIAL:
+                asignarMaterialAAuditoria(auditoriaPorId(op.entero(0)), materialPorId(op.entero(1)));
+                break;
+        }
     }
-}
\ No newline at end of file
+}
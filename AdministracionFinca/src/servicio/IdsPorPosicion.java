@@ -0,0 +1,9 @@
+package servicio;
+
+/**
+ * Lista de entidades con id que da el id de cada posición sin construir la entidad. El gestor la usa para
+ * indexar por id listas cargadas de forma perezosa (como las facturas de un fichero proyectado).
+ */
+public interface IdsPorPosicion {
+    int idEn(int posicion);
+}
@@ -0,0 +1,144 @@
+package servicio;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Posiciones de una lista que solo crece (visitas o facturas), ordenadas por día (desde la época).
+ *
+ * - Cada entrada es un long: día en los 32 bits altos y posición en los bajos, así que ordenar las claves
+ *   ordena por día y, dentro del día, por orden de alta. Sin objetos por entrada.
+ * - Dos tramos ordenados: el principal, al que se añade por el final si la fecha no retrocede (lo normal:
+ *   se registra lo de hoy), y uno pequeño de recientes para las altas con fecha atrasada, que se funde con
+ *   el principal (en un array nuevo) cuando se llena. Su capacidad es la raíz del principal: así cada alta
+ *   cuesta, de media, del orden de esa raíz.
+ * - Una consulta por fechas hace dos bisecciones y solo toca las entradas del periodo.
+ * - No es seguro entre hilos: lo protege el cerrojo de la lista indexada. Los {@link Tramo} devueltos siguen
+ *   siendo válidos aunque después se añadan entradas: el array principal solo se escribe más allá de lo
+ *   ya publicado, o se sustituye.
+ */
+final class IndiceFechas {
+
+    private static final int MIN_RECIENTES = 256;
+
+    private long[] principal;
+    private int numPrincipal;
+    private long[] recientes = new long[MIN_RECIENTES];
+    private int numRecientes;
+
+    private IndiceFechas(long[] principal, int numPrincipal) {
+        this.principal = principal;
+        this.numPrincipal = numPrincipal;
+        ajustarRecientes();
+    }
+
+    /** Índice de las posiciones 0..n-1, con el día de cada una; ordena una sola vez. */
+    static IndiceFechas de(int n, IntUnaryOperator diaEn) {
+        long[] claves = new long[Math.max(16, n + n / 2)];
+        boolean ordenadas = true;
+        for (int i = 0; i < n; i++) {
+            claves[i] = clave(diaEn.applyAsInt(i), i);
+            if (i > 0 && claves[i] < claves[i - 1]) ordenadas = false;
+        }
+        if (!ordenadas) Arrays.parallelSort(claves, 0, n);
+        return new IndiceFechas(claves, n);
+    }
+
+    int size() {
+        return numPrincipal + numRecientes;
+    }
+
+    void anadir(int dia, int posicion) {
+        long clave = clave(dia, posicion);
+        if (numPrincipal == 0 || clave > principal[numPrincipal - 1]) {
+            if (numPrincipal == principal.length) principal = Arrays.copyOf(principal, numPrincipal + (numPrincipal >> 1) + 16);
+            principal[numPrincipal++] = clave;
+            return;
+        }
+        int i = -Arrays.binarySearch(recientes, 0, numRecientes, clave) - 1; // las posiciones no se repiten
+        System.arraycopy(recientes, i, recientes, i + 1, numRecientes - i);
+        recientes[i] = clave;
+        if (++numRecientes == recientes.length) fundir();
+    }
+
+    /** Entradas con día entre desde y hasta (ambos incluidos), en orden de día y de alta. */
+    Tramo tramo(int desde, int hasta) {
+        if (desde > hasta) return new Tramo(principal, 0, 0, new long[0]);
+        long inicio = clave(desde, 0);
+        long fin = hasta == Integer.MAX_VALUE ? Long.MAX_VALUE : clave(hasta + 1, 0);
+        int lo = primeraNoMenor(principal, numPrincipal, inicio), hi = primeraNoMenor(principal, numPrincipal, fin);
+        int rlo = primeraNoMenor(recientes, numRecientes, inicio), rhi = primeraNoMenor(recientes, numRecientes, fin);
+        // Los recientes se copian: se desplazan con cada alta atrasada (son pocos).
+        return new Tramo(principal, lo, hi, Arrays.copyOfRange(recientes, rlo, rhi));
+    }
+
+    private void fundir() {
+        long[] nuevo = new long[numPrincipal + numRecientes + ((numPrincipal + numRecientes) >> 1) + 16];
+        int i = 0, j = 0, k = 0;
+        while (i < numPrincipal && j < numRecientes) nuevo[k++] = principal[i] < recientes[j] ? principal[i++] : recientes[j++];
+        System.arraycopy(principal, i, nuevo, k, numPrincipal - i);
+        k += numPrincipal - i;
+        System.arraycopy(recientes, j, nuevo, k, numRecientes - j);
+        principal = nuevo; // array nuevo: los tramos ya entregados conservan el anterior
+        numPrincipal += numRecientes;
+        numRecientes = 0;
+        ajustarRecientes();
+    }
+
+    private void ajustarRecientes() {
+        int capacidad = Math.max(MIN_RECIENTES, (int) Math.sqrt(numPrincipal));
+        if (capacidad != recientes.length) recientes = new long[capacidad];
+    }
+
+    private static long clave(int dia, int posicion) {
+        return (long) dia << 32 | posicion;
+    }
+
+    private static int primeraNoMenor(long[] claves, int n, long clave) {
+        int lo = 0, hi = n;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (claves[mid] < clave) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /** Resultado de una consulta: se recorre fundiendo los dos tramos, sin copiar el principal. */
+    static final class Tramo {
+        private final long[] principal;
+        private final int desde, hasta;
+        private final long[] recientes;
+
+        private Tramo(long[] principal, int desde, int hasta, long[] recientes) {
+            this.principal = principal;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.recientes = recientes;
+        }
+
+        int size() {
+            return hasta - desde + recientes.length;
+        }
+
+        PrimitiveIterator.OfInt posiciones() {
+            return new PrimitiveIterator.OfInt() {
+                private int i = desde, j = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return i < hasta || j < recientes.length;
+                }
+
+                @Override
+                public int nextInt() {
+                    if (!hasNext()) throw new NoSuchElementException();
+                    long clave = j == recientes.length || (i < hasta && principal[i] < recientes[j]) ? principal[i++] : recientes[j++];
+                    return (int) clave;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package servicio;
+
+import modelo.EstadoPago;
+import modelo.FichaVisita;
+import modelo.HistoricoVisitas;
+import modelo.Vecino;
+
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido de texto sobre las visitas y los vecinos de un {@link GestorComunidad}.
+ *
+ * - Los términos son las palabras (letras y dígitos) de cada campo, sin tildes y en minúsculas:
+ *   "jardin" encuentra "Jardín".
+ * - Cada palabra de la consulta es un prefijo, y una entidad coincide si tiene todas ("jar poda").
+ * - Los documentos son posiciones en {@link GestorComunidad#getVisitas()} y {@link GestorComunidad#getVecinos()},
+ *   que no cambian porque visitas y vecinos no se dan de baja.
+ * - Se mantiene al día con los eventos del gestor. El único cambio que recibe es el paso a pagada;
+ *   los datos de un vecino no se modifican desde el gestor.
+ */
+public final class IndiceTexto implements OyenteCambios {
+
+    /** Campos de una visita, en el orden de las columnas de su tabla. */
+    public enum CampoVisita { ID, FECHA, VECINO, DESCRIPCION, IMPORTE, ADMINISTRADOR, ESTADO }
+
+    /** Campos de un vecino, en el orden de las columnas de su tabla. */
+    public enum CampoVecino { DNI, NOMBRE, DIRECCION, CODIGO_POSTAL, CIUDAD, TELEFONO }
+
+    private static final char[] PLIEGUE = new char[0x250]; // latín básico y extendido; 0 = separador
+    static {
+        for (char c = 0; c < PLIEGUE.length; c++) {
+            if (!Character.isLetterOrDigit(c)) continue;
+            char base = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD).charAt(0);
+            PLIEGUE[c] = Character.toLowerCase(Character.isLetterOrDigit(base) ? base : c);
+        }
+    }
+
+    private static final String PAGADA = normalizar(EstadoPago.PAGADA.toString());
+    private static final String IMPAGADA = normalizar(EstadoPago.IMPAGADA.toString());
+
+    private final GestorComunidad gestor;
+    private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+
+    // Visitas: diccionarios por campo de texto; id, vecino y estado aparte.
+    private final Map<CampoVisita, Diccionario> textoVisitas = new HashMap<>();
+    private int[] ids = new int[1024];
+    private int numVisitas;
+    private final BitSet pagadas = new BitSet();
+    private final List<Postings> visitasPorVecino = new ArrayList<>();
+
+    // Vecinos
+    private final Diccionario[] textoVecinos = new Diccionario[CampoVecino.values().length];
+    private final Map<Vecino, Integer> posicionVecino = new HashMap<>();
+
+    private IndiceTexto(GestorComunidad gestor) {
+        this.gestor = gestor;
+        for (CampoVisita c : new CampoVisita[]{CampoVisita.FECHA, CampoVisita.DESCRIPCION, CampoVisita.IMPORTE, CampoVisita.ADMINISTRADOR}) {
+            textoVisitas.put(c, new Diccionario());
+        }
+        for (int i = 0; i < textoVecinos.length; i++) textoVecinos[i] = new Diccionario();
+    }
+
+    /**
+     * Indexa todo lo que hay en el gestor y empieza a seguir sus cambios. Mientras tanto el gestor
+     * queda en exclusiva, para que ningún cambio se pierda entre el recorrido y la suscripción;
+     * las visitas se leen por columnas, sin crear sus fichas.
+     */
+    public static IndiceTexto construir(GestorComunidad gestor) {
+        IndiceTexto indice = new IndiceTexto(gestor);
+        gestor.enExclusiva(() -> {
+            List<Vecino> vecinos = gestor.getVecinos();
+            for (int i = 0; i < vecinos.size(); i++) indice.indexarVecino(i, vecinos.get(i));
+            HistoricoVisitas c = (HistoricoVisitas) gestor.getDatos().visitas;
+            for (int i = 0; i < c.size(); i++) {
+                indice.indexarVisita(i, c.idEn(i), c.vecinoEn(i), c.fechaEn(i), c.descripcionEn(i),
+                        c.importeEn(i), c.administradorEn(i), c.pagadaEn(i));
+            }
+            gestor.addOyente(indice);
+            return null;
+        });
+        return indice;
+    }
+
+    /** Deja de seguir los cambios del gestor. */
+    public void cerrar() {
+        gestor.removeOyente(this);
+    }
+
+    @Override
+    public void cambio(EventoCambio e) {
+        if (e.es(FichaVisita.class)) {
+            FichaVisita v = (FichaVisita) e.getEntidad();
+            if (e.getTipo() == EventoCambio.Tipo.ALTA) indexarVisita(e.getIndice(), v);
+            else if (e.getTipo() == EventoCambio.Tipo.MODIFICACION && v.getEstado() == EstadoPago.PAGADA) {
+                cerrojo.writeLock().lock();
+                try {
+                    pagadas.set(e.getIndice());
+                } finally {
+                    cerrojo.writeLock().unlock();
+                }
+            }
+        } else if (e.es(Vecino.class) && e.getTipo() == EventoCambio.Tipo.ALTA) {
+            indexarVecino(e.getIndice(), (Vecino) e.getEntidad());
+        }
+    }
+
+    private void indexarVisita(int posicion, FichaVisita v) {
+        indexarVisita(posicion, v.getId(), v.getVecino(), v.getFecha(), v.getDescripcion(), v.getImporte(),
+                v.getNombreAdministrador(), v.getEstado() == EstadoPago.PAGADA);
+    }
+
+    private void indexarVisita(int posicion, int id, Vecino vecino, LocalDate fecha, String descripcion,
+                               double importe, String administrador, boolean pagada) {
+        cerrojo.writeLock().lock();
+        try {
+            if (posicion == ids.length) ids = Arrays.copyOf(ids, ids.length * 2);
+            ids[posicion] = id;
+            numVisitas = posicion + 1;
+            if (pagada) pagadas.set(posicion);
+            Integer v = posicionVecino.get(vecino);
+            if (v != null) visitasPorVecino.get(v).anadir(posicion);
+            textoVisitas.get(CampoVisita.FECHA).anadir(fecha.toString(), posicion);
+            textoVisitas.get(CampoVisita.DESCRIPCION).anadir(descripcion, posicion);
+            textoVisitas.get(CampoVisita.IMPORTE).anadir(String.valueOf(importe), posicion);
+            textoVisitas.get(CampoVisita.ADMINISTRADOR).anadir(administrador, posicion);
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    private void indexarVecino(int posicion, Vecino v) {
+        cerrojo.writeLock().lock();
+        try {
+            posicionVecino.put(v, posicion);
+            while (visitasPorVecino.size() <= posicion) visitasPorVecino.add(new Postings());
+            String[] valores = {v.getDni(), v.getNombreApellidos(), v.getDireccion(), v.getCodigoPostal(), v.getCiudad(), v.getTelefono()};
+            for (int i = 0; i < valores.length; i++) textoVecinos[i].anadir(valores[i], posicion);
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    // --- Consultas ---
+
+    /**
+     * Posiciones de las visitas que coinciden con la consulta en el campo indicado (null: en cualquiera).
+     * Una consulta sin letras ni dígitos no coincide con nada.
+     */
+    public Resultado buscarVisitas(String consulta, CampoVisita campo) {
+        return new Resultado(terminos(consulta), false, campo, null);
+    }
+
+    /** Como {@link #buscarVisitas}, para los vecinos. */
+    public Resultado buscarVecinos(String consulta, CampoVecino campo) {
+        return new Resultado(terminos(consulta), true, null, campo);
+    }
+
+    private BitSet calcularVisitas(List<String> terminos, CampoVisita campo) {
+        BitSet resultado = null;
+        for (String t : terminos) {
+            BitSet coincidencias = new BitSet(numVisitas);
+            for (CampoVisita c : campo == null ? CampoVisita.values() : new CampoVisita[]{campo}) {
+                buscarVisitas(t, c, coincidencias);
+            }
+            if (resultado == null) resultado = coincidencias;
+            else resultado.and(coincidencias);
+            if (resultado.isEmpty()) break;
+        }
+        return resultado != null ? resultado : new BitSet();
+    }
+
+    private void buscarVisitas(String prefijo, CampoVisita campo, BitSet destino) {
+        switch (campo) {
+            case ID:
+                buscarIds(prefijo, destino);
+                break;
+            case VECINO: {
+                BitSet vecinos = new BitSet();
+                textoVecinos[CampoVecino.DNI.ordinal()].buscar(prefijo, vecinos);
+                textoVecinos[CampoVecino.NOMBRE.ordinal()].buscar(prefijo, vecinos);
+                for (int v = vecinos.nextSetBit(0); v >= 0; v = vecinos.nextSetBit(v + 1)) {
+                    visitasPorVecino.get(v).volcar(destino);
+                }
+                break;
+            }
+            case ESTADO:
+                if (PAGADA.startsWith(prefijo)) destino.or(pagadas);
+                if (IMPAGADA.startsWith(prefijo)) {
+                    BitSet impagadas = new BitSet(numVisitas);
+                    impagadas.set(0, numVisitas);
+                    impagadas.andNot(pagadas);
+                    destino.or(impagadas);
+                }
+                break;
+            default:
+                textoVisitas.get(campo).buscar(prefijo, destino);
+        }
+    }
+
+    /** Ids cuya cifra decimal empieza por el prefijo: tramos [p·10^k, (p+1)·10^k), sin un término por visita. */
+    private void buscarIds(String prefijo, BitSet destino) {
+        if (prefijo.length() > 10 || !prefijo.chars().allMatch(ch -> ch >= '0' && ch <= '9')) return;
+        if (prefijo.length() > 1 && prefijo.charAt(0) == '0') return;
+        List<long[]> tramos = new ArrayList<>();
+        for (long desde = Long.parseLong(prefijo), ancho = 1; desde <= Integer.MAX_VALUE; desde *= 10, ancho *= 10) {
+            tramos.add(new long[]{desde, desde + ancho});
+            if (desde == 0) break;
+        }
+        for (int i = 0; i < numVisitas; i++) {
+            for (long[] t : tramos) {
+                if (ids[i] >= t[0] && ids[i] < t[1]) {
+                    destino.set(i);
+                    break;
+                }
+            }
+        }
+    }
+
+    private BitSet calcularVecinos(List<String> terminos, CampoVecino campo) {
+        BitSet resultado = null;
+        for (String t : terminos) {
+            BitSet coincidencias = new BitSet(posicionVecino.size());
+            for (CampoVecino c : campo == null ? CampoVecino.values() : new CampoVecino[]{campo}) {
+                textoVecinos[c.ordinal()].buscar(t, coincidencias);
+            }
+            if (resultado == null) resultado = coincidencias;
+            else resultado.and(coincidencias);
+            if (resultado.isEmpty()) break;
+        }
+        return resultado != null ? resultado : new BitSet();
+    }
+
+    /**
+     * Posiciones que coinciden con una consulta. Si luego se añaden entidades, la consulta se repite
+     * la primera vez que se pregunta por una posición posterior, así que sirve de filtro permanente
+     * para una tabla que sigue creciendo. No es para usarlo desde varios hilos a la vez.
+     */
+    public final class Resultado {
+        private final List<String> terminos;
+        private final boolean deVecinos;
+        private final CampoVisita campoVisita;
+        private final CampoVecino campoVecino;
+        private BitSet posiciones;
+        private int hasta; // posiciones ya consultadas
+
+        private Resultado(List<String> terminos, boolean deVecinos, CampoVisita campoVisita, CampoVecino campoVecino) {
+            this.terminos = terminos;
+            this.deVecinos = deVecinos;
+            this.campoVisita = campoVisita;
+            this.campoVecino = campoVecino;
+            calcular();
+        }
+
+        private void calcular() {
+            cerrojo.readLock().lock();
+            try {
+                if (terminos.isEmpty()) {
+                    posiciones = new BitSet();
+                    hasta = Integer.MAX_VALUE;
+                } else if (deVecinos) {
+                    posiciones = calcularVecinos(terminos, campoVecino);
+                    hasta = posicionVecino.size();
+                } else {
+                    posiciones = calcularVisitas(terminos, campoVisita);
+                    hasta = numVisitas;
+                }
+            } finally {
+                cerrojo.readLock().unlock();
+            }
+        }
+
+        public boolean contiene(int posicion) {
+            if (posicion >= hasta) calcular();
+            return posiciones.get(posicion);
+        }
+
+        /** Coincidencias entre las posiciones ya consultadas. */
+        public int getTotal() {
+            return posiciones.cardinality();
+        }
+    }
+
+    // --- Términos ---
+
+    /** Texto sin tildes y en minúsculas, con los demás caracteres intactos, para comparar a mano. */
+    public static String normalizar(String texto) {
+        StringBuilder sb = new StringBuilder(texto.length());
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            char p = plegar(c);
+            sb.append(p != 0 ? p : Character.toLowerCase(c));
+        }
+        return sb.toString();
+    }
+
+    private static char plegar(char c) {
+        if (c < PLIEGUE.length) return PLIEGUE[c];
+        return Character.isLetterOrDigit(c) ? Character.toLowerCase(c) : 0;
+    }
+
+    /** Palabras normalizadas del texto, sin repetir. */
+    static List<String> terminos(String texto) {
+        List<String> terminos = new ArrayList<>();
+        if (texto == null) return terminos;
+        StringBuilder actual = new StringBuilder();
+        for (int i = 0; i <= texto.length(); i++) {
+            char p = i < texto.length() ? plegar(texto.charAt(i)) : 0;
+            if (p != 0) {
+                actual.append(p);
+            } else if (actual.length() > 0) {
+                String t = actual.toString();
+                if (!terminos.contains(t)) terminos.add(t);
+                actual.setLength(0);
+            }
+        }
+        return terminos;
+    }
+
+    /** Términos de un campo, ordenados para buscar por prefijo. */
+    private static final class Diccionario {
+        private final TreeMap<String, Postings> terminos = new TreeMap<>();
+
+        void anadir(String texto, int posicion) {
+            for (String t : IndiceTexto.terminos(texto)) {
+                Postings p = terminos.get(t);
+                if (p == null) terminos.put(t, p = new Postings());
+                p.anadir(posicion);
+            }
+        }
+
+        void buscar(String prefijo, BitSet destino) {
+            for (Postings p : terminos.subMap(prefijo, true, prefijo + Character.MAX_VALUE, false).values()) {
+                p.volcar(destino);
+            }
+        }
+    }
+
+    /**
+     * Posiciones de un término, crecientes, guardadas como diferencias en bytes de 7 bits:
+     * la mayoría ocupa uno o dos bytes en lugar de cuatro. Muchos términos aparecen una sola vez
+     * (números de expediente, apellidos raros), así que la primera posición va aparte y los bytes
+     * solo se reservan a partir de la segunda.
+     */
+    private static final class Postings {
+        private int primera = -1;
+        private byte[] bytes;
+        private int longitud;
+        private int ultima = -1;
+
+        void anadir(int posicion) {
+            if (posicion <= ultima) return; // repetida en el mismo documento
+            if (primera < 0) {
+                primera = ultima = posicion;
+                return;
+            }
+            int d = posicion - ultima;
+            ultima = posicion;
+            if (bytes == null) bytes = new byte[4];
+            while (true) {
+                if (longitud == bytes.length) bytes = Arrays.copyOf(bytes, longitud * 2);
+                if (d < 0x80) break;
+                bytes[longitud++] = (byte) (d | 0x80);
+                d >>>= 7;
+            }
+            bytes[longitud++] = (byte) d;
+        }
+
+        void volcar(BitSet destino) {
+            if (primera < 0) return;
+            int posicion = primera;
+            destino.set(posicion);
+            for (int i = 0; i < longitud; ) {
+                int d = 0;
+                int desplazamiento = 0;
+                byte b;
+                do {
+                    b = bytes[i++];
+                    d |= (b & 0x7F) << desplazamiento;
+                    desplazamiento += 7;
+                } while (b < 0);
+                posicion += d;
+                destino.set(posicion);
+            }
+        }
+    }
+}
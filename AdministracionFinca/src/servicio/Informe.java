@@ -0,0 +1,104 @@
+package servicio;
+
+import modelo.Dinero;
+import modelo.Vecino;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Resultado de {@link MotorInformes}: importes de las visitas por vecino, por administrador y por mes, y la
+ * antigüedad de lo pendiente, todo de una misma versión de los datos. No cambia una vez creado.
+ */
+public final class Informe {
+
+    /** Límites (en días, incluidos) de los tramos de antigüedad de lo pendiente; el último tramo no tiene límite. */
+    public static final int[] TRAMOS_ANTIGUEDAD = {30, 60, 90};
+
+    /** Visitas e importes (en céntimos) de un grupo, en total y pendientes de facturar. */
+    public static final class Totales {
+        private final int visitas;
+        private final long importe;
+        private final int pendientes;
+        private final long importePendiente;
+
+        Totales(int visitas, long importe, int pendientes, long importePendiente) {
+            this.visitas = visitas;
+            this.importe = importe;
+            this.pendientes = pendientes;
+            this.importePendiente = importePendiente;
+        }
+
+        public int getVisitas() { return visitas; }
+        public long getImporteCentimos() { return importe; }
+        public int getPendientes() { return pendientes; }
+        public long getImportePendienteCentimos() { return importePendiente; }
+        /** Lo ya facturado (visitas pagadas). */
+        public long getFacturadoCentimos() { return importe - importePendiente; }
+
+        Totales mas(Totales o) {
+            return new Totales(visitas + o.visitas, Dinero.sumar(importe, o.importe),
+                    pendientes + o.pendientes, Dinero.sumar(importePendiente, o.importePendiente));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Totales)) return false;
+            Totales t = (Totales) o;
+            return visitas == t.visitas && importe == t.importe && pendientes == t.pendientes && importePendiente == t.importePendiente;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(importe) * 31 + visitas;
+        }
+
+        @Override
+        public String toString() {
+            return visitas + " visitas, " + Dinero.formatear(importe) + " (pendiente " + Dinero.formatear(importePendiente) + ")";
+        }
+    }
+
+    private final long version;
+    private final LocalDate referencia;
+    private final Map<Vecino, Totales> porVecino;
+    private final Map<String, Totales> porAdministrador;
+    private final SortedMap<YearMonth, Totales> porMes;
+    private final List<Totales> antiguedad;
+
+    Informe(long version, LocalDate referencia, Map<Vecino, Totales> porVecino, Map<String, Totales> porAdministrador,
+            SortedMap<YearMonth, Totales> porMes, List<Totales> antiguedad) {
+        this.version = version;
+        this.referencia = referencia;
+        this.porVecino = Collections.unmodifiableMap(porVecino);
+        this.porAdministrador = Collections.unmodifiableMap(porAdministrador);
+        this.porMes = Collections.unmodifiableSortedMap(porMes);
+        this.antiguedad = Collections.unmodifiableList(antiguedad);
+    }
+
+    /** Versión de los datos ({@link GestorComunidad#getVersion()}) de la que sale el informe. */
+    public long getVersion() { return version; }
+
+    /** Fecha desde la que se cuenta la antigüedad de lo pendiente. */
+    public LocalDate getFechaReferencia() { return referencia; }
+
+    /** Por vecino, en orden de primera visita. */
+    public Map<Vecino, Totales> getPorVecino() { return porVecino; }
+
+    /** Por nombre de administrador, en orden de primera visita. */
+    public Map<String, Totales> getPorAdministrador() { return porAdministrador; }
+
+    /** Por mes de la visita, solo los meses con visitas. */
+    public SortedMap<YearMonth, Totales> getPorMes() { return porMes; }
+
+    /**
+     * Visitas pendientes por antigüedad respecto a la fecha de referencia: un elemento por tramo de
+     * {@link #TRAMOS_ANTIGUEDAD} (hasta 30 días, de 31 a 60...) y uno más para las más antiguas.
+     * Las de fecha posterior a la referencia cuentan en el primero. Aquí todo es pendiente.
+     */
+    public List<Totales> getAntiguedadPendiente() { return antiguedad; }
+}
@@ -0,0 +1,38 @@
+package servicio;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Los primeros elementos de una lista que solo crece, fijados al crear la vista (coste constante).
+ * Cada lectura toma el cerrojo con el que se modifica la lista base, así que se puede recorrer
+ * desde cualquier hilo mientras otros siguen añadiendo.
+ */
+final class ListaInstantanea<T> extends AbstractList<T> implements RandomAccess {
+
+    private final List<T> base;
+    private final int tamano;
+    private final Object cerrojo;
+
+    /** Hay que llamarlo con el cerrojo tomado. */
+    ListaInstantanea(List<T> base, Object cerrojo) {
+        this.base = base;
+        this.tamano = base.size();
+        this.cerrojo = cerrojo;
+    }
+
+    @Override
+    public T get(int i) {
+        Objects.checkIndex(i, tamano);
+        synchronized (cerrojo) {
+            return base.get(i);
+        }
+    }
+
+    @Override
+    public int size() {
+        return tamano;
+    }
+}
@@ -0,0 +1,53 @@
+package servicio;
+
+import java.util.Arrays;
+
+/**
+ * Vecinos por registrar de una vez con {@link GestorComunidad#registrarVecinos}, guardados por columnas.
+ * Se puede vaciar y volver a llenar, para no reservar memoria en cada lote de una importación.
+ */
+public final class LoteVecinos {
+
+    private String[] dnis = new String[64];
+    private String[] nombres = new String[64];
+    private String[] direcciones = new String[64];
+    private String[] codigosPostales = new String[64];
+    private String[] ciudades = new String[64];
+    private String[] telefonos = new String[64];
+    private int n;
+
+    public void anadir(String dni, String nombreApellidos, String direccion, String codigoPostal, String ciudad, String telefono) {
+        if (n == dnis.length) {
+            int capacidad = n * 2;
+            dnis = Arrays.copyOf(dnis, capacidad);
+            nombres = Arrays.copyOf(nombres, capacidad);
+            direcciones = Arrays.copyOf(direcciones, capacidad);
+            codigosPostales = Arrays.copyOf(codigosPostales, capacidad);
+            ciudades = Arrays.copyOf(ciudades, capacidad);
+            telefonos = Arrays.copyOf(telefonos, capacidad);
+        }
+        dnis[n] = dni;
+        nombres[n] = nombreApellidos;
+        direcciones[n] = direccion;
+        codigosPostales[n] = codigoPostal;
+        ciudades[n] = ciudad;
+        telefonos[n] = telefono;
+        n++;
+    }
+
+    public int size() { return n; }
+
+    public void vaciar() {
+        for (String[] columna : new String[][]{dnis, nombres, direcciones, codigosPostales, ciudades, telefonos}) {
+            Arrays.fill(columna, 0, n, null);
+        }
+        n = 0;
+    }
+
+    public String dni(int i) { return dnis[i]; }
+    public String nombre(int i) { return nombres[i]; }
+    public String direccion(int i) { return direcciones[i]; }
+    public String codigoPostal(int i) { return codigosPostales[i]; }
+    public String ciudad(int i) { return ciudades[i]; }
+    public String telefono(int i) { return telefonos[i]; }
+}
@@ -0,0 +1,51 @@
+package servicio;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Visitas por crear de una vez con {@link GestorComunidad#crearFichasVisita}, guardadas por columnas.
+ * El vecino va por DNI: se busca al dar de alta el lote. Se puede vaciar y volver a llenar.
+ */
+public final class LoteVisitas {
+
+    private String[] dnis = new String[64];
+    private LocalDate[] fechas = new LocalDate[64];
+    private String[] descripciones = new String[64];
+    private double[] importes = new double[64];
+    private String[] administradores = new String[64];
+    private int n;
+
+    public void anadir(String dniVecino, LocalDate fecha, String descripcion, double importe, String administrador) {
+        if (n == dnis.length) {
+            int capacidad = n * 2;
+            dnis = Arrays.copyOf(dnis, capacidad);
+            fechas = Arrays.copyOf(fechas, capacidad);
+            descripciones = Arrays.copyOf(descripciones, capacidad);
+            importes = Arrays.copyOf(importes, capacidad);
+            administradores = Arrays.copyOf(administradores, capacidad);
+        }
+        dnis[n] = dniVecino;
+        fechas[n] = fecha;
+        descripciones[n] = descripcion;
+        importes[n] = importe;
+        administradores[n] = administrador;
+        n++;
+    }
+
+    public int size() { return n; }
+
+    public void vaciar() {
+        Arrays.fill(dnis, 0, n, null);
+        Arrays.fill(fechas, 0, n, null);
+        Arrays.fill(descripciones, 0, n, null);
+        Arrays.fill(administradores, 0, n, null);
+        n = 0;
+    }
+
+    public String dni(int i) { return dnis[i]; }
+    public LocalDate fecha(int i) { return fechas[i]; }
+    public String descripcion(int i) { return descripciones[i]; }
+    public double importe(int i) { return importes[i]; }
+    public String administrador(int i) { return administradores[i]; }
+}
@@ -0,0 +1,13 @@
+package servicio;
+
+/** Vista JMX de un {@link Medidor}: tiempos en microsegundos. */
+public interface MedidorMBean {
+    long getLlamadas();
+    double getMediaMicros();
+    double getP50Micros();
+    double getP90Micros();
+    double getP99Micros();
+    double getP999Micros();
+    double getMaximoMicros();
+    void reiniciar();
+}
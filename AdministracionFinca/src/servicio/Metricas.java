@@ -0,0 +1,231 @@
+package servicio;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Métricas de un componente (el gestor, la persistencia): un {@link Medidor} por operación, contadores
+ * ({@link LongAdder}) e indicadores que se leen al consultarlos (p. ej. cuántas visitas hay).
+ *
+ * - Medidores y contadores se crean al montar el componente y se guardan en campos: medir no busca nada.
+ * - Se publican por JMX ({@link #registrarJmx}): cada medidor como "sigco:type=Operacion,grupo=...,name=..." y
+ *   contadores e indicadores como atributos de "sigco:type=Metricas,name=...".
+ * - {@link #resumen} da todo como texto, y {@link #volcarCada} lo escribe periódicamente.
+ */
+public final class Metricas implements DynamicMBean {
+
+    private final String nombre;
+    // Se añaden al montar el componente y casi nunca después: se recorren con el cerrojo de cada mapa.
+    private final Map<String, Medidor> medidores = new LinkedHashMap<>();
+    private final Map<String, LongAdder> contadores = new LinkedHashMap<>();
+    private final Map<String, LongSupplier> indicadores = new LinkedHashMap<>();
+
+    public Metricas(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    /** El medidor con ese nombre; se crea la primera vez. */
+    public Medidor medidor(String operacion) {
+        synchronized (medidores) {
+            return medidores.computeIfAbsent(operacion, Medidor::new);
+        }
+    }
+
+    public LongAdder contador(String nombreContador) {
+        synchronized (contadores) {
+            return contadores.computeIfAbsent(nombreContador, k -> new LongAdder());
+        }
+    }
+
+    /** Valor que se calcula al consultarlo; debe ser barato y no tomar cerrojos del componente. */
+    public void indicador(String nombreIndicador, LongSupplier valor) {
+        synchronized (indicadores) {
+            indicadores.put(nombreIndicador, valor);
+        }
+    }
+
+    public List<Medidor> getMedidores() {
+        synchronized (medidores) {
+            return new ArrayList<>(medidores.values());
+        }
+    }
+
+    /** Contadores e indicadores, por nombre. */
+    public Map<String, Long> getValores() {
+        Map<String, Long> valores = new LinkedHashMap<>();
+        synchronized (contadores) {
+            contadores.forEach((k, v) -> valores.put(k, v.sum()));
+        }
+        synchronized (indicadores) {
+            indicadores.forEach((k, v) -> valores.put(k, v.getAsLong()));
+        }
+        return valores;
+    }
+
+    public void reiniciar() {
+        getMedidores().forEach(Medidor::reiniciar);
+        synchronized (contadores) {
+            contadores.values().forEach(LongAdder::reset);
+        }
+    }
+
+    /** Tabla de texto: valores y, por cada operación con llamadas, sus latencias en microsegundos. */
+    public String resumen() {
+        StringBuilder sb = new StringBuilder("== Métricas de ").append(nombre).append(" ==\n");
+        getValores().forEach((k, v) -> sb.append(String.format(Locale.ROOT, "%-24s %14d%n", k, v)));
+        sb.append(String.format(Locale.ROOT, "%-24s %10s %10s %10s %10s %10s %10s %10s%n",
+                "operación (us)", "llamadas", "media", "p50", "p90", "p99", "p99.9", "máx"));
+        for (Medidor m : getMedidores()) {
+            if (m.getLlamadas() == 0) continue;
+            sb.append(String.format(Locale.ROOT, "%-24s %10d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n", m.getNombre(),
+                    m.getLlamadas(), m.getMediaMicros(), m.getP50Micros(), m.getP90Micros(), m.getP99Micros(),
+                    m.getP999Micros(), m.getMaximoMicros()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Escribe el {@link #resumen} de cada una de las métricas cada cierto tiempo, desde un hilo propio (que no
+     * impide terminar al proceso), hasta que se cierre lo devuelto.
+     */
+    public static Volcado volcarCada(Duration periodo, Consumer<String> destino, Metricas... metricas) {
+        long ms = periodo.toMillis();
+        if (ms <= 0) throw new IllegalArgumentException("El periodo debe ser positivo.");
+        ScheduledExecutorService planificador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "volcado-metricas");
+            t.setDaemon(true);
+            return t;
+        });
+        planificador.scheduleAtFixedRate(() -> {
+            try {
+                StringBuilder sb = new StringBuilder();
+                for (Metricas m : metricas) sb.append(m.resumen());
+                destino.accept(sb.toString());
+            } catch (RuntimeException e) {
+                System.err.println("No se pudieron volcar las métricas: " + e.getMessage());
+            }
+        }, ms, ms, TimeUnit.MILLISECONDS);
+        return new Volcado(planificador);
+    }
+
+    /** Volcado periódico en marcha; cerrarlo lo detiene. */
+    public static final class Volcado implements Closeable {
+        private final ScheduledExecutorService planificador;
+
+        private Volcado(ScheduledExecutorService planificador) {
+            this.planificador = planificador;
+        }
+
+        @Override
+        public void close() {
+            planificador.shutdown();
+        }
+    }
+
+    // --- JMX ---
+
+    /**
+     * Publica estas métricas en el servidor de MBeans de la plataforma. Si ya había otras con el mismo
+     * nombre (p. ej. del gestor anterior, tras cargar otro fichero), las sustituye.
+     */
+    public void registrarJmx() {
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        try {
+            registrar(servidor, this, new ObjectName("sigco:type=Metricas,name=" + ObjectName.quote(nombre)));
+            for (Medidor m : getMedidores()) {
+                registrar(servidor, m, new ObjectName("sigco:type=Operacion,grupo=" + ObjectName.quote(nombre)
+                        + ",name=" + ObjectName.quote(m.getNombre())));
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("No se pudieron publicar las métricas por JMX: " + e.getMessage(), e);
+        }
+    }
+
+    private static void registrar(MBeanServer servidor, Object mbean, ObjectName nombre) throws JMException {
+        synchronized (Metricas.class) {
+            if (servidor.isRegistered(nombre)) servidor.unregisterMBean(nombre);
+            servidor.registerMBean(mbean, nombre);
+        }
+    }
+
+    @Override
+    public Object getAttribute(String atributo) throws AttributeNotFoundException {
+        Long valor = getValores().get(atributo);
+        if (valor == null) throw new AttributeNotFoundException(atributo);
+        return valor;
+    }
+
+    @Override
+    public void setAttribute(Attribute atributo) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Las métricas son de solo lectura: " + atributo.getName());
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] atributos) {
+        Map<String, Long> valores = getValores();
+        AttributeList lista = new AttributeList();
+        for (String a : atributos) {
+            if (valores.containsKey(a)) lista.add(new Attribute(a, valores.get(a)));
+        }
+        return lista;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList atributos) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String operacion, Object[] parametros, String[] firma) throws ReflectionException {
+        switch (operacion) {
+            case "resumen":
+                return resumen();
+            case "reiniciar":
+                reiniciar();
+                return null;
+            default:
+                throw new ReflectionException(new NoSuchMethodException(operacion));
+        }
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> atributos = new ArrayList<>();
+        for (String k : getValores().keySet()) {
+            atributos.add(new MBeanAttributeInfo(k, Long.class.getName(), k, true, false, false));
+        }
+        MBeanOperationInfo[] operaciones = {
+                new MBeanOperationInfo("resumen", "Métricas como texto", null, String.class.getName(), MBeanOperationInfo.INFO),
+                new MBeanOperationInfo("reiniciar", "Pone a cero medidores y contadores", null, "void", MBeanOperationInfo.ACTION),
+        };
+        return new MBeanInfo(Metricas.class.getName(), "Métricas de " + nombre,
+                atributos.toArray(new MBeanAttributeInfo[0]), null, operaciones, null);
+    }
+}
@@ -0,0 +1,185 @@
+package servicio;
+
+import modelo.Dinero;
+import modelo.HistoricoVisitas;
+import modelo.Vecino;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+/**
+ * Informes de facturación de un {@link GestorComunidad} (ver {@link Informe}).
+ *
+ * - Todos los totales salen de una sola pasada por las columnas del histórico de visitas, sin crear fichas.
+ *   La pasada se reparte en tramos de posiciones que se suman en paralelo, cada uno en su acumulador
+ *   (arrays por código de vecino y de administrador, y por mes), y los acumuladores se combinan después.
+ * - Se calcula con el gestor en exclusiva, así que el informe corresponde exactamente a una versión.
+ * - Se guarda el último informe: mientras no cambie la versión del gestor (ni la fecha de referencia),
+ *   pedirlo otra vez no cuesta nada.
+ */
+public final class MotorInformes {
+
+    private static final int FILAS_POR_TRAMO = 1 << 14;
+
+    private final GestorComunidad gestor;
+    private volatile Informe ultimo;
+
+    public MotorInformes(GestorComunidad gestor) {
+        this.gestor = Objects.requireNonNull(gestor, "gestor");
+    }
+
+    /** Informe con la antigüedad contada desde hoy. */
+    public Informe informe() {
+        return informe(LocalDate.now());
+    }
+
+    public Informe informe(LocalDate referencia) {
+        Objects.requireNonNull(referencia, "referencia");
+        Informe i = ultimo;
+        if (i != null && i.getVersion() == gestor.getVersion() && i.getFechaReferencia().equals(referencia)) return i;
+        return ultimo = gestor.enExclusiva(() -> calcular(referencia));
+    }
+
+    private Informe calcular(LocalDate referencia) {
+        long version = gestor.getVersion();
+        HistoricoVisitas c = (HistoricoVisitas) gestor.getDatos().visitas;
+        int n = c.size();
+        List<Vecino> vecinos = c.getVecinos();
+        List<String> administradores = c.getAdministradores();
+        int hoy = (int) referencia.toEpochDay();
+        Acumulador total = IntStream.range(0, (n + FILAS_POR_TRAMO - 1) / FILAS_POR_TRAMO).parallel()
+                .collect(() -> new Acumulador(vecinos.size(), administradores.size()),
+                        (a, t) -> a.sumar(c, t * FILAS_POR_TRAMO, Math.min(n, (t + 1) * FILAS_POR_TRAMO), hoy),
+                        Acumulador::combinar);
+
+        Map<Vecino, Informe.Totales> porVecino = new LinkedHashMap<>();
+        for (int v = 0; v < vecinos.size(); v++) {
+            Informe.Totales t = Acumulador.totales(total.porVecino, v);
+            if (t.getVisitas() > 0) porVecino.merge(vecinos.get(v), t, Informe.Totales::mas); // vecinos repetidos de ficheros antiguos
+        }
+        Map<String, Informe.Totales> porAdministrador = new LinkedHashMap<>();
+        for (int a = 0; a < administradores.size(); a++) {
+            Informe.Totales t = Acumulador.totales(total.porAdministrador, a);
+            if (t.getVisitas() > 0) porAdministrador.merge(administradores.get(a), t, Informe.Totales::mas);
+        }
+        SortedMap<YearMonth, Informe.Totales> porMes = new TreeMap<>();
+        for (int m = 0; m < total.numMeses; m++) {
+            Informe.Totales t = Acumulador.totales(total.porMes, m);
+            if (t.getVisitas() > 0) porMes.put(YearMonth.of(0, 1).plusMonths(total.primerMes + m), t);
+        }
+        List<Informe.Totales> antiguedad = new ArrayList<>();
+        for (int k = 0; k <= Informe.TRAMOS_ANTIGUEDAD.length; k++) {
+            int pendientes = (int) total.antiguedad[2 * k];
+            antiguedad.add(new Informe.Totales(pendientes, total.antiguedad[2 * k + 1], pendientes, total.antiguedad[2 * k + 1]));
+        }
+        return new Informe(version, referencia, porVecino, porAdministrador, porMes, antiguedad);
+    }
+
+    /**
+     * Sumas de un tramo de visitas. Por cada vecino, administrador y mes, cuatro longs seguidos: visitas,
+     * importe, pendientes e importe pendiente. Los meses se cuentan desde el año 0 y solo se guarda
+     * el intervalo que aparece.
+     */
+    private static final class Acumulador {
+        private final long[] porVecino;
+        private final long[] porAdministrador;
+        private long[] porMes = new long[0];
+        private int primerMes, numMeses;
+        private final long[] antiguedad = new long[2 * (Informe.TRAMOS_ANTIGUEDAD.length + 1)]; // pendientes, importe
+
+        // Último mes consultado: las visitas de un tramo suelen ser de pocos meses.
+        private int desdeDia = 1, hastaDia = 0, mes;
+
+        Acumulador(int numVecinos, int numAdministradores) {
+            this.porVecino = new long[4 * numVecinos];
+            this.porAdministrador = new long[4 * numAdministradores];
+        }
+
+        void sumar(HistoricoVisitas c, int desde, int hasta, int hoy) {
+            for (int i = desde; i < hasta; i++) {
+                long importe = c.centimosEn(i);
+                boolean pendiente = !c.pagadaEn(i);
+                int dia = c.diaEn(i);
+                int m = posicionMes(dia); // antes de leer porMes, que puede cambiar
+                anotar(porVecino, 4 * c.codigoVecinoEn(i), importe, pendiente);
+                anotar(porAdministrador, 4 * c.codigoAdministradorEn(i), importe, pendiente);
+                anotar(porMes, 4 * m, importe, pendiente);
+                if (pendiente) {
+                    int k = tramo(hoy - dia);
+                    antiguedad[2 * k]++;
+                    antiguedad[2 * k + 1] = Dinero.sumar(antiguedad[2 * k + 1], importe);
+                }
+            }
+        }
+
+        private static void anotar(long[] a, int p, long importe, boolean pendiente) {
+            a[p]++;
+            a[p + 1] = Dinero.sumar(a[p + 1], importe);
+            if (pendiente) {
+                a[p + 2]++;
+                a[p + 3] = Dinero.sumar(a[p + 3], importe);
+            }
+        }
+
+        private static int tramo(int dias) {
+            int k = 0;
+            while (k < Informe.TRAMOS_ANTIGUEDAD.length && dias > Informe.TRAMOS_ANTIGUEDAD[k]) k++;
+            return k;
+        }
+
+        /** Posición del mes del día en porMes, que se amplía si hace falta. */
+        private int posicionMes(int dia) {
+            if (dia < desdeDia || dia > hastaDia) {
+                LocalDate f = LocalDate.ofEpochDay(dia);
+                mes = f.getYear() * 12 + f.getMonthValue() - 1;
+                desdeDia = dia - f.getDayOfMonth() + 1;
+                hastaDia = desdeDia + f.lengthOfMonth() - 1;
+            }
+            ampliarMeses(mes, 1);
+            return mes - primerMes;
+        }
+
+        /** Hace que porMes cubra los meses [desde, desde + cuantos). */
+        private void ampliarMeses(int desde, int cuantos) {
+            if (numMeses == 0) {
+                primerMes = desde;
+            } else if (desde >= primerMes && desde + cuantos <= primerMes + numMeses) {
+                return;
+            }
+            int nuevoPrimero = Math.min(primerMes, desde);
+            int nuevoNum = Math.max(primerMes + numMeses, desde + cuantos) - nuevoPrimero;
+            long[] nuevo = new long[4 * nuevoNum];
+            System.arraycopy(porMes, 0, nuevo, 4 * (primerMes - nuevoPrimero), 4 * numMeses);
+            porMes = nuevo;
+            primerMes = nuevoPrimero;
+            numMeses = nuevoNum;
+        }
+
+        void combinar(Acumulador o) {
+            sumarArrays(porVecino, 0, o.porVecino, o.porVecino.length);
+            sumarArrays(porAdministrador, 0, o.porAdministrador, o.porAdministrador.length);
+            if (o.numMeses > 0) {
+                ampliarMeses(o.primerMes, o.numMeses);
+                sumarArrays(porMes, 4 * (o.primerMes - primerMes), o.porMes, 4 * o.numMeses);
+            }
+            sumarArrays(antiguedad, 0, o.antiguedad, antiguedad.length);
+        }
+
+        private static void sumarArrays(long[] destino, int desde, long[] origen, int n) {
+            for (int k = 0; k < n; k++) destino[desde + k] = Dinero.sumar(destino[desde + k], origen[k]);
+        }
+
+        static Informe.Totales totales(long[] a, int codigo) {
+            int p = 4 * codigo;
+            return new Informe.Totales((int) a[p], a[p + 1], (int) a[p + 2], a[p + 3]);
+        }
+    }
+}
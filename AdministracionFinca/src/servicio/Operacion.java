@@ -0,0 +1,83 @@
+package servicio;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Modificación elemental sobre {@link GestorComunidad}, tal y como se anota en el diario.
+ * - Cada operación lleva un número de secuencia creciente asignado por el gestor.
+ * - Los argumentos solo pueden ser String, Integer, Double, LocalDate o null.
+ * - Las entidades se referencian por clave (DNI, id); solo los cursos, que no se dan de baja, por posición.
+ * - Las bajas de profesores, auditores y materiales se anotan con el id (el último de la lista pasa a la
+ *   posición del quitado).
+ */
+public final class Operacion {
+
+    /** Tipos de operación. El código es el que se persiste: no reutilizar ni renumerar. */
+    public enum Tipo {
+        REGISTRAR_VECINO(1),
+        CREAR_VISITA(2),
+        CREAR_FACTURA(3),
+        REGISTRAR_PROFESOR(4),
+        MODIFICAR_PROFESOR(5),
+        ELIMINAR_PROFESOR(6),
+        CREAR_CURSO(7),
+        ADD_MATERIA(8),
+        INSCRIBIR_VECINO(9),
+        REGISTRAR_AUDITOR(10),
+        MODIFICAR_AUDITOR(11),
+        ELIMINAR_AUDITOR(12),
+        CREAR_AUDITORIA(13),
+        ASIGNAR_VISITA(14),
+        FINALIZAR_AUDITORIA(15),
+        REGISTRAR_MATERIAL(16),
+        MODIFICAR_MATERIAL(17),
+        ELIMINAR_MATERIAL(18),
+        ASIGNAR_MATERIAL(19),
+        FACTURAR_TODOS(20);
+
+        private final int codigo;
+
+        Tipo(int codigo) { this.codigo = codigo; }
+
+        public int getCodigo() { return codigo; }
+
+        public static Tipo deCodigo(int codigo) {
+            for (Tipo t : values()) {
+                if (t.codigo == codigo) return t;
+            }
+            throw new IllegalArgumentException("Tipo de operación desconocido: " + codigo);
+        }
+    }
+
+    private final long secuencia;
+    private final Tipo tipo;
+    private final Object[] argumentos;
+
+    public Operacion(long secuencia, Tipo tipo, Object... argumentos) {
+        this.secuencia = secuencia;
+        this.tipo = Objects.requireNonNull(tipo, "tipo");
+        this.argumentos = argumentos.clone();
+        for (Object a : this.argumentos) {
+            if (a != null && !(a instanceof String || a instanceof Integer || a instanceof Double || a instanceof LocalDate)) {
+                throw new IllegalArgumentException("Argumento no admitido en el diario: " + a.getClass().getName());
+            }
+        }
+    }
+
+    public long getSecuencia() { return secuencia; }
+    public Tipo getTipo() { return tipo; }
+    public int getNumArgumentos() { return argumentos.length; }
+    public Object getArgumento(int i) { return argumentos[i]; }
+
+    public String texto(int i) { return (String) argumentos[i]; }
+    public int entero(int i) { return (Integer) argumentos[i]; }
+    public double decimal(int i) { return (Double) argumentos[i]; }
+    public LocalDate fecha(int i) { return (LocalDate) argumentos[i]; }
+
+    @Override
+    public String toString() {
+        return "#" + secuencia + " " + tipo + " " + Arrays.toString(argumentos);
+    }
+}
@@ -0,0 +1,61 @@
+package servicio;
+
+/** Operaciones públicas de {@link GestorComunidad} que se miden (ver {@link GestorComunidad#getMetricas}). */
+enum OperacionGestor {
+    GET_AGREGADOS("getAgregados"),
+    VERIFICAR_AGREGADOS("verificarAgregados"),
+    BUSCAR_VISITA_POR_ID("buscarVisitaPorId"),
+    BUSCAR_FACTURA_POR_ID("buscarFacturaPorId"),
+    BUSCAR_AUDITORIA_POR_ID("buscarAuditoriaPorId"),
+    BUSCAR_PROFESOR_POR_ID("buscarProfesorPorId"),
+    BUSCAR_AUDITOR_POR_ID("buscarAuditorPorId"),
+    BUSCAR_MATERIAL_POR_ID("buscarMaterialPorId"),
+    REGISTRAR_VECINO("registrarVecino"),
+    GET_VECINOS("getVecinos"),
+    BUSCAR_VECINO_POR_DNI("buscarVecinoPorDni"),
+    CREAR_FICHA_VISITA("crearFichaVisita"),
+    GET_VISITAS("getVisitas"),
+    GET_VISITAS_ENTRE("getVisitasEntre"),
+    GET_VISITAS_PENDIENTES("getVisitasPendientes"),
+    GET_IMPORTE_PENDIENTE("getImportePendiente"),
+    CREAR_FACTURA("crearFactura"),
+    FACTURAR_TODOS("facturarTodos"),
+    GET_FACTURAS("getFacturas"),
+    GET_FACTURAS_ENTRE("getFacturasEntre"),
+    REGISTRAR_VECINOS("registrarVecinos"),
+    CREAR_FICHAS_VISITA("crearFichasVisita"),
+    REGISTRAR_PROFESOR("registrarProfesor"),
+    GET_PROFESORES("getProfesores"),
+    MODIFICAR_PROFESOR("modificarProfesor"),
+    ELIMINAR_PROFESOR("eliminarProfesor"),
+    CREAR_CURSO("crearCurso"),
+    GET_CURSOS("getCursos"),
+    ADD_MATERIA_A_CURSO("addMateriaACurso"),
+    INSCRIBIR_VECINO_EN_CURSO("inscribirVecinoEnCurso"),
+    REGISTRAR_AUDITOR("registrarAuditor"),
+    GET_AUDITORES("getAuditores"),
+    MODIFICAR_AUDITOR("modificarAuditor"),
+    ELIMINAR_AUDITOR("eliminarAuditor"),
+    CREAR_AUDITORIA("crearAuditoria"),
+    GET_AUDITORIAS("getAuditorias"),
+    ASIGNAR_VISITAS_A_AUDITORIA("asignarVisitasAAuditoria"),
+    FINALIZAR_AUDITORIA("finalizarAuditoria"),
+    REGISTRAR_MATERIAL("registrarMaterial"),
+    GET_REPOSITORIO_MATERIALES("getRepositorioMateriales"),
+    MODIFICAR_MATERIAL("modificarMaterial"),
+    ELIMINAR_MATERIAL("eliminarMaterial"),
+    ASIGNAR_MATERIAL_A_AUDITORIA("asignarMaterialAAuditoria"),
+    APLICAR("aplicar"),
+    EJECUTAR("ejecutar");
+
+    private final String nombre;
+
+    OperacionGestor(String nombre) {
+        this.nombre = nombre;
+    }
+
+    /** Nombre del método, que es el del medidor. */
+    String getNombre() {
+        return nombre;
+    }
+}
@@ -0,0 +1,11 @@
+package servicio;
+
+/**
+ * Recibe los cambios de {@link GestorComunidad}.
+ * Se invoca en el hilo que hizo la modificación, dentro de la sección que ordena los cambios: debe volver enseguida
+ * (la interfaz, por ejemplo, solo encola el trabajo en el hilo de eventos de Swing).
+ */
+@FunctionalInterface
+public interface OyenteCambios {
+    void cambio(EventoCambio evento);
+}
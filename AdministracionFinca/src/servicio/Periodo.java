@@ -0,0 +1,62 @@
+package servicio;
+
+import java.util.Iterator;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Visitas o facturas de un periodo, en orden de fecha (y de alta dentro del día), según un índice por fechas
+ * del gestor. Fija qué entidades entran al crearse, como una instantánea; cada una se obtiene al recorrerla.
+ */
+public final class Periodo<T> implements Iterable<T> {
+
+    private final IndiceFechas.Tramo tramo;
+    private final IntFunction<T> entidadEn;
+
+    Periodo(IndiceFechas.Tramo tramo, IntFunction<T> entidadEn) {
+        this.tramo = tramo;
+        this.entidadEn = entidadEn;
+    }
+
+    public int size() {
+        return tramo.size();
+    }
+
+    public boolean isEmpty() {
+        return tramo.size() == 0;
+    }
+
+    /** Posiciones en la lista del gestor ({@link GestorComunidad#getVisitas()} o {@link GestorComunidad#getFacturas()}). */
+    public PrimitiveIterator.OfInt posiciones() {
+        return tramo.posiciones();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        PrimitiveIterator.OfInt posiciones = tramo.posiciones();
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return posiciones.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return entidadEn.apply(posiciones.nextInt());
+            }
+        };
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return Spliterators.spliterator(iterator(), size(), Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+}
@@ -0,0 +1,38 @@
+package servicio;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/** Lista creciente de posiciones de visitas, sin enteros en caja. */
+final class Posiciones {
+
+    private int[] valores = new int[4];
+    private int tamano;
+
+    void anadir(int posicion) {
+        if (tamano == valores.length) valores = Arrays.copyOf(valores, tamano * 2);
+        valores[tamano++] = posicion;
+    }
+
+    int get(int i) {
+        return valores[i];
+    }
+
+    int size() {
+        return tamano;
+    }
+
+    /** Array interno: válido hasta {@link #size()}. */
+    int[] valores() {
+        return valores;
+    }
+
+    /** Conserva, en orden, solo las posiciones que cumplen la condición. */
+    void retener(IntPredicate condicion) {
+        int n = 0;
+        for (int i = 0; i < tamano; i++) {
+            if (condicion.test(valores[i])) valores[n++] = valores[i];
+        }
+        tamano = n;
+    }
+}
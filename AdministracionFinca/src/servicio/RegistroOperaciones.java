@@ -0,0 +1,16 @@
+package servicio;
+
+/**
+ * Destino de las operaciones que modifican los datos (p. ej. el diario de persistencia).
+ * Se invoca después de aplicar la operación en memoria, en el orden de secuencia y sin otras anotaciones a la vez.
+ */
+public interface RegistroOperaciones {
+
+    /**
+     * Lo llama el gestor antes de aplicar una modificación: si el registro no podrá anotarla (p. ej. falló una
+     * escritura anterior), lanza y la modificación no se aplica. {@link #registrar} ya no puede rechazarla.
+     */
+    default void comprobar() {}
+
+    void registrar(Operacion operacion);
+}
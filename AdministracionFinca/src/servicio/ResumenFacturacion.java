@@ -0,0 +1,39 @@
+package servicio;
+
+import modelo.Dinero;
+import modelo.Factura;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+/** Resultado de una facturación masiva ({@link GestorComunidad#facturarTodos}). */
+public final class ResumenFacturacion {
+    private final List<Factura> facturas;
+    private final int numVisitas;
+    private final long total; // céntimos
+    private final Duration duracion;
+
+    public ResumenFacturacion(List<Factura> facturas, int numVisitas, long totalCentimos, Duration duracion) {
+        this.facturas = Collections.unmodifiableList(facturas);
+        this.numVisitas = numVisitas;
+        this.total = totalCentimos;
+        this.duracion = duracion;
+    }
+
+    /** Facturas creadas, en orden de DNI (y por tanto de id). */
+    public List<Factura> getFacturas() { return facturas; }
+    public int getNumFacturas() { return facturas.size(); }
+    public int getNumVisitas() { return numVisitas; }
+    public double getTotal() { return Dinero.euros(total); }
+    public long getTotalCentimos() { return total; }
+    public Duration getDuracion() { return duracion; }
+
+    @Override
+    public String toString() {
+        String ids = facturas.isEmpty() ? "" :
+                " (#" + facturas.get(0).getId() + " a #" + facturas.get(facturas.size() - 1).getId() + ")";
+        return facturas.size() + " facturas" + ids + ", " + numVisitas + " visitas, "
+                + Dinero.formatear(total) + " en " + duracion.toMillis() + " ms";
+    }
+}
@@ -0,0 +1,107 @@
+package export;
+
+import importacion.ImportadorCsv;
+import importacion.LectorCsv;
+import importacion.ResumenImportacion;
+import modelo.FichaVisita;
+import modelo.Vecino;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import persistencia.Progreso;
+import servicio.GestorComunidad;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Lo que se exporta se vuelve a importar tal cual, con las mismas columnas que la tabla de la aplicación. */
+class ExportadorCsvTest {
+
+    private static final List<String> DIFICILES = List.of("", "sin nada", "a,b", "\"", "\"\"", "di \"hola\"", "\"al principio",
+            "al final\"", "dos\r\nlíneas", "solo\nLF", "solo\rCR", ",", "\r\n", "ñandú €");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void escribirCampoSeLeeIgualConLectorCsv() throws IOException {
+        StringWriter out = new StringWriter();
+        for (String campo : DIFICILES) {
+            ExportadorCsv.escribirCampo(out, campo);
+            out.write(',');
+        }
+        ExportadorCsv.escribirCampo(out, "fin");
+        out.write("\r\n");
+        assertEquals("a", escrito("a"));
+        assertEquals("\"a,b\"", escrito("a,b"));
+        assertEquals("\"di \"\"hola\"\"\"", escrito("di \"hola\""));
+
+        try (LectorCsv lector = new LectorCsv(new StringReader(out.toString()))) {
+            assertTrue(lector.siguiente());
+            assertEquals(DIFICILES.size() + 1, lector.getNumCampos());
+            for (int i = 0; i < DIFICILES.size(); i++) assertEquals(DIFICILES.get(i), lector.campo(i), "campo " + i);
+            assertEquals("fin", lector.campo(DIFICILES.size()));
+            assertFalse(lector.siguiente());
+        }
+    }
+
+    private static String escrito(String campo) throws IOException {
+        StringWriter out = new StringWriter();
+        ExportadorCsv.escribirCampo(out, campo);
+        return out.toString();
+    }
+
+    @Test
+    void vecinosYVisitasExportadosSeVuelvenAImportar() throws IOException {
+        GestorComunidad origen = new GestorComunidad(new GestorComunidad.Datos());
+        Vecino ana = origen.registrarVecino("12345678A", "Ana (la del 3º) López", "Calle \"Mayor\", 1", "28001", "Madrid", "600000000");
+        Vecino blas = origen.registrarVecino("87654321B", "Ruiz, Blas", "Calle Menor 2\r\nBajo", "28002", "Móstoles", null);
+        origen.registrarVecino("11111111C", "Carla", "", "", "", null);
+        LocalDate hoy = LocalDate.of(2024, 1, 1);
+        for (int i = 0; i < DIFICILES.size(); i++) {
+            String descripcion = DIFICILES.get(i).isBlank() ? "Visita " + i : "Visita " + DIFICILES.get(i);
+            origen.crearFichaVisita(i % 2 == 0 ? ana : blas, hoy.plusDays(i), descripcion, 10.01 * i, "Admin, " + i);
+        }
+        origen.crearFichaVisita(blas, hoy, "Céntimos", 0.1 + 0.2, "Lucía");
+
+        ExportadorCsv<Vecino> vecinos = new ExportadorCsv<Vecino>()
+                .columna("DNI", Vecino::getDni).columna("Nombre", Vecino::getNombreApellidos).columna("Dirección", Vecino::getDireccion)
+                .columna("CP", Vecino::getCodigoPostal).columna("Ciudad", Vecino::getCiudad).columna("Teléfono", Vecino::getTelefono)
+                .porPartes(2);
+        ExportadorCsv<FichaVisita> visitas = new ExportadorCsv<FichaVisita>()
+                .columna("ID", FichaVisita::getId).columna("Fecha", FichaVisita::getFecha).columna("Vecino", FichaVisita::getVecino)
+                .columna("Descripción", FichaVisita::getDescripcion).columna("Importe", FichaVisita::getImporte)
+                .columna("Admin", FichaVisita::getNombreAdministrador).columna("Estado", FichaVisita::getEstado)
+                .comprimido(true);
+        List<File> ficherosVecinos = vecinos.exportar(origen.getVecinos(), null, dir.resolve("vecinos.csv").toFile(), Progreso.NINGUNO);
+        List<File> ficherosVisitas = visitas.exportar(origen.getVisitas(), null, dir.resolve("visitas.csv").toFile(), Progreso.NINGUNO);
+        assertEquals(List.of("vecinos-1.csv", "vecinos-2.csv"), ficherosVecinos.stream().map(File::getName).collect(Collectors.toList()));
+        assertEquals(List.of("visitas.csv.gz"), ficherosVisitas.stream().map(File::getName).collect(Collectors.toList()));
+
+        GestorComunidad destino = new GestorComunidad(new GestorComunidad.Datos());
+        for (File f : ficherosVecinos) assertSinRechazos(ImportadorCsv.importarVecinos(destino, f, Progreso.NINGUNO));
+        assertSinRechazos(ImportadorCsv.importarVisitas(destino, ficherosVisitas.get(0), Progreso.NINGUNO));
+
+        assertMismos(origen.getVecinos(), destino.getVecinos(),
+                v -> List.of(v.getDni(), v.getNombreApellidos(), v.getDireccion(), v.getCodigoPostal(), v.getCiudad(), v.getTelefono()));
+        assertMismos(origen.getVisitas(), destino.getVisitas(),
+                v -> List.of(v.getId(), v.getFecha(), v.getVecino().getDni(), v.getDescripcion(), v.getImporteCentimos(), v.getNombreAdministrador()));
+    }
+
+    private static void assertSinRechazos(ResumenImportacion resumen) {
+        assertEquals(0, resumen.getRechazadas(), resumen::toString);
+        assertNull(resumen.getErrores());
+    }
+
+    private static <T> void assertMismos(List<T> esperados, List<T> reales, Function<T, List<?>> campos) {
+        assertEquals(esperados.stream().map(campos).collect(Collectors.toList()), reales.stream().map(campos).collect(Collectors.toList()));
+    }
+}
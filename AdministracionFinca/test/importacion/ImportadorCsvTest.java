@@ -0,0 +1,127 @@
+package importacion;
+
+import modelo.FichaVisita;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import persistencia.Progreso;
+import servicio.GestorComunidad;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImportadorCsvTest {
+
+    @TempDir
+    Path dir;
+
+    private File csv(String nombre, String contenido) throws IOException {
+        return Files.writeString(dir.resolve(nombre), contenido, StandardCharsets.UTF_8).toFile();
+    }
+
+    /** Las filas del informe de errores, como "línea: motivo". */
+    private static List<String> errores(ResumenImportacion resumen) throws IOException {
+        List<String> filas = new ArrayList<>();
+        try (LectorCsv lector = new LectorCsv(new InputStreamReader(Files.newInputStream(resumen.getErrores().toPath()), StandardCharsets.UTF_8))) {
+            assertTrue(lector.siguiente());
+            assertEquals("Línea", lector.campo(0));
+            while (lector.siguiente()) filas.add(lector.campo(0) + ": " + lector.campo(1));
+        }
+        return filas;
+    }
+
+    private static GestorComunidad conUnVecino() {
+        GestorComunidad g = new GestorComunidad(new GestorComunidad.Datos());
+        g.registrarVecino("12345678A", "Ana López", "Calle Mayor 1", "28001", "Madrid", null);
+        return g;
+    }
+
+    @Test
+    void lasLineasDelInformeCuentanLosSaltosDentroDeComillas() throws IOException {
+        GestorComunidad g = conUnVecino();
+        File f = csv("visitas.csv", "\uFEFFDNI,Fecha,Descripción,Importe,Admin\r\n"
+                + "12345678A,2024-01-01,\"Revisión\r\ncaldera\",12.50,Lucía\r\n"  // 2-3
+                + "12345678A,31/02/2024,Mala fecha,1,Lucía\r\n"                   // 4
+                + "99999999Z,2024-01-02,Sin vecino,1,Lucía\r\n"                   // 5
+                + "\r\n"                                                          // 6
+                + "12345678A,02/01/2024,\"Dice \"\"hola\"\"\",\"12,5\",Lucía\r\n" // 7
+                + "12345678A,2024-01-03,Sin importe,abc,Lucía");                  // 8
+
+        ResumenImportacion resumen = ImportadorCsv.importarVisitas(g, f, Progreso.NINGUNO);
+
+        assertEquals(2, resumen.getAceptadas());
+        assertEquals(3, resumen.getRechazadas());
+        assertEquals(new File(dir.toFile(), "visitas.errores.csv"), resumen.getErrores());
+        // Las rechazadas al leer (4, 8) y al confirmar el lote (5), en orden de línea.
+        assertEquals(List.of(
+                "4: Fecha no válida: 31/02/2024",
+                "5: No existe un vecino con DNI 99999999Z",
+                "8: Importe no válido: abc"), errores(resumen));
+
+        List<FichaVisita> visitas = g.getVisitas();
+        assertEquals("Revisión\r\ncaldera", visitas.get(0).getDescripcion());
+        assertEquals(1250, visitas.get(0).getImporteCentimos());
+        assertEquals("Dice \"hola\"", visitas.get(1).getDescripcion());
+        assertEquals(LocalDate.of(2024, 1, 2), visitas.get(1).getFecha());
+        assertEquals(1250, visitas.get(1).getImporteCentimos());
+    }
+
+    @Test
+    void sinRechazosNoSeCreaElInforme() throws IOException {
+        GestorComunidad g = new GestorComunidad(new GestorComunidad.Datos());
+        File f = csv("vecinos.csv", "dni,NOMBRE,Dirección,CP,Ciudad,Teléfono\n"
+                + "12345678A,\"López, Ana\",\"Calle \"\"Mayor\"\", 1\",28001,Madrid,600000000\n");
+
+        ResumenImportacion resumen = ImportadorCsv.importarVecinos(g, f, Progreso.NINGUNO);
+
+        assertEquals(1, resumen.getAceptadas());
+        assertEquals(0, resumen.getRechazadas());
+        assertNull(resumen.getErrores());
+        assertFalse(new File(dir.toFile(), "vecinos.errores.csv").exists());
+        assertEquals("López, Ana", g.getVecinos().get(0).getNombreApellidos());
+        assertEquals("Calle \"Mayor\", 1", g.getVecinos().get(0).getDireccion());
+    }
+
+    @Test
+    void losRechazosDeVariosLotesConservanSuLinea() throws IOException {
+        GestorComunidad g = new GestorComunidad(new GestorComunidad.Datos());
+        StringBuilder sb = new StringBuilder("DNI,Nombre\n");
+        int filas = ImportadorCsv.LOTE + 10;
+        for (int i = 0; i < filas; i++) {
+            // La fila i está en la línea i + 2; una de cada mil, con DNI repetido.
+            int n = i % 1000 == 999 ? i - 1 : i;
+            sb.append(String.format("%08d%c", n, 'A' + n % 26)).append(",Vecino ").append(i).append('\n');
+        }
+        ResumenImportacion resumen = ImportadorCsv.importarVecinos(g, csv("vecinos.csv", sb.toString()), Progreso.NINGUNO);
+
+        List<String> esperados = new ArrayList<>();
+        for (int i = 999; i < filas; i += 1000) esperados.add((i + 2) + ": Ya existe un vecino con ese DNI.");
+        assertEquals(esperados, errores(resumen));
+        assertEquals(filas - esperados.size(), resumen.getAceptadas());
+        assertEquals(esperados.size(), resumen.getRechazadas());
+    }
+
+    @Test
+    void comillasSinCerrarDetienenLaImportacion() throws IOException {
+        File f = csv("visitas.csv", "DNI,Fecha,Descripción,Importe,Admin\n"
+                + "12345678A,2024-01-01,\"Sin cerrar,1,Lucía\n");
+        IOException e = assertThrows(IOException.class, () -> ImportadorCsv.importarVisitas(conUnVecino(), f, Progreso.NINGUNO));
+        assertTrue(e.getMessage().contains("línea 2"), e.getMessage());
+    }
+
+    @Test
+    void faltaUnaColumnaObligatoria() throws IOException {
+        File f = csv("vecinos.csv", "DNI,Ciudad\n12345678A,Madrid\n");
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> ImportadorCsv.importarVecinos(new GestorComunidad(new GestorComunidad.Datos()), f, Progreso.NINGUNO));
+        assertTrue(e.getMessage().contains("nombre"), e.getMessage());
+    }
+}
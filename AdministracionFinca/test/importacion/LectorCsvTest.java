@@ -0,0 +1,102 @@
+package importacion;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LectorCsvTest {
+
+    /** Entrega los caracteres de uno en uno: cada uno cae en un búfer distinto. */
+    private static Reader deUnoEnUno(String texto) {
+        return new FilterReader(new StringReader(texto)) {
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                return super.read(cbuf, off, Math.min(len, 1));
+            }
+        };
+    }
+
+    /** Cada registro como "línea: campo|campo|...". */
+    private static List<String> registros(Reader in) throws IOException {
+        List<String> registros = new ArrayList<>();
+        try (LectorCsv lector = new LectorCsv(in)) {
+            while (lector.siguiente()) {
+                StringBuilder sb = new StringBuilder().append(lector.getLinea()).append(": ");
+                for (int i = 0; i < lector.getNumCampos(); i++) {
+                    if (i > 0) sb.append('|');
+                    sb.append(lector.campo(i));
+                }
+                registros.add(sb.toString());
+            }
+        }
+        return registros;
+    }
+
+    private static void assertRegistros(String csv, String... esperados) throws IOException {
+        assertEquals(List.of(esperados), registros(new StringReader(csv)));
+        assertEquals(List.of(esperados), registros(deUnoEnUno(csv)), "leyendo de uno en uno");
+    }
+
+    @Test
+    void comillasConCrlfDentroYComillasDobladas() throws IOException {
+        assertRegistros("a,b\r\n\"x\r\ny\",\"di \"\"hola\"\"\"\r\n\"\"\"\",\"\"\r\nc,d\r\n",
+                "1: a|b",
+                "2: x\r\ny|di \"hola\"",
+                "4: \"|",
+                "5: c|d");
+    }
+
+    @Test
+    void finDeLineaLfOCrlfYUltimaFilaSinSalto() throws IOException {
+        assertRegistros("a\nb\r\n\r\nc,\n,d",
+                "1: a",
+                "2: b",
+                "3: ",
+                "4: c|",
+                "5: |d");
+    }
+
+    @Test
+    void seSaltaLaMarcaDeOrdenSoloAlPrincipio() throws IOException {
+        assertRegistros("\uFEFFDNI,Nombre\r\n\uFEFFx,y\r\n",
+                "1: DNI|Nombre",
+                "2: \uFEFFx|y");
+        assertRegistros("\uFEFF");
+        assertRegistros("");
+    }
+
+    @Test
+    void lineaEnBlancoYCamposQueFaltan() throws IOException {
+        try (LectorCsv lector = new LectorCsv(new StringReader("a,b\r\n\r\n"))) {
+            assertTrue(lector.siguiente());
+            assertFalse(lector.vacio());
+            assertEquals("", lector.campo(5));
+            assertTrue(lector.siguiente());
+            assertTrue(lector.vacio());
+            assertFalse(lector.siguiente());
+        }
+    }
+
+    @Test
+    void textoTrasLasComillasDeCierreSeAnadeAlCampo() throws IOException {
+        assertRegistros("\"a,b\"c,d\n", "1: a,bc|d");
+    }
+
+    @Test
+    void comillasSinCerrarIndicanLaLineaDelRegistro() throws IOException {
+        for (Reader in : List.of(new StringReader("a\n\"b\nc\nd"), deUnoEnUno("a\n\"b\nc\nd"))) {
+            try (LectorCsv lector = new LectorCsv(in)) {
+                assertTrue(lector.siguiente());
+                IOException e = assertThrows(IOException.class, lector::siguiente);
+                assertTrue(e.getMessage().contains("línea 2"), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package modelo;
+
+import org.junit.jupiter.api.Test;
+
+import java.text.DecimalFormatSymbols;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DineroTest {
+
+    private static final double MAXIMO_EUROS = (1L << 53) / 100.0;
+
+    @Test
+    void centimosRedondeaAlCentimoMasCercano() {
+        assertEquals(1999, Dinero.centimos(19.99));
+        assertEquals(30, Dinero.centimos(0.1 + 0.2));
+        assertEquals(-1999, Dinero.centimos(-19.99));
+        assertEquals(0, Dinero.centimos(0.004));
+        assertEquals(1, Dinero.centimos(0.006));
+        assertEquals(1999.0 / 100, Dinero.euros(1999));
+    }
+
+    @Test
+    void centimosEnElLimiteDe2a53() {
+        assertTrue(Dinero.esValido(MAXIMO_EUROS));
+        assertTrue(Dinero.esValido(-MAXIMO_EUROS));
+        assertEquals(1L << 53, Dinero.centimos(MAXIMO_EUROS));
+        assertEquals(-(1L << 53), Dinero.centimos(-MAXIMO_EUROS));
+
+        double siguiente = Math.nextUp(MAXIMO_EUROS);
+        assertFalse(Dinero.esValido(siguiente));
+        assertFalse(Dinero.esValido(-siguiente));
+        assertThrows(IllegalArgumentException.class, () -> Dinero.centimos(siguiente));
+        assertThrows(IllegalArgumentException.class, () -> Dinero.centimos(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> Dinero.centimos(Double.POSITIVE_INFINITY));
+    }
+
+    @Test
+    void porcentajeRedondeaLasMitadesHaciaFueraDelCero() {
+        assertEquals(1, Dinero.porcentaje(5, 10));    // 0,5
+        assertEquals(-1, Dinero.porcentaje(-5, 10));
+        assertEquals(2, Dinero.porcentaje(15, 10));   // 1,5
+        assertEquals(-2, Dinero.porcentaje(-15, 10));
+        assertEquals(1, Dinero.porcentaje(14, 10));   // 1,4
+        assertEquals(-1, Dinero.porcentaje(-14, 10));
+        assertEquals(2, Dinero.porcentaje(16, 10));   // 1,6
+        assertEquals(-2, Dinero.porcentaje(-16, 10));
+        assertEquals(3315, Dinero.porcentaje(16575, 20));
+        assertEquals(0, Dinero.porcentaje(0, 20));
+    }
+
+    @Test
+    void proporcionRedondeaLasMitadesHaciaFueraDelCero() {
+        assertEquals(0, Dinero.proporcion(1, 1, 3));
+        assertEquals(1, Dinero.proporcion(2, 1, 3));
+        assertEquals(0, Dinero.proporcion(-1, 1, 3));
+        assertEquals(-1, Dinero.proporcion(-2, 1, 3));
+        assertEquals(2, Dinero.proporcion(3, 1, 2));
+        assertEquals(-2, Dinero.proporcion(-3, 1, 2));
+        assertEquals(-2, Dinero.proporcion(3, -1, 2));
+        assertEquals(333, Dinero.proporcion(1000, 1, 3));
+        assertEquals(-667, Dinero.proporcion(-1000, 2, 3));
+        assertThrows(IllegalArgumentException.class, () -> Dinero.proporcion(1, 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> Dinero.proporcion(1, 1, -3));
+        assertThrows(ArithmeticException.class, () -> Dinero.proporcion(Long.MAX_VALUE, 2, 3));
+    }
+
+    @Test
+    void sumasYRestasNoDanLaVuelta() {
+        assertEquals(300, Dinero.sumar(100, 200));
+        assertEquals(-100, Dinero.restar(100, 200));
+        assertThrows(ArithmeticException.class, () -> Dinero.sumar(Long.MAX_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> Dinero.restar(Long.MIN_VALUE, 1));
+    }
+
+    @Test
+    void formatearComoFormatDeDosDecimales() {
+        for (long c : new long[] {0, 1, 5, 10, 99, 100, 1999, 123456, -1, -5, -99, -100, -123456}) {
+            assertEquals(String.format("%.2f €", c / 100.0), Dinero.formatear(c), "céntimos: " + c);
+        }
+        // Sin pasar por double: exacto hasta donde llegan los céntimos.
+        char separador = DecimalFormatSymbols.getInstance().getDecimalSeparator();
+        assertEquals("90071992547409" + separador + "93 €", Dinero.formatear((1L << 53) + 1));
+        assertEquals("-92233720368547758" + separador + "07 €", Dinero.formatear(Long.MIN_VALUE + 1));
+    }
+}
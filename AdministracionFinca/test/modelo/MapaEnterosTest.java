@@ -0,0 +1,133 @@
+package modelo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MapaEnterosTest {
+
+    /** Capacidad de un mapa nuevo por defecto: mientras no pase de la mitad, no crece. */
+    private static final int MASCARA = 31;
+
+    /** Claves cuyo sitio ideal en una tabla de MASCARA + 1 es {@code hueco}. */
+    private static List<Integer> clavesEn(int hueco, int cuantas, int desde) {
+        List<Integer> claves = new ArrayList<>();
+        for (int k = desde; claves.size() < cuantas; k++) {
+            if (MapaEnteros.hueco(k, MASCARA) == hueco) claves.add(k);
+        }
+        return claves;
+    }
+
+    private static void assertContiene(MapaEnteros mapa, Map<Integer, Integer> esperado) {
+        assertEquals(esperado.size(), mapa.size());
+        for (Map.Entry<Integer, Integer> e : esperado.entrySet()) {
+            assertEquals(e.getValue(), mapa.get(e.getKey()), "clave " + e.getKey());
+        }
+    }
+
+    @Test
+    void ponerDevuelveElAnteriorYQuitarElValor() {
+        MapaEnteros mapa = new MapaEnteros();
+        assertEquals(MapaEnteros.NINGUNO, mapa.poner(7, 1));
+        assertEquals(1, mapa.poner(7, 2));
+        assertEquals(2, mapa.get(7));
+        assertEquals(MapaEnteros.NINGUNO, mapa.get(8));
+        assertEquals(2, mapa.quitar(7));
+        assertEquals(MapaEnteros.NINGUNO, mapa.quitar(7));
+        assertEquals(0, mapa.size());
+        assertThrows(IllegalArgumentException.class, () -> mapa.poner(1, -1));
+    }
+
+    @Test
+    void quitarEnUnaCadenaDeColisionesQueDaLaVuelta() {
+        // Un grupo que empieza en el último hueco y sigue por el principio de la tabla, mezclado con claves
+        // cuyo sitio ideal es el 0 o el 1: al quitar, solo deben retroceder las que no quedan antes de su sitio.
+        List<Integer> alFinal = clavesEn(MASCARA, 4, 0);
+        List<Integer> enCero = clavesEn(0, 3, 0);
+        List<Integer> enUno = clavesEn(1, 2, 0);
+        MapaEnteros mapa = new MapaEnteros();
+        Map<Integer, Integer> esperado = new HashMap<>();
+        int valor = 0;
+        for (List<Integer> grupo : List.of(alFinal, enCero, enUno)) {
+            for (int k : grupo) {
+                mapa.poner(k, valor);
+                esperado.put(k, valor++);
+            }
+        }
+        assertContiene(mapa, esperado);
+
+        for (int k : List.of(alFinal.get(0), enCero.get(1), alFinal.get(2), enUno.get(0))) {
+            assertEquals(esperado.remove(k), mapa.quitar(k));
+            assertEquals(MapaEnteros.NINGUNO, mapa.get(k));
+            assertContiene(mapa, esperado);
+        }
+        // Los huecos que quedan no cortan las búsquedas: se vuelve a dar de alta y todo sigue ahí.
+        mapa.poner(alFinal.get(0), 100);
+        esperado.put(alFinal.get(0), 100);
+        assertContiene(mapa, esperado);
+    }
+
+    @Test
+    void quitarElDelUltimoHuecoNoMueveLasDelPrincipio() {
+        // Las del hueco 0 ya están en su sitio o después: ninguna debe pasar al último hueco, que queda antes.
+        int ultima = clavesEn(MASCARA, 1, 0).get(0);
+        List<Integer> enCero = clavesEn(0, 3, 0);
+        MapaEnteros mapa = new MapaEnteros();
+        Map<Integer, Integer> esperado = new HashMap<>();
+        mapa.poner(ultima, 9);
+        for (int k : enCero) {
+            mapa.poner(k, esperado.size());
+            esperado.put(k, esperado.size());
+        }
+        assertEquals(9, mapa.quitar(ultima));
+        assertContiene(mapa, esperado);
+    }
+
+    @Test
+    void creceConservandoTodasLasClaves() {
+        MapaEnteros mapa = new MapaEnteros(1);
+        Map<Integer, Integer> esperado = new HashMap<>();
+        int[] extremos = {Integer.MIN_VALUE, Integer.MAX_VALUE, -1, 0};
+        for (int k : extremos) {
+            mapa.poner(k, esperado.size());
+            esperado.put(k, esperado.size());
+        }
+        for (int k = 1; k <= 10_000; k++) {
+            mapa.poner(k * 7, k);
+            esperado.put(k * 7, k);
+        }
+        assertContiene(mapa, esperado);
+        mapa.vaciar();
+        assertEquals(0, mapa.size());
+        assertEquals(MapaEnteros.NINGUNO, mapa.get(7));
+    }
+
+    @Test
+    void coincideConHashMapEnAltasYBajasAlAzar() {
+        Random r = new Random(42);
+        MapaEnteros mapa = new MapaEnteros();
+        Map<Integer, Integer> esperado = new HashMap<>();
+        for (int n = 0; n < 200_000; n++) {
+            int clave = r.nextInt(600) - 100; // pocas claves: muchas colisiones, altas y bajas de las mismas
+            if (r.nextInt(3) == 0) {
+                Integer anterior = esperado.remove(clave);
+                assertEquals(anterior == null ? MapaEnteros.NINGUNO : anterior, mapa.quitar(clave));
+            } else {
+                int valor = r.nextInt(1_000_000);
+                Integer anterior = esperado.put(clave, valor);
+                assertEquals(anterior == null ? MapaEnteros.NINGUNO : anterior, mapa.poner(clave, valor));
+            }
+            if (n % 10_000 == 0) assertContiene(mapa, esperado);
+        }
+        assertContiene(mapa, esperado);
+        for (int clave = -100; clave < 500; clave++) {
+            if (!esperado.containsKey(clave)) assertEquals(MapaEnteros.NINGUNO, mapa.get(clave));
+        }
+    }
+}
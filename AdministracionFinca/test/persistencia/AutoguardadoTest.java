@@ -0,0 +1,45 @@
+package persistencia;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import servicio.GestorComunidad;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AutoguardadoTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void unGuardadoFallidoSeAvisaYSeReintenta() throws Exception {
+        File fichero = dir.resolve("sigco.dat").toFile();
+        Path temporal = Files.createDirectory(dir.resolve("sigco.dat.tmp")); // ocupa el sitio del temporal: no se puede escribir
+        GestorComunidad g = new GestorComunidad(new GestorComunidad.Datos());
+        g.registrarVecino("12345678A", "Ana López", "Calle Mayor 1", "28001", "Madrid", null);
+
+        CompletableFuture<Exception> fallo = new CompletableFuture<>();
+        try (Autoguardado a = Autoguardado.iniciar(fichero, g, null, 1, fallo::complete)) {
+            assertNotNull(fallo.get(10, TimeUnit.SECONDS));
+            assertTrue(g.hayCambiosSinGuardar());
+
+            Files.delete(temporal);
+            for (int i = 0; i < 100 && g.hayCambiosSinGuardar(); i++) Thread.sleep(100);
+        }
+        assertFalse(g.hayCambiosSinGuardar());
+        assertEquals(1, GestorPersistencia.cargar(fichero).vecinosPorDni.size());
+    }
+
+    @Test
+    void elPeriodoDebeSerPositivo() {
+        GestorComunidad g = new GestorComunidad(new GestorComunidad.Datos());
+        assertThrows(IllegalArgumentException.class,
+                () -> Autoguardado.iniciar(dir.resolve("sigco.dat").toFile(), g, null, 0, e -> {}));
+    }
+}
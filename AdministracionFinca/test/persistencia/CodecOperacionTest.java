@@ -0,0 +1,52 @@
+package persistencia;
+
+import org.junit.jupiter.api.Test;
+import servicio.Operacion;
+
+import java.io.*;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CodecOperacionTest {
+
+    private static Operacion idaYVuelta(Operacion op) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CodecOperacion.escribir(new DataOutputStream(bytes), op);
+        return CodecOperacion.leer(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    @Test
+    void todosLosTiposDeArgumento() throws IOException {
+        Operacion op = new Operacion(7, Operacion.Tipo.CREAR_VISITA, "12345678A", LocalDate.of(2024, 2, 29),
+                "Revisión de la caldera", 25.5, null, 3);
+        Operacion leida = idaYVuelta(op);
+        assertEquals(op.toString(), leida.toString());
+    }
+
+    @Test
+    void textoDeMasDe64KB() throws IOException {
+        String largo = "Descripción ñ € ".repeat(10_000); // ~200 KB en UTF-8: writeUTF no llegaba
+        Operacion leida = idaYVuelta(new Operacion(1, Operacion.Tipo.CREAR_VISITA, largo));
+        assertEquals(largo, leida.texto(0));
+    }
+
+    @Test
+    void textoMayorQueElMaximoSeRechazaAlEscribir() {
+        String enorme = "x".repeat(CodecOperacion.MAX_CUERPO + 1);
+        assertThrows(IOException.class, () -> idaYVuelta(new Operacion(1, Operacion.Tipo.CREAR_VISITA, enorme)));
+    }
+
+    @Test
+    void longitudDeTextoCorruptaSeRechazaAlLeer() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(1);
+        out.writeByte(Operacion.Tipo.CREAR_VISITA.getCodigo());
+        out.writeByte(1);
+        out.writeByte(1); // texto
+        out.writeInt(-5);
+        assertThrows(IOException.class,
+                () -> CodecOperacion.leer(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+    }
+}
@@ -0,0 +1,193 @@
+package persistencia;
+
+import modelo.Vecino;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import servicio.GestorComunidad;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reproducción del {@link Diario} tras una caída, registros cortados o corruptos, compactación con un
+ * diario anterior pendiente y recuperación tras una avería.
+ *
+ * Las caídas se simulan copiando los ficheros a otro directorio mientras el diario original sigue abierto.
+ */
+class DiarioTest {
+
+    private static final LocalDate HOY = LocalDate.of(2024, 1, 1);
+
+    @TempDir
+    Path dir;
+
+    private File fichero(String subdirectorio) throws IOException {
+        return Files.createDirectories(dir.resolve(subdirectorio)).resolve("sigco.dat").toFile();
+    }
+
+    private static File diarioDe(File f) {
+        return new File(f.getPath() + ".diario");
+    }
+
+    private static File anteriorDe(File f) {
+        return new File(f.getPath() + ".diario.anterior");
+    }
+
+    /** Lo que haría la aplicación al arrancar: la instantánea (si hay) y el diario encima. */
+    private static GestorComunidad arrancar(File f) throws Exception {
+        return new GestorComunidad(f.exists() ? GestorPersistencia.cargar(f) : new GestorComunidad.Datos());
+    }
+
+    /** Da de alta n vecinos, cada uno con una visita; factura uno de cada tres. */
+    private static void trabajar(GestorComunidad g, int desde, int n) {
+        for (int i = desde; i < desde + n; i++) {
+            Vecino v = g.registrarVecino(String.format("%08d%c", i, 'A' + i % 26), "Vecino " + i, "Calle " + i, "28001", "Madrid", null);
+            g.crearFichaVisita(v, HOY.plusDays(i), "Revisión " + i, 10 + i, "Admin");
+            if (i % 3 == 0) g.crearFactura(v, HOY.plusDays(i));
+        }
+    }
+
+    private static void assertMismosDatos(GestorComunidad esperado, GestorComunidad real) throws IOException {
+        assertArrayEquals(GestorPersistencia.serializar(esperado.getDatos()), GestorPersistencia.serializar(real.getDatos()));
+    }
+
+    @Test
+    void reproduceElDiarioTrasUnaCaida() throws Exception {
+        File f = fichero("a");
+        GestorComunidad g = arrancar(f);
+        try (Diario d = Diario.abrir(f, g)) {
+            trabajar(g, 0, 50);
+            d.sincronizar();
+            File copia = fichero("b");
+            Files.copy(diarioDe(f).toPath(), diarioDe(copia).toPath());
+
+            GestorComunidad recuperado = arrancar(copia);
+            try (Diario dr = Diario.abrir(copia, recuperado)) {
+                assertMismosDatos(g, recuperado);
+                assertFalse(dr.agregadosCorregidos());
+            }
+        }
+    }
+
+    @Test
+    void descartaUnUltimoRegistroCortado() throws Exception {
+        comprobarUltimoRegistroDescartado(diario -> diario.setLength(diario.length() - 3));
+    }
+
+    @Test
+    void descartaUnUltimoRegistroConCrcErroneo() throws Exception {
+        comprobarUltimoRegistroDescartado(diario -> {
+            diario.seek(diario.length() - 1);
+            int b = diario.read();
+            diario.seek(diario.length() - 1);
+            diario.write(b ^ 0xFF);
+        });
+    }
+
+    private interface Estropear {
+        void en(RandomAccessFile diario) throws IOException;
+    }
+
+    private void comprobarUltimoRegistroDescartado(Estropear estropear) throws Exception {
+        File f = fichero("a");
+        GestorComunidad g = arrancar(f);
+        GestorComunidad antesDelUltimo = arrancar(fichero("referencia"));
+        trabajar(antesDelUltimo, 0, 10);
+        File copia = fichero("b");
+        try (Diario d = Diario.abrir(f, g)) {
+            trabajar(g, 0, 10);
+            g.registrarVecino("99999999Z", "Último", "Calle", "28001", "Madrid", null);
+            d.sincronizar();
+            Files.copy(diarioDe(f).toPath(), diarioDe(copia).toPath());
+        }
+        long secuencia = g.getDatos().secuenciaDiario;
+        try (RandomAccessFile diario = new RandomAccessFile(diarioDe(copia), "rw")) {
+            estropear.en(diario);
+        }
+
+        GestorComunidad recuperado = arrancar(copia);
+        try (Diario d = Diario.abrir(copia, recuperado)) {
+            assertEquals(secuencia - 1, recuperado.getDatos().secuenciaDiario);
+            assertTrue(recuperado.buscarVecinoPorDni("99999999Z").isEmpty());
+            assertEquals(antesDelUltimo.getVecinos().size(), recuperado.getVecinos().size());
+
+            // La cola estropeada se ha truncado: lo siguiente se anota a continuación de lo válido.
+            recuperado.registrarVecino("88888888Y", "Otro", "Calle", "28001", "Madrid", null);
+            d.sincronizar();
+            File otra = fichero("c");
+            Files.copy(diarioDe(copia).toPath(), diarioDe(otra).toPath());
+            GestorComunidad releido = arrancar(otra);
+            try (Diario dr = Diario.abrir(otra, releido)) {
+                assertMismosDatos(recuperado, releido);
+                assertEquals(secuencia, releido.getDatos().secuenciaDiario);
+            }
+        }
+    }
+
+    @Test
+    void compactaConUnDiarioAnteriorPendiente() throws Exception {
+        File f = fichero("a");
+        GestorComunidad g = arrancar(f);
+        File copia = fichero("b");
+        try (Diario d = Diario.abrir(f, g)) {
+            trabajar(g, 0, 20);
+            d.sincronizar();
+            // Una compactación se interrumpió tras apartar el diario y antes de escribir la instantánea.
+            Files.copy(diarioDe(f).toPath(), anteriorDe(copia).toPath());
+            int apartado = (int) anteriorDe(copia).length();
+            trabajar(g, 20, 20);
+            d.sincronizar();
+            byte[] todo = Files.readAllBytes(diarioDe(f).toPath());
+            Files.write(diarioDe(copia).toPath(), Arrays.copyOfRange(todo, apartado, todo.length));
+        }
+
+        GestorComunidad recuperado = arrancar(copia);
+        try (Diario d = Diario.abrir(copia, recuperado)) {
+            assertMismosDatos(g, recuperado);
+            d.compactar();
+            assertTrue(copia.exists());
+            assertFalse(anteriorDe(copia).exists());
+            assertEquals(0, diarioDe(copia).length());
+        }
+        assertMismosDatos(g, new GestorComunidad(GestorPersistencia.cargar(copia)));
+    }
+
+    @Test
+    void trasUnaAveriaRechazaCambiosHastaQueUnaInstantaneaLaRecoge() throws Exception {
+        File f = fichero("a");
+        GestorComunidad g = arrancar(f);
+        try (Diario d = Diario.abrir(f, g)) {
+            trabajar(g, 0, 5);
+            Vecino v = g.getVecinos().get(0);
+            // Una operación que el diario no puede codificar: se aplica en memoria y el diario queda averiado.
+            g.crearFichaVisita(v, HOY, "x".repeat(CodecOperacion.MAX_CUERPO + 1), 1, "Admin");
+            int visitas = g.getVisitas().size();
+
+            assertThrows(UncheckedIOException.class, () -> g.crearFichaVisita(v, HOY, "Rechazada", 1, "Admin"));
+            assertThrows(UncheckedIOException.class, d::comprobar);
+            assertEquals(visitas, g.getVisitas().size());
+
+            d.compactar();
+            d.comprobar();
+            g.crearFichaVisita(v, HOY, "Admitida", 1, "Admin");
+            d.sincronizar();
+
+            File copia = fichero("b");
+            Files.copy(f.toPath(), copia.toPath());
+            Files.copy(diarioDe(f).toPath(), diarioDe(copia).toPath());
+            GestorComunidad recuperado = arrancar(copia);
+            try (Diario dr = Diario.abrir(copia, recuperado)) {
+                assertMismosDatos(g, recuperado);
+                assertEquals(visitas + 1, recuperado.getVisitas().size());
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package persistencia;
+
+import modelo.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import servicio.GestorComunidad;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Formato binario ({@link CodecBinario}), carga proyectada y migración de los ficheros antiguos. */
+class GestorPersistenciaTest {
+
+    private static final LocalDate HOY = LocalDate.of(2024, 1, 1);
+
+    @TempDir
+    Path dir;
+
+    /** Un poco de todo: descripciones repetidas, facturas, un profesor dado de baja que sigue en una materia... */
+    static GestorComunidad ejemplo() {
+        GestorComunidad g = new GestorComunidad(new GestorComunidad.Datos());
+        Vecino a = g.registrarVecino("12345678A", "Ana López", "Calle Mayor 1", "28001", "Madrid", "600000000");
+        Vecino b = g.registrarVecino("87654321B", "Blas Ruiz", "Calle Menor 2", "28002", "Madrid", null);
+        FichaVisita v1 = g.crearFichaVisita(a, HOY.minusDays(40), "Revisión caldera", 120.5, "Lucía");
+        g.crearFichaVisita(a, HOY.minusDays(10), "Fuga en el garaje", 80, "Marcos");
+        FichaVisita v3 = g.crearFichaVisita(b, HOY.minusDays(5), "Revisión caldera", 45.25, "Lucía");
+        g.crearFactura(a, HOY);
+
+        g.registrarProfesor("Eva", "Pérez", "Calle 1", "600000001", 1500);
+        Profesor q = g.registrarProfesor("Luis", "Sanz", "Calle 2", "600000002", 1200);
+        Curso c = g.crearCurso("Jardinería", 50, 10, HOY, HOY.plusMonths(3));
+        g.addMateriaACurso(c, "Poda", 10, q);
+        g.inscribirVecinoEnCurso(b, c);
+        g.eliminarProfesor(q);
+
+        Auditor auditor = g.registrarAuditor("Rosa", "Gil", "B00000000", "Audita", "Calle 3", "600000003");
+        Material m = g.registrarMaterial("Casco", 20);
+        Auditoria x = g.crearAuditoria(auditor, HOY.minusDays(30));
+        g.asignarVisitasAAuditoria(x, List.of(v1, v3));
+        g.asignarMaterialAAuditoria(x, m);
+        g.finalizarAuditoria(x, HOY);
+        return g;
+    }
+
+    private File guardado(String nombre, GestorComunidad.Datos datos) throws IOException {
+        File f = dir.resolve(nombre).toFile();
+        GestorPersistencia.guardar(f, datos);
+        return f;
+    }
+
+    @Test
+    void cargaCompletaYProyectadaDanLoMismo() throws Exception {
+        File f = guardado("sigco.dat", ejemplo().getDatos());
+        byte[] original = Files.readAllBytes(f.toPath());
+
+        GestorComunidad.Datos completa = GestorPersistencia.cargar(f);
+        GestorComunidad.Datos proyectada = GestorPersistencia.cargarProyectado(f);
+        assertFalse(completa.facturas instanceof FacturasMapeadas);
+        assertInstanceOf(FacturasMapeadas.class, proyectada.facturas);
+
+        assertArrayEquals(original, GestorPersistencia.serializar(completa));
+        assertArrayEquals(original, GestorPersistencia.serializar(proyectada));
+        for (GestorComunidad.Datos d : List.of(completa, proyectada)) {
+            assertEquals(List.of("Revisión caldera", "Fuga en el garaje", "Revisión caldera"),
+                    d.visitas.stream().map(FichaVisita::getDescripcion).collect(Collectors.toList()));
+            assertEquals(20050, d.facturas.get(0).getTotalCentimos());
+            assertEquals(List.of(1, 2), d.facturas.get(0).getVisitas().stream().map(FichaVisita::getId).collect(Collectors.toList()));
+            assertEquals("Luis", d.cursos.get(0).getMaterias().get(0).getProfesor().getNombre());
+            assertEquals(1, d.profesores.size());
+            assertEquals(3, d.nextProfesorId);
+            assertEquals(3315, d.auditorias.get(0).getSueldoAuditorCentimos());
+        }
+    }
+
+    @Test
+    void cargaLaSerializacionJavaAntigua() throws Exception {
+        File f = dir.resolve("sigco.dat").toFile();
+        try (InputStream in = getClass().getResourceAsStream("sigco-antiguo.dat")) {
+            Files.copy(in, f.toPath());
+        }
+        GestorComunidad.Datos d = GestorPersistencia.cargar(f);
+
+        assertEquals(3, d.vecinosPorDni.size());
+        assertInstanceOf(HistoricoVisitas.class, d.visitas);
+        assertEquals(2, d.visitas.size());
+        assertEquals(1000, d.visitas.get(0).getImporteCentimos());
+        assertEquals(EstadoPago.PAGADA, d.visitas.get(0).getEstado());
+        // Las facturas y auditorías apuntan a las visitas del histórico, no a copias sueltas.
+        assertEquals(d.visitas.get(0), d.facturas.get(0).getVisitas().get(0));
+        assertEquals(d.visitas.get(1), d.facturas.get(1).getVisitas().get(0));
+        // Sin ids en el fichero: se numeran en orden y los contadores quedan por encima.
+        assertEquals(List.of(1, 2), d.profesores.stream().map(Profesor::getId).collect(Collectors.toList()));
+        assertEquals(3, d.nextProfesorId);
+        assertEquals(2, d.nextAuditorId);
+        assertEquals(2, d.nextMaterialId);
+        assertTrue(d.auditorias.get(0).estaCerrada());
+        assertEquals(240, d.auditorias.get(0).getSueldoAuditorCentimos());
+
+        // La carga proyectada no reconoce el formato y lo carga entero; guardado ya es binario.
+        GestorComunidad.Datos proyectada = GestorPersistencia.cargarProyectado(f);
+        byte[] binario = GestorPersistencia.serializar(d);
+        assertArrayEquals(binario, GestorPersistencia.serializar(proyectada));
+        assertArrayEquals(binario, GestorPersistencia.serializar(GestorPersistencia.cargar(guardado("nuevo.dat", d))));
+    }
+
+    @Test
+    void guardarTrasCargaProyectadaCopiaLasFacturasTalCual() throws Exception {
+        File f = guardado("sigco.dat", ejemplo().getDatos());
+        GestorComunidad.Datos proyectada = GestorPersistencia.cargarProyectado(f);
+        GestorComunidad.Datos completa = GestorPersistencia.cargar(f);
+        for (GestorComunidad.Datos d : List.of(proyectada, completa)) {
+            GestorComunidad g = new GestorComunidad(d);
+            Vecino b = g.buscarVecinoPorDni("87654321B").orElseThrow();
+            g.crearFichaVisita(b, HOY, "Ascensor", 99.99, "Marcos");
+            g.crearFactura(b, HOY);
+        }
+
+        FacturasMapeadas facturas = (FacturasMapeadas) proyectada.facturas;
+        assertEquals(1, facturas.getMapeadas());
+        assertEquals(1, facturas.getNuevas().size());
+        byte[] trasProyectada = GestorPersistencia.serializar(proyectada);
+        assertArrayEquals(GestorPersistencia.serializar(completa), trasProyectada);
+
+        GestorComunidad.Datos releida = GestorPersistencia.cargar(guardado("otro.dat", proyectada));
+        assertEquals(2, releida.facturas.size());
+        assertEquals(20050, releida.facturas.get(0).getTotalCentimos());
+        assertEquals(List.of(3, 4), releida.facturas.get(1).getVisitas().stream().map(FichaVisita::getId).collect(Collectors.toList()));
+    }
+}
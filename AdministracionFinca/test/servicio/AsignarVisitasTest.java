@@ -0,0 +1,83 @@
+package servicio;
+
+import modelo.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** {@link GestorComunidad#asignarVisitasAAuditoria}: lo comprueba todo antes de aplicar y anota el lote entero o nada. */
+class AsignarVisitasTest {
+
+    private static final LocalDate HOY = LocalDate.of(2024, 1, 1);
+
+    private GestorComunidad gestor;
+    private final List<Operacion> diario = new ArrayList<>();
+    private final List<EventoCambio> eventos = new ArrayList<>();
+    private Auditoria auditoria;
+    private FichaVisita v1, v2;
+
+    @BeforeEach
+    void preparar() {
+        gestor = new GestorComunidad(new GestorComunidad.Datos());
+        Vecino vecino = gestor.registrarVecino("12345678A", "Ana", "Calle 1", "28001", "Madrid", null);
+        v1 = gestor.crearFichaVisita(vecino, HOY, "Revisión", 100, "Admin");
+        v2 = gestor.crearFichaVisita(vecino, HOY, "Caldera", 50, "Admin");
+        Auditor auditor = gestor.registrarAuditor("Luis", "Gómez", "B00000000", "Audita", "Calle 2", "600000001");
+        auditoria = gestor.crearAuditoria(auditor, HOY);
+        gestor.setRegistro(diario::add);
+        gestor.addOyente(eventos::add);
+    }
+
+    @Test
+    void asignaYAnotaCadaVisita() {
+        gestor.asignarVisitasAAuditoria(auditoria, List.of(v1, v2));
+        assertEquals(List.of(v1, v2), auditoria.getVisitas());
+        assertEquals(3000, auditoria.getSueldoAuditorCentimos());
+        assertEquals(2, diario.size());
+        assertEquals(1, eventos.size());
+        assertEquals(0, eventos.get(0).getIndice());
+    }
+
+    @Test
+    void visitaSueltaNoSeAsignaNiSeAnota() {
+        FichaVisita suelta = new FichaVisita(v2.getId(), v2.getVecino(), HOY, "Otra", 10, "Admin");
+        assertThrows(IllegalArgumentException.class, () -> gestor.asignarVisitasAAuditoria(auditoria, List.of(v1, suelta)));
+        assertEquals(0, auditoria.getNumVisitas());
+        assertTrue(diario.isEmpty());
+        assertTrue(eventos.isEmpty());
+    }
+
+    @Test
+    void visitaDeOtroGestorNoSeAsigna() {
+        GestorComunidad otro = new GestorComunidad(new GestorComunidad.Datos());
+        Vecino vecino = otro.registrarVecino("12345678A", "Ana", "Calle 1", "28001", "Madrid", null);
+        FichaVisita ajena = otro.crearFichaVisita(vecino, HOY, "Revisión", 100, "Admin");
+        assertThrows(IllegalArgumentException.class, () -> gestor.asignarVisitasAAuditoria(auditoria, List.of(ajena)));
+        assertEquals(0, auditoria.getNumVisitas());
+        assertTrue(diario.isEmpty());
+    }
+
+    @Test
+    void auditoriaAjenaSeRechaza() {
+        Auditoria ajena = new Auditoria(auditoria.getId(), auditoria.getAuditor(), HOY);
+        assertThrows(IllegalArgumentException.class, () -> gestor.asignarVisitasAAuditoria(ajena, List.of(v1)));
+        assertEquals(0, ajena.getNumVisitas());
+        assertTrue(diario.isEmpty());
+        assertTrue(eventos.isEmpty());
+    }
+
+    @Test
+    void auditoriaCerradaNoCambia() {
+        gestor.finalizarAuditoria(auditoria, HOY.plusDays(1));
+        diario.clear();
+        eventos.clear();
+        assertThrows(IllegalStateException.class, () -> gestor.asignarVisitasAAuditoria(auditoria, List.of(v1, v2)));
+        assertEquals(0, auditoria.getNumVisitas());
+        assertTrue(diario.isEmpty());
+    }
+}
@@ -0,0 +1,226 @@
+package servicio;
+
+import modelo.*;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba de carga concurrente de {@link GestorComunidad}: muchos hilos crean visitas, facturan,
+ * inscriben, auditan y recorren listados a la vez. Al terminar comprueba los invariantes
+ * (ninguna visita facturada dos veces, ids únicos y crecientes, totales) y que reproducir el
+ * diario en una instancia nueva da el mismo estado.
+ */
+class EstresGestorTest {
+
+    private static final int HILOS = 16;
+    private static final int OPERACIONES_POR_HILO = 20_000;
+    private static final int NUM_VECINOS = 200;
+    private static final LocalDate HOY = LocalDate.of(2024, 1, 1);
+
+    private final List<String> fallos = new ArrayList<>();
+
+    @Test
+    void variosHilosMantienenLosInvariantesYElDiarioSeReproduce() throws Exception {
+        GestorComunidad gestor = new GestorComunidad(new GestorComunidad.Datos());
+        List<Operacion> diario = new ArrayList<>(); // el registro se llama en orden y de uno en uno
+        gestor.setRegistro(diario::add);
+
+        List<Vecino> vecinos = new ArrayList<>();
+        for (int i = 0; i < NUM_VECINOS; i++) {
+            String dni = String.format("%08d%c", i, 'A' + i % 26);
+            vecinos.add(gestor.registrarVecino(dni, "Vecino " + i, "Calle " + i, "28001", "Madrid", null));
+        }
+        Profesor profesor = gestor.registrarProfesor("Ana", "Pérez", "Calle 1", "600000000", 1500);
+        for (int i = 0; i < 4; i++) gestor.crearCurso("Curso " + i, 50, NUM_VECINOS / 2, HOY, HOY.plusMonths(3));
+        Auditor auditor = gestor.registrarAuditor("Luis", "Gómez", "B00000000", "Audita", "Calle 2", "600000001");
+        Material material = gestor.registrarMaterial("Casco", 20);
+
+        ExecutorService ejecutor = Executors.newFixedThreadPool(HILOS);
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int h = 0; h < HILOS; h++) {
+                tareas.add(ejecutor.submit(() -> {
+                    trabajar(gestor, vecinos, profesor, auditor, material, OPERACIONES_POR_HILO);
+                    return null;
+                }));
+            }
+            for (Future<?> t : tareas) t.get();
+        } finally {
+            ejecutor.shutdown();
+        }
+
+        comprobarFacturas(gestor);
+        comprobarIds(gestor);
+        comprobarDiario(diario);
+        if (!gestor.verificarAgregados()) fallos.add("los totales incrementales no cuadran con un recálculo");
+        comprobarReproduccion(gestor, diario);
+        assertTrue(fallos.isEmpty(), () -> String.join("\n", fallos));
+    }
+
+    private static void trabajar(GestorComunidad gestor, List<Vecino> vecinos, Profesor profesor,
+                                 Auditor auditor, Material material, int operaciones) {
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        for (int n = 0; n < operaciones; n++) {
+            Vecino vecino = vecinos.get(r.nextInt(vecinos.size()));
+            int p = r.nextInt(1000);
+            try {
+                if (p < 500) {
+                    gestor.crearFichaVisita(vecino, HOY.plusDays(r.nextInt(365)), "Revisión", r.nextInt(1, 10_000) / 100.0, "Admin");
+                } else if (p < 720) {
+                    gestor.crearFactura(vecino, HOY);
+                } else if (p < 800) {
+                    gestor.getVisitasPendientes(vecino);
+                } else if (p < 840) {
+                    recorrer(gestor.getVisitas());
+                } else if (p < 870) {
+                    gestor.getAgregados();
+                    recorrer(gestor.getFacturas());
+                } else if (p < 920) {
+                    List<Curso> cursos = gestor.getCursos();
+                    Curso curso = cursos.get(r.nextInt(cursos.size()));
+                    if (r.nextBoolean()) gestor.inscribirVecinoEnCurso(vecino, curso);
+                    else gestor.addMateriaACurso(curso, "Materia", 1 + r.nextInt(20), profesor);
+                } else if (p < 960) {
+                    List<Auditoria> auditorias = gestor.getAuditorias();
+                    if (auditorias.isEmpty() || r.nextInt(10) == 0) {
+                        gestor.crearAuditoria(auditor, HOY);
+                    } else {
+                        Auditoria a = auditorias.get(r.nextInt(auditorias.size()));
+                        List<FichaVisita> visitas = gestor.getVisitas();
+                        if (visitas.isEmpty()) continue;
+                        int q = r.nextInt(10);
+                        if (q == 0) gestor.finalizarAuditoria(a, HOY.plusDays(1));
+                        else if (q == 1) gestor.asignarMaterialAAuditoria(a, material);
+                        else gestor.asignarVisitasAAuditoria(a, List.of(visitas.get(r.nextInt(visitas.size()))));
+                    }
+                } else if (p < 998) {
+                    gestor.modificarMaterial(material, "Casco", 20 + r.nextInt(5));
+                } else {
+                    gestor.facturarTodos(HOY);
+                }
+            } catch (IllegalStateException esperado) {
+                // sin visitas pendientes, curso lleno o auditoría cerrada
+            }
+        }
+    }
+
+    /** Lee un tramo de la instantánea (hasta 1000 elementos) y comprueba que los ids crecen. */
+    private static void recorrer(List<?> lista) {
+        int anterior = 0;
+        int desde = lista.size() <= 1000 ? 0 : ThreadLocalRandom.current().nextInt(lista.size() - 1000);
+        for (Object x : lista.subList(desde, Math.min(lista.size(), desde + 1000))) {
+            int id = x instanceof FichaVisita ? ((FichaVisita) x).getId() : ((Factura) x).getId();
+            if (id <= anterior) throw new AssertionError("instantánea desordenada: " + id + " tras " + anterior);
+            anterior = id;
+        }
+    }
+
+    private void comprobarFacturas(GestorComunidad gestor) {
+        Set<Integer> facturadas = new HashSet<>();
+        for (Factura f : gestor.getFacturas()) {
+            if (f.getVisitas().isEmpty()) fallos.add("factura #" + f.getId() + " sin visitas");
+            for (FichaVisita v : f.getVisitas()) {
+                if (!facturadas.add(v.getId())) fallos.add("visita #" + v.getId() + " facturada dos veces");
+                if (v.getEstado() != EstadoPago.PAGADA) fallos.add("visita #" + v.getId() + " facturada pero impagada");
+                if (v.getVecino() != f.getVecino()) fallos.add("visita #" + v.getId() + " en la factura de otro vecino");
+            }
+        }
+        for (FichaVisita v : gestor.getVisitas()) {
+            if (v.getEstado() == EstadoPago.PAGADA && !facturadas.contains(v.getId())) {
+                fallos.add("visita #" + v.getId() + " pagada sin factura");
+            }
+        }
+    }
+
+    private void comprobarIds(GestorComunidad gestor) {
+        List<FichaVisita> visitas = gestor.getVisitas();
+        for (int i = 0; i < visitas.size(); i++) {
+            if (visitas.get(i).getId() != i + 1) {
+                fallos.add("la visita en la posición " + i + " tiene id " + visitas.get(i).getId());
+                break;
+            }
+        }
+        List<Factura> facturas = gestor.getFacturas();
+        for (int i = 0; i < facturas.size(); i++) {
+            if (facturas.get(i).getId() != i + 1) {
+                fallos.add("la factura en la posición " + i + " tiene id " + facturas.get(i).getId());
+                break;
+            }
+        }
+        GestorComunidad.Datos datos = gestor.getDatos();
+        if (datos.nextVisitaId != visitas.size() + 1) fallos.add("nextVisitaId = " + datos.nextVisitaId);
+        if (datos.nextFacturaId != facturas.size() + 1) fallos.add("nextFacturaId = " + datos.nextFacturaId);
+    }
+
+    private void comprobarDiario(List<Operacion> diario) {
+        for (int i = 0; i < diario.size(); i++) {
+            if (diario.get(i).getSecuencia() != i + 1) {
+                fallos.add("diario fuera de orden en la posición " + i + ": secuencia " + diario.get(i).getSecuencia());
+                return;
+            }
+        }
+    }
+
+    /** Reproduce el diario en un gestor vacío y compara entidad a entidad. */
+    private void comprobarReproduccion(GestorComunidad original, List<Operacion> diario) {
+        GestorComunidad copia = new GestorComunidad(new GestorComunidad.Datos());
+        try {
+            for (Operacion op : diario) copia.aplicar(op);
+        } catch (RuntimeException e) {
+            fallos.add("la reproducción del diario falla: " + e);
+            return;
+        }
+        List<FichaVisita> a = original.getVisitas(), b = copia.getVisitas();
+        if (a.size() != b.size()) fallos.add("reproducción: " + b.size() + " visitas en vez de " + a.size());
+        for (int i = 0; i < Math.min(a.size(), b.size()); i++) {
+            FichaVisita x = a.get(i), y = b.get(i);
+            if (x.getId() != y.getId() || x.getEstado() != y.getEstado() || x.getImporte() != y.getImporte()
+                    || !x.getVecino().getDni().equals(y.getVecino().getDni())) {
+                fallos.add("reproducción: la visita " + i + " difiere (" + x + " / " + y + ")");
+                break;
+            }
+        }
+        List<Factura> fa = original.getFacturas(), fb = copia.getFacturas();
+        if (fa.size() != fb.size()) fallos.add("reproducción: " + fb.size() + " facturas en vez de " + fa.size());
+        for (int i = 0; i < Math.min(fa.size(), fb.size()); i++) {
+            if (!idsVisitas(fa.get(i).getVisitas()).equals(idsVisitas(fb.get(i).getVisitas()))) {
+                fallos.add("reproducción: la factura #" + fa.get(i).getId() + " tiene otras visitas");
+                break;
+            }
+        }
+        List<Auditoria> aa = original.getAuditorias(), ab = copia.getAuditorias();
+        if (aa.size() != ab.size()) fallos.add("reproducción: " + ab.size() + " auditorías en vez de " + aa.size());
+        for (int i = 0; i < Math.min(aa.size(), ab.size()); i++) {
+            if (!idsVisitas(aa.get(i).getVisitas()).equals(idsVisitas(ab.get(i).getVisitas()))
+                    || aa.get(i).estaCerrada() != ab.get(i).estaCerrada()
+                    || aa.get(i).getMateriales().size() != ab.get(i).getMateriales().size()) {
+                fallos.add("reproducción: la auditoría #" + aa.get(i).getId() + " difiere");
+                break;
+            }
+        }
+        List<Curso> ca = original.getCursos(), cb = copia.getCursos();
+        for (int i = 0; i < ca.size(); i++) {
+            if (ca.get(i).getInscritos().size() != cb.get(i).getInscritos().size()
+                    || ca.get(i).getMaterias().size() != cb.get(i).getMaterias().size()) {
+                fallos.add("reproducción: el curso " + ca.get(i).getNombre() + " difiere");
+            }
+        }
+        if (!original.getAgregados().toString().equals(copia.getAgregados().toString())) {
+            fallos.add("reproducción: totales " + copia.getAgregados() + " en vez de " + original.getAgregados());
+        }
+    }
+
+    private static List<Integer> idsVisitas(List<FichaVisita> visitas) {
+        List<Integer> ids = new ArrayList<>();
+        for (FichaVisita v : visitas) ids.add(v.getId());
+        return ids;
+    }
+}
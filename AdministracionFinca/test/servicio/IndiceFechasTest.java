@@ -0,0 +1,116 @@
+package servicio;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndiceFechasTest {
+
+    /** Posiciones con día en [desde, hasta], por día y luego por orden de alta: lo que debe dar {@link IndiceFechas#tramo}. */
+    private static List<Integer> esperado(List<Integer> dias, int desde, int hasta) {
+        List<Integer> posiciones = new ArrayList<>();
+        for (int i = 0; i < dias.size(); i++) {
+            if (dias.get(i) >= desde && dias.get(i) <= hasta) posiciones.add(i);
+        }
+        posiciones.sort(Comparator.comparing((Integer i) -> dias.get(i)).thenComparing(i -> i));
+        return posiciones;
+    }
+
+    private static List<Integer> posiciones(IndiceFechas.Tramo tramo) {
+        List<Integer> lista = new ArrayList<>();
+        PrimitiveIterator.OfInt it = tramo.posiciones();
+        while (it.hasNext()) lista.add(it.nextInt());
+        assertEquals(tramo.size(), lista.size());
+        return lista;
+    }
+
+    @Test
+    void ordenaAlConstruirConDiasDesordenadosYRepetidos() {
+        List<Integer> dias = List.of(20, 10, 20, 5, 10, -3, 20);
+        IndiceFechas indice = IndiceFechas.de(dias.size(), dias::get);
+        assertEquals(dias.size(), indice.size());
+        assertEquals(List.of(5, 3, 1, 4, 0, 2, 6), posiciones(indice.tramo(Integer.MIN_VALUE, Integer.MAX_VALUE)));
+        assertEquals(List.of(1, 4), posiciones(indice.tramo(10, 10)));
+        assertEquals(List.of(5, 3), posiciones(indice.tramo(-10, 9)));
+        assertEquals(List.of(0, 2, 6), posiciones(indice.tramo(11, Integer.MAX_VALUE)));
+        assertEquals(List.of(), posiciones(indice.tramo(21, 30)));
+        assertEquals(List.of(), posiciones(indice.tramo(20, 10)));
+    }
+
+    @Test
+    void altasAtrasadasYDiasRepetidosSeFundenEnOrden() {
+        Random r = new Random(7);
+        List<Integer> dias = new ArrayList<>();
+        IndiceFechas indice = IndiceFechas.de(0, i -> 0);
+        int hoy = 1000;
+        for (int n = 0; n < 20_000; n++) {
+            // Casi siempre hoy o después (a veces el mismo día varias veces); una de cada cinco, atrasada.
+            int dia = r.nextInt(5) == 0 ? hoy - r.nextInt(400) : (hoy += r.nextInt(2));
+            indice.anadir(dia, dias.size());
+            dias.add(dia);
+            if (n % 997 == 0) {
+                int desde = hoy - r.nextInt(500), hasta = desde + r.nextInt(300);
+                assertEquals(esperado(dias, desde, hasta), posiciones(indice.tramo(desde, hasta)), "tras " + n + " altas");
+            }
+        }
+        assertEquals(dias.size(), indice.size());
+        for (int k = 0; k < 50; k++) {
+            int desde = 600 + r.nextInt(hoy - 600), hasta = desde + r.nextInt(50);
+            assertEquals(esperado(dias, desde, hasta), posiciones(indice.tramo(desde, hasta)));
+        }
+        assertEquals(esperado(dias, Integer.MIN_VALUE, Integer.MAX_VALUE),
+                posiciones(indice.tramo(Integer.MIN_VALUE, Integer.MAX_VALUE)));
+    }
+
+    @Test
+    void unTramoNoCambiaConLasAltasPosteriores() {
+        List<Integer> dias = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) dias.add(i / 3);
+        IndiceFechas indice = IndiceFechas.de(dias.size(), dias::get);
+        indice.anadir(100, dias.size());
+        dias.add(100);
+        IndiceFechas.Tramo tramo = indice.tramo(90, 110);
+        List<Integer> antes = posiciones(tramo);
+        assertEquals(esperado(dias, 90, 110), antes);
+
+        // Suficientes altas atrasadas para fundir los recientes con el principal, y otras al final.
+        for (int i = 0; i < 600; i++) {
+            int dia = i % 2 == 0 ? 95 : 400 + i;
+            indice.anadir(dia, dias.size());
+            dias.add(dia);
+        }
+        assertEquals(antes, posiciones(tramo));
+        assertEquals(esperado(dias, 90, 110), posiciones(indice.tramo(90, 110)));
+        assertEquals(dias.stream().filter(d -> d == 95).count(), indice.tramo(95, 95).size());
+    }
+
+    @Test
+    void elIteradorSeAgota() {
+        IndiceFechas indice = IndiceFechas.de(1, i -> 0);
+        PrimitiveIterator.OfInt it = indice.tramo(0, 0).posiciones();
+        assertEquals(0, it.nextInt());
+        assertFalse(it.hasNext());
+        assertThrows(java.util.NoSuchElementException.class, it::nextInt);
+    }
+
+    @Test
+    void elResultadoNoDependeDeLaFormaDeConstruir() {
+        Random r = new Random(11);
+        List<Integer> dias = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) dias.add(r.nextInt(365));
+        IndiceFechas deGolpe = IndiceFechas.de(dias.size(), dias::get);
+        IndiceFechas poco = IndiceFechas.de(0, i -> 0);
+        for (int i = 0; i < dias.size(); i++) poco.anadir(dias.get(i), i);
+        for (int desde = 0; desde < 365; desde += 30) {
+            List<Integer> esperadas = esperado(dias, desde, desde + 45);
+            assertEquals(esperadas, posiciones(deGolpe.tramo(desde, desde + 45)));
+            assertEquals(esperadas, posiciones(poco.tramo(desde, desde + 45)));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package servicio;
+
+import modelo.EstadoPago;
+import modelo.FichaVisita;
+import modelo.HistoricoVisitas;
+import modelo.Vecino;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Comprueba que {@link MotorInformes} da lo mismo que un stream por informe sobre
+ * {@link GestorComunidad#getVisitas()}, y que la consulta repetida sale de la caché.
+ */
+class MotorInformesTest {
+
+    private static final int NUM_VECINOS = 500;
+    private static final int NUM_VISITAS = 50_000;
+    private static final String[] ADMINISTRADORES = {"Admin", "Lucía", "Marcos", "Pilar", "Jorge", "Elena", "Raúl", "Nuria"};
+    private static final LocalDate HOY = LocalDate.of(2024, 1, 1);
+
+    private static GestorComunidad gestor;
+    private static Informe informe;
+
+    @BeforeAll
+    static void preparar() {
+        gestor = new GestorComunidad(generar(NUM_VISITAS, new Random(42)));
+        informe = new MotorInformes(gestor).informe(HOY);
+    }
+
+    @Test
+    void porVecino() {
+        assertEquals(gestor.getVisitas().stream().collect(Collectors.groupingBy(FichaVisita::getVecino, totales())),
+                informe.getPorVecino());
+    }
+
+    @Test
+    void porAdministrador() {
+        assertEquals(gestor.getVisitas().stream().collect(Collectors.groupingBy(FichaVisita::getNombreAdministrador, totales())),
+                informe.getPorAdministrador());
+    }
+
+    @Test
+    void porMes() {
+        assertEquals(new TreeMap<>(gestor.getVisitas().stream().collect(Collectors.groupingBy(v -> YearMonth.from(v.getFecha()), totales()))),
+                informe.getPorMes());
+    }
+
+    @Test
+    void antiguedadPendiente() {
+        Map<Integer, Informe.Totales> tramos = gestor.getVisitas().stream().filter(v -> v.getEstado() != EstadoPago.PAGADA)
+                .collect(Collectors.groupingBy(v -> tramo(HOY.toEpochDay() - v.getFecha().toEpochDay()), totales()));
+        List<Informe.Totales> antiguedad = new ArrayList<>();
+        for (int k = 0; k <= Informe.TRAMOS_ANTIGUEDAD.length; k++) antiguedad.add(tramos.getOrDefault(k, new Informe.Totales(0, 0, 0, 0)));
+        assertEquals(antiguedad, informe.getAntiguedadPendiente());
+    }
+
+    @Test
+    void consultaRepetidaSaleDeLaCache() {
+        MotorInformes motor = new MotorInformes(gestor);
+        assertSame(motor.informe(HOY), motor.informe(HOY));
+    }
+
+    /** Diez años de visitas en orden de fecha; las de más de 90 días, casi todas pagadas. */
+    private static GestorComunidad.Datos generar(int numVisitas, Random r) {
+        GestorComunidad.Datos datos = new GestorComunidad.Datos();
+        Vecino[] vecinos = new Vecino[NUM_VECINOS];
+        for (int i = 0; i < NUM_VECINOS; i++) {
+            String dni = String.format("%08d%c", i, 'A' + i % 26);
+            vecinos[i] = new Vecino(dni, "Vecino " + i, "Calle " + i, "28001", "Madrid", null);
+            datos.vecinosPorDni.put(dni, vecinos[i]);
+        }
+        HistoricoVisitas visitas = (HistoricoVisitas) datos.visitas;
+        LocalDate inicio = HOY.minusYears(10);
+        long dias = HOY.toEpochDay() - inicio.toEpochDay();
+        for (int i = 0; i < numVisitas; i++) {
+            LocalDate fecha = inicio.plusDays(i * dias / numVisitas);
+            FichaVisita v = visitas.anadir(i + 1, vecinos[r.nextInt(NUM_VECINOS)], fecha, "Revisión",
+                    r.nextInt(1, 50_000) / 100.0, ADMINISTRADORES[r.nextInt(ADMINISTRADORES.length)]);
+            if (r.nextInt(100) < (fecha.isBefore(HOY.minusDays(90)) ? 98 : 40)) v.marcarPagada();
+        }
+        datos.nextVisitaId = numVisitas + 1;
+        return datos;
+    }
+
+    private static Collector<FichaVisita, ?, Informe.Totales> totales() {
+        return Collectors.reducing(new Informe.Totales(0, 0, 0, 0), MotorInformesTest::totales, Informe.Totales::mas);
+    }
+
+    private static Informe.Totales totales(FichaVisita v) {
+        boolean pendiente = v.getEstado() != EstadoPago.PAGADA;
+        return new Informe.Totales(1, v.getImporteCentimos(), pendiente ? 1 : 0, pendiente ? v.getImporteCentimos() : 0);
+    }
+
+    private static int tramo(long dias) {
+        int k = 0;
+        while (k < Informe.TRAMOS_ANTIGUEDAD.length && dias > Informe.TRAMOS_ANTIGUEDAD[k]) k++;
+        return k;
+    }
+}